@@ -0,0 +1,18 @@
+package com.wht.sdt.annotation;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 强制走主库注解
+ * 标记的方法（或类的所有方法）中执行的查询语句不路由到从库，用于写后立即读等需要读取最新数据的场景
+ *
+ * @author wht
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface ForcePrimary {
+}
@@ -0,0 +1,27 @@
+package com.wht.sdt.annotation;
+
+
+import com.wht.sdt.enumeration.StrategyType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 自定义路由策略注解
+ * 标记在实现了RouterStrategy的Spring Bean上，将其注册到指定的策略类型（通常为CUSTOM_1..CUSTOM_4）
+ *
+ * @author wht
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SDTStrategy {
+
+    /**
+     * 注册的策略类型
+     *
+     * @return 策略类型
+     */
+    StrategyType value();
+}
@@ -3,6 +3,7 @@ package com.wht.sdt.annotation;
 
 
 
+import com.wht.sdt.enumeration.MergeType;
 import com.wht.sdt.enumeration.StrategyType;
 
 import java.lang.annotation.ElementType;
@@ -35,9 +36,46 @@ public @interface SplitDT {
     String routeKey() default "";
 
     /**
-     * 分库分表字段
+     * 路由策略
      *
-     * @return 路由字段，如果为空则使用配置文件中的默认字段
+     * @return 路由策略，默认使用数据源组配置的策略（未配置时为HASH）
+     */
+    StrategyType strategy() default StrategyType.DEFAULT;
+
+    /**
+     * 广播查询：没有路由字段时，并行在数据源组的所有分库分表上执行，并合并结果；
+     * 参数中有路由字段值（或路由字段值集合）时按正常路由（或按分片拆分）执行
+     *
+     * @return 是否广播
+     */
+    boolean broadcast() default false;
+
+    /**
+     * 广播查询结果合并方式
+     *
+     * @return 合并方式
+     */
+    MergeType merge() default MergeType.AUTO;
+
+    /**
+     * 广播查询结果的排序字段（结果对象的属性），如："createTime desc, id"
+     * 各分片SQL需使用相同的ORDER BY，合并时按该顺序归并排序
+     *
+     * @return 排序字段
+     */
+    String orderBy() default "";
+
+    /**
+     * 广播查询合并后保留的最大条数，小于0表示不限制
+     *
+     * @return 最大条数
+     */
+    int limit() default -1;
+
+    /**
+     * 广播查询超时时间（毫秒），小于等于0时使用配置文件中的默认值
+     *
+     * @return 超时时间
      */
-    StrategyType strategy() default StrategyType.HASH;
+    long timeout() default -1;
 }
@@ -0,0 +1,212 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.util.PropertyAccessors;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 集合参数拆分器
+ * 支持两种集合参数，由切面按分片分组后把每组元素作为新的参数分别执行：
+ * <ul>
+ *     <li>参数名与路由字段相同的集合，元素本身即路由字段值，如 routeKey = "ids" 时的 selectByIds(@Param("ids") List&lt;Long&gt; ids)</li>
+ *     <li>元素包含路由字段的集合，如 insertList(List&lt;Order&gt; orders)</li>
+ * </ul>
+ *
+ * @author wht
+ */
+public final class CollectionRouteSplitter {
+
+    /**
+     * 集合参数的位置
+     */
+    private final int argIndex;
+
+    /**
+     * 元素上的路由字段路径
+     */
+    private final String[] path;
+
+    /**
+     * 参数声明类型（用于创建拆分后的参数）
+     */
+    private final Class<?> parameterType;
+
+    private CollectionRouteSplitter(int argIndex, String[] path, Class<?> parameterType) {
+        this.argIndex = argIndex;
+        this.path = path;
+        this.parameterType = parameterType;
+    }
+
+    /**
+     * 解析方法参数，查找参数名与路由字段相同的集合参数，或元素包含路由字段的集合参数
+     *
+     * @param method   目标方法
+     * @param routeKey 路由字段
+     * @return 拆分器，没有合适的集合参数时返回null
+     */
+    public static CollectionRouteSplitter of(Method method, String routeKey) {
+        if (routeKey == null || routeKey.isEmpty()) {
+            return null;
+        }
+
+        String[] path = routeKey.split("\\.");
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Parameter[] parameters = method.getParameters();
+
+        // 参数名与路由字段相同的集合参数优先，元素（或元素的嵌套属性）即路由字段值
+        for (int i = 0; i < parameters.length; i++) {
+            if (RouteKeyExtractor.isCollectionType(parameterTypes[i])
+                    && path[0].equals(RouteKeyExtractor.parameterName(parameters[i]))) {
+                return new CollectionRouteSplitter(i, Arrays.copyOfRange(path, 1, path.length), parameterTypes[i]);
+            }
+        }
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> elementType = elementType(method, i);
+            if (elementType != null && hasRouteProperty(elementType, path[0])) {
+                return new CollectionRouteSplitter(i, path, parameterTypes[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取集合参数的元素
+     *
+     * @param args 方法参数
+     * @return 元素列表，参数为null时返回空列表
+     */
+    public List<Object> elements(Object[] args) {
+        Object arg = args == null || argIndex >= args.length ? null : args[argIndex];
+        if (arg == null) {
+            return List.of();
+        }
+        if (arg instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        }
+        if (arg.getClass().isArray()) {
+            int length = Array.getLength(arg);
+            List<Object> elements = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                elements.add(Array.get(arg, i));
+            }
+            return elements;
+        }
+        return List.of(arg);
+    }
+
+    /**
+     * 读取元素的路由字段值
+     *
+     * @param element 集合元素
+     * @return 路由字段值，为空时返回null
+     */
+    public String routeValue(Object element) {
+        Object value = path.length == 0 ? element : PropertyAccessors.getPathValue(element, path);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * 复制方法参数，并把集合参数替换为指定的元素
+     *
+     * @param args     原方法参数
+     * @param elements 替换后的元素
+     * @return 新的方法参数
+     */
+    public Object[] withElements(Object[] args, List<Object> elements) {
+        Object[] copy = Arrays.copyOf(args, args.length);
+        copy[argIndex] = newContainer(args[argIndex], elements);
+        return copy;
+    }
+
+    private Object newContainer(Object original, List<Object> elements) {
+        if (parameterType.isArray()) {
+            Class<?> componentType = original != null
+                    ? original.getClass().getComponentType() : parameterType.getComponentType();
+            Object array = Array.newInstance(componentType, elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                Array.set(array, i, elements.get(i));
+            }
+            return array;
+        }
+        if (original instanceof Set || Set.class.isAssignableFrom(parameterType)) {
+            return new LinkedHashSet<>(elements);
+        }
+        return elements;
+    }
+
+    /**
+     * 合并各分片批量执行的影响行数
+     * 各分片返回的数组与本分片元素一一对应时按元素原始顺序返回（未执行的元素为0），否则按分片顺序拼接
+     *
+     * @param indexes      各分片元素在原集合中的位置
+     * @param results      各分片返回的影响行数（与indexes顺序一致）
+     * @param elementCount 原集合的元素数量
+     * @return 影响行数
+     */
+    static int[] orderedCounts(List<List<Integer>> indexes, List<Object> results, int elementCount) {
+        boolean aligned = true;
+        int length = 0;
+        for (int i = 0; i < indexes.size(); i++) {
+            int[] counts = (int[]) results.get(i);
+            int size = counts == null ? 0 : counts.length;
+            aligned &= size == indexes.get(i).size();
+            length += size;
+        }
+
+        int[] merged = new int[aligned ? elementCount : length];
+        int pos = 0;
+        for (int i = 0; i < indexes.size(); i++) {
+            int[] counts = (int[]) results.get(i);
+            if (counts == null) {
+                continue;
+            }
+            List<Integer> shardIndexes = indexes.get(i);
+            for (int j = 0; j < counts.length; j++) {
+                merged[aligned ? shardIndexes.get(j) : pos++] = counts[j];
+            }
+        }
+        return merged;
+    }
+
+    public int getArgIndex() {
+        return argIndex;
+    }
+
+    /**
+     * 解析集合（或数组）参数的元素类型
+     */
+    private static Class<?> elementType(Method method, int index) {
+        Class<?> type = method.getParameterTypes()[index];
+        ResolvableType resolvableType = ResolvableType.forMethodParameter(new MethodParameter(method, index));
+        if (type.isArray()) {
+            return type.getComponentType();
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return resolvableType.asCollection().resolveGeneric(0);
+        }
+        return null;
+    }
+
+    private static boolean hasRouteProperty(Class<?> elementType, String property) {
+        if (Map.class.isAssignableFrom(elementType)) {
+            return true;
+        }
+        return !PropertyAccessors.isSimpleType(elementType) && PropertyAccessors.hasProperty(elementType, property);
+    }
+}
@@ -0,0 +1,34 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.context.SDTContext;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * 强制走主库切面
+ * 拦截带有@ForcePrimary注解的方法（或类），方法执行期间的查询语句使用主库
+ *
+ * @author wht
+ */
+@Aspect
+public class ForcePrimaryAspect {
+
+    /**
+     * 环绕通知：方法执行期间强制走主库，结束后恢复之前的状态（支持嵌套调用）
+     *
+     * @param jp 切点
+     * @return 方法执行结果
+     * @throws Throwable 异常
+     */
+    @Around("@annotation(com.wht.sdt.annotation.ForcePrimary) || @within(com.wht.sdt.annotation.ForcePrimary)")
+    public Object forcePrimary(ProceedingJoinPoint jp) throws Throwable {
+        boolean previous = SDTContext.isForcePrimary();
+        SDTContext.setForcePrimary(true);
+        try {
+            return jp.proceed();
+        } finally {
+            SDTContext.setForcePrimary(previous);
+        }
+    }
+}
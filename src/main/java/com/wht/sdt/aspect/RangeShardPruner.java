@@ -0,0 +1,348 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.TimePartitionProperties;
+import com.wht.sdt.util.LruCache;
+import com.wht.sdt.util.ShardKeys;
+import com.wht.sdt.util.SqlRouteKeyFinder;
+import com.wht.sdt.util.SqlTableReplacer;
+import com.wht.sdt.util.TimePartitions;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ParamNameResolver;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 范围条件分片裁剪
+ * 方法参数中没有路由字段值时，从本次执行的SQL中查找路由字段的范围条件（BETWEEN、&gt;、&lt;等），
+ * 枚举范围内的值计算覆盖的分片，只在这些分片上执行：
+ * <ul>
+ *     <li>按时间分表的表、或TIME_BASED路由策略：按天枚举，计算每天对应的库、表后缀和时间分表后缀</li>
+ *     <li>其他路由策略：路由字段值为整数时逐个枚举，按路由策略计算分片</li>
+ * </ul>
+ * 每个语句的范围条件解析结果按SQL缓存，枚举的值超过上限时不裁剪
+ * <p>
+ * 表后缀按SQL中实际出现的表计算：没有分表的表时每个库只执行一次；各表按自己的分表数量计算表后缀，
+ * 枚举所有表后缀（广播、或路由策略与路由字段值无关时）要求SQL中分表的表分表数量相同（如绑定表），
+ * 见 {@link #broadcastTargets(RouteDescriptor, Object[], boolean)}
+ *
+ * @author wht
+ */
+public final class RangeShardPruner {
+
+    /**
+     * 最多枚举的值（天数或整数个数）
+     */
+    private final int maxValues;
+
+    /**
+     * 范围条件解析缓存（语句 + SQL -> 解析结果）
+     */
+    private final LruCache<RangeKey, StatementRange> cache;
+
+    public RangeShardPruner(int maxValues, int cacheSize) {
+        this.maxValues = maxValues;
+        this.cache = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * 计算本次执行需要的分片
+     *
+     * @param descriptor 方法路由描述
+     * @param args       方法参数
+     * @return 分片列表（范围为空时为空列表），无法裁剪（不是MyBatis语句、没有范围条件、范围无界或超过枚举上限）时返回null
+     * @throws IllegalStateException SQL中有按时间分表的表、但无法确定时间范围时
+     */
+    public List<ShardTarget> prune(RouteDescriptor descriptor, Object[] args) {
+        MappedStatement mappedStatement = descriptor.getMappedStatement();
+        if (mappedStatement == null || descriptor.getParamNameResolver() == null) {
+            return null;
+        }
+
+        BoundSql boundSql = boundSql(descriptor, args);
+        StatementRange range = statementRange(descriptor, boundSql.getSql());
+
+        DataSourceGroup group = descriptor.getDataSourceGroup();
+        boolean timeDomain = !range.timeTables.isEmpty() || descriptor.getStrategyType() == StrategyType.TIME_BASED;
+        String lower = range.plan.lower() == null ? null
+                : text(SqlRouteKeyFinder.resolve(range.plan.lower(), mappedStatement, boundSql));
+        String upper = range.plan.upper() == null ? null
+                : text(SqlRouteKeyFinder.resolve(range.plan.upper(), mappedStatement, boundSql));
+
+        List<ShardTarget> targets = null;
+        if (lower != null && upper != null) {
+            Map<String, Integer> tbCounts = shardedTables(range, descriptor.getTbCounts());
+            targets = timeDomain
+                    ? timeTargets(descriptor, group, range, tbCounts, lower, upper)
+                    : numericTargets(descriptor, range, tbCounts, lower, upper);
+        }
+        if (targets == null && !range.timeTables.isEmpty()) {
+            throw new IllegalStateException("按时间分表的查询需要路由字段值或不超过" + maxValues + "天的时间范围: "
+                    + descriptor.getRouteKey() + ", statement: " + mappedStatement.getId());
+        }
+        return targets;
+    }
+
+    /**
+     * 计算广播需要的分片：所有库 × SQL中分表的表的所有表后缀（SQL中没有分表的表时每个库一次）
+     *
+     * @param descriptor    方法路由描述
+     * @param args          方法参数
+     * @param reshardTarget 是否按分片迁移的新分片数量计算
+     * @return 分片列表，不是MyBatis语句、或SQL中有按时间分表的表时返回null
+     * @throws IllegalStateException SQL中分表的表分表数量不同时
+     */
+    public List<ShardTarget> broadcastTargets(RouteDescriptor descriptor, Object[] args, boolean reshardTarget) {
+        if (descriptor.getMappedStatement() == null || descriptor.getParamNameResolver() == null) {
+            return null;
+        }
+        StatementRange range = statementRange(descriptor, boundSql(descriptor, args).getSql());
+        if (!range.timeTables.isEmpty()) {
+            return null;
+        }
+        return reshardTarget
+                ? placements(descriptor, descriptor.getTargetDbCount(),
+                shardedTables(range, descriptor.getTargetTbCounts()))
+                : placements(descriptor, descriptor.getDbCount(), shardedTables(range, descriptor.getTbCounts()));
+    }
+
+    /**
+     * 按方法参数生成本次执行的SQL（与MyBatis生成语句参数的方式一致）
+     */
+    private static BoundSql boundSql(RouteDescriptor descriptor, Object[] args) {
+        Object parameterObject = ParamNameResolver.wrapToMapIfCollection(
+                descriptor.getParamNameResolver().getNamedParams(args), null);
+        return descriptor.getMappedStatement().getBoundSql(parameterObject);
+    }
+
+    private StatementRange statementRange(RouteDescriptor descriptor, String sql) {
+        return cache.computeIfAbsent(
+                new RangeKey(descriptor.getMappedStatement().getId(), sql, descriptor.getRouteKey(),
+                        descriptor.getVersion()),
+                key -> analyze(sql, descriptor));
+    }
+
+    /**
+     * 解析SQL中路由字段的范围条件和涉及的表
+     */
+    private static StatementRange analyze(String sql, RouteDescriptor descriptor) {
+        DataSourceGroup group = descriptor.getDataSourceGroup();
+        Map<String, TimePartitionProperties> timePartitions = group.hasTimePartitions()
+                ? group.getTimePartitions() : Map.of();
+
+        // 分表数量只用于判断是否需要查找，新旧分表配置中的表都查找
+        Map<String, Integer> tables = new HashMap<>();
+        if (descriptor.getTbCounts() != null) {
+            descriptor.getTbCounts().keySet().forEach(table -> tables.put(table, Integer.MAX_VALUE));
+        }
+        if (descriptor.getTargetTbCounts() != null) {
+            descriptor.getTargetTbCounts().keySet().forEach(table -> tables.put(table, Integer.MAX_VALUE));
+        }
+        timePartitions.keySet().forEach(table -> tables.put(table, Integer.MAX_VALUE));
+        List<String> timeTables = new ArrayList<>();
+        List<String> shardTables = new ArrayList<>();
+        for (String table : SqlTableReplacer.compile(sql, tables).getTableNames()) {
+            List<String> target = timePartitions.containsKey(table) ? timeTables : shardTables;
+            if (!target.contains(table)) {
+                target.add(table);
+            }
+        }
+        return new StatementRange(SqlRouteKeyFinder.findRange(sql, descriptor.getRouteKey()),
+                List.copyOf(timeTables), List.copyOf(shardTables));
+    }
+
+    /**
+     * SQL中分表（分表数量大于1）的表及其分表数量
+     */
+    private static Map<String, Integer> shardedTables(StatementRange range, Map<String, Integer> tbCounts) {
+        Map<String, Integer> sharded = new HashMap<>();
+        for (String table : range.tables) {
+            Integer count = tbCounts == null ? null : tbCounts.get(table);
+            if (count != null && count > 1) {
+                sharded.put(table, count);
+            }
+        }
+        return sharded;
+    }
+
+    /**
+     * 按天枚举时间范围
+     * TIME_BASED路由策略按每天的日期计算库和表后缀；其他路由策略的库和表后缀与时间无关，使用所有库（和表）
+     */
+    private List<ShardTarget> timeTargets(RouteDescriptor descriptor, DataSourceGroup group, StatementRange range,
+                                          Map<String, Integer> tbCounts, String lower, String upper) {
+        // 时间戳在不同时区对应的日期不同，取各时区（TIME_BASED路由策略的时区和各表的时区）中最早和最晚的日期
+        List<String> zones = new ArrayList<>();
+        zones.add(group.timeBasedZone());
+        for (String table : range.timeTables) {
+            String zone = group.getTimePartitions().get(table).getZone();
+            if (zone != null && !zones.contains(zone)) {
+                zones.add(zone);
+            }
+        }
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        try {
+            for (String zone : zones) {
+                from = Math.min(from, TimePartitions.epochDay(lower, zone));
+                to = Math.max(to, TimePartitions.epochDay(upper, zone));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (to < from) {
+            return List.of();
+        }
+        if (to - from >= maxValues) {
+            return null;
+        }
+
+        boolean timeBased = descriptor.getStrategyType() == StrategyType.TIME_BASED;
+        List<ShardTarget> placements = timeBased ? null : placements(descriptor, descriptor.getDbCount(), tbCounts);
+        Set<ShardTarget> targets = new LinkedHashSet<>();
+        for (long day = from; day <= to; day++) {
+            Map<String, String> suffixes = new HashMap<>();
+            for (String table : range.timeTables) {
+                TimePartitionProperties partition = group.getTimePartitions().get(table);
+                suffixes.put(table, TimePartitions.suffix(
+                        TimePartitions.periodIndex(day, partition.getGranularity()), partition.getGranularity()));
+            }
+            Map<String, String> tableSuffixes = Map.copyOf(suffixes);
+            if (timeBased) {
+                ShardTarget target = ShardTarget.locate(descriptor.getStrategy(), descriptor.getGroupKey(),
+                        dateText(day), descriptor.getDbCount(), tbCounts);
+                Map<String, String> merged = new HashMap<>(target.tableSuffixes());
+                merged.putAll(tableSuffixes);
+                targets.add(new ShardTarget(target.dbKey(), target.tbKey(), Map.copyOf(merged)));
+            } else {
+                for (ShardTarget placement : placements) {
+                    targets.add(new ShardTarget(placement.dbKey(), placement.tbKey(), tableSuffixes));
+                }
+            }
+        }
+        return List.copyOf(targets);
+    }
+
+    /**
+     * 逐个枚举整数范围
+     */
+    private List<ShardTarget> numericTargets(RouteDescriptor descriptor, StatementRange range,
+                                             Map<String, Integer> tbCounts, String lower, String upper) {
+        long from;
+        long to;
+        try {
+            from = Long.parseLong(lower.trim());
+            to = Long.parseLong(upper.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!range.plan.lowerInclusive()) {
+            if (from == Long.MAX_VALUE) {
+                return List.of();
+            }
+            from++;
+        }
+        if (!range.plan.upperInclusive()) {
+            if (to == Long.MIN_VALUE) {
+                return List.of();
+            }
+            to--;
+        }
+        if (to < from) {
+            return List.of();
+        }
+        if (to - from >= maxValues || to - from < 0) {
+            return null;
+        }
+
+        Set<ShardTarget> targets = new LinkedHashSet<>();
+        for (long value = from; value <= to; value++) {
+            targets.add(ShardTarget.locate(descriptor.getStrategy(), descriptor.getGroupKey(), Long.toString(value),
+                    descriptor.getDbCount(), tbCounts));
+        }
+        return List.copyOf(targets);
+    }
+
+    /**
+     * 所有库 × 所有表后缀（SQL中没有分表的表时只区分库，避免同一物理表重复执行）
+     * 同一表后缀用于SQL中所有分表的表，要求这些表的分表数量相同
+     */
+    private static List<ShardTarget> placements(RouteDescriptor descriptor, int dbCount, Map<String, Integer> tbCounts) {
+        int tbCount = 0;
+        for (Integer count : tbCounts.values()) {
+            if (tbCount != 0 && tbCount != count) {
+                throw new IllegalStateException("SQL中分表数量不同的表需要路由字段值才能执行: " + tbCounts
+                        + ", statement: " + descriptor.getMappedStatement().getId());
+            }
+            tbCount = count;
+        }
+
+        dbCount = Math.max(1, dbCount);
+        List<ShardTarget> placements = new ArrayList<>(dbCount * Math.max(1, tbCount));
+        for (int db = 1; db <= dbCount; db++) {
+            if (tbCount == 0) {
+                placements.add(new ShardTarget(ShardKeys.dbKey(db), null));
+                continue;
+            }
+            for (int tb = 1; tb <= tbCount; tb++) {
+                placements.add(new ShardTarget(ShardKeys.dbKey(db), ShardKeys.tbKey(tb)));
+            }
+        }
+        return List.copyOf(placements);
+    }
+
+    /**
+     * 参数值转换为路由字段值文本（java.util.Date、Instant按毫秒时间戳处理）
+     */
+    private static String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof java.util.Date date && !(value instanceof java.sql.Date)
+                && !(value instanceof java.sql.Timestamp)) {
+            return Long.toString(date.getTime());
+        }
+        if (value instanceof Instant instant) {
+            return Long.toString(instant.toEpochMilli());
+        }
+        String text = value.toString();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * 纪元日转换为 yyyy-MM-dd
+     */
+    private static String dateText(long epochDay) {
+        int date = TimePartitions.civilDate(epochDay);
+        return String.format("%04d-%02d-%02d", date / 10000, date / 100 % 100, date % 100);
+    }
+
+    public LruCache<RangeKey, StatementRange> getCache() {
+        return cache;
+    }
+
+    /**
+     * 范围条件解析缓存键
+     */
+    public record RangeKey(String statementId, String sql, String routeKey, long version) {
+    }
+
+    /**
+     * 语句的范围条件解析结果
+     *
+     * @param plan       路由字段的范围条件
+     * @param timeTables SQL中按时间分表的表
+     * @param tables     SQL中配置了分表数量的表（新旧分表配置），实际分表的表按本次使用的分表配置确定
+     */
+    public record StatementRange(SqlRouteKeyFinder.RangePlan plan, List<String> timeTables, List<String> tables) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.enumeration.MergeType;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.strategy.RouterStrategy;
+import lombok.Builder;
+import lombok.Getter;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ParamNameResolver;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 方法路由描述
+ * 每个带有@SplitDT注解的方法解析一次，缓存组键、数据源组配置、路由策略、路由字段提取器等，
+ * 切面执行时直接使用，无需重复查找配置
+ *
+ * @author wht
+ */
+@Getter
+@Builder
+public class RouteDescriptor {
+
+    /**
+     * 路由拓扑版本（热加载后重新解析）
+     */
+    private final long version;
+
+    /**
+     * 目标方法
+     */
+    private final Method method;
+
+    /**
+     * 组键，如：group01
+     */
+    private final String groupKey;
+
+    /**
+     * 数据源组配置
+     */
+    private final DataSourceGroup dataSourceGroup;
+
+    /**
+     * 是否启用分库分表
+     */
+    private final boolean enableSplit;
+
+    /**
+     * 路由策略类型
+     */
+    private final StrategyType strategyType;
+
+    /**
+     * 路由策略
+     */
+    private final RouterStrategy strategy;
+
+    /**
+     * 路由字段（注解未指定时为配置文件中的默认字段）
+     */
+    private final String routeKey;
+
+    /**
+     * 路由字段值提取器（未启用分库分表时为null）
+     */
+    private final RouteKeyExtractor extractor;
+
+    /**
+     * 集合参数拆分器（方法没有元素包含路由字段的集合参数时为null）
+     */
+    private final CollectionRouteSplitter splitter;
+
+    /**
+     * 分库数量
+     */
+    private final int dbCount;
+
+    /**
+     * 分表数量（取各表的最大值，不分表时为0）
+     */
+    private final int tbCount;
+
+    /**
+     * 分表配置（表名 -> 分表数量）
+     */
+    private final Map<String, Integer> tbCounts;
+
+    /**
+     * 是否广播到所有分片执行
+     */
+    private final boolean broadcast;
+
+    /**
+     * 广播结果合并方式
+     */
+    private final MergeType mergeType;
+
+    /**
+     * 广播结果排序（未指定排序字段时为null）
+     */
+    private final Comparator<Object> orderComparator;
+
+    /**
+     * 广播结果最大条数，小于0表示不限制
+     */
+    private final int limit;
+
+    /**
+     * 广播查询超时时间（毫秒）
+     */
+    private final long timeout;
+
+    /**
+     * 广播目标分片（启动时计算）
+     */
+    private final List<ShardTarget> shardTargets;
+
+    /**
+     * 是否正在进行分片迁移（同时计算新旧分片）
+     */
+    private final boolean resharding;
+
+    /**
+     * 方法对应的MyBatis语句（方法为Mapper接口方法时，用于范围条件裁剪，无法确定时为null）
+     */
+    private final MappedStatement mappedStatement;
+
+    /**
+     * 方法参数名解析器（与MyBatis生成语句参数的方式一致，无法确定语句时为null）
+     */
+    private final ParamNameResolver paramNameResolver;
+
+    /**
+     * 方法对应的MyBatis语句类型（分片迁移时区分读写，无法确定时为null）
+     */
+    private final SqlCommandType commandType;
+
+    /**
+     * 新分片的分库数量（分片迁移时）
+     */
+    private final int targetDbCount;
+
+    /**
+     * 新分片的分表数量（分片迁移时，取各表的最大值）
+     */
+    private final int targetTbCount;
+
+    /**
+     * 新分片的分表配置（分片迁移时，表名 -> 分表数量；未迁移时与tbCounts相同）
+     */
+    private final Map<String, Integer> targetTbCounts;
+
+    /**
+     * 新分片的广播目标（分片迁移时）
+     */
+    private final List<ShardTarget> targetShardTargets;
+
+    /**
+     * 新旧分表配置下同一表后缀是否对应相同的物理表（各表是否分表在新旧配置中一致），
+     * 此时库键和表后缀都相同的新旧分片为同一物理表，写入一次即可
+     */
+    private final boolean sameTableNames;
+
+    /**
+     * 是否同时写入新旧分片：分片迁移中、且确定为写语句
+     */
+    public boolean isDualWrite() {
+        return resharding && commandType != null && commandType != SqlCommandType.SELECT;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.util.PropertyAccessors;
+import org.apache.ibatis.annotations.Param;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 路由字段值提取器
+ * 每个（方法, 路由字段）只解析一次参数结构，支持：
+ * <ul>
+ *     <li>@Param 命名的参数（String、基本类型等），如 routeKey = "userId"</li>
+ *     <li>对象参数的属性（getter、record组件、包含父类的字段）</li>
+ *     <li>嵌套路径，如 routeKey = "order.userId"</li>
+ *     <li>Map参数</li>
+ * </ul>
+ *
+ * @author wht
+ */
+public final class RouteKeyExtractor {
+
+    private final String routeKey;
+
+    /**
+     * 候选取值来源，按优先级排列
+     */
+    private final Source[] sources;
+
+    private RouteKeyExtractor(String routeKey, Source[] sources) {
+        this.routeKey = routeKey;
+        this.sources = sources;
+    }
+
+    /**
+     * 解析方法参数，创建路由字段值提取器
+     *
+     * @param method   目标方法
+     * @param routeKey 路由字段（支持以 . 分隔的嵌套路径）
+     * @return 提取器
+     */
+    public static RouteKeyExtractor of(Method method, String routeKey) {
+        if (routeKey == null || routeKey.isEmpty()) {
+            return new RouteKeyExtractor(routeKey, new Source[0]);
+        }
+
+        String[] path = routeKey.split("\\.");
+        String[] remaining = Arrays.copyOfRange(path, 1, path.length);
+
+        List<Source> named = new ArrayList<>();
+        List<Source> beans = new ArrayList<>();
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            String name = parameterName(parameter);
+            if (path[0].equals(name) && isCollectionType(parameter.getType())) {
+                // 集合参数本身是路由字段值列表（如 IN 查询），由 CollectionRouteSplitter 按元素拆分
+                continue;
+            }
+            if (path[0].equals(name)) {
+                // 参数名与路由字段匹配，直接取参数值（或其嵌套属性）
+                named.add(new Source(i, remaining));
+            } else if (!PropertyAccessors.isSimpleType(parameter.getType())) {
+                // 对象或Map参数，按属性路径取值
+                beans.add(new Source(i, path));
+            }
+        }
+
+        List<Source> sources = new ArrayList<>(named);
+        sources.addAll(beans);
+        return new RouteKeyExtractor(routeKey, sources.toArray(new Source[0]));
+    }
+
+    /**
+     * 从方法参数中提取路由字段值
+     *
+     * @param args 方法参数
+     * @return 路由字段值，未找到或为空时返回null
+     */
+    public String extract(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        for (Source source : sources) {
+            if (source.argIndex >= args.length) {
+                continue;
+            }
+            Object value = source.read(args[source.argIndex]);
+            if (value != null) {
+                String text = value.toString();
+                if (!text.isEmpty()) {
+                    return text;
+                }
+            }
+        }
+        return null;
+    }
+
+    public String getRouteKey() {
+        return routeKey;
+    }
+
+    static String parameterName(Parameter parameter) {
+        Param param = parameter.getAnnotation(Param.class);
+        if (param != null) {
+            return param.value();
+        }
+        // 编译时开启 -parameters 才能获取真实参数名
+        return parameter.isNamePresent() ? parameter.getName() : null;
+    }
+
+    static boolean isCollectionType(Class<?> type) {
+        return type.isArray() || Collection.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 取值来源：第 argIndex 个参数上的属性路径
+     */
+    private static final class Source {
+
+        private final int argIndex;
+
+        private final String[] path;
+
+        private Source(int argIndex, String[] path) {
+            this.argIndex = argIndex;
+            this.path = path;
+        }
+
+        private Object read(Object arg) {
+            return PropertyAccessors.getPathValue(arg, path);
+        }
+    }
+}
@@ -3,23 +3,57 @@ package com.wht.sdt.aspect;
 import com.wht.sdt.annotation.SplitDT;
 
 import com.wht.sdt.config.DataSourceAutoConfig;
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.config.bean.RoutingSnapshot;
 import com.wht.sdt.context.SDTContext;
 
 import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.enumeration.MergeType;
 import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ResultMerger;
+import com.wht.sdt.executor.ShardQueryExecutor;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.metrics.SdtMetrics;
 import com.wht.sdt.properties.DataSourceGroup;
 import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.properties.ScatterProperties;
+import com.wht.sdt.resharding.ReshardingManager;
 
 import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
 import lombok.extern.slf4j.Slf4j;
 
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.mybatis.spring.SqlSessionHolder;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
 
-import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 数据库路由切面
@@ -30,15 +64,48 @@ import java.util.Map;
  */
 @Aspect
 @Slf4j
-public class SplitDTAspect {
+public class SplitDTAspect implements BeanFactoryAware, SmartInitializingSingleton {
 
     private final RouterGroupProperties routerGroupProperties;
-    private final Map<StrategyType, RouterStrategy> routerStrategies;
+    private final RoutingRegistry routingRegistry;
+    private final ShardQueryExecutor shardQueryExecutor;
+    private final ReshardingManager reshardingManager;
+
+    /**
+     * 范围条件分片裁剪，同时按SQL中的表计算广播分片
+     */
+    private final RangeShardPruner rangeShardPruner;
+
+    /**
+     * 是否启用范围条件分片裁剪
+     */
+    private final boolean rangePruning;
+
+    /**
+     * 监控指标
+     */
+    private SdtMetrics metrics = SdtMetrics.NOOP;
+
+    /**
+     * 方法路由描述缓存（方法 -> 最新路由拓扑版本的路由描述）
+     */
+    private final Map<Method, RouteDescriptor> descriptors = new ConcurrentHashMap<>();
+
+    private BeanFactory beanFactory;
 
     public SplitDTAspect(RouterGroupProperties routerGroupProperties,
-                         Map<StrategyType, RouterStrategy> routerStrategies) {
+                         RoutingRegistry routingRegistry,
+                         ShardQueryExecutor shardQueryExecutor,
+                         ReshardingManager reshardingManager) {
         this.routerGroupProperties = routerGroupProperties;
-        this.routerStrategies = routerStrategies;
+        this.routingRegistry = routingRegistry;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.reshardingManager = reshardingManager;
+
+        ScatterProperties scatter = routerGroupProperties.getScatter() != null
+                ? routerGroupProperties.getScatter() : new ScatterProperties();
+        this.rangePruning = scatter.isRangePruning();
+        this.rangeShardPruner = new RangeShardPruner(scatter.getRangeMaxValues(), scatter.getRangeCacheSize());
     }
 
     /**
@@ -58,47 +125,80 @@ public class SplitDTAspect {
      */
     @Around("aopPoint() && @annotation(splitDT)")
     public Object doRouter(ProceedingJoinPoint jp, SplitDT splitDT) throws Throwable {
+        // 固定路由拓扑快照，热加载不影响正在执行的方法
+        try (RoutingRegistry.Pin pin = routingRegistry.pin()) {
+            Method method = ((MethodSignature) jp.getSignature()).getMethod();
+            RouteDescriptor descriptor = getDescriptor(method, splitDT);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = routeAndProceed(jp, descriptor);
+                failed = false;
+                return result;
+            } finally {
+                metrics.recordRoute(descriptor.getGroupKey(), descriptor.getStrategyType(),
+                        System.nanoTime() - start, failed);
+            }
+        }
+    }
 
-        // 获取路由字段
-        String groupKey = "group" + String.format("%02d", splitDT.groupKey());
-        StrategyType strategy = splitDT.strategy();
-        String routeKey = splitDT.routeKey();
-
-        SDTContext.setGKey(groupKey);
+    private Object routeAndProceed(ProceedingJoinPoint jp, RouteDescriptor descriptor) throws Throwable {
 
-        if (strategy == null) {
-            strategy = StrategyType.HASH;
+        // 获取路由字段的值（广播方法的参数中有路由字段值时同样只在对应的分片上执行）
+        Object[] args = descriptor.isEnableSplit() ? jp.getArgs() : null;
+        String dbKeyAttr = descriptor.isEnableSplit() ? descriptor.getExtractor().extract(args) : null;
+        if (descriptor.isBroadcast() && descriptor.isEnableSplit()
+                && (dbKeyAttr == null || dbKeyAttr.isEmpty()) && descriptor.getSplitter() == null) {
+            return doBroadcast(jp, descriptor);
         }
-        SDTContext.setStrategyType(strategy);
 
-        // 获取路由字段的值
-        DataSourceGroup dataSourceGroup = routerGroupProperties.getGroups().get(groupKey);
-        if (dataSourceGroup == null) {
-            throw new RuntimeException("未找到数据源组配置: " + groupKey);
-        }
+        SDTContext.setGKey(descriptor.getGroupKey());
+        SDTContext.setStrategyType(descriptor.getStrategyType());
 
-        if (dataSourceGroup.getEnableSplit()) {
+        if (descriptor.isEnableSplit()) {
 
-            if (routeKey == null || "".equals(routeKey)) {
-                routeKey = dataSourceGroup.getRouterKey();
+            if ((dbKeyAttr == null || dbKeyAttr.isEmpty()) && descriptor.getSplitter() != null) {
+                // 路由字段在集合参数的元素上，按分片拆分执行
+                return doSplit(jp, descriptor, args);
+            }
+            if (descriptor.isResharding() && dbKeyAttr != null && !dbKeyAttr.isEmpty()) {
+                return doReshard(jp, descriptor, dbKeyAttr, args);
             }
-
-            String dbKeyAttr = getAttrValue(routeKey, jp.getArgs());
             if (dbKeyAttr == null || dbKeyAttr.isEmpty()) {
-                throw new RuntimeException("数据库路由key属性值为空: " + dataSourceGroup.getRouterKey());
+                // 按SQL中路由字段的范围条件只在覆盖的分片上执行
+                List<ShardTarget> targets;
+                try {
+                    targets = rangeTargets(descriptor, args);
+                } catch (RuntimeException e) {
+                    SDTContext.clearAll();
+                    throw e;
+                }
+                if (targets != null) {
+                    return doRange(jp, descriptor, targets, args);
+                }
             }
+            if (dbKeyAttr == null || dbKeyAttr.isEmpty()) {
+                if (!routerGroupProperties.isSqlRouteFallback()) {
+                    SDTContext.clearAll();
+                    throw new RuntimeException("数据库路由key属性值为空: " + descriptor.getRouteKey());
+                }
+                // 延迟到执行SQL时由MyBatis插件从SQL中解析路由字段值
+                SDTContext.setDeferredRouteKey(descriptor.getRouteKey());
+            } else {
+                SDTContext.setRouteValue(dbKeyAttr);
+                SDTContext.setTBKey(dbKeyAttr);
 
-            SDTContext.setTBKey(dbKeyAttr);
-
-            StrategyContext build = StrategyContext.builder()
-                    .keyValue(SDTContext.getTBKey())
-                    .dbCount(routerGroupProperties.getGroups().get(SDTContext.getGKey()).getDbCount())
-                    .build();
+                StrategyContext build = StrategyContext.builder()
+                        .groupKey(descriptor.getGroupKey())
+                        .keyValue(dbKeyAttr)
+                        .dbCount(descriptor.getDbCount())
+                        .build();
 
-            routerStrategies.get(SDTContext.getStrategyType()).splitDB(build);
+                descriptor.getStrategy().splitDB(build);
+            }
 
         } else {
-            SDTContext.setDBKey("db01");
+            SDTContext.setDBKey(ShardKeys.dbKey(1));
             SDTContext.setTBKey(null);
         }
 
@@ -112,38 +212,622 @@ public class SplitDTAspect {
     }
 
     /**
-     * 从方法参数中获取路由字段的值
+     * 广播执行：每个分片一个任务，并行执行后合并结果；调用方存在事务时在当前线程依次执行，保证使用同一事务
+     */
+    private Object doBroadcast(ProceedingJoinPoint jp, RouteDescriptor descriptor) throws Throwable {
+        if (descriptor.isDualWrite()) {
+            // 分片迁移中的写语句：先在旧分片执行，再在新分片中与旧分片不同的物理表上执行
+            checkGeneratedKeys(descriptor, jp.getArgs());
+            List<ShardTarget> sources = broadcastTargets(descriptor, jp.getArgs(), false);
+            Object result = broadcastOn(jp, descriptor, sources, false);
+            List<ShardTarget> moved = new ArrayList<>(broadcastTargets(descriptor, jp.getArgs(), true));
+            if (descriptor.isSameTableNames()) {
+                moved.removeAll(sources);
+            }
+            if (!moved.isEmpty()) {
+                try {
+                    broadcastOn(jp, descriptor, moved, true);
+                } catch (Throwable e) {
+                    onTargetWriteFailure(descriptor, e);
+                }
+            }
+            return result;
+        }
+        boolean onTarget = readsFromTarget(descriptor);
+        List<ShardTarget> targets = rangeTargets(descriptor, jp.getArgs());
+        if (targets == null) {
+            targets = broadcastTargets(descriptor, jp.getArgs(), onTarget);
+        }
+        return broadcastOn(jp, descriptor, targets, onTarget);
+    }
+
+    /**
+     * 广播的分片：按SQL中分表的表的分表数量枚举，无法确定SQL时使用所有库 × 最大分表数量
+     *
+     * @param reshardTarget 是否按分片迁移的新分片数量计算
+     */
+    private List<ShardTarget> broadcastTargets(RouteDescriptor descriptor, Object[] args, boolean reshardTarget) {
+        List<ShardTarget> targets = rangeShardPruner.broadcastTargets(descriptor, args, reshardTarget);
+        if (targets != null) {
+            return targets;
+        }
+        return reshardTarget ? descriptor.getTargetShardTargets() : descriptor.getShardTargets();
+    }
+
+    /**
+     * 按SQL中路由字段的范围条件计算需要执行的分片（分片迁移中不裁剪）
      *
-     * @param attr 路由字段名
-     * @param args 方法参数
-     * @return 路由字段值
+     * @return 分片列表，无法裁剪时返回null
      */
-    private String getAttrValue(String attr, Object[] args) {
-        if (args == null || args.length == 0) {
+    private List<ShardTarget> rangeTargets(RouteDescriptor descriptor, Object[] args) {
+        if (!rangePruning || descriptor.isResharding()) {
             return null;
         }
+        // 计算分片时路由策略会覆盖当前线程的库键和表键，计算后恢复
+        String dbKey = SDTContext.getDBKey();
+        String tbKey = SDTContext.getTBKey();
+        try {
+            return rangeShardPruner.prune(descriptor, args);
+        } finally {
+            SDTContext.setDBKey(dbKey);
+            SDTContext.setTBKey(tbKey);
+        }
+    }
 
-        String filedValue = null;
-        for (Object arg : args) {
+    /**
+     * 在范围条件覆盖的分片上执行：只有一个分片时在当前线程执行；多个分片时并行执行后合并结果，
+     * 调用方存在事务时在当前线程依次执行，保证使用同一事务
+     */
+    private Object doRange(ProceedingJoinPoint jp, RouteDescriptor descriptor, List<ShardTarget> targets,
+                           Object[] args) throws Throwable {
+        if (targets.size() == 1) {
+            return proceedOn(jp, descriptor, targets.get(0), args, false);
+        }
+        SDTContext.clearAll();
+        return broadcastOn(jp, descriptor, targets, false);
+    }
+
+    /**
+     * 在指定分片上并行执行并合并结果，调用方存在事务时在当前线程依次执行
+     */
+    private Object broadcastOn(ProceedingJoinPoint jp, RouteDescriptor descriptor, List<ShardTarget> targets,
+                               boolean reshardTarget) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            List<Object> results = new ArrayList<>(targets.size());
+            for (ShardTarget target : targets) {
+                clearLocalCache();
+                results.add(proceedOn(jp, descriptor, target, jp.getArgs(), reshardTarget));
+            }
+            return ResultMerger.merge(results, descriptor.getMergeType(), descriptor.getMethod().getReturnType(),
+                    descriptor.getOrderComparator(), descriptor.getLimit());
+        }
+
+        boolean forcePrimary = SDTContext.isForcePrimary();
+        RoutingSnapshot snapshot = routingRegistry.current();
+        List<Callable<Object>> tasks = new ArrayList<>(targets.size());
+        for (ShardTarget target : targets) {
+            tasks.add(() -> {
+                // 嵌套在分片任务中时任务在当前线程执行，结束后恢复当前线程的设置
+                boolean previousForcePrimary = SDTContext.isForcePrimary();
+                RoutingRegistry.Pin pin = routingRegistry.pin(snapshot);
+                SDTContext.setForcePrimary(forcePrimary);
+                SDTContext.setGKey(descriptor.getGroupKey());
+                SDTContext.setStrategyType(descriptor.getStrategyType());
+                SDTContext.setDBKey(target.dbKey());
+                SDTContext.setFixedTBKey(target.tbKey());
+                SDTContext.setTableSuffixes(target.tableSuffixes());
+                SDTContext.setReshardTarget(reshardTarget);
+                try {
+                    return jp.proceed();
+                } catch (Exception e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    SDTContext.clearAll();
+                    SDTContext.setForcePrimary(previousForcePrimary);
+                    pin.close();
+                }
+            });
+        }
+
+        List<Object> results = shardQueryExecutor.invokeAll(tasks, descriptor.getTimeout());
+        return ResultMerger.merge(results, descriptor.getMergeType(), descriptor.getMethod().getReturnType(),
+                descriptor.getOrderComparator(), descriptor.getLimit());
+    }
+
+    /**
+     * 清除事务中复用的SqlSession的一级缓存
+     * 缓存键由改写表名前的SQL和参数计算，同一事务中依次在多个分片上执行相同参数的查询时，
+     * 后面的分片会命中前一个分片的缓存
+     */
+    private static void clearLocalCache() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof SqlSessionHolder holder) {
+                holder.getSqlSession().clearCache();
+            }
+        }
+    }
+
+    /**
+     * 集合参数拆分执行：按元素的路由字段值计算分片并分组，每个分片使用只包含本分片元素的参数执行一次
+     * 多个分片时并行执行；调用方存在事务时在当前线程依次执行，保证使用同一事务
+     */
+    private Object doSplit(ProceedingJoinPoint jp, RouteDescriptor descriptor, Object[] args) throws Throwable {
+        CollectionRouteSplitter splitter = descriptor.getSplitter();
+        Class<?> returnType = descriptor.getMethod().getReturnType();
+        List<Object> elements = splitter.elements(args);
+        if (elements.isEmpty()) {
+            SDTContext.clearAll();
+            return ResultMerger.merge(List.of(), MergeType.AUTO, returnType, null, -1);
+        }
+
+        if (descriptor.isDualWrite()) {
+            // 分片迁移中的写语句：先写旧分片，再写新分片（新旧为同一分片的元素不重复写入）
+            checkGeneratedKeys(descriptor, args);
+            Object result = splitOn(jp, descriptor, args, elements, false);
             try {
-                if (arg == null || arg instanceof String) {
+                splitOn(jp, descriptor, args, elements, true);
+            } catch (Throwable e) {
+                onTargetWriteFailure(descriptor, e);
+            }
+            return result;
+        }
+        return splitOn(jp, descriptor, args, elements, readsFromTarget(descriptor));
+    }
+
+    /**
+     * 按旧分片或新分片拆分执行
+     *
+     * @param reshardTarget 是否在新分片上执行（只执行新旧分片不同的元素）
+     * @return 合并后的结果，没有需要执行的元素时返回null
+     */
+    private Object splitOn(ProceedingJoinPoint jp, RouteDescriptor descriptor, Object[] args,
+                           List<Object> elements, boolean reshardTarget) throws Throwable {
+        CollectionRouteSplitter splitter = descriptor.getSplitter();
+        Class<?> returnType = descriptor.getMethod().getReturnType();
+
+        // 按分片分组（保持元素的原始顺序）
+        Map<ShardTarget, ShardBatch> batches = new LinkedHashMap<>();
+        boolean dualWrite = reshardTarget && descriptor.isDualWrite();
+        int skipped = 0;
+        try {
+            for (int i = 0; i < elements.size(); i++) {
+                Object element = elements.get(i);
+                String value = splitter.routeValue(element);
+                if (value == null) {
+                    throw new RuntimeException("数据库路由key属性值为空: " + descriptor.getRouteKey() + "（第" + (i + 1) + "个元素）");
+                }
+                ShardTarget target = route(descriptor, value, reshardTarget);
+                if (dualWrite && samePlacement(descriptor, route(descriptor, value, false), target)) {
+                    skipped++;
                     continue;
                 }
+                batches.computeIfAbsent(target, t -> new ShardBatch()).add(i, element);
+            }
+        } finally {
+            SDTContext.clearAll();
+        }
+
+        if (batches.isEmpty()) {
+            return null;
+        }
+        if (batches.size() == 1) {
+            // 所有元素在同一分片，直接使用原参数执行
+            Map.Entry<ShardTarget, ShardBatch> entry = batches.entrySet().iterator().next();
+            return proceedOn(jp, descriptor, entry.getKey(),
+                    skipped == 0 ? args : splitter.withElements(args, entry.getValue().elements), reshardTarget);
+        }
 
-                Field declaredField = arg.getClass().getDeclaredField(attr);
-                declaredField.setAccessible(true);
-                Object fieldValue = declaredField.get(arg);
-                if (fieldValue != null) {
-                    filedValue = fieldValue.toString();
+        List<List<Integer>> batchIndexes = new ArrayList<>(batches.size());
+        List<Object> results;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            results = new ArrayList<>(batches.size());
+            for (Map.Entry<ShardTarget, ShardBatch> entry : batches.entrySet()) {
+                batchIndexes.add(entry.getValue().indexes);
+                results.add(proceedOn(jp, descriptor, entry.getKey(),
+                        splitter.withElements(args, entry.getValue().elements), reshardTarget));
+            }
+        } else {
+            boolean forcePrimary = SDTContext.isForcePrimary();
+            RoutingSnapshot snapshot = routingRegistry.current();
+            List<Callable<Object>> tasks = new ArrayList<>(batches.size());
+            for (Map.Entry<ShardTarget, ShardBatch> entry : batches.entrySet()) {
+                batchIndexes.add(entry.getValue().indexes);
+                Object[] shardArgs = splitter.withElements(args, entry.getValue().elements);
+                tasks.add(() -> {
+                    boolean previousForcePrimary = SDTContext.isForcePrimary();
+                    RoutingRegistry.Pin pin = routingRegistry.pin(snapshot);
+                    SDTContext.setForcePrimary(forcePrimary);
+                    try {
+                        return proceedOn(jp, descriptor, entry.getKey(), shardArgs, reshardTarget);
+                    } catch (Exception e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        SDTContext.setForcePrimary(previousForcePrimary);
+                        pin.close();
+                    }
+                });
+            }
+            results = shardQueryExecutor.invokeAll(tasks, descriptor.getTimeout());
+        }
+
+        if (returnType == int[].class) {
+            return CollectionRouteSplitter.orderedCounts(batchIndexes, results, elements.size());
+        }
+        return ResultMerger.merge(results, descriptor.getMergeType(), returnType,
+                descriptor.getOrderComparator(), descriptor.getLimit());
+    }
+
+    /**
+     * 分片迁移中的单分片执行：写语句先写旧分片再写新分片（新旧为同一分片时只写一次），
+     * 读语句在回填完成前读旧分片、完成后读新分片；无法确定语句类型时只使用旧分片
+     */
+    private Object doReshard(ProceedingJoinPoint jp, RouteDescriptor descriptor, String value,
+                             Object[] args) throws Throwable {
+        ShardTarget source;
+        ShardTarget target;
+        try {
+            source = route(descriptor, value, false);
+            target = route(descriptor, value, true);
+        } finally {
+            SDTContext.clearAll();
+        }
+
+        if (descriptor.isDualWrite()) {
+            checkGeneratedKeys(descriptor, args);
+            Object result = proceedOn(jp, descriptor, source, args, false);
+            if (!samePlacement(descriptor, source, target)) {
+                try {
+                    proceedOn(jp, descriptor, target, args, true);
+                } catch (Throwable e) {
+                    onTargetWriteFailure(descriptor, e);
                 }
+            }
+            return result;
+        }
+        boolean onTarget = readsFromTarget(descriptor);
+        return proceedOn(jp, descriptor, onTarget ? target : source, args, onTarget);
+    }
 
-                if (filedValue != null && !filedValue.isEmpty()) {
-                    break;
+    /**
+     * 分片迁移中写入新分片失败：调用方存在事务时抛出异常，新旧分片随事务一起回滚；
+     * 不在事务中时旧分片已经提交，只记录日志，由回填任务的校验阶段按旧分片的数据修复
+     */
+    private static void onTargetWriteFailure(RouteDescriptor descriptor, Throwable e) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw e;
+        }
+        log.error("Dual-write of {} to target shards of {} failed, run the backfill again to repair them",
+                descriptor.getMethod(), descriptor.getGroupKey(), e);
+    }
+
+    /**
+     * 分片迁移中双写的INSERT不能使用数据库生成的主键：新旧分片会各自生成不同的主键，
+     * 且新分片生成的主键会覆盖参数中旧分片的主键。主键由应用生成并写入SQL时
+     * （useGeneratedKeys 的 keyProperty 出现在SQL参数中）允许执行
+     */
+    private static void checkGeneratedKeys(RouteDescriptor descriptor, Object[] args) {
+        MappedStatement mappedStatement = descriptor.getMappedStatement();
+        if (mappedStatement == null || descriptor.getCommandType() != SqlCommandType.INSERT) {
+            return;
+        }
+        KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
+        String[] keyProperties = mappedStatement.getKeyProperties();
+        if (keyGenerator == null || keyGenerator instanceof NoKeyGenerator
+                || keyProperties == null || keyProperties.length == 0) {
+            return;
+        }
+        if (keyGenerator instanceof Jdbc3KeyGenerator && keysBound(descriptor, args, keyProperties)) {
+            return;
+        }
+        throw new IllegalStateException("分片迁移中的INSERT不支持数据库生成的主键（useGeneratedKeys、selectKey），"
+                + "主键需要由应用生成并写入SQL: " + mappedStatement.getId());
+    }
+
+    /**
+     * 主键属性是否都作为参数出现在SQL中（批量插入时按属性名的最后一段匹配，如 __frch_item_0.id）
+     */
+    private static boolean keysBound(RouteDescriptor descriptor, Object[] args, String[] keyProperties) {
+        Object parameterObject = ParamNameResolver.wrapToMapIfCollection(
+                descriptor.getParamNameResolver().getNamedParams(args), null);
+        Set<String> bound = new HashSet<>();
+        for (ParameterMapping mapping : descriptor.getMappedStatement().getBoundSql(parameterObject)
+                .getParameterMappings()) {
+            bound.add(lastSegment(mapping.getProperty()));
+        }
+        for (String keyProperty : keyProperties) {
+            if (!bound.contains(lastSegment(keyProperty))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String lastSegment(String property) {
+        return property.substring(property.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * 读语句是否使用新分片（分片迁移中、确定为查询语句、且已完成回填或配置了直接读新分片）
+     */
+    private boolean readsFromTarget(RouteDescriptor descriptor) {
+        return descriptor.isResharding() && descriptor.getCommandType() == SqlCommandType.SELECT
+                && reshardingManager.isReadFromTarget(descriptor.getGroupKey(), descriptor.getDataSourceGroup());
+    }
+
+    /**
+     * 新旧分片是否为同一物理表
+     */
+    private boolean samePlacement(RouteDescriptor descriptor, ShardTarget source, ShardTarget target) {
+        return source.equals(target) && descriptor.isSameTableNames();
+    }
+
+    /**
+     * 计算路由字段值对应的分片（各表按自己的分表数量计算表后缀）
+     *
+     * @param reshardTarget 是否按分片迁移的新分片数量计算
+     */
+    private ShardTarget route(RouteDescriptor descriptor, String value, boolean reshardTarget) {
+        return reshardTarget
+                ? ShardTarget.locate(descriptor.getStrategy(), descriptor.getGroupKey(), value,
+                descriptor.getTargetDbCount(), descriptor.getTargetTbCounts())
+                : ShardTarget.locate(descriptor.getStrategy(), descriptor.getGroupKey(), value,
+                descriptor.getDbCount(), descriptor.getTbCounts());
+    }
+
+    /**
+     * 在指定分片上执行目标方法
+     */
+    private Object proceedOn(ProceedingJoinPoint jp, RouteDescriptor descriptor, ShardTarget target,
+                             Object[] args, boolean reshardTarget) throws Throwable {
+        SDTContext.setGKey(descriptor.getGroupKey());
+        SDTContext.setStrategyType(descriptor.getStrategyType());
+        SDTContext.setDBKey(target.dbKey());
+        SDTContext.setFixedTBKey(target.tbKey());
+        SDTContext.setTableSuffixes(target.tableSuffixes());
+        SDTContext.setReshardTarget(reshardTarget);
+        try {
+            return jp.proceed(args);
+        } finally {
+            SDTContext.clearAll();
+        }
+    }
+
+    /**
+     * 计算所有分片（分库 × 分表）
+     */
+    private List<ShardTarget> shardTargets(int dbCount, int tbCount) {
+        dbCount = Math.max(1, dbCount);
+
+        List<ShardTarget> targets = new ArrayList<>(dbCount * Math.max(1, tbCount));
+        for (int db = 1; db <= dbCount; db++) {
+            if (tbCount == 0) {
+                targets.add(new ShardTarget(ShardKeys.dbKey(db), null));
+                continue;
+            }
+            for (int tb = 1; tb <= tbCount; tb++) {
+                targets.add(new ShardTarget(ShardKeys.dbKey(db), ShardKeys.tbKey(tb)));
+            }
+        }
+        return List.copyOf(targets);
+    }
+
+    /**
+     * 获取方法路由描述，首次调用（或路由拓扑热加载后）时按当前线程使用的快照解析并缓存
+     *
+     * @param method  目标方法
+     * @param splitDT 路由注解
+     * @return 路由描述
+     */
+    public RouteDescriptor getDescriptor(Method method, SplitDT splitDT) {
+        RoutingSnapshot snapshot = routingRegistry.current();
+        RouteDescriptor descriptor = descriptors.get(method);
+        if (descriptor != null && descriptor.getVersion() == snapshot.getVersion()) {
+            return descriptor;
+        }
+        if (snapshot != routingRegistry.latest()) {
+            // 仍在旧快照上执行的请求，不覆盖最新版本的缓存
+            return buildDescriptor(method, splitDT, snapshot);
+        }
+        return descriptors.compute(method, (m, cached) -> cached != null && cached.getVersion() == snapshot.getVersion()
+                ? cached : buildDescriptor(m, splitDT, snapshot));
+    }
+
+    /**
+     * 解析方法路由描述
+     */
+    private RouteDescriptor buildDescriptor(Method method, SplitDT splitDT, RoutingSnapshot snapshot) {
+        String groupKey = ShardKeys.groupKey(splitDT.groupKey());
+        DataSourceGroup dataSourceGroup = snapshot.getGroup(groupKey);
+        if (dataSourceGroup == null) {
+            throw new RuntimeException("未找到数据源组配置: " + groupKey);
+        }
+
+        StrategyType strategyType = splitDT.strategy();
+        if (strategyType == null || strategyType == StrategyType.DEFAULT) {
+            strategyType = dataSourceGroup.getStrategy() == null || dataSourceGroup.getStrategy() == StrategyType.DEFAULT
+                    ? StrategyType.HASH : dataSourceGroup.getStrategy();
+        }
+        RouterStrategy strategy = snapshot.getStrategy(strategyType);
+        if (strategy == null) {
+            throw new RuntimeException("未找到路由策略: " + strategyType);
+        }
+
+        String routeKey = splitDT.routeKey();
+        if (routeKey == null || routeKey.isEmpty()) {
+            routeKey = dataSourceGroup.getRouterKey();
+        }
+
+        int tbCount = maxTbCount(dataSourceGroup.getTbCounts());
+
+        boolean enableSplit = dataSourceGroup.getEnableSplit();
+        boolean resharding = dataSourceGroup.reshardingEnabled();
+        int targetDbCount = dataSourceGroup.getDbCount();
+        int targetTbCount = tbCount;
+        MappedStatement mappedStatement = enableSplit ? resolveMappedStatement(method) : null;
+        SqlCommandType commandType = mappedStatement == null ? null : mappedStatement.getSqlCommandType();
+        if (resharding) {
+            targetDbCount = dataSourceGroup.getResharding().targetDbCount(dataSourceGroup);
+            targetTbCount = maxTbCount(dataSourceGroup.getResharding().targetTbCounts(dataSourceGroup));
+            if (commandType == null) {
+                log.warn("Cannot resolve MyBatis statement for {}, resharding dual-write disabled for it "
+                        + "(annotate mapper methods with @SplitDT)", method);
+            }
+        }
+        return RouteDescriptor.builder()
+                .version(snapshot.getVersion())
+                .method(method)
+                .groupKey(groupKey)
+                .dataSourceGroup(dataSourceGroup)
+                .enableSplit(enableSplit)
+                .strategyType(strategyType)
+                .strategy(strategy)
+                .routeKey(routeKey)
+                .extractor(enableSplit ? RouteKeyExtractor.of(method, routeKey) : null)
+                .splitter(enableSplit ? CollectionRouteSplitter.of(method, routeKey) : null)
+                .dbCount(dataSourceGroup.getDbCount())
+                .tbCount(tbCount)
+                .tbCounts(dataSourceGroup.getTbCounts())
+                .broadcast(splitDT.broadcast())
+                .mergeType(splitDT.merge())
+                .orderComparator(ResultMerger.comparator(splitDT.orderBy()))
+                .limit(splitDT.limit())
+                .timeout(splitDT.timeout())
+                .shardTargets(splitDT.broadcast() && enableSplit
+                        ? shardTargets(dataSourceGroup.getDbCount(), tbCount) : List.of())
+                .resharding(resharding)
+                .mappedStatement(mappedStatement)
+                .paramNameResolver(mappedStatement == null ? null
+                        : new ParamNameResolver(mappedStatement.getConfiguration(), method))
+                .commandType(commandType)
+                .targetDbCount(targetDbCount)
+                .targetTbCount(targetTbCount)
+                .targetTbCounts(resharding ? dataSourceGroup.getResharding().targetTbCounts(dataSourceGroup)
+                        : dataSourceGroup.getTbCounts())
+                .targetShardTargets(splitDT.broadcast() && resharding
+                        ? shardTargets(targetDbCount, targetTbCount) : List.of())
+                .sameTableNames(!resharding || sameTableNames(dataSourceGroup.getTbCounts(),
+                        dataSourceGroup.getResharding().targetTbCounts(dataSourceGroup)))
+                .build();
+    }
+
+    private static int maxTbCount(Map<String, Integer> tbCounts) {
+        int tbCount = 0;
+        if (tbCounts != null) {
+            for (Integer count : tbCounts.values()) {
+                if (count != null) {
+                    tbCount = Math.max(tbCount, count);
                 }
+            }
+        }
+        return tbCount;
+    }
+
+    /**
+     * 新旧分表配置中各表是否分表（分表数量大于1时表名追加后缀）是否一致
+     */
+    private static boolean sameTableNames(Map<String, Integer> tbCounts, Map<String, Integer> targetTbCounts) {
+        Set<String> tables = new HashSet<>();
+        if (tbCounts != null) {
+            tables.addAll(tbCounts.keySet());
+        }
+        if (targetTbCounts != null) {
+            tables.addAll(targetTbCounts.keySet());
+        }
+        for (String table : tables) {
+            Integer count = tbCounts == null ? null : tbCounts.get(table);
+            Integer targetCount = targetTbCounts == null ? null : targetTbCounts.get(table);
+            if ((count != null && count > 1) != (targetCount != null && targetCount > 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查找方法对应的MyBatis语句（方法为Mapper接口方法时）
+     *
+     * @return 语句，未找到时返回null
+     */
+    private MappedStatement resolveMappedStatement(Method method) {
+        if (!(beanFactory instanceof ListableBeanFactory listableBeanFactory)) {
+            return null;
+        }
+        String statementId = method.getDeclaringClass().getName() + "." + method.getName();
+        for (SqlSessionFactory sqlSessionFactory : listableBeanFactory
+                .getBeansOfType(SqlSessionFactory.class, false, false).values()) {
+            org.apache.ibatis.session.Configuration configuration = sqlSessionFactory.getConfiguration();
+            if (configuration.hasStatement(statementId, false)) {
+                return configuration.getMappedStatement(statementId, false);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 同一分片的元素及其在原集合中的位置
+     */
+    private static final class ShardBatch {
+
+        private final List<Integer> indexes = new ArrayList<>();
+
+        private final List<Object> elements = new ArrayList<>();
+
+        private void add(int index, Object element) {
+            indexes.add(index);
+            elements.add(element);
+        }
+    }
+
+    /**
+     * 设置监控指标（默认不记录）
+     */
+    public void setMetrics(SdtMetrics metrics) {
+        this.metrics = metrics == null ? SdtMetrics.NOOP : metrics;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * 启动时扫描所有Bean（包括Mapper接口）中带有@SplitDT注解的方法，预先解析路由描述
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!(beanFactory instanceof ListableBeanFactory listableBeanFactory)) {
+            return;
+        }
+
+        int count = 0;
+        for (String beanName : listableBeanFactory.getBeanNamesForType(Object.class, false, false)) {
+            Class<?> beanType;
+            try {
+                beanType = listableBeanFactory.getType(beanName, false);
             } catch (Exception e) {
                 continue;
             }
+            if (beanType == null) {
+                continue;
+            }
+
+            for (Method method : ClassUtils.getUserClass(beanType).getMethods()) {
+                SplitDT splitDT = method.getAnnotation(SplitDT.class);
+                if (splitDT == null || descriptors.containsKey(method)) {
+                    continue;
+                }
+                try {
+                    getDescriptor(method, splitDT);
+                    count++;
+                } catch (Exception e) {
+                    log.warn("Failed to resolve @SplitDT routing metadata for {}: {}", method, e.getMessage());
+                }
+            }
         }
-        return filedValue;
+        log.debug("Resolved @SplitDT routing metadata for {} method(s) at startup", count);
     }
 }
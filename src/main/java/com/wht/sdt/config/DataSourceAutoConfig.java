@@ -1,26 +1,36 @@
 package com.wht.sdt.config;
 
 
+import com.wht.sdt.annotation.SDTStrategy;
+import com.wht.sdt.aspect.ForcePrimaryAspect;
 import com.wht.sdt.aspect.SplitDTAspect;
 import com.wht.sdt.config.bean.DynamicDataSource;
 import com.wht.sdt.config.bean.DynamicMybatisPlugin;
-import com.wht.sdt.enumeration.StrategyType;
-import com.wht.sdt.properties.DataSourceConfig;
-import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.config.bean.RoutingConfigWatcher;
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.config.bean.RoutingTable;
+import com.wht.sdt.config.bean.ShardHealthChecker;
+import com.wht.sdt.executor.ShardQueryExecutor;
+import com.wht.sdt.metrics.SdtMetrics;
 import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.resharding.ReshardingManager;
 import com.wht.sdt.strategy.RouterStrategy;
 import com.wht.sdt.strategy.RouterStrategyFactory;
+import com.wht.sdt.transaction.ShardTransactionManager;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.plugin.Interceptor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,17 +40,33 @@ import java.util.Map;
  *
  * @author wht
  */
+@Slf4j
 @Configuration
 @EnableConfigurationProperties(RouterGroupProperties.class)
 public class DataSourceAutoConfig {
 
+    /**
+     * 路由拓扑注册表
+     * 内置策略由 {@link RouterStrategyFactory} 创建；容器中实现了RouterStrategy的Bean按以下顺序绑定到策略类型：
+     * 配置项 custom-strategies（策略类型 -> Bean名称）、Bean类上的 {@link SDTStrategy} 注解、依次占用空闲的CUSTOM_n
+     * 注意：自定义策略Bean不能再依赖本注册表Bean；热加载时自定义策略Bean会以新的数据源组配置再次调用init
+     */
     @Bean
-    public Map<StrategyType, RouterStrategy> routerStrategiesSDT() {
-        Map<StrategyType, RouterStrategy> routerStrategiesSDT = new HashMap<>();
-        for (StrategyType strategyType : StrategyType.values()) {
-            routerStrategiesSDT.put(strategyType, RouterStrategyFactory.getInstance(strategyType));
-        }
-        return routerStrategiesSDT;
+    @ConditionalOnMissingBean
+    public RoutingRegistry routingRegistry(RouterGroupProperties routerGroupProperties,
+                                           ObjectProvider<Map<String, RouterStrategy>> customStrategyBeans) {
+        return new RoutingRegistry(routerGroupProperties, customStrategyBeans.getIfAvailable(Collections::emptyMap));
+    }
+
+    /**
+     * 路由配置文件监听（配置了 reload.config-file 时）
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = RouterGroupProperties.PREFIX + ".reload", name = "config-file")
+    public RoutingConfigWatcher routingConfigWatcher(RoutingRegistry routingRegistry,
+                                                     RouterGroupProperties routerGroupProperties) {
+        return new RoutingConfigWatcher(routingRegistry, routerGroupProperties.getReload());
     }
 
     /**
@@ -49,77 +75,110 @@ public class DataSourceAutoConfig {
     @Bean
     @ConditionalOnMissingBean
     public SplitDTAspect dbRouterJoinPoint(RouterGroupProperties routerGroupProperties,
-                                           Map<StrategyType, RouterStrategy> routerStrategiesSDT) {
-        return new SplitDTAspect(routerGroupProperties, routerStrategiesSDT);
+                                           RoutingRegistry routingRegistry,
+                                           ShardQueryExecutor shardQueryExecutor,
+                                           ReshardingManager reshardingManager,
+                                           ObjectProvider<SdtMetrics> metrics) {
+        SplitDTAspect aspect = new SplitDTAspect(routerGroupProperties, routingRegistry, shardQueryExecutor,
+                reshardingManager);
+        aspect.setMetrics(metrics.getIfAvailable(() -> SdtMetrics.NOOP));
+        return aspect;
     }
 
-
-
     /**
-     * 创建MyBatis插件Bean
+     * 分片迁移管理器（回填任务、迁移状态）
      */
     @Bean
     @ConditionalOnMissingBean
-    public Interceptor dynamicMybatisPlugin(RouterGroupProperties routerGroupProperties,
-                                            Map<StrategyType, RouterStrategy> routerStrategiesSDT) {
-        return new DynamicMybatisPlugin(routerGroupProperties, routerStrategiesSDT);
+    public ReshardingManager reshardingManager(RoutingRegistry routingRegistry) {
+        return new ReshardingManager(routingRegistry);
     }
 
     /**
-     * 创建动态数据源Bean
+     * 强制走主库切面
      */
     @Bean
     @ConditionalOnMissingBean
-    public DataSource dataSource(RouterGroupProperties properties) {
-        // 创建数据源Map
-        Map<Object, Object> targetDataSources = new HashMap<>();
-
-        // 遍历配置，创建每个数据源
-        Map<String, DataSourceGroup> groups = properties.getGroups();
-        for (String groupKey : groups.keySet()) {
+    public ForcePrimaryAspect forcePrimaryAspect() {
+        return new ForcePrimaryAspect();
+    }
 
-            DataSourceGroup dataSourceGroup = groups.get(groupKey);
-            Map<String, DataSourceConfig> configs = dataSourceGroup.getDataSource();
-            for (String dbKey : configs.keySet()) {
+    /**
+     * 广播查询执行器
+     *
+     * @param routerGroupProperties 路由组配置
+     * @return 分片查询执行器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ShardQueryExecutor shardQueryExecutor(RouterGroupProperties routerGroupProperties) {
+        return new ShardQueryExecutor(routerGroupProperties.getScatter());
+    }
 
-                DataSourceConfig dataSourceConfig = configs.get(dbKey);
 
-                // 使用DriverManagerDataSource创建数据源
-                DriverManagerDataSource dataSource = new DriverManagerDataSource();
-                dataSource.setDriverClassName(dataSourceConfig.getDriverClassName());
-                dataSource.setUrl(dataSourceConfig.getUrl());
-                dataSource.setUsername(dataSourceConfig.getUsername());
-                dataSource.setPassword(dataSourceConfig.getPassword());
 
-                targetDataSources.put(groupKey+dbKey, dataSource);
-            }
+    /**
+     * 创建MyBatis插件Bean
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public Interceptor dynamicMybatisPlugin(RouterGroupProperties routerGroupProperties,
+                                            RoutingRegistry routingRegistry,
+                                            ObjectProvider<SdtMetrics> metrics) {
+        DynamicMybatisPlugin plugin = new DynamicMybatisPlugin(routerGroupProperties, routingRegistry);
+        plugin.setMetrics(metrics.getIfAvailable(() -> SdtMetrics.NOOP));
+        return plugin;
+    }
 
-        }
+    /**
+     * 创建动态数据源Bean
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public DataSource dataSource(RouterGroupProperties properties, RoutingRegistry routingRegistry) {
+        // 数据源（连接池）由路由拓扑注册表创建和管理，路由时按当前线程使用的快照定位
+        RoutingTable table = routingRegistry.latest().getRoutingTable();
+        Map<Object, Object> targetDataSources = new HashMap<>(table.getAllDataSources());
 
         // 创建动态数据源
         DynamicDataSource dynamicDataSource = new DynamicDataSource();
         dynamicDataSource.setTargetDataSources(targetDataSources);
+        dynamicDataSource.setRoutingRegistry(routingRegistry);
+
+        // 连接延迟到创建Statement时获取（从SQL中解析路由字段时必须开启，执行SQL前才能确定分库）
+        dynamicDataSource.setLazyConnection(properties.isLazyConnection() || properties.isSqlRouteFallback());
 
-        // 设置默认数据源（使用第一个）
-        if (!targetDataSources.isEmpty()) {
-            DataSourceConfig dataSourceConfig = groups.get("group01").getDataSource().get("db01");
-            DriverManagerDataSource dataSource = new DriverManagerDataSource();
-            dataSource.setDriverClassName(dataSourceConfig.getDriverClassName());
-            dataSource.setUrl(dataSourceConfig.getUrl());
-            dataSource.setUsername(dataSourceConfig.getUsername());
-            dataSource.setPassword(dataSourceConfig.getPassword());
-            dynamicDataSource.setDefaultTargetDataSource(dataSource);
+        // 设置默认数据源（复用group01db01的连接池）
+        DataSource defaultDataSource = routingRegistry.latest().getDefaultDataSource();
+        if (defaultDataSource != null) {
+            dynamicDataSource.setDefaultTargetDataSource(defaultDataSource);
         }
 
         return dynamicDataSource;
     }
 
+    /**
+     * 分片健康检查（启用熔断时）
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "split-database-table.sdt.router.health", name = "enabled", havingValue = "true")
+    public ShardHealthChecker shardHealthChecker(RoutingRegistry routingRegistry,
+                                                 RouterGroupProperties routerGroupProperties) {
+        return new ShardHealthChecker(routingRegistry, routerGroupProperties.getHealth());
+    }
+
     /**
      * 创建事务管理器Bean（供 @Transactional 使用）
      */
     @Bean
     @ConditionalOnMissingBean
-    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+    public PlatformTransactionManager transactionManager(DataSource dataSource,
+                                                         RouterGroupProperties routerGroupProperties,
+                                                         ShardQueryExecutor shardQueryExecutor) {
+        if (routerGroupProperties.isShardTransaction() && dataSource instanceof DynamicDataSource dynamicDataSource) {
+            return new ShardTransactionManager(dynamicDataSource, shardQueryExecutor);
+        }
         return new DataSourceTransactionManager(dataSource);
     }
 
@@ -0,0 +1,83 @@
+package com.wht.sdt.config;
+
+import com.wht.sdt.config.bean.RoutingConfigWatcher;
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.metrics.MicrometerSdtMetrics;
+import com.wht.sdt.metrics.SdtEndpoint;
+import com.wht.sdt.metrics.SdtMetrics;
+import com.wht.sdt.metrics.ShardTransactionMeters;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.transaction.ShardTransactionManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 监控指标自动配置
+ * 存在Micrometer的MeterRegistry Bean时（如引入spring-boot-starter-actuator）记录路由监控指标，
+ * 同时存在Actuator时注册 /actuator/sdt 端点；切面和MyBatis插件通过 {@link SdtMetrics} 记录
+ *
+ * @author wht
+ */
+@AutoConfiguration(after = DataSourceAutoConfig.class, afterName = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration"
+})
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnBean(type = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(prefix = RouterGroupProperties.PREFIX + ".metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SdtMetricsAutoConfig {
+
+    /**
+     * 基于Micrometer的路由监控指标
+     */
+    @Bean
+    @ConditionalOnMissingBean(SdtMetrics.class)
+    public MicrometerSdtMetrics sdtMetrics(MeterRegistry meterRegistry, RoutingRegistry routingRegistry,
+                                           RouterGroupProperties routerGroupProperties) {
+        return new MicrometerSdtMetrics(meterRegistry, routingRegistry, routerGroupProperties.getMetrics());
+    }
+
+    /**
+     * 分片事务指标（事务管理器为 {@link ShardTransactionManager} 时）
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ShardTransactionMeters shardTransactionMeters(MeterRegistry meterRegistry,
+                                                         ObjectProvider<PlatformTransactionManager> transactionManagers) {
+        ShardTransactionManager shardTransactionManager = transactionManagers.orderedStream()
+                .filter(ShardTransactionManager.class::isInstance)
+                .map(ShardTransactionManager.class::cast)
+                .findFirst()
+                .orElse(null);
+        return shardTransactionManager == null
+                ? null
+                : new ShardTransactionMeters(meterRegistry, shardTransactionManager.getMetrics());
+    }
+
+    /**
+     * 路由监控端点（存在Actuator时）
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class EndpointConfig {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnBean(MicrometerSdtMetrics.class)
+        public SdtEndpoint sdtEndpoint(RoutingRegistry routingRegistry, MicrometerSdtMetrics sdtMetrics,
+                                       ObjectProvider<ShardTransactionMeters> transactionMeters,
+                                       ObjectProvider<RoutingConfigWatcher> configWatcher, Environment environment) {
+            return new SdtEndpoint(routingRegistry, sdtMetrics, transactionMeters.getIfAvailable(),
+                    configWatcher.getIfAvailable(), environment);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.properties.HealthProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 数据源熔断器
+ * 统计窗口内获取连接的错误率超过阈值、或连续多次健康检查失败时熔断（OPEN），熔断期间直接拒绝获取连接；
+ * 熔断持续时间过后进入试探状态（HALF_OPEN），最多同时放行 halfOpenPermits 个试探请求，任一成功则恢复（CLOSED），
+ * 失败或超过 halfOpenTimeout 未结束则继续熔断。健康检查成功时立即恢复
+ *
+ * @author wht
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        /**
+         * 正常
+         */
+        CLOSED,
+        /**
+         * 熔断
+         */
+        OPEN,
+        /**
+         * 试探中
+         */
+        HALF_OPEN
+    }
+
+    private final String name;
+
+    private final HealthProperties properties;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private final AtomicInteger probeFailures = new AtomicInteger();
+
+    private final SlidingWindow window;
+
+    private final AtomicInteger trialPermits = new AtomicInteger();
+
+    private volatile long openedAt;
+
+    private volatile long halfOpenedAt;
+
+    public CircuitBreaker(String name, HealthProperties properties) {
+        this.name = name;
+        this.properties = properties;
+        this.window = new SlidingWindow(properties.getWindowSeconds());
+    }
+
+    /**
+     * 是否允许获取连接，熔断时间已过时转为试探状态并放行本次请求
+     */
+    public boolean tryAcquire() {
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (!openExpired()) {
+                    return false;
+                }
+                halfOpenedAt = System.currentTimeMillis();
+                if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                    return tryAcquire();
+                }
+                // 熔断时试探请求数已清零，转换完成前其他线程不会放行
+                trialPermits.set(Math.max(1, properties.getHalfOpenPermits()) - 1);
+                return true;
+            case HALF_OPEN:
+            default:
+                if (trialExpired()) {
+                    // 试探请求长时间未结束（如连接池等待超时较长），视为失败
+                    open(State.HALF_OPEN, "trial request timed out");
+                    return false;
+                }
+                // 试探请求数用完后，在试探结束前拒绝其他请求
+                return trialPermits.get() > 0 && trialPermits.decrementAndGet() >= 0;
+        }
+    }
+
+    /**
+     * 是否可用（不改变状态，用于选择从库）
+     */
+    public boolean isAvailable() {
+        State current = state.get();
+        return current == State.CLOSED || (current == State.OPEN && openExpired())
+                || (current == State.HALF_OPEN && trialPermits.get() > 0);
+    }
+
+    /**
+     * 记录获取连接成功
+     *
+     * @param nanos 获取连接耗时
+     */
+    public void onSuccess(long nanos) {
+        long slowCallThreshold = properties.getSlowCallThreshold();
+        if (slowCallThreshold > 0 && nanos > slowCallThreshold * 1_000_000) {
+            onFailure(nanos);
+            return;
+        }
+        window.record(nanos, false);
+        if (state.get() == State.HALF_OPEN) {
+            close("trial request succeeded");
+        }
+    }
+
+    /**
+     * 记录获取连接失败
+     *
+     * @param nanos 获取连接耗时
+     */
+    public void onFailure(long nanos) {
+        window.record(nanos, true);
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN, "trial request failed");
+        } else if (current == State.CLOSED) {
+            SlidingWindow.Snapshot snapshot = window.snapshot();
+            if (snapshot.requests() >= properties.getMinRequests()
+                    && snapshot.errorRate() >= properties.getErrorRateThreshold()) {
+                open(State.CLOSED, String.format("error rate %.2f in %d requests",
+                        snapshot.errorRate(), snapshot.requests()));
+            }
+        }
+    }
+
+    /**
+     * 记录健康检查结果
+     *
+     * @param healthy 是否健康
+     */
+    public void onProbe(boolean healthy) {
+        if (healthy) {
+            probeFailures.set(0);
+            if (state.get() != State.CLOSED) {
+                close("health check succeeded");
+            }
+            return;
+        }
+        if (probeFailures.incrementAndGet() >= properties.getProbeFailureThreshold()) {
+            State current = state.get();
+            if (current == State.OPEN) {
+                // 熔断期间健康检查仍失败，重新计算熔断时间，避免放行试探请求
+                openedAt = System.currentTimeMillis();
+            } else {
+                open(current, probeFailures.get() + " consecutive health check failures");
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 统计窗口内的请求数
+     */
+    SlidingWindow.Snapshot snapshot() {
+        return window.snapshot();
+    }
+
+    private boolean openExpired() {
+        return System.currentTimeMillis() - openedAt >= properties.getOpenDuration();
+    }
+
+    private boolean trialExpired() {
+        long timeout = properties.getHalfOpenTimeout();
+        return timeout > 0 && System.currentTimeMillis() - halfOpenedAt >= timeout;
+    }
+
+    private void open(State expected, String reason) {
+        // 先设置熔断时间和试探请求数，其他线程看到OPEN状态时不会立即放行
+        long now = System.currentTimeMillis();
+        openedAt = now;
+        trialPermits.set(0);
+        if (state.compareAndSet(expected, State.OPEN)) {
+            log.warn("Circuit breaker of datasource {} opened: {}", name, reason);
+        }
+    }
+
+    private void close(String reason) {
+        State previous = state.getAndSet(State.CLOSED);
+        if (previous != State.CLOSED) {
+            window.reset();
+            log.info("Circuit breaker of datasource {} closed: {}", name, reason);
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package com.wht.sdt.config.bean;
 
 import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.transaction.ShardConnectionHolder;
+import com.wht.sdt.transaction.ShardRoutingConnection;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * 动态数据源
@@ -11,21 +21,170 @@ import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
  * @author wht
  */
 @Slf4j
-public class DynamicDataSource extends AbstractRoutingDataSource {
+public class DynamicDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String DEFAULT_LOOKUP_KEY = "group01db01";
+
+    /**
+     * 路由拓扑注册表，按当前线程使用的快照定位数据源（支持热加载）；未设置时使用 targetDataSources
+     */
+    private RoutingRegistry routingRegistry;
+
+    /**
+     * 延迟获取连接的代理，未启用时为null
+     */
+    private LazyConnectionDataSourceProxy lazyConnectionProxy;
+
+    /**
+     * 分片事务资源key（ShardTransactionManager以此绑定当前事务的分片连接）
+     */
+    private final Object transactionResourceKey = new Object();
+
+    public void setRoutingRegistry(RoutingRegistry routingRegistry) {
+        this.routingRegistry = routingRegistry;
+    }
+
+    public RoutingRegistry getRoutingRegistry() {
+        return routingRegistry;
+    }
+
+    /**
+     * 当前线程使用的路由表
+     */
+    public RoutingTable getRoutingTable() {
+        return routingRegistry == null ? null : routingRegistry.current().getRoutingTable();
+    }
+
+    /**
+     * 设置是否延迟获取连接
+     * 启用后 getConnection() 返回连接代理，第一次创建Statement时才根据当时的路由上下文获取分片的物理连接，
+     * 因此可以在MyBatis插件中（SQL执行前）再确定分库
+     *
+     * @param lazyConnection 是否延迟获取连接
+     */
+    public void setLazyConnection(boolean lazyConnection) {
+        if (!lazyConnection) {
+            this.lazyConnectionProxy = null;
+            return;
+        }
+        // 不调用afterPropertiesSet：默认的自动提交和隔离级别在第一次获取物理连接时读取，
+        // 避免在分片数据源初始化之前就去获取连接
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(new RoutingTarget());
+        this.lazyConnectionProxy = proxy;
+    }
+
+    public boolean isLazyConnection() {
+        return lazyConnectionProxy != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        // 分片事务中返回路由连接，每条语句按路由上下文使用对应分片在事务中绑定的连接
+        ShardConnectionHolder holder = (ShardConnectionHolder) TransactionSynchronizationManager
+                .getResource(transactionResourceKey);
+        if (holder != null && holder.isTransactionActive()) {
+            return ShardRoutingConnection.create(this, holder);
+        }
+        return lazyConnectionProxy != null ? lazyConnectionProxy.getConnection() : super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return lazyConnectionProxy != null
+                ? lazyConnectionProxy.getConnection(username, password)
+                : super.getConnection(username, password);
+    }
+
+    public Object getTransactionResourceKey() {
+        return transactionResourceKey;
+    }
+
+    /**
+     * 按当前路由上下文获取分片名称，如：group01db01
+     */
+    public String getCurrentLookupKey() {
+        return String.valueOf(determineCurrentLookupKey());
+    }
+
+    /**
+     * 按当前路由上下文获取分片数据源
+     */
+    public DataSource getCurrentTargetDataSource() {
+        return determineTargetDataSource();
+    }
+
+    @Override
+    protected DataSource determineTargetDataSource() {
+        if (routingRegistry == null) {
+            return super.determineTargetDataSource();
+        }
 
+        // 从当前快照的路由表直接定位数据源，避免拼接查找键
+        RoutingSnapshot snapshot = routingRegistry.current();
+        String gKey = SDTContext.getGKey();
+        String dbKey = SDTContext.getDBKey();
+        if (gKey == null || gKey.isEmpty() || dbKey == null || dbKey.isEmpty()) {
+            if (snapshot.getDefaultDataSource() == null) {
+                throw new IllegalStateException("Cannot determine target DataSource: no default datasource");
+            }
+            return snapshot.getDefaultDataSource();
+        }
+        DataSource dataSource = snapshot.getRoutingTable().getDataSource(gKey, dbKey);
+        if (dataSource == null) {
+            throw new IllegalStateException("Cannot determine target DataSource for lookup key ["
+                    + gKey + dbKey + "] in routing version " + snapshot.getVersion());
+        }
+        return dataSource;
+    }
 
     @Override
     protected Object determineCurrentLookupKey() {
 
-        if (SDTContext.getGKey() == null || "".equals(SDTContext.getGKey())
-                || SDTContext.getDBKey() == null || "".equals(SDTContext.getDBKey())) {
-            return "group01db01";
-        } else {
-            // 从ThreadLocal获取当前线程的数据库键
-            // 格式: group01db01 (getGKey()="group01", getDBKey()="db01")
-            // 注意：DBKey已经包含"db"前缀，由路由策略设置
-            log.debug(SDTContext.getGKey() + SDTContext.getDBKey());
-            return SDTContext.getGKey() + SDTContext.getDBKey();
+        String gKey = SDTContext.getGKey();
+        String dbKey = SDTContext.getDBKey();
+        if (gKey == null || gKey.isEmpty() || dbKey == null || dbKey.isEmpty()) {
+            return DEFAULT_LOOKUP_KEY;
+        }
+
+        // 格式: group01db01 (getGKey()="group01", getDBKey()="db01")
+        // 注意：DBKey已经包含"db"前缀，由路由策略设置
+        RoutingTable routingTable = getRoutingTable();
+        String lookupKey = routingTable == null ? null : routingTable.getLookupKey(gKey, dbKey);
+        if (lookupKey == null) {
+            lookupKey = gKey + dbKey;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Lookup key: {}", lookupKey);
+        }
+        return lookupKey;
+    }
+
+    /**
+     * 延迟连接代理的目标数据源：获取物理连接时按路由上下文选择分片
+     */
+    private final class RoutingTarget extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DynamicDataSource.super.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return DynamicDataSource.super.getConnection(username, password);
+        }
+    }
+
+    /**
+     * 关闭所有分片数据源的连接池（使用路由拓扑注册表时由注册表关闭）
+     */
+    @Override
+    public void destroy() {
+        if (routingRegistry != null) {
+            routingRegistry.destroy();
+            return;
         }
+        getResolvedDataSources().values().forEach(ShardDataSourceFactory::close);
     }
 }
@@ -3,20 +3,32 @@ package com.wht.sdt.config.bean;
 import com.wht.sdt.context.SDTContext;
 import com.wht.sdt.context.StrategyContext;
 import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.metrics.SdtMetrics;
 import com.wht.sdt.properties.DataSourceGroup;
 import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.properties.SqlCacheProperties;
+import com.wht.sdt.properties.TimePartitionProperties;
 import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.LruCache;
+import com.wht.sdt.util.SqlRouteKeyFinder;
 import com.wht.sdt.util.SqlTableReplacer;
+import com.wht.sdt.util.SqlTemplate;
+import com.wht.sdt.util.TimePartitions;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.plugin.*;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.Connection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
 /**
  * MyBatis动态表名插件（优化版）
@@ -31,13 +43,69 @@ import java.util.Map;
 @Slf4j
 public class DynamicMybatisPlugin implements Interceptor {
 
+    /**
+     * 加锁读（SELECT ... FOR UPDATE / LOCK IN SHARE MODE）必须使用主库
+     */
+    private static final Pattern LOCKING_READ = Pattern.compile(
+            "\\bfor\\s+update\\b|\\block\\s+in\\s+share\\s+mode\\b|\\bfor\\s+share\\b",
+            Pattern.CASE_INSENSITIVE);
+
     private final RouterGroupProperties routerGroupProperties;
-    private final Map<StrategyType, RouterStrategy> routerStrategies;
+    private final RoutingRegistry routingRegistry;
+
+    /**
+     * SQL改写缓存（原始SQL + 数据源组 + 表后缀 -> 改写后SQL），未启用时为null
+     */
+    private final LruCache<SqlRewriteKey, String> sqlRewriteCache;
+
+    /**
+     * SQL模板缓存（原始SQL + 数据源组 -> SQL模板），未启用缓存时为null；
+     * 非模板模式下只用于包含按时间分表的数据源组
+     */
+    private final LruCache<SqlRewriteKey, SqlTemplate> sqlTemplateCache;
+
+    /**
+     * 是否使用模板模式改写所有SQL
+     */
+    private final boolean templateMode;
+
+    /**
+     * SQL路由字段取值方式缓存（语句ID + SQL + 路由字段 -> 取值方式），未启用SQL路由字段解析时为null
+     */
+    private final LruCache<RoutePlanKey, SqlRouteKeyFinder.RoutePlan> routePlanCache;
+
+    /**
+     * 监控指标
+     */
+    private SdtMetrics metrics = SdtMetrics.NOOP;
 
     public DynamicMybatisPlugin(RouterGroupProperties routerGroupProperties,
-            Map<StrategyType, RouterStrategy> routerStrategies) {
+            RoutingRegistry routingRegistry) {
         this.routerGroupProperties = routerGroupProperties;
-        this.routerStrategies = routerStrategies;
+        this.routingRegistry = routingRegistry;
+
+        SqlCacheProperties sqlCache = routerGroupProperties.getSqlCache();
+        boolean cacheEnabled = sqlCache != null && sqlCache.isEnabled();
+        this.templateMode = cacheEnabled && sqlCache.isTemplateEnabled();
+        this.sqlTemplateCache = cacheEnabled
+                ? new LruCache<>(sqlCache.getMaxSize())
+                : null;
+        this.sqlRewriteCache = cacheEnabled && !sqlCache.isTemplateEnabled()
+                ? new LruCache<>(sqlCache.getMaxSize())
+                : null;
+        this.routePlanCache = routerGroupProperties.isSqlRouteFallback()
+                ? new LruCache<>(sqlCache != null ? sqlCache.getMaxSize() : new SqlCacheProperties().getMaxSize())
+                : null;
+
+        // 路由拓扑热加载后分表配置可能变化，旧版本的改写结果不再使用
+        routingRegistry.addListener(snapshot -> {
+            if (sqlTemplateCache != null) {
+                sqlTemplateCache.clear();
+            }
+            if (sqlRewriteCache != null) {
+                sqlRewriteCache.clear();
+            }
+        });
     }
 
     @Override
@@ -49,67 +117,94 @@ public class DynamicMybatisPlugin implements Interceptor {
         // 获取MappedStatement
         MappedStatement mappedStatement = (MappedStatement) metaObject.getValue("delegate.mappedStatement");
 
+        // 不在事务中的查询语句可以路由到从库（分片连接在创建Statement时才获取）
+        boolean readRoute = isReplicaRead(mappedStatement, statementHandler.getBoundSql());
+        if (!readRoute) {
+            return route(invocation, statementHandler, metaObject, mappedStatement);
+        }
+        SDTContext.setReadRoute(true);
+        try {
+            return route(invocation, statementHandler, metaObject, mappedStatement);
+        } finally {
+            SDTContext.setReadRoute(false);
+        }
+    }
+
+    /**
+     * 执行分库分表路由并改写SQL表名
+     */
+    private Object route(Invocation invocation, StatementHandler statementHandler, MetaObject metaObject,
+                         MappedStatement mappedStatement) throws Throwable {
         // 获取BoundSql
         BoundSql boundSql = statementHandler.getBoundSql();
         String originalSql = boundSql.getSql();
 
+        // 方法参数中没有路由字段时，从SQL中解析路由字段值并分库（数据源连接延迟到执行SQL时获取）
+        if (routePlanCache != null && SDTContext.getDeferredRouteKey() != null) {
+            resolveDeferredRoute(mappedStatement, boundSql);
+        }
+
         // 检查是否需要进行分表路由
+        String groupKey = SDTContext.getGKey();
         String tbKey = SDTContext.getTBKey();
-        if (tbKey == null || tbKey.isEmpty()) {
+        String routeValue = SDTContext.getRouteValue();
+        if ((tbKey == null || tbKey.isEmpty()) && (routeValue == null || routeValue.isEmpty())
+                && !SDTContext.isTBKeyFixed()) {
             // 不需要分表，直接执行
-            return invocation.proceed();
+            return proceed(invocation, groupKey, null);
         }
 
-        String groupKey = SDTContext.getGKey();
         if (groupKey == null) {
             log.warn("GroupKey is null, skip table routing");
             return invocation.proceed();
         }
 
         // 获取数据源组配置
-        DataSourceGroup dataSourceGroup = routerGroupProperties.getGroups().get(groupKey);
+        DataSourceGroup dataSourceGroup = routingRegistry.current().getGroup(groupKey);
         if (dataSourceGroup == null) {
             log.warn("DataSourceGroup not found for groupKey: {}", groupKey);
-            return invocation.proceed();
+            return proceed(invocation, groupKey, null);
         }
 
-        // 获取分表配置
-        Map<String, Integer> tbCounts = dataSourceGroup.getTbCounts();
-        if (tbCounts == null || tbCounts.isEmpty()) {
+        // 获取分表配置（分片迁移中在新分片上执行时使用目标分表配置）
+        boolean reshardTarget = SDTContext.isReshardTarget() && dataSourceGroup.reshardingEnabled();
+        Map<String, Integer> tbCounts = reshardTarget
+                ? dataSourceGroup.getResharding().targetTbCounts(dataSourceGroup)
+                : dataSourceGroup.getTbCounts();
+        boolean timePartitioned = dataSourceGroup.hasTimePartitions();
+        if ((tbCounts == null || tbCounts.isEmpty()) && !timePartitioned) {
             log.debug("No table sharding config found for group: {}", groupKey);
-            return invocation.proceed();
+            return proceed(invocation, groupKey, null);
         }
 
-        // 执行分表路由策略
-        try {
-            StrategyContext strategyContext = StrategyContext.builder()
-                    .tbCount(getMaxTbCount(tbCounts))
-                    .dbCount(dataSourceGroup.getDbCount())
-                    .keyValue(tbKey)
-                    .build();
-
-            // 执行路由策略，计算表后缀
-            StrategyType strategyType = SDTContext.getStrategyType();
-            if (strategyType == null) {
-                strategyType = StrategyType.HASH;
+        // 执行分表路由策略（表后缀已直接指定时跳过），每个表按自己的分表数量计算表后缀
+        boolean tbKeyFixed = SDTContext.isTBKeyFixed();
+        boolean uniform = uniformTbCounts(tbCounts);
+        Map<String, String> tableSuffixes = tbKeyFixed ? SDTContext.getTableSuffixes() : null;
+        if (!tbKeyFixed) {
+            try {
+                RouterStrategy strategy = currentStrategy();
+                if (strategy != null) {
+                    tableSuffixes = routeTables(strategy, groupKey, dataSourceGroup.getDbCount(),
+                            routeValue != null ? routeValue : tbKey, tbCounts, uniform);
+                }
+            } catch (Exception e) {
+                log.error("Error executing table routing strategy", e);
             }
-
-            RouterStrategy strategy = routerStrategies.get(strategyType);
-            if (strategy != null) {
-                strategy.splitTB(strategyContext);
-            } else {
-                log.warn("RouterStrategy not found for type: {}", strategyType);
-            }
-
-        } catch (Exception e) {
-            log.error("Error executing table routing strategy", e);
         }
 
-        // 获取计算后的表后缀
+        // 获取计算后的表后缀（分表数量最大的表使用）
         String tableSuffix = SDTContext.getTBKey();
 
-        // 使用SqlTableReplacer替换SQL中的表名
-        String modifiedSql = SqlTableReplacer.replaceTableName(originalSql, tbCounts, tableSuffix);
+        // 使用SqlTableReplacer替换SQL中的表名（同一语句同一分表只解析一次）；
+        // 各表的表后缀不同、或指定的表后缀可能超过部分表的分表数量时按表改写
+        long rewriteStart = System.nanoTime();
+        String modifiedSql = timePartitioned || (tableSuffixes != null && !tableSuffixes.isEmpty())
+                || (tbKeyFixed && !uniform)
+                ? rewriteTables(originalSql, groupKey, dataSourceGroup, tbCounts, tableSuffix, tableSuffixes,
+                routeValue, reshardTarget)
+                : rewriteSql(originalSql, groupKey, tbCounts, tableSuffix, reshardTarget);
+        metrics.recordRewrite(groupKey, System.nanoTime() - rewriteStart);
 
         // 只有当SQL被修改时才更新
         if (!originalSql.equals(modifiedSql)) {
@@ -121,9 +216,120 @@ public class DynamicMybatisPlugin implements Interceptor {
         }
 
         // 执行修改后的SQL
+        return proceed(invocation, groupKey, tableSuffix);
+    }
+
+    /**
+     * 执行SQL并记录分片调用次数（不是路由方法中的SQL时不记录）
+     */
+    private Object proceed(Invocation invocation, String groupKey, String tableSuffix) throws Throwable {
+        if (groupKey != null) {
+            metrics.recordShardCall(groupKey, SDTContext.getStrategyType(), SDTContext.getDBKey(), tableSuffix);
+        }
         return invocation.proceed();
     }
 
+    /**
+     * 按路由字段值计算各表的表后缀
+     * 分表数量最大的表的后缀写入路由上下文的tbKey，分表数量不同的其他表按自己的分表数量计算（同一数量只计算一次），
+     * 分表数量相同的表（包括绑定表）表后缀相同
+     *
+     * @return 与tbKey不同的表的后缀（表名 -> 后缀），所有表分表数量相同时为null
+     */
+    private Map<String, String> routeTables(RouterStrategy strategy, String groupKey, int dbCount, String keyValue,
+                                            Map<String, Integer> tbCounts, boolean uniform) {
+        int maxTbCount = getMaxTbCount(tbCounts);
+        StrategyContext.StrategyContextBuilder builder = StrategyContext.builder()
+                .groupKey(groupKey)
+                .dbCount(dbCount)
+                .keyValue(keyValue);
+        strategy.splitTB(builder.tbCount(maxTbCount).build());
+        if (uniform) {
+            return null;
+        }
+
+        String tableSuffix = SDTContext.getTBKey();
+        Map<Integer, String> suffixes = new HashMap<>();
+        Map<String, String> tableSuffixes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : tbCounts.entrySet()) {
+            Integer count = entry.getValue();
+            if (count == null || count <= 1 || count == maxTbCount) {
+                continue;
+            }
+            tableSuffixes.put(entry.getKey(), suffixes.computeIfAbsent(count, n -> {
+                strategy.splitTB(builder.tbCount(n).build());
+                return SDTContext.getTBKey();
+            }));
+        }
+        SDTContext.setTBKey(tableSuffix);
+        return tableSuffixes;
+    }
+
+    /**
+     * 是否可以路由到从库：不在事务中、且不加锁的查询语句
+     */
+    private boolean isReplicaRead(MappedStatement mappedStatement, BoundSql boundSql) {
+        return mappedStatement.getSqlCommandType() == SqlCommandType.SELECT
+                && !TransactionSynchronizationManager.isActualTransactionActive()
+                && !LOCKING_READ.matcher(boundSql.getSql()).find();
+    }
+
+    /**
+     * 从SQL中解析路由字段值并执行分库策略
+     * 每个语句的解析结果（参数位置或字面量）只计算一次并缓存
+     */
+    private void resolveDeferredRoute(MappedStatement mappedStatement, BoundSql boundSql) {
+        String routeKey = SDTContext.getDeferredRouteKey();
+        String groupKey = SDTContext.getGKey();
+        DataSourceGroup dataSourceGroup = routingRegistry.current().getGroup(groupKey);
+        if (dataSourceGroup == null) {
+            log.warn("DataSourceGroup not found for groupKey: {}, skip SQL route key resolution", groupKey);
+            return;
+        }
+
+        String sql = boundSql.getSql();
+        SqlRouteKeyFinder.RoutePlan plan = routePlanCache.computeIfAbsent(
+                new RoutePlanKey(mappedStatement.getId(), sql, routeKey),
+                key -> SqlRouteKeyFinder.find(sql, routeKey));
+
+        Object value = SqlRouteKeyFinder.resolve(plan, mappedStatement, boundSql);
+        String routeValue = value == null ? null : value.toString();
+        if (routeValue == null || routeValue.isEmpty()) {
+            throw new RuntimeException("数据库路由key属性值为空（方法参数和SQL中均未找到）: " + routeKey
+                    + ", statement: " + mappedStatement.getId());
+        }
+
+        SDTContext.setRouteValue(routeValue);
+        SDTContext.setTBKey(routeValue);
+
+        RouterStrategy strategy = currentStrategy();
+        if (strategy != null) {
+            strategy.splitDB(StrategyContext.builder()
+                    .groupKey(groupKey)
+                    .keyValue(routeValue)
+                    .dbCount(dataSourceGroup.getDbCount())
+                    .build());
+        }
+        log.debug("[SQL-Route] statement={} routeKey={} value={} dbKey={}",
+                mappedStatement.getId(), routeKey, routeValue, SDTContext.getDBKey());
+    }
+
+    /**
+     * 当前线程使用的路由策略
+     */
+    private RouterStrategy currentStrategy() {
+        StrategyType strategyType = SDTContext.getStrategyType();
+        if (strategyType == null || strategyType == StrategyType.DEFAULT) {
+            strategyType = StrategyType.HASH;
+        }
+
+        RouterStrategy strategy = routingRegistry.current().getStrategy(strategyType);
+        if (strategy == null) {
+            log.warn("RouterStrategy not found for type: {}", strategyType);
+        }
+        return strategy;
+    }
+
     @Override
     public Object plugin(Object target) {
         // 只拦截StatementHandler
@@ -134,14 +340,166 @@ public class DynamicMybatisPlugin implements Interceptor {
     }
 
     /**
-     * 获取最大分表数量（用于路由计算）
+     * 改写SQL表名，启用缓存时优先从缓存获取
+     * 同一路由拓扑版本中同一数据源组的分表配置相同，因此缓存key只需包含组键、版本号和是否为分片迁移的新分片
      */
-    private int getMaxTbCount(Map<String, Integer> tbCounts) {
+    private String rewriteSql(String originalSql, String groupKey,
+            Map<String, Integer> tbCounts, String tableSuffix, boolean reshardTarget) {
+        long version = routingRegistry.current().getVersion();
+        if (templateMode) {
+            // 模板模式：每条SQL只解析一次，不同表后缀直接拼接
+            SqlTemplate template = sqlTemplateCache.computeIfAbsent(
+                    new SqlRewriteKey(originalSql, groupKey, null, version, reshardTarget),
+                    key -> SqlTableReplacer.compile(originalSql, tbCounts));
+            return template.render(tableSuffix);
+        }
+        if (sqlRewriteCache == null) {
+            return SqlTableReplacer.replaceTableName(originalSql, tbCounts, tableSuffix);
+        }
+        return sqlRewriteCache.computeIfAbsent(new SqlRewriteKey(originalSql, groupKey, tableSuffix, version, reshardTarget),
+                key -> SqlTableReplacer.replaceTableName(originalSql, tbCounts, tableSuffix));
+    }
+
+    /**
+     * 按表分别计算表后缀改写SQL
+     * 单独指定后缀的表使用指定的后缀，按时间分表的表使用路由字段值所在周期（如 order_202610），
+     * 其他分表数量大于1的表使用分表策略计算的表后缀；表后缀为直接指定时校验不超过表的分表数量
+     */
+    private String rewriteTables(String originalSql, String groupKey, DataSourceGroup dataSourceGroup,
+            Map<String, Integer> tbCounts, String tableSuffix, Map<String, String> tableSuffixes, String routeValue,
+            boolean reshardTarget) {
+        Map<String, TimePartitionProperties> timePartitions = dataSourceGroup.hasTimePartitions()
+                ? dataSourceGroup.getTimePartitions() : Map.of();
+        SqlTemplate template = sqlTemplateCache != null
+                ? sqlTemplateCache.computeIfAbsent(new SqlRewriteKey(originalSql, groupKey, null,
+                        routingRegistry.current().getVersion(), reshardTarget),
+                        key -> SqlTableReplacer.compile(originalSql, shardTables(tbCounts, timePartitions)))
+                : SqlTableReplacer.compile(originalSql, shardTables(tbCounts, timePartitions));
+        if (!template.isSharded()) {
+            return originalSql;
+        }
+
+        boolean tbKeyFixed = SDTContext.isTBKeyFixed();
+        Map<String, String> suffixes = new HashMap<>();
+        for (String table : template.getTableNames()) {
+            if (suffixes.containsKey(table)) {
+                continue;
+            }
+            String fixed = tableSuffixes == null ? null : tableSuffixes.get(table);
+            if (fixed != null) {
+                // 按自己的分表数量计算、或范围条件裁剪时由切面直接指定
+                suffixes.put(table, fixed);
+                continue;
+            }
+            TimePartitionProperties partition = timePartitions.get(table);
+            if (partition == null) {
+                if (tableSuffix != null) {
+                    if (tbKeyFixed) {
+                        checkFixedSuffix(groupKey, table, tbCounts.get(table), tableSuffix);
+                    }
+                    suffixes.put(table, tableSuffix);
+                }
+                continue;
+            }
+            if (routeValue == null || routeValue.isEmpty()) {
+                throw new IllegalStateException("按时间分表的表需要路由字段值: " + table + ", group: " + groupKey);
+            }
+            suffixes.put(table, TimePartitions.suffix(routeValue, partition));
+        }
+        return template.render(suffixes);
+    }
+
+    /**
+     * 直接指定的表后缀（如广播时按最大分表数量枚举）不能超过表的分表数量
+     */
+    private static void checkFixedSuffix(String groupKey, String table, Integer tbCount, String tableSuffix) {
+        int index;
+        try {
+            index = Integer.parseInt(tableSuffix);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (tbCount != null && index > tbCount) {
+            throw new IllegalStateException("表后缀 " + tableSuffix + " 超过表的分表数量 " + tbCount + ": "
+                    + groupKey + "." + table + "（SQL中分表数量不同的表需要路由字段值）");
+        }
+    }
+
+    /**
+     * 需要改写表名的表（分表数量大于1的表和按时间分表的表）
+     */
+    private static Map<String, Integer> shardTables(Map<String, Integer> tbCounts,
+            Map<String, TimePartitionProperties> timePartitions) {
+        Map<String, Integer> tables = tbCounts == null ? new HashMap<>() : new HashMap<>(tbCounts);
+        // 分表数量只用于判断是否需要改写，按时间分表的表视为分表
+        timePartitions.keySet().forEach(table -> tables.put(table, Integer.MAX_VALUE));
+        return tables;
+    }
+
+    /**
+     * 设置监控指标（默认不记录）
+     */
+    public void setMetrics(SdtMetrics metrics) {
+        this.metrics = metrics == null ? SdtMetrics.NOOP : metrics;
+    }
+
+    /**
+     * 获取SQL改写缓存（未启用或使用模板模式时返回null）
+     */
+    public LruCache<SqlRewriteKey, String> getSqlRewriteCache() {
+        return sqlRewriteCache;
+    }
+
+    /**
+     * 获取SQL模板缓存（未启用缓存时返回null）
+     */
+    public LruCache<SqlRewriteKey, SqlTemplate> getSqlTemplateCache() {
+        return sqlTemplateCache;
+    }
+
+    /**
+     * 获取最大分表数量（分表数量最大的表的后缀写入路由上下文的tbKey）
+     */
+    private static int getMaxTbCount(Map<String, Integer> tbCounts) {
         if (tbCounts == null || tbCounts.isEmpty()) {
             return 1;
         }
         return tbCounts.values().stream()
+                .filter(Objects::nonNull)
                 .max(Integer::compareTo)
                 .orElse(1);
     }
+
+    /**
+     * 所有分表（分表数量大于1）的表分表数量是否相同，相同时所有表使用同一表后缀
+     */
+    private static boolean uniformTbCounts(Map<String, Integer> tbCounts) {
+        if (tbCounts == null) {
+            return true;
+        }
+        int tbCount = 0;
+        for (Integer count : tbCounts.values()) {
+            if (count == null || count <= 1) {
+                continue;
+            }
+            if (tbCount != 0 && tbCount != count) {
+                return false;
+            }
+            tbCount = count;
+        }
+        return true;
+    }
+
+    /**
+     * SQL改写缓存key（模板缓存的tableSuffix为null，reshardTarget表示按分片迁移的目标分表配置改写）
+     */
+    public record SqlRewriteKey(String sql, String groupKey, String tableSuffix, long version,
+                                boolean reshardTarget) {
+    }
+
+    /**
+     * SQL路由字段取值方式缓存key
+     */
+    public record RoutePlanKey(String statementId, String sql, String routeKey) {
+    }
 }
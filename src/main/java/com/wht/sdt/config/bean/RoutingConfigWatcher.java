@@ -0,0 +1,136 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.properties.ReloadProperties;
+import com.wht.sdt.properties.RouterGroupProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.PropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由配置文件监听
+ * 定时检查配置文件的修改时间，修改后重新读取数据源组配置（groups、custom-strategies）并刷新路由拓扑，
+ * 读取或校验失败时保持当前拓扑不变
+ *
+ * @author wht
+ */
+@Slf4j
+public class RoutingConfigWatcher implements InitializingBean, DisposableBean {
+
+    private final RoutingRegistry registry;
+
+    private final Path path;
+
+    private final long pollInterval;
+
+    private ScheduledExecutorService scheduler;
+
+    private FileTime lastModified;
+
+    public RoutingConfigWatcher(RoutingRegistry registry, ReloadProperties properties) {
+        this.registry = registry;
+        this.path = Paths.get(properties.getConfigFile());
+        this.pollInterval = Math.max(100, properties.getPollInterval());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        lastModified = modifiedTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sdt-config-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        log.info("Watching routing config file {} every {}ms", path.toAbsolutePath(), pollInterval);
+    }
+
+    private void check() {
+        FileTime modified = modifiedTime();
+        if (modified == null || modified.equals(lastModified)) {
+            return;
+        }
+        lastModified = modified;
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Failed to reload routing config from {}, keep routing version {}",
+                    path, registry.latest().getVersion(), e);
+        }
+    }
+
+    /**
+     * 立即从配置文件重新加载路由拓扑
+     *
+     * @return 新的路由拓扑版本号
+     * @throws IOException 读取配置文件失败
+     */
+    public synchronized long reload() throws IOException {
+        return refresh(registry, load(), path.toString());
+    }
+
+    /**
+     * 用加载的配置刷新路由拓扑：只替换数据源组和自定义策略绑定，其他配置项保持启动时的值
+     *
+     * @param registry 路由拓扑注册表
+     * @param loaded   加载的路由配置
+     * @param source   配置来源（用于异常信息）
+     * @return 新的路由拓扑版本号
+     */
+    public static long refresh(RoutingRegistry registry, RouterGroupProperties loaded, String source) {
+        if (loaded.getGroups() == null || loaded.getGroups().isEmpty()) {
+            throw new IllegalStateException("配置中没有数据源组配置: " + source);
+        }
+
+        RouterGroupProperties merged = new RouterGroupProperties();
+        BeanUtils.copyProperties(registry.getProperties(), merged);
+        merged.setGroups(loaded.getGroups());
+        if (loaded.getCustomStrategies() != null) {
+            merged.setCustomStrategies(loaded.getCustomStrategies());
+        }
+        return registry.refresh(merged);
+    }
+
+    private RouterGroupProperties load() throws IOException {
+        String fileName = path.getFileName().toString().toLowerCase();
+        PropertySourceLoader loader = fileName.endsWith(".properties")
+                ? new PropertiesPropertySourceLoader() : new YamlPropertySourceLoader();
+        List<PropertySource<?>> sources = loader.load("sdt-routing-config", new FileSystemResource(path));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind(RouterGroupProperties.PREFIX, RouterGroupProperties.class)
+                .orElseGet(RouterGroupProperties::new);
+    }
+
+    private FileTime modifiedTime() {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            log.debug("Routing config file {} is not readable: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
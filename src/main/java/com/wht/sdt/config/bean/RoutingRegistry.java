@@ -0,0 +1,467 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.HealthProperties;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.properties.TimePartitionProperties;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.strategy.RouterStrategyFactory;
+import com.wht.sdt.util.ShardKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 路由拓扑注册表
+ * 持有当前版本的 {@link RoutingSnapshot}，热加载时构建新快照后原子替换：
+ * <ul>
+ *     <li>切面开始路由时固定（pin）当前快照，整个注解方法（包括广播、拆分的分片任务）使用同一快照，旧快照上的请求正常执行完</li>
+ *     <li>配置未变的分片复用原连接池，新增或修改的分片创建新连接池</li>
+ *     <li>不再使用的连接池在旧快照上的请求结束、且连接全部归还后关闭，超过等待时间后强制关闭</li>
+ *     <li>旧快照的内置策略实例同时销毁（{@link RouterStrategy#destroy()}），自定义策略Bean由容器管理</li>
+ * </ul>
+ *
+ * @author wht
+ */
+@Slf4j
+public class RoutingRegistry implements DisposableBean {
+
+    private static final String DEFAULT_GROUP_KEY = "group01";
+
+    private static final String DEFAULT_DB_KEY = "db01";
+
+    /**
+     * 检查下线连接池是否可以关闭的间隔（毫秒）
+     */
+    private static final long DRAIN_CHECK_INTERVAL = 200;
+
+    private final Map<String, RouterStrategy> customStrategyBeans;
+
+    /**
+     * 新建连接池使用的健康检查配置（启动时确定）
+     */
+    private final HealthProperties health;
+
+    private final long drainTimeout;
+
+    private final AtomicReference<RoutingSnapshot> current = new AtomicReference<>();
+
+    /**
+     * 当前线程固定使用的快照
+     */
+    private final ThreadLocal<RoutingSnapshot> pinned = new ThreadLocal<>();
+
+    private final List<Consumer<RoutingSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 等待关闭的连接池
+     */
+    private final Set<DataSource> draining = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * 等待销毁的内置策略实例
+     */
+    private final Set<RouterStrategy> retiring = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private volatile RouterGroupProperties properties;
+
+    private ScheduledExecutorService drainer;
+
+    private boolean closed;
+
+    /**
+     * @param properties          启动时的路由配置
+     * @param customStrategyBeans 自定义路由策略Bean（Bean名称 -> 策略），热加载时复用同一实例并重新调用init
+     */
+    public RoutingRegistry(RouterGroupProperties properties, Map<String, RouterStrategy> customStrategyBeans) {
+        this.customStrategyBeans = customStrategyBeans == null ? Map.of() : customStrategyBeans;
+        this.health = properties.getHealth();
+        this.drainTimeout = properties.getReload().getDrainTimeout();
+        this.properties = properties;
+        // 启动时与热加载使用相同的校验，热加载会拒绝的配置不能启动
+        validate(properties);
+        this.current.set(build(properties, 1, null));
+    }
+
+    /**
+     * 当前线程使用的快照：已固定时返回固定的快照，否则返回最新快照
+     */
+    public RoutingSnapshot current() {
+        RoutingSnapshot snapshot = pinned.get();
+        return snapshot != null ? snapshot : current.get();
+    }
+
+    /**
+     * 最新快照
+     */
+    public RoutingSnapshot latest() {
+        return current.get();
+    }
+
+    /**
+     * 当前生效的路由配置
+     */
+    public RouterGroupProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * 在当前线程固定最新快照，已固定时保持不变（嵌套调用使用外层的快照）
+     *
+     * @return 固定凭证，执行结束后关闭
+     */
+    public Pin pin() {
+        if (pinned.get() != null) {
+            return new Pin(null, null);
+        }
+        RoutingSnapshot snapshot;
+        do {
+            snapshot = current.get();
+        } while (!snapshot.tryAcquire());
+        pinned.set(snapshot);
+        return new Pin(snapshot, null);
+    }
+
+    /**
+     * 在当前线程固定指定快照（分片任务在执行器线程中使用调用方的快照）
+     *
+     * @param snapshot 快照
+     * @return 固定凭证，执行结束后关闭
+     */
+    public Pin pin(RoutingSnapshot snapshot) {
+        RoutingSnapshot previous = pinned.get();
+        if (previous == snapshot) {
+            return new Pin(null, null);
+        }
+        snapshot.acquire();
+        pinned.set(snapshot);
+        return new Pin(snapshot, previous);
+    }
+
+    /**
+     * 注册快照替换监听器
+     */
+    public void addListener(Consumer<RoutingSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 按新配置构建快照并替换当前快照
+     * 配置校验失败时抛出异常，当前快照不变
+     *
+     * @param newProperties 新的路由配置（只使用数据源组和自定义策略绑定，其他配置项需要重启生效）
+     * @return 新快照的版本号
+     */
+    public synchronized long refresh(RouterGroupProperties newProperties) {
+        if (closed) {
+            throw new IllegalStateException("路由注册表已关闭");
+        }
+        RoutingSnapshot previous = current.get();
+        validate(newProperties);
+        RoutingSnapshot next = build(newProperties, previous.getVersion() + 1, previous);
+
+        current.set(next);
+        properties = newProperties;
+        previous.retire();
+
+        Set<DataSource> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+        retained.addAll(next.getRoutingTable().getAllDataSources().values());
+        List<DataSource> retiredPools = new ArrayList<>();
+        for (DataSource dataSource : previous.getRoutingTable().getAllDataSources().values()) {
+            if (!retained.contains(dataSource)) {
+                retiredPools.add(dataSource);
+            }
+        }
+        log.info("Routing topology refreshed to version {}: groups={}, datasources={}, retired pools={}",
+                next.getVersion(), next.getGroups().keySet(), next.getRoutingTable().getAllDataSources().size(),
+                retiredPools.size());
+
+        for (Consumer<RoutingSnapshot> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                log.warn("Routing snapshot listener failed", e);
+            }
+        }
+        drain(previous, retiredPools, builtIn(previous.getStrategies()));
+        return next.getVersion();
+    }
+
+    /**
+     * 构建快照，配置未变的数据源复用上一个快照的连接池
+     */
+    private RoutingSnapshot build(RouterGroupProperties properties, long version, RoutingSnapshot previous) {
+        Map<String, DataSourceGroup> groups = properties.getGroups() == null
+                ? new LinkedHashMap<>() : new LinkedHashMap<>(properties.getGroups());
+        groups.forEach(RoutingRegistry::validateBindingTables);
+
+        // 每个快照使用独立的内置策略实例，哈希环等初始化数据不会影响旧快照
+        Map<StrategyType, RouterStrategy> strategies =
+                RouterStrategyFactory.createAll(customStrategyBeans, properties.getCustomStrategies());
+
+        RoutingTable.Builder routingTable = RoutingTable.builder();
+        Map<String, DataSourceConfig> configs = new HashMap<>();
+        List<DataSource> created = new ArrayList<>();
+        try {
+            for (RouterStrategy strategy : new HashSet<>(strategies.values())) {
+                groups.forEach(strategy::init);
+            }
+
+            for (Map.Entry<String, DataSourceGroup> group : groups.entrySet()) {
+                Map<String, DataSourceConfig> dataSources = group.getValue().getDataSource();
+                if (dataSources == null) {
+                    continue;
+                }
+                for (Map.Entry<String, DataSourceConfig> entry : dataSources.entrySet()) {
+                    // 每个分片使用独立的连接池（配置了从库时包含主库和从库）
+                    String lookupKey = group.getKey() + entry.getKey();
+                    DataSource dataSource = reusable(previous, group.getKey(), entry.getKey(), entry.getValue());
+                    if (dataSource == null) {
+                        dataSource = ShardDataSourceFactory.createShard(lookupKey, entry.getValue(), health);
+                        created.add(dataSource);
+                    }
+                    routingTable.add(group.getKey(), entry.getKey(), dataSource);
+                    configs.put(lookupKey, entry.getValue());
+                }
+            }
+
+            RoutingTable table = routingTable.build();
+            DataSource defaultDataSource = table.getDataSource(DEFAULT_GROUP_KEY, DEFAULT_DB_KEY);
+            if (defaultDataSource == null && !configs.isEmpty()) {
+                throw new IllegalStateException("未找到默认数据源配置: group01.db01");
+            }
+            return new RoutingSnapshot(version, Collections.unmodifiableMap(groups),
+                    Collections.unmodifiableMap(strategies), table, Collections.unmodifiableMap(configs),
+                    defaultDataSource);
+        } catch (RuntimeException e) {
+            created.forEach(ShardDataSourceFactory::close);
+            builtIn(strategies).forEach(RoutingRegistry::destroyStrategy);
+            throw e;
+        }
+    }
+
+    /**
+     * 快照中的内置策略实例（不包括自定义策略Bean）
+     */
+    private List<RouterStrategy> builtIn(Map<StrategyType, RouterStrategy> strategies) {
+        Set<RouterStrategy> custom = Collections.newSetFromMap(new IdentityHashMap<>());
+        custom.addAll(customStrategyBeans.values());
+        Set<RouterStrategy> builtIn = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (RouterStrategy strategy : strategies.values()) {
+            if (!custom.contains(strategy)) {
+                builtIn.add(strategy);
+            }
+        }
+        return new ArrayList<>(builtIn);
+    }
+
+    private static void destroyStrategy(RouterStrategy strategy) {
+        try {
+            strategy.destroy();
+        } catch (RuntimeException e) {
+            log.warn("Failed to destroy RouterStrategy {}", strategy.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 上一个快照中配置相同的数据源
+     */
+    private static DataSource reusable(RoutingSnapshot previous, String groupKey, String dbKey,
+                                       DataSourceConfig config) {
+        if (previous == null) {
+            return null;
+        }
+        DataSourceConfig previousConfig = previous.getDataSourceConfigs().get(groupKey + dbKey);
+        return Objects.equals(previousConfig, config) ? previous.getRoutingTable().getDataSource(groupKey, dbKey) : null;
+    }
+
+    /**
+     * 校验启用分库的数据源组配置了 db01 ~ dbN 全部数据源（分片迁移时N取新旧分库数量的较大值）
+     */
+    private static void validate(RouterGroupProperties properties) {
+        if (properties.getGroups() == null || properties.getGroups().isEmpty()) {
+            throw new IllegalStateException("数据源组配置为空");
+        }
+        properties.getGroups().forEach((groupKey, group) -> {
+            if (!group.getEnableSplit()) {
+                return;
+            }
+            if (group.getDbCount() <= 0) {
+                throw new IllegalStateException("分库数量必须大于0: " + groupKey);
+            }
+            // 分片迁移时新旧分片的数据源都需要配置
+            int dbCount = group.reshardingEnabled()
+                    ? Math.max(group.getDbCount(), group.getResharding().targetDbCount(group))
+                    : group.getDbCount();
+            for (int i = 1; i <= dbCount; i++) {
+                String dbKey = ShardKeys.dbKey(i);
+                if (group.getDataSource() == null || !group.getDataSource().containsKey(dbKey)) {
+                    throw new IllegalStateException("未找到数据源配置: " + groupKey + "." + dbKey);
+                }
+            }
+        });
+    }
+
+    /**
+     * 校验绑定表组：每个表最多属于一个组，组内的表分表数量相同（分片迁移时新分表数量也相同），
+     * 或按相同的粒度、时区按时间分表
+     */
+    private static void validateBindingTables(String groupKey, DataSourceGroup group) {
+        if (group.getBindingTables() == null) {
+            return;
+        }
+        Map<String, Integer> targetTbCounts = group.reshardingEnabled()
+                ? group.getResharding().targetTbCounts(group) : group.getTbCounts();
+        Set<String> bound = new HashSet<>();
+        for (List<String> tables : group.getBindingTables()) {
+            if (tables == null || tables.isEmpty()) {
+                continue;
+            }
+            String first = tables.get(0);
+            for (String table : tables) {
+                if (!bound.add(table)) {
+                    throw new IllegalStateException("表属于多个绑定表组: " + groupKey + "." + table);
+                }
+                if (!sameLayout(group, targetTbCounts, first, table)) {
+                    throw new IllegalStateException("绑定表组中的表分表配置不一致: " + groupKey + "." + tables);
+                }
+            }
+        }
+    }
+
+    private static boolean sameLayout(DataSourceGroup group, Map<String, Integer> targetTbCounts,
+                                      String first, String table) {
+        TimePartitionProperties firstPartition = group.hasTimePartitions() ? group.getTimePartitions().get(first) : null;
+        TimePartitionProperties partition = group.hasTimePartitions() ? group.getTimePartitions().get(table) : null;
+        if (firstPartition != null || partition != null) {
+            return firstPartition != null && partition != null
+                    && firstPartition.getGranularity() == partition.getGranularity()
+                    && Objects.equals(firstPartition.getZone(), partition.getZone());
+        }
+        return tbCount(group.getTbCounts(), first) == tbCount(group.getTbCounts(), table)
+                && tbCount(targetTbCounts, first) == tbCount(targetTbCounts, table);
+    }
+
+    private static int tbCount(Map<String, Integer> tbCounts, String table) {
+        Integer count = tbCounts == null ? null : tbCounts.get(table);
+        return count == null || count < 1 ? 1 : count;
+    }
+
+    /**
+     * 旧快照上的请求全部结束、且连接全部归还后关闭下线的连接池，并销毁旧快照的内置策略实例
+     */
+    private void drain(RoutingSnapshot retired, List<DataSource> pools, List<RouterStrategy> strategies) {
+        if (pools.isEmpty() && strategies.isEmpty()) {
+            return;
+        }
+        draining.addAll(pools);
+        retiring.addAll(strategies);
+        if (drainer == null) {
+            drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sdt-pool-drainer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        drainer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                boolean idle = retired.getInFlight() == 0
+                        && pools.stream().allMatch(pool -> ShardDataSourceFactory.activeConnections(pool) == 0);
+                boolean expired = System.currentTimeMillis() >= deadline;
+                if (!idle && !expired) {
+                    drainer.schedule(this, DRAIN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if (!idle) {
+                    log.warn("Force closing {} retired pool(s) of routing version {} after {}ms, in-flight requests: {}",
+                            pools.size(), retired.getVersion(), drainTimeout, retired.getInFlight());
+                }
+                synchronized (RoutingRegistry.this) {
+                    pools.forEach(draining::remove);
+                    strategies.forEach(retiring::remove);
+                }
+                strategies.forEach(RoutingRegistry::destroyStrategy);
+                pools.forEach(ShardDataSourceFactory::close);
+                if (!pools.isEmpty()) {
+                    log.info("Closed {} retired pool(s) of routing version {}", pools.size(), retired.getVersion());
+                }
+            }
+        }, DRAIN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭当前快照和等待下线的所有连接池，销毁所有内置策略实例
+     */
+    @Override
+    public synchronized void destroy() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (drainer != null) {
+            drainer.shutdownNow();
+        }
+        draining.forEach(ShardDataSourceFactory::close);
+        draining.clear();
+        retiring.forEach(RoutingRegistry::destroyStrategy);
+        retiring.clear();
+        current.get().getRoutingTable().getAllDataSources().values().forEach(ShardDataSourceFactory::close);
+        builtIn(current.get().getStrategies()).forEach(RoutingRegistry::destroyStrategy);
+    }
+
+    /**
+     * 快照固定凭证，关闭时恢复线程之前固定的快照
+     */
+    public final class Pin implements AutoCloseable {
+
+        private final RoutingSnapshot snapshot;
+
+        private final RoutingSnapshot previous;
+
+        private Pin(RoutingSnapshot snapshot, RoutingSnapshot previous) {
+            this.snapshot = snapshot;
+            this.previous = previous;
+        }
+
+        /**
+         * 固定的快照
+         */
+        public RoutingSnapshot getSnapshot() {
+            return snapshot != null ? snapshot : current();
+        }
+
+        @Override
+        public void close() {
+            if (snapshot == null) {
+                return;
+            }
+            if (previous == null) {
+                pinned.remove();
+            } else {
+                pinned.set(previous);
+            }
+            snapshot.release();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.strategy.RouterStrategy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 路由拓扑快照
+ * 某个版本的数据源组配置、路由策略（含哈希环等初始化数据）和路由表，构建后不再修改。
+ * 热加载时构建新快照并整体替换，正在执行的请求继续使用开始时固定的快照
+ *
+ * @author wht
+ */
+public final class RoutingSnapshot {
+
+    private final long version;
+
+    private final Map<String, DataSourceGroup> groups;
+
+    private final Map<StrategyType, RouterStrategy> strategies;
+
+    private final RoutingTable routingTable;
+
+    /**
+     * 数据源查找键 -> 创建数据源使用的配置（热加载时配置未变的数据源复用连接池）
+     */
+    private final Map<String, DataSourceConfig> dataSourceConfigs;
+
+    private final DataSource defaultDataSource;
+
+    /**
+     * 固定使用本快照的请求数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean retired;
+
+    RoutingSnapshot(long version, Map<String, DataSourceGroup> groups, Map<StrategyType, RouterStrategy> strategies,
+                    RoutingTable routingTable, Map<String, DataSourceConfig> dataSourceConfigs,
+                    DataSource defaultDataSource) {
+        this.version = version;
+        this.groups = groups;
+        this.strategies = strategies;
+        this.routingTable = routingTable;
+        this.dataSourceConfigs = dataSourceConfigs;
+        this.defaultDataSource = defaultDataSource;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取数据源组配置
+     *
+     * @param groupKey 组键，如：group01
+     * @return 数据源组配置，未配置时返回null
+     */
+    public DataSourceGroup getGroup(String groupKey) {
+        return groupKey == null ? null : groups.get(groupKey);
+    }
+
+    public Map<String, DataSourceGroup> getGroups() {
+        return groups;
+    }
+
+    /**
+     * 获取路由策略
+     *
+     * @param strategyType 策略类型
+     * @return 路由策略，未注册时返回null
+     */
+    public RouterStrategy getStrategy(StrategyType strategyType) {
+        return strategies.get(strategyType);
+    }
+
+    public Map<StrategyType, RouterStrategy> getStrategies() {
+        return strategies;
+    }
+
+    public RoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    Map<String, DataSourceConfig> getDataSourceConfigs() {
+        return dataSourceConfigs;
+    }
+
+    /**
+     * 默认数据源（group01db01），未分片的语句使用
+     */
+    public DataSource getDefaultDataSource() {
+        return defaultDataSource;
+    }
+
+    /**
+     * 固定使用本快照的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * 固定使用本快照，已下线时返回false
+     */
+    boolean tryAcquire() {
+        inFlight.incrementAndGet();
+        if (retired) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void acquire() {
+        inFlight.incrementAndGet();
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void retire() {
+        retired = true;
+    }
+
+    @Override
+    public String toString() {
+        return "RoutingSnapshot[version=" + version + ", groups=" + groups.keySet() + "]";
+    }
+}
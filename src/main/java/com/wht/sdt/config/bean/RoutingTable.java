@@ -0,0 +1,99 @@
+package com.wht.sdt.config.bean;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由表
+ * 启动时根据数据源配置构建的不可变映射：组键 + 库键 -> 数据源查找键（group01db01） / 数据源，
+ * 路由时只做哈希查找，不再拼接字符串
+ *
+ * @author wht
+ */
+public final class RoutingTable {
+
+    /**
+     * 组键 -> (库键 -> 数据源查找键)
+     */
+    private final Map<String, Map<String, String>> lookupKeys;
+
+    /**
+     * 组键 -> (库键 -> 数据源)
+     */
+    private final Map<String, Map<String, DataSource>> dataSources;
+
+    private RoutingTable(Map<String, Map<String, String>> lookupKeys,
+                         Map<String, Map<String, DataSource>> dataSources) {
+        this.lookupKeys = lookupKeys;
+        this.dataSources = dataSources;
+    }
+
+    /**
+     * 获取数据源查找键
+     *
+     * @return 数据源查找键，未配置时返回null
+     */
+    public String getLookupKey(String groupKey, String dbKey) {
+        Map<String, String> keys = lookupKeys.get(groupKey);
+        return keys == null ? null : keys.get(dbKey);
+    }
+
+    /**
+     * 获取数据源
+     *
+     * @return 数据源，未配置时返回null
+     */
+    public DataSource getDataSource(String groupKey, String dbKey) {
+        Map<String, DataSource> targets = dataSources.get(groupKey);
+        return targets == null ? null : targets.get(dbKey);
+    }
+
+    /**
+     * 所有数据源（数据源查找键 -> 数据源）
+     */
+    public Map<String, DataSource> getAllDataSources() {
+        Map<String, DataSource> all = new HashMap<>();
+        dataSources.forEach((groupKey, targets) ->
+                targets.forEach((dbKey, dataSource) -> all.put(getLookupKey(groupKey, dbKey), dataSource)));
+        return all;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 路由表构建器
+     */
+    public static final class Builder {
+
+        private final Map<String, Map<String, String>> lookupKeys = new HashMap<>();
+
+        private final Map<String, Map<String, DataSource>> dataSources = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 添加数据源
+         *
+         * @return 数据源查找键（group01db01）
+         */
+        public String add(String groupKey, String dbKey, DataSource dataSource) {
+            String lookupKey = (groupKey + dbKey).intern();
+            lookupKeys.computeIfAbsent(groupKey, k -> new HashMap<>()).put(dbKey, lookupKey);
+            dataSources.computeIfAbsent(groupKey, k -> new HashMap<>()).put(dbKey, dataSource);
+            return lookupKey;
+        }
+
+        public RoutingTable build() {
+            Map<String, Map<String, String>> keys = new HashMap<>();
+            lookupKeys.forEach((groupKey, value) -> keys.put(groupKey, Collections.unmodifiableMap(new HashMap<>(value))));
+            Map<String, Map<String, DataSource>> targets = new HashMap<>();
+            dataSources.forEach((groupKey, value) -> targets.put(groupKey, Collections.unmodifiableMap(new HashMap<>(value))));
+            return new RoutingTable(Collections.unmodifiableMap(keys), Collections.unmodifiableMap(targets));
+        }
+    }
+}
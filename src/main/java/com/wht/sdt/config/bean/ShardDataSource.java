@@ -0,0 +1,497 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.enumeration.LoadBalanceType;
+import com.wht.sdt.properties.HealthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片数据源（主库 + 从库）
+ * 查询语句（由MyBatis插件标记，且不在事务中、未强制走主库）按负载均衡策略路由到从库，其他情况使用主库。
+ * 启用熔断时每个节点有独立的熔断器：熔断的节点直接拒绝获取连接（不等待连接池超时），
+ * 读请求在从库之间故障转移，所有从库不可用时读主库；主库熔断时写请求快速失败
+ *
+ * @author wht
+ */
+@Slf4j
+public class ShardDataSource extends AbstractDataSource implements AutoCloseable {
+
+    /**
+     * 响应时间指数加权平均的平滑系数
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final String name;
+
+    private final Node primary;
+
+    private final Node[] replicas;
+
+    private final LoadBalanceType loadBalance;
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    /**
+     * 健康检查的校验SQL，为null时使用 Connection.isValid
+     */
+    private final String validationQuery;
+
+    /**
+     * @param name        分片名称
+     * @param primary     主库
+     * @param replicas    从库
+     * @param loadBalance 从库负载均衡策略
+     * @param health      健康检查与熔断配置，为null时不熔断
+     */
+    public ShardDataSource(String name, DataSource primary, List<DataSource> replicas, LoadBalanceType loadBalance,
+                           HealthProperties health) {
+        this(name, primary, replicas, loadBalance, health, null);
+    }
+
+    /**
+     * @param name            分片名称
+     * @param primary         主库
+     * @param replicas        从库
+     * @param loadBalance     从库负载均衡策略
+     * @param health          健康检查与熔断配置，为null时不熔断
+     * @param validationQuery 健康检查的校验SQL，为null时使用 Connection.isValid
+     */
+    public ShardDataSource(String name, DataSource primary, List<DataSource> replicas, LoadBalanceType loadBalance,
+                           HealthProperties health, String validationQuery) {
+        this.name = name;
+        this.validationQuery = validationQuery == null || validationQuery.isBlank() ? null : validationQuery;
+        this.primary = new Node(name, "primary", primary, health);
+        this.replicas = new Node[replicas.size()];
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas[i] = new Node(name + "-replica" + (i + 1), "replica", replicas.get(i), health);
+        }
+        this.loadBalance = loadBalance == null ? LoadBalanceType.ROUND_ROBIN : loadBalance;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        boolean read = replicas.length > 0 && SDTContext.isReadRoute() && !SDTContext.isForcePrimary();
+        SQLException failure = null;
+        if (read) {
+            // 先按负载均衡策略选择，获取失败（或熔断）时依次尝试其他从库
+            Node selected = select();
+            if (selected != null) {
+                try {
+                    Connection connection = acquire(selected);
+                    if (connection != null) {
+                        return connection;
+                    }
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            for (Node replica : replicas) {
+                if (replica == selected || !replica.isAvailable()) {
+                    continue;
+                }
+                try {
+                    Connection connection = acquire(replica);
+                    if (connection != null) {
+                        log.warn("Read on {} failed over to {}", name, replica.name);
+                        return connection;
+                    }
+                } catch (SQLException e) {
+                    failure = addSuppressed(failure, e);
+                }
+            }
+            // 所有从库不可用时读主库
+        }
+
+        try {
+            Connection connection = acquire(primary);
+            if (connection != null) {
+                return connection;
+            }
+        } catch (SQLException e) {
+            throw addSuppressed(e, failure);
+        }
+        SQLTransientConnectionException unavailable =
+                new SQLTransientConnectionException("数据源不可用（已熔断）: " + name);
+        if (failure != null) {
+            unavailable.addSuppressed(failure);
+        }
+        throw unavailable;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.dataSource.getConnection(username, password);
+    }
+
+    /**
+     * 从节点获取连接，节点熔断时返回null
+     */
+    private Connection acquire(Node node) throws SQLException {
+        if (!node.tryAcquire()) {
+            return null;
+        }
+        node.pending.incrementAndGet();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = node.dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            node.pending.decrementAndGet();
+            if (node.breaker != null) {
+                node.breaker.onFailure(System.nanoTime() - start);
+            }
+            throw e;
+        }
+        if (node.breaker != null) {
+            node.breaker.onSuccess(System.nanoTime() - start);
+        }
+        if (node != primary && log.isDebugEnabled()) {
+            log.debug("Routed read on {} to {}", name, node.name);
+        }
+        return track(connection, node, start);
+    }
+
+    /**
+     * 按负载均衡策略选择可用的从库，全部熔断时返回null
+     */
+    private Node select() {
+        int n = replicas.length;
+        if (n == 1) {
+            return replicas[0].isAvailable() ? replicas[0] : null;
+        }
+        int start = Math.floorMod(roundRobin.getAndIncrement(), n);
+        switch (loadBalance) {
+            case LEAST_PENDING: {
+                // 从轮询位置开始比较，未归还连接数相同时依次轮换
+                Node best = null;
+                for (int i = 0; i < n; i++) {
+                    Node candidate = replicas[(start + i) % n];
+                    if (candidate.isAvailable() && (best == null || candidate.pending.get() < best.pending.get())) {
+                        best = candidate;
+                    }
+                }
+                return best;
+            }
+            case LATENCY_WEIGHTED: {
+                // 权重为响应时间的倒数，尚无统计数据的从库按已知的最快响应时间计算
+                double fastest = Double.MAX_VALUE;
+                for (Node replica : replicas) {
+                    if (replica.latencyNanos > 0 && replica.isAvailable()) {
+                        fastest = Math.min(fastest, replica.latencyNanos);
+                    }
+                }
+                if (fastest == Double.MAX_VALUE) {
+                    return firstAvailable(start);
+                }
+                double[] weights = new double[n];
+                double total = 0;
+                for (int i = 0; i < n; i++) {
+                    if (replicas[i].isAvailable()) {
+                        double latency = replicas[i].latencyNanos > 0 ? replicas[i].latencyNanos : fastest;
+                        weights[i] = 1.0 / latency;
+                        total += weights[i];
+                    }
+                }
+                double r = ThreadLocalRandom.current().nextDouble(total);
+                for (int i = 0; i < n; i++) {
+                    r -= weights[i];
+                    if (r < 0 && weights[i] > 0) {
+                        return replicas[i];
+                    }
+                }
+                return firstAvailable(start);
+            }
+            case ROUND_ROBIN:
+            default:
+                return firstAvailable(start);
+        }
+    }
+
+    private Node firstAvailable(int start) {
+        for (int i = 0; i < replicas.length; i++) {
+            Node replica = replicas[(start + i) % replicas.length];
+            if (replica.isAvailable()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 健康检查：依次校验主库和从库的连接，结果交给熔断器。
+     * 每个节点的校验在 executor 中执行，最多等待 timeoutSeconds 秒，获取连接或校验阻塞时计为失败并中断校验线程；
+     * 上一次校验仍未结束的节点不再提交新的校验，直接计为失败，阻塞的节点最多占用一个校验线程
+     *
+     * @param timeoutSeconds 校验超时时间（秒）
+     * @param executor       执行校验的线程池，需要立即执行提交的任务（如缓存线程池），不能排队
+     */
+    public void probe(int timeoutSeconds, ExecutorService executor) {
+        probe(primary, timeoutSeconds, executor);
+        for (Node replica : replicas) {
+            probe(replica, timeoutSeconds, executor);
+        }
+    }
+
+    private void probe(Node node, int timeoutSeconds, ExecutorService executor) {
+        if (node.breaker == null) {
+            return;
+        }
+        // 取消的Future立即视为完成，是否仍在执行以校验任务自己维护的标记为准
+        if (!node.probing.compareAndSet(false, true)) {
+            log.debug("Health check of datasource {} is still running", node.name);
+            node.breaker.onProbe(false);
+            return;
+        }
+        Future<Boolean> probing;
+        try {
+            probing = executor.submit(() -> {
+                try {
+                    return validate(node, timeoutSeconds);
+                } finally {
+                    node.probing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            node.probing.set(false);
+            return;
+        }
+        boolean healthy;
+        try {
+            healthy = probing.get(Math.max(1, timeoutSeconds), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Health check of datasource {} timed out after {}s", node.name, timeoutSeconds);
+            probing.cancel(true);
+            healthy = false;
+        } catch (ExecutionException e) {
+            log.debug("Health check of datasource {} failed: {}", node.name, e.getCause().getMessage());
+            healthy = false;
+        } catch (InterruptedException e) {
+            probing.cancel(true);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        node.breaker.onProbe(healthy);
+    }
+
+    /**
+     * 校验节点的连接：配置了校验SQL时按查询超时执行，否则使用 Connection.isValid
+     */
+    private boolean validate(Node node, int timeoutSeconds) throws SQLException {
+        try (Connection connection = node.dataSource.getConnection()) {
+            if (validationQuery == null) {
+                return connection.isValid(timeoutSeconds);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(timeoutSeconds);
+                statement.execute(validationQuery);
+                return true;
+            }
+        }
+    }
+
+    private static SQLException addSuppressed(SQLException failure, SQLException e) {
+        if (failure == null) {
+            return e;
+        }
+        if (e != null) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * 包装连接：关闭时减少未归还连接数，并以连接持有时间更新响应时间
+     */
+    private Connection track(Connection connection, Node node, long start) {
+        return (Connection) Proxy.newProxyInstance(ShardDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new TrackedConnection(connection, node, start));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getPrimary() {
+        return primary.dataSource;
+    }
+
+    public LoadBalanceType getLoadBalance() {
+        return loadBalance;
+    }
+
+    /**
+     * 主库和从库的运行状态
+     */
+    public List<NodeStats> getNodeStats() {
+        List<NodeStats> stats = new ArrayList<>(replicas.length + 1);
+        stats.add(primary.stats());
+        for (Node replica : replicas) {
+            stats.add(replica.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 关闭主库和所有从库的连接池
+     */
+    @Override
+    public void close() {
+        ShardDataSourceFactory.close(primary.dataSource);
+        for (Node replica : replicas) {
+            ShardDataSourceFactory.close(replica.dataSource);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardDataSource[" + name + ", replicas=" + replicas.length + ", loadBalance=" + loadBalance + "]";
+    }
+
+    /**
+     * 节点（主库或从库）运行状态
+     *
+     * @param name              节点名称，如：group01db01、group01db01-replica1
+     * @param role              primary 或 replica
+     * @param state             熔断器状态，未启用熔断时为CLOSED
+     * @param pending           未归还的连接数
+     * @param latencyMillis     平均响应时间（毫秒，指数加权）
+     * @param requests          统计窗口内获取连接的次数
+     * @param errorRate         统计窗口内获取连接的错误率
+     * @param avgAcquireMillis  统计窗口内获取连接的平均耗时（毫秒）
+     * @param maxAcquireMillis  统计窗口内获取连接的最大耗时（毫秒）
+     */
+    public record NodeStats(String name, String role, CircuitBreaker.State state, int pending, double latencyMillis,
+                            long requests, double errorRate, double avgAcquireMillis, double maxAcquireMillis) {
+    }
+
+    /**
+     * 节点（主库或从库）
+     */
+    private static final class Node {
+
+        private final String name;
+
+        private final String role;
+
+        private final DataSource dataSource;
+
+        /**
+         * 熔断器，未启用熔断时为null
+         */
+        private final CircuitBreaker breaker;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * 响应时间（纳秒，指数加权平均；统计值只用于负载均衡，允许并发更新时的少量误差）
+         */
+        private volatile double latencyNanos;
+
+        /**
+         * 是否有正在执行的健康检查（超时后被中断但仍阻塞的检查同样计入）
+         */
+        private final AtomicBoolean probing = new AtomicBoolean();
+
+        private Node(String name, String role, DataSource dataSource, HealthProperties health) {
+            this.name = name;
+            this.role = role;
+            this.dataSource = dataSource;
+            this.breaker = health == null || !health.isEnabled() ? null : new CircuitBreaker(name, health);
+        }
+
+        private boolean tryAcquire() {
+            return breaker == null || breaker.tryAcquire();
+        }
+
+        private boolean isAvailable() {
+            return breaker == null || breaker.isAvailable();
+        }
+
+        private void release(long elapsedNanos) {
+            pending.decrementAndGet();
+            double latency = latencyNanos;
+            latencyNanos = latency == 0 ? elapsedNanos : latency + LATENCY_ALPHA * (elapsedNanos - latency);
+        }
+
+        private NodeStats stats() {
+            if (breaker == null) {
+                return new NodeStats(name, role, CircuitBreaker.State.CLOSED, pending.get(), latencyNanos / 1_000_000.0,
+                        0, 0, 0, 0);
+            }
+            SlidingWindow.Snapshot snapshot = breaker.snapshot();
+            return new NodeStats(name, role, breaker.getState(), pending.get(), latencyNanos / 1_000_000.0,
+                    snapshot.requests(), snapshot.errorRate(),
+                    snapshot.avgNanos() / 1_000_000.0, snapshot.maxNanos() / 1_000_000.0);
+        }
+    }
+
+    /**
+     * 连接代理
+     */
+    private static final class TrackedConnection implements InvocationHandler {
+
+        private final Connection target;
+
+        private final Node node;
+
+        private final long start;
+
+        private boolean closed;
+
+        private TrackedConnection(Connection target, Node node, long start) {
+            this.target = target;
+            this.node = node;
+            this.start = start;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(target)) {
+                        return target;
+                    }
+                    break;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        node.release(System.nanoTime() - start);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
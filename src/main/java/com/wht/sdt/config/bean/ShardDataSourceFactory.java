@@ -0,0 +1,259 @@
+package com.wht.sdt.config.bean;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.HealthProperties;
+import com.wht.sdt.properties.ReplicaConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分片数据源工厂
+ * 根据配置为每个分片创建带连接池的数据源（Druid或HikariCP），连接池在首次获取连接时初始化
+ *
+ * @author wht
+ */
+@Slf4j
+public final class ShardDataSourceFactory {
+
+    private ShardDataSourceFactory() {
+    }
+
+    /**
+     * 创建分片数据源
+     *
+     * @param name   数据源名称（如：group01db01）
+     * @param config 数据源配置
+     * @return 带连接池的数据源
+     */
+    public static DataSource create(String name, DataSourceConfig config) {
+        PoolType poolType = config.getPoolType() == null ? PoolType.DRUID : config.getPoolType();
+        log.debug("Creating {} pool for datasource {}", poolType, name);
+        switch (poolType) {
+            case HIKARI:
+                return createHikari(name, config);
+            case DRUID:
+            default:
+                return createDruid(name, config);
+        }
+    }
+
+    /**
+     * 创建分片数据源，配置了从库或启用了熔断时返回 {@link ShardDataSource}
+     *
+     * @param name   数据源名称（如：group01db01）
+     * @param config 数据源配置
+     * @param health 健康检查与熔断配置
+     * @return 分片数据源
+     */
+    public static DataSource createShard(String name, DataSourceConfig config, HealthProperties health) {
+        List<ReplicaConfig> replicaConfigs = config.getReplicas();
+        boolean healthEnabled = health != null && health.isEnabled();
+        if ((replicaConfigs == null || replicaConfigs.isEmpty()) && !healthEnabled) {
+            return create(name, config);
+        }
+        if (healthEnabled) {
+            config = withAcquireTimeout(name, config, health);
+        }
+        DataSource primary = create(name, config);
+
+        List<DataSource> replicas = new ArrayList<>();
+        if (replicaConfigs != null) {
+            for (int i = 0; i < replicaConfigs.size(); i++) {
+                replicas.add(create(name + "-replica" + (i + 1), replicaConfig(config, replicaConfigs.get(i))));
+            }
+        }
+        if (!replicas.isEmpty()) {
+            log.info("Datasource {} has {} replica(s), load balance: {}", name, replicas.size(), config.getLoadBalance());
+        }
+        return new ShardDataSource(name, primary, replicas, config.getLoadBalance(), healthEnabled ? health : null,
+                config.getValidationQuery());
+    }
+
+    /**
+     * 启用熔断时获取连接的等待时间必须有上限，未配置（或配置为不超时）时使用 health.acquire-timeout，从库继承该配置
+     */
+    private static DataSourceConfig withAcquireTimeout(String name, DataSourceConfig config, HealthProperties health) {
+        Long timeout = config.getConnectionTimeout();
+        if ((timeout != null && timeout > 0) || health.getAcquireTimeout() <= 0) {
+            return config;
+        }
+        DataSourceConfig bounded = new DataSourceConfig();
+        BeanUtils.copyProperties(config, bounded);
+        bounded.setConnectionTimeout(health.getAcquireTimeout());
+        log.debug("Datasource {} has no connection-timeout, using {}ms for circuit breaking", name,
+                health.getAcquireTimeout());
+        return bounded;
+    }
+
+    /**
+     * 合并从库配置，未配置的项继承主库配置
+     */
+    private static DataSourceConfig replicaConfig(DataSourceConfig primary, ReplicaConfig replica) {
+        DataSourceConfig config = new DataSourceConfig();
+        BeanUtils.copyProperties(primary, config, "replicas");
+        config.setUrl(replica.getUrl());
+        if (replica.getUsername() != null) {
+            config.setUsername(replica.getUsername());
+        }
+        if (replica.getPassword() != null) {
+            config.setPassword(replica.getPassword());
+        }
+        if (replica.getMaxPoolSize() != null) {
+            config.setMaxPoolSize(replica.getMaxPoolSize());
+        }
+        if (replica.getMinIdle() != null) {
+            config.setMinIdle(replica.getMinIdle());
+        }
+        return config;
+    }
+
+    /**
+     * 关闭数据源（释放连接池）
+     */
+    public static void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close datasource {}", dataSource, e);
+            }
+        }
+    }
+
+    /**
+     * 数据源当前借出（未归还）的连接数，连接池未初始化或无法统计时返回0
+     */
+    public static int activeConnections(DataSource dataSource) {
+        if (dataSource instanceof ShardDataSource shard) {
+            int active = 0;
+            for (ShardDataSource.NodeStats stats : shard.getNodeStats()) {
+                active += stats.pending();
+            }
+            return active;
+        }
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getHikariPoolMXBean() == null ? 0 : hikari.getHikariPoolMXBean().getActiveConnections();
+        }
+        if (dataSource instanceof DruidDataSource druid) {
+            return druid.getActiveCount();
+        }
+        return 0;
+    }
+
+    /**
+     * 数据源的连接池状态（配置了从库或启用了熔断时为主库的连接池）
+     *
+     * @return 连接池状态，不是Druid或HikariCP连接池时返回null；连接池未初始化时连接数均为0
+     */
+    public static PoolStats poolStats(DataSource dataSource) {
+        if (dataSource instanceof ShardDataSource shard) {
+            return poolStats(shard.getPrimary());
+        }
+        if (dataSource instanceof HikariDataSource hikari) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool == null
+                    ? new PoolStats(0, 0, 0, hikari.getMaximumPoolSize(), 0)
+                    : new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(),
+                    pool.getTotalConnections(), hikari.getMaximumPoolSize(), pool.getThreadsAwaitingConnection());
+        }
+        if (dataSource instanceof DruidDataSource druid) {
+            return new PoolStats(druid.getActiveCount(), druid.getPoolingCount(),
+                    druid.getActiveCount() + druid.getPoolingCount(), druid.getMaxActive(), druid.getWaitThreadCount());
+        }
+        return null;
+    }
+
+    /**
+     * 连接池状态
+     *
+     * @param active  借出的连接数
+     * @param idle    空闲的连接数
+     * @param total   连接总数
+     * @param max     最大连接数
+     * @param pending 等待获取连接的线程数
+     */
+    public record PoolStats(int active, int idle, int total, int max, int pending) {
+    }
+
+    private static DataSource createDruid(String name, DataSourceConfig config) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setName(name);
+        dataSource.setDriverClassName(config.getDriverClassName());
+        dataSource.setUrl(config.getUrl());
+        dataSource.setUsername(config.getUsername());
+        dataSource.setPassword(config.getPassword());
+
+        if (config.getMaxPoolSize() != null) {
+            dataSource.setMaxActive(config.getMaxPoolSize());
+        }
+        if (config.getMinIdle() != null) {
+            dataSource.setMinIdle(config.getMinIdle());
+        }
+        if (config.getInitialSize() != null) {
+            dataSource.setInitialSize(config.getInitialSize());
+        }
+        if (config.getConnectionTimeout() != null) {
+            dataSource.setMaxWait(config.getConnectionTimeout());
+        }
+        // 物理连接的最大存活时间，与Hikari的maxLifetime一致
+        if (config.getMaxLifetime() != null) {
+            dataSource.setPhyTimeoutMillis(config.getMaxLifetime());
+        }
+        if (config.getIdleTimeout() != null) {
+            // Druid要求 maxEvictableIdleTimeMillis >= minEvictableIdleTimeMillis
+            if (config.getIdleTimeout() > dataSource.getMaxEvictableIdleTimeMillis()) {
+                dataSource.setMaxEvictableIdleTimeMillis(config.getIdleTimeout());
+            }
+            dataSource.setMinEvictableIdleTimeMillis(config.getIdleTimeout());
+        }
+        if (config.getValidationQuery() != null) {
+            dataSource.setValidationQuery(config.getValidationQuery());
+        }
+        if (config.getTestWhileIdle() != null) {
+            dataSource.setTestWhileIdle(config.getTestWhileIdle());
+        }
+        if (config.getTestOnBorrow() != null) {
+            dataSource.setTestOnBorrow(config.getTestOnBorrow());
+        }
+        return dataSource;
+    }
+
+    private static DataSource createHikari(String name, DataSourceConfig config) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        if (config.getDriverClassName() != null) {
+            dataSource.setDriverClassName(config.getDriverClassName());
+        }
+        dataSource.setJdbcUrl(config.getUrl());
+        dataSource.setUsername(config.getUsername());
+        dataSource.setPassword(config.getPassword());
+
+        if (config.getMaxPoolSize() != null) {
+            dataSource.setMaximumPoolSize(config.getMaxPoolSize());
+        }
+        if (config.getMinIdle() != null) {
+            dataSource.setMinimumIdle(config.getMinIdle());
+        }
+        if (config.getConnectionTimeout() != null) {
+            dataSource.setConnectionTimeout(config.getConnectionTimeout());
+        }
+        if (config.getIdleTimeout() != null) {
+            dataSource.setIdleTimeout(config.getIdleTimeout());
+        }
+        if (config.getMaxLifetime() != null) {
+            dataSource.setMaxLifetime(config.getMaxLifetime());
+        }
+        if (config.getValidationQuery() != null) {
+            dataSource.setConnectionTestQuery(config.getValidationQuery());
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,135 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.properties.HealthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片健康检查
+ * 后台定时校验每个分片主库和从库的连接，结果交给各节点的熔断器。
+ * 每个分片独立调度，校验在单独的线程池中执行并按 probe-timeout 限时等待，某个分片的检查阻塞不会占满调度线程、
+ * 影响其他分片；路由拓扑热加载后按新的分片重新调度
+ *
+ * @author wht
+ */
+@Slf4j
+public class ShardHealthChecker implements InitializingBean, DisposableBean {
+
+    /**
+     * 检查线程数
+     */
+    private static final int MAX_THREADS = 4;
+
+    private final RoutingRegistry registry;
+
+    private final HealthProperties properties;
+
+    /**
+     * 分片 -> 检查任务
+     */
+    private final Map<ShardDataSource, ScheduledFuture<?>> tasks = new IdentityHashMap<>();
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 执行校验的线程池（每个节点最多一个校验线程，阻塞的校验超时后被中断）
+     */
+    private ExecutorService prober;
+
+    public ShardHealthChecker(RoutingRegistry registry, HealthProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        scheduler = new ScheduledThreadPoolExecutor(MAX_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "sdt-health-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        AtomicInteger proberIndex = new AtomicInteger();
+        prober = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sdt-health-probe-" + proberIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        reschedule(registry.latest());
+        registry.addListener(this::reschedule);
+    }
+
+    /**
+     * 按快照中的分片调度检查任务：新增的分片开始检查，已下线的分片停止检查
+     */
+    private synchronized void reschedule(RoutingSnapshot snapshot) {
+        Set<ShardDataSource> shards = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DataSource dataSource : snapshot.getRoutingTable().getAllDataSources().values()) {
+            if (dataSource instanceof ShardDataSource shard) {
+                shards.add(shard);
+            }
+        }
+
+        tasks.entrySet().removeIf(entry -> {
+            if (shards.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().cancel(false);
+            return true;
+        });
+        long interval = Math.max(100, properties.getProbeInterval());
+        for (ShardDataSource shard : shards) {
+            tasks.computeIfAbsent(shard, s ->
+                    scheduler.scheduleWithFixedDelay(() -> probe(s), interval, interval, TimeUnit.MILLISECONDS));
+        }
+        log.info("Health check of {} shard(s) scheduled, interval {}ms", tasks.size(), interval);
+    }
+
+    private void probe(ShardDataSource shard) {
+        try {
+            shard.probe(properties.getProbeTimeout(), prober);
+        } catch (RuntimeException e) {
+            // 异常会终止定时任务，这里只记录日志
+            log.warn("Health check of {} failed", shard.getName(), e);
+        }
+    }
+
+    /**
+     * 所有分片节点的运行状态
+     */
+    public List<ShardDataSource.NodeStats> getNodeStats() {
+        List<ShardDataSource.NodeStats> stats = new ArrayList<>();
+        for (DataSource dataSource : registry.latest().getRoutingTable().getAllDataSources().values()) {
+            if (dataSource instanceof ShardDataSource shard) {
+                stats.addAll(shard.getNodeStats());
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.wht.sdt.config.bean;
+
+/**
+ * 按秒分桶的滑动统计窗口
+ * 记录窗口内的请求数、失败数和耗时，桶按时间循环复用
+ *
+ * @author wht
+ */
+final class SlidingWindow {
+
+    private final int size;
+
+    private final long[] seconds;
+
+    private final long[] requests;
+
+    private final long[] errors;
+
+    private final long[] totalNanos;
+
+    private final long[] maxNanos;
+
+    SlidingWindow(int windowSeconds) {
+        this.size = Math.max(1, windowSeconds);
+        this.seconds = new long[size];
+        this.requests = new long[size];
+        this.errors = new long[size];
+        this.totalNanos = new long[size];
+        this.maxNanos = new long[size];
+    }
+
+    synchronized void record(long nanos, boolean error) {
+        long second = System.currentTimeMillis() / 1000;
+        int idx = (int) (second % size);
+        if (seconds[idx] != second) {
+            seconds[idx] = second;
+            requests[idx] = 0;
+            errors[idx] = 0;
+            totalNanos[idx] = 0;
+            maxNanos[idx] = 0;
+        }
+        requests[idx]++;
+        if (error) {
+            errors[idx]++;
+        }
+        totalNanos[idx] += nanos;
+        maxNanos[idx] = Math.max(maxNanos[idx], nanos);
+    }
+
+    synchronized Snapshot snapshot() {
+        long now = System.currentTimeMillis() / 1000;
+        long totalRequests = 0;
+        long totalErrors = 0;
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i < size; i++) {
+            if (now - seconds[i] < size) {
+                totalRequests += requests[i];
+                totalErrors += errors[i];
+                total += totalNanos[i];
+                max = Math.max(max, maxNanos[i]);
+            }
+        }
+        return new Snapshot(totalRequests, totalErrors, totalRequests == 0 ? 0 : total / totalRequests, max);
+    }
+
+    synchronized void reset() {
+        for (int i = 0; i < size; i++) {
+            seconds[i] = 0;
+        }
+    }
+
+    /**
+     * 窗口统计
+     *
+     * @param requests  请求数
+     * @param errors    失败数
+     * @param avgNanos  平均耗时（纳秒）
+     * @param maxNanos  最大耗时（纳秒）
+     */
+    record Snapshot(long requests, long errors, long avgNanos, long maxNanos) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+}
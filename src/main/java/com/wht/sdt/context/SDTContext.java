@@ -2,6 +2,8 @@ package com.wht.sdt.context;
 
 import com.wht.sdt.enumeration.StrategyType;
 
+import java.util.Map;
+
 /**
  * 数据库路由上下文持有者
  * 使用ThreadLocal保存当前线程的数据库路由信息
@@ -27,6 +29,34 @@ public class SDTContext {
      * 策略
      */
     private static final ThreadLocal<StrategyType> strategy = new ThreadLocal<>();
+    /**
+     * 路由字段值（由切面设置，分表时使用）
+     */
+    private static final ThreadLocal<String> routeValue = new ThreadLocal<>();
+    /**
+     * 表键是否已确定为表后缀（广播查询时由切面直接指定，不再执行分表策略）
+     */
+    private static final ThreadLocal<Boolean> tbFixed = new ThreadLocal<>();
+    /**
+     * 待从SQL中解析的路由字段（方法参数中没有路由字段时由切面设置，MyBatis插件执行SQL前解析）
+     */
+    private static final ThreadLocal<String> deferredRouteKey = new ThreadLocal<>();
+    /**
+     * 当前是否在迁移的新分片上执行（由切面设置，MyBatis插件按目标分表数量改写表名）
+     */
+    private static final ThreadLocal<Boolean> reshardTarget = new ThreadLocal<>();
+    /**
+     * 按时间分表的表的后缀（范围条件裁剪时由切面直接指定，MyBatis插件不再按路由字段值计算）
+     */
+    private static final ThreadLocal<Map<String, String>> tableSuffixes = new ThreadLocal<>();
+    /**
+     * 当前语句是否可以路由到从库（由MyBatis插件在执行查询语句时设置）
+     */
+    private static final ThreadLocal<Boolean> readRoute = new ThreadLocal<>();
+    /**
+     * 强制走主库（由 @ForcePrimary 设置，不随 clearAll 清除）
+     */
+    private static final ThreadLocal<Boolean> forcePrimary = new ThreadLocal<>();
 
     /**
      * 设置数据库键
@@ -90,6 +120,141 @@ public class SDTContext {
         return gKey.get();
     }
 
+    /**
+     * 设置路由字段值
+     *
+     * @param value 路由字段值
+     */
+    public static void setRouteValue(String value) {
+        routeValue.set(value);
+    }
+
+    /**
+     * 获取路由字段值
+     *
+     * @return 路由字段值
+     */
+    public static String getRouteValue() {
+        return routeValue.get();
+    }
+
+    /**
+     * 直接指定表后缀，MyBatis插件不再执行分表策略
+     *
+     * @param tbSuffix 表后缀（如：001）
+     */
+    public static void setFixedTBKey(String tbSuffix) {
+        tbKey.set(tbSuffix);
+        tbFixed.set(Boolean.TRUE);
+    }
+
+    /**
+     * 表键是否已直接指定为表后缀
+     */
+    public static boolean isTBKeyFixed() {
+        return Boolean.TRUE.equals(tbFixed.get());
+    }
+
+    /**
+     * 设置待从SQL中解析的路由字段
+     *
+     * @param routeKey 路由字段
+     */
+    public static void setDeferredRouteKey(String routeKey) {
+        deferredRouteKey.set(routeKey);
+    }
+
+    /**
+     * 获取待从SQL中解析的路由字段
+     *
+     * @return 路由字段，路由已在切面中完成时返回null
+     */
+    public static String getDeferredRouteKey() {
+        return deferredRouteKey.get();
+    }
+
+    /**
+     * 设置当前是否在迁移的新分片上执行
+     *
+     * @param target 是否为新分片
+     */
+    public static void setReshardTarget(boolean target) {
+        if (target) {
+            reshardTarget.set(Boolean.TRUE);
+        } else {
+            reshardTarget.remove();
+        }
+    }
+
+    /**
+     * 当前是否在迁移的新分片上执行
+     */
+    public static boolean isReshardTarget() {
+        return Boolean.TRUE.equals(reshardTarget.get());
+    }
+
+    /**
+     * 直接指定按时间分表的表的后缀
+     *
+     * @param suffixes 表名 -> 后缀
+     */
+    public static void setTableSuffixes(Map<String, String> suffixes) {
+        if (suffixes == null || suffixes.isEmpty()) {
+            tableSuffixes.remove();
+        } else {
+            tableSuffixes.set(suffixes);
+        }
+    }
+
+    /**
+     * 获取直接指定的按时间分表的表的后缀
+     *
+     * @return 表名 -> 后缀，未指定时返回null
+     */
+    public static Map<String, String> getTableSuffixes() {
+        return tableSuffixes.get();
+    }
+
+    /**
+     * 设置当前语句是否可以路由到从库
+     *
+     * @param read 是否可以路由到从库
+     */
+    public static void setReadRoute(boolean read) {
+        if (read) {
+            readRoute.set(Boolean.TRUE);
+        } else {
+            readRoute.remove();
+        }
+    }
+
+    /**
+     * 当前语句是否可以路由到从库
+     */
+    public static boolean isReadRoute() {
+        return Boolean.TRUE.equals(readRoute.get());
+    }
+
+    /**
+     * 设置是否强制走主库
+     *
+     * @param primary 是否强制走主库
+     */
+    public static void setForcePrimary(boolean primary) {
+        if (primary) {
+            forcePrimary.set(Boolean.TRUE);
+        } else {
+            forcePrimary.remove();
+        }
+    }
+
+    /**
+     * 是否强制走主库
+     */
+    public static boolean isForcePrimary() {
+        return Boolean.TRUE.equals(forcePrimary.get());
+    }
+
     /**
      * 清除所有路由信息
      */
@@ -98,5 +263,10 @@ public class SDTContext {
         tbKey.remove();
         gKey.remove();
         strategy.remove();
+        routeValue.remove();
+        tbFixed.remove();
+        deferredRouteKey.remove();
+        reshardTarget.remove();
+        tableSuffixes.remove();
     }
 }
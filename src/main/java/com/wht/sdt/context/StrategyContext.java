@@ -8,6 +8,11 @@ import lombok.Data;
 @Builder
 public class StrategyContext {
 
+    /**
+     * 数据源组键，如：group01
+     */
+    private String groupKey;
+
     private int tbCount;
 
     private int dbCount;
@@ -0,0 +1,26 @@
+package com.wht.sdt.enumeration;
+
+
+/**
+ * 从库负载均衡策略
+ *
+ * @author wht
+ */
+public enum LoadBalanceType {
+
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN,
+
+    /**
+     * 最少未归还连接
+     */
+    LEAST_PENDING,
+
+    /**
+     * 按响应时间加权（响应越快的从库被选中的概率越高）
+     */
+    LATENCY_WEIGHTED
+
+}
@@ -0,0 +1,41 @@
+package com.wht.sdt.enumeration;
+
+
+/**
+ * 广播查询结果合并方式
+ *
+ * @author wht
+ */
+public enum MergeType {
+
+    /**
+     * 根据方法返回类型自动选择：集合 -> LIST，数值 -> SUM，其他 -> 第一个非空结果
+     */
+    AUTO,
+
+    /**
+     * 合并为一个集合（支持按 orderBy 归并排序、按 limit 截断）
+     */
+    LIST,
+
+    /**
+     * 计数求和
+     */
+    COUNT,
+
+    /**
+     * 求和
+     */
+    SUM,
+
+    /**
+     * 最小值
+     */
+    MIN,
+
+    /**
+     * 最大值
+     */
+    MAX
+
+}
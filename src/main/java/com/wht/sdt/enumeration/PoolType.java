@@ -0,0 +1,21 @@
+package com.wht.sdt.enumeration;
+
+
+/**
+ * 连接池类型
+ *
+ * @author wht
+ */
+public enum PoolType {
+
+    /**
+     * Druid连接池
+     */
+    DRUID,
+
+    /**
+     * HikariCP连接池
+     */
+    HIKARI
+
+}
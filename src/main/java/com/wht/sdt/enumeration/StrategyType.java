@@ -6,13 +6,23 @@ import lombok.Getter;
 @Getter
 public enum StrategyType {
 
+    /**
+     * 使用数据源组配置的策略，未配置时为HASH
+     */
+    DEFAULT(0),
     CONSISTENT_HASH(1),
     HASH(2),
     TIME_BASED(3),
     CUSTOM_1(4),
     CUSTOM_2(5),
     CUSTOM_3(6),
-    CUSTOM_4(7);
+    CUSTOM_4(7),
+    JUMP_HASH(8),
+    RENDEZVOUS(9),
+    /**
+     * 目录路由：按索引文件中的映射路由，未映射的值使用回退策略
+     */
+    DIRECTORY(10);
 
     private final Integer code;
 
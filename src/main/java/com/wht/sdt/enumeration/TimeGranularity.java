@@ -0,0 +1,31 @@
+package com.wht.sdt.enumeration;
+
+
+/**
+ * 按时间分表的粒度
+ *
+ * @author wht
+ */
+public enum TimeGranularity {
+
+    /**
+     * 按天，表后缀如：20261017
+     */
+    DAY,
+
+    /**
+     * 按周（周一开始），表后缀为当周周一的日期，如：20261012
+     */
+    WEEK,
+
+    /**
+     * 按月，表后缀如：202610
+     */
+    MONTH,
+
+    /**
+     * 按年，表后缀如：2026
+     */
+    YEAR
+
+}
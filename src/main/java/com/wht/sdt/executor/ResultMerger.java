@@ -0,0 +1,275 @@
+package com.wht.sdt.executor;
+
+import com.wht.sdt.enumeration.MergeType;
+import com.wht.sdt.util.PropertyAccessors;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 分片结果合并工具类
+ * 支持集合合并（归并排序 + 截断）、计数/求和、最小值/最大值
+ *
+ * @author wht
+ */
+public final class ResultMerger {
+
+    private ResultMerger() {
+    }
+
+    /**
+     * 合并各分片的结果
+     *
+     * @param results    各分片结果
+     * @param mergeType  合并方式
+     * @param returnType 方法返回类型
+     * @param comparator 集合元素排序（各分片结果已按此顺序排序），为null时直接拼接
+     * @param limit      合并后保留的最大条数，小于0表示不限制
+     * @return 合并结果
+     */
+    public static Object merge(List<?> results, MergeType mergeType, Class<?> returnType,
+                               Comparator<Object> comparator, int limit) {
+        MergeType type = mergeType == null || mergeType == MergeType.AUTO ? resolveAuto(returnType) : mergeType;
+        if (type == null) {
+            // 单个对象：返回第一个非空结果（如按非路由字段查询唯一记录）
+            if (returnType == void.class || returnType == Void.class) {
+                return null;
+            }
+            for (Object result : results) {
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        switch (type) {
+            case LIST:
+                return mergeList(results, returnType, comparator, limit);
+            case COUNT:
+            case SUM:
+                return convertNumber(sum(results), returnType);
+            case MIN:
+                return extreme(results, false);
+            case MAX:
+                return extreme(results, true);
+            default:
+                throw new IllegalArgumentException("不支持的合并方式: " + type);
+        }
+    }
+
+    /**
+     * 解析排序字段，如："createTime desc, id"
+     *
+     * @param orderBy 排序字段
+     * @return 比较器，排序字段为空时返回null
+     */
+    public static Comparator<Object> comparator(String orderBy) {
+        if (orderBy == null || orderBy.isBlank()) {
+            return null;
+        }
+
+        Comparator<Object> comparator = null;
+        for (String item : orderBy.split(",")) {
+            String[] parts = item.trim().split("\\s+");
+            String[] path = parts[0].split("\\.");
+            boolean desc = parts.length > 1 && "desc".equalsIgnoreCase(parts[1]);
+
+            // 与MySQL一致：升序时null在前
+            Comparator<Object> byProperty = (a, b) -> compareValues(
+                    PropertyAccessors.getPathValue(a, path), PropertyAccessors.getPathValue(b, path));
+            if (desc) {
+                byProperty = byProperty.reversed();
+            }
+            comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+        }
+        return comparator;
+    }
+
+    private static MergeType resolveAuto(Class<?> returnType) {
+        if (Collection.class.isAssignableFrom(returnType)) {
+            return MergeType.LIST;
+        }
+        if (isNumberType(returnType)) {
+            return MergeType.SUM;
+        }
+        return null;
+    }
+
+    private static Collection<Object> mergeList(List<?> results, Class<?> returnType,
+                                                Comparator<Object> comparator, int limit) {
+        Collection<Object> merged = Set.class.isAssignableFrom(returnType) ? new LinkedHashSet<>() : new ArrayList<>();
+        int max = limit < 0 ? Integer.MAX_VALUE : limit;
+
+        if (comparator == null) {
+            for (Object result : results) {
+                if (result == null) {
+                    continue;
+                }
+                for (Object element : (Collection<?>) result) {
+                    if (merged.size() >= max) {
+                        return merged;
+                    }
+                    merged.add(element);
+                }
+            }
+            return merged;
+        }
+
+        // 各分片结果已有序，使用优先队列做k路归并
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, results.size()),
+                (a, b) -> comparator.compare(a.head, b.head));
+        for (Object result : results) {
+            if (result != null) {
+                Iterator<?> iterator = ((Collection<?>) result).iterator();
+                if (iterator.hasNext()) {
+                    queue.add(new Cursor(iterator));
+                }
+            }
+        }
+        while (!queue.isEmpty() && merged.size() < max) {
+            Cursor cursor = queue.poll();
+            merged.add(cursor.head);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static Number sum(List<?> results) {
+        long longSum = 0;
+        BigDecimal decimalSum = null;
+        for (Object result : results) {
+            if (!(result instanceof Number number)) {
+                continue;
+            }
+            if (decimalSum == null && (number instanceof Long || number instanceof Integer
+                    || number instanceof Short || number instanceof Byte)) {
+                longSum = Math.addExact(longSum, number.longValue());
+            } else {
+                if (decimalSum == null) {
+                    decimalSum = BigDecimal.valueOf(longSum);
+                }
+                decimalSum = decimalSum.add(toBigDecimal(number));
+            }
+        }
+        return decimalSum == null ? (Number) longSum : decimalSum;
+    }
+
+    private static Object extreme(List<?> results, boolean max) {
+        Object best = null;
+        for (Object result : results) {
+            if (result == null) {
+                continue;
+            }
+            if (best == null) {
+                best = result;
+                continue;
+            }
+            int cmp = compareValues(result, best);
+            if (max ? cmp > 0 : cmp < 0) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return -1;
+        }
+        if (b == null) {
+            return 1;
+        }
+        if (a instanceof Number na && b instanceof Number nb && a.getClass() != b.getClass()) {
+            return toBigDecimal(na).compareTo(toBigDecimal(nb));
+        }
+        if (a instanceof Comparable) {
+            return ((Comparable) a).compareTo(b);
+        }
+        throw new IllegalArgumentException("排序字段不可比较: " + a.getClass().getName());
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    private static boolean isNumberType(Class<?> type) {
+        return Number.class.isAssignableFrom(type)
+                || type == int.class || type == long.class || type == short.class
+                || type == byte.class || type == double.class || type == float.class;
+    }
+
+    private static Object convertNumber(Number value, Class<?> returnType) {
+        if (returnType == int.class || returnType == Integer.class) {
+            return Math.toIntExact(value.longValue());
+        }
+        if (returnType == long.class || returnType == Long.class) {
+            return value.longValue();
+        }
+        if (returnType == double.class || returnType == Double.class) {
+            return value.doubleValue();
+        }
+        if (returnType == float.class || returnType == Float.class) {
+            return value.floatValue();
+        }
+        if (returnType == short.class || returnType == Short.class) {
+            return value.shortValue();
+        }
+        if (returnType == byte.class || returnType == Byte.class) {
+            return value.byteValue();
+        }
+        if (returnType == BigDecimal.class) {
+            return toBigDecimal(value);
+        }
+        if (returnType == BigInteger.class) {
+            return toBigDecimal(value).toBigInteger();
+        }
+        return value;
+    }
+
+    /**
+     * 归并游标
+     */
+    private static final class Cursor {
+
+        private final Iterator<?> iterator;
+
+        private Object head;
+
+        private Cursor(Iterator<?> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        private boolean advance() {
+            if (iterator.hasNext()) {
+                head = iterator.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.wht.sdt.executor;
+
+import com.wht.sdt.properties.ScatterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片查询执行器
+ * 在有界线程池（Java 21及以上使用虚拟线程）上并行执行各分片的任务，整体超时后取消所有未完成的任务。
+ * 在分片任务中再次提交的任务（如分片任务中调用了另一个广播方法）在当前线程执行，
+ * 避免线程池或并发许可被外层任务占满时互相等待
+ *
+ * @author wht
+ */
+@Slf4j
+public class ShardQueryExecutor implements DisposableBean {
+
+    /**
+     * 当前线程是否正在执行分片任务
+     */
+    private static final ThreadLocal<Boolean> IN_TASK = new ThreadLocal<>();
+
+    private final ExecutorService executor;
+
+    /**
+     * 并发许可（虚拟线程执行器本身不限制并发，通过信号量限制同时执行的分片查询数量）
+     */
+    private final Semaphore permits;
+
+    private final long defaultTimeoutMillis;
+
+    public ShardQueryExecutor(ScatterProperties properties) {
+        int maxConcurrency = Math.max(1, properties.getMaxConcurrency());
+        this.defaultTimeoutMillis = properties.getTimeout();
+
+        ExecutorService virtualExecutor = properties.isVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.permits = new Semaphore(maxConcurrency);
+            log.info("Shard query executor uses virtual threads, max concurrency {}", maxConcurrency);
+        } else {
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "sdt-shard-query-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.permits = null;
+            log.info("Shard query executor uses platform threads, max concurrency {}", maxConcurrency);
+        }
+    }
+
+    /**
+     * 并行执行所有任务，按任务顺序返回结果
+     * 任一任务失败或整体超时时，取消其余任务并抛出异常
+     *
+     * @param tasks         分片任务
+     * @param timeoutMillis 超时时间（毫秒），小于等于0时使用默认值
+     * @return 各任务结果（与任务顺序一致）
+     * @throws Throwable 任务抛出的异常
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks, long timeoutMillis) throws Throwable {
+        if (inTask()) {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+        long timeout = timeoutMillis > 0 ? timeoutMillis : defaultTimeoutMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(submit(task));
+            }
+
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : futures) {
+                long remaining = deadline - System.nanoTime();
+                results.add(future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            cancelAll(futures);
+            throw new RuntimeException("分片查询超时: " + timeout + "ms", e);
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * 提交单个任务（受并发许可限制），在分片任务中提交时直接在当前线程执行
+     *
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        if (inTask()) {
+            FutureTask<T> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+        return executor.submit(() -> {
+            IN_TASK.set(Boolean.TRUE);
+            try {
+                if (permits == null) {
+                    return task.call();
+                }
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            } finally {
+                IN_TASK.remove();
+            }
+        });
+    }
+
+    /**
+     * 当前线程是否正在执行分片任务
+     */
+    public static boolean inTask() {
+        return IN_TASK.get() != null;
+    }
+
+    private void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器（编译目标为Java 17）
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.wht.sdt.executor;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.strategy.RouterStrategy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分片目标
+ *
+ * @param dbKey 库键，如：db01
+ * @param tbKey         表后缀，如：001；不分表时为null
+ * @param tableSuffixes 单独指定后缀的表（表名 -> 后缀）：按时间分表的表（如：t_log -> 20261017，由范围条件裁剪计算）、
+ *                      分表数量小于最大分表数量的表（如：t_user -> 003）；其他分表的表使用tbKey
+ * @author wht
+ */
+public record ShardTarget(String dbKey, String tbKey, Map<String, String> tableSuffixes) {
+
+    public ShardTarget(String dbKey, String tbKey) {
+        this(dbKey, tbKey, Map.of());
+    }
+
+    /**
+     * 按路由策略计算路由字段值所在的分片
+     * 注意：路由策略把结果写入路由上下文，调用后当前线程的dbKey、tbKey会被覆盖
+     *
+     * @param strategy 路由策略
+     * @param groupKey 组键
+     * @param value    路由字段值
+     * @param dbCount  分库数量
+     * @param tbCount  分表数量，0表示不分表
+     * @return 分片目标
+     */
+    public static ShardTarget locate(RouterStrategy strategy, String groupKey, String value, int dbCount, int tbCount) {
+        StrategyContext strategyContext = StrategyContext.builder()
+                .groupKey(groupKey)
+                .keyValue(value)
+                .dbCount(dbCount)
+                .tbCount(tbCount)
+                .build();
+
+        strategy.splitDB(strategyContext);
+        String dbKey = SDTContext.getDBKey();
+        String tbKey = null;
+        if (tbCount > 0) {
+            strategy.splitTB(strategyContext);
+            tbKey = SDTContext.getTBKey();
+        }
+        return new ShardTarget(dbKey, tbKey);
+    }
+
+    /**
+     * 按路由策略计算路由字段值所在的分片，每个表按自己的分表数量计算表后缀
+     * tbKey为分表数量最大的表的后缀，分表数量不同的其他表的后缀放在tableSuffixes中；
+     * 分表数量相同的表（包括绑定表）表后缀相同
+     * 注意：路由策略把结果写入路由上下文，调用后当前线程的dbKey、tbKey会被覆盖
+     *
+     * @param strategy 路由策略
+     * @param groupKey 组键
+     * @param value    路由字段值
+     * @param dbCount  分库数量
+     * @param tbCounts 需要分表的表（表名 -> 分表数量），为空时不分表
+     * @return 分片目标
+     */
+    public static ShardTarget locate(RouterStrategy strategy, String groupKey, String value, int dbCount,
+                                     Map<String, Integer> tbCounts) {
+        int maxTbCount = 0;
+        if (tbCounts != null) {
+            for (Integer count : tbCounts.values()) {
+                if (count != null) {
+                    maxTbCount = Math.max(maxTbCount, count);
+                }
+            }
+        }
+        ShardTarget target = locate(strategy, groupKey, value, dbCount, maxTbCount);
+        if (maxTbCount <= 1) {
+            return target;
+        }
+
+        // 同一分表数量只计算一次
+        Map<Integer, String> suffixes = new HashMap<>();
+        suffixes.put(maxTbCount, target.tbKey());
+        Map<String, String> tableSuffixes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : tbCounts.entrySet()) {
+            Integer count = entry.getValue();
+            if (count == null || count <= 1 || count == maxTbCount) {
+                continue;
+            }
+            tableSuffixes.put(entry.getKey(), suffixes.computeIfAbsent(count, n -> {
+                strategy.splitTB(StrategyContext.builder()
+                        .groupKey(groupKey)
+                        .keyValue(value)
+                        .dbCount(dbCount)
+                        .tbCount(n)
+                        .build());
+                return SDTContext.getTBKey();
+            }));
+        }
+        return tableSuffixes.isEmpty() ? target : new ShardTarget(target.dbKey(), target.tbKey(), Map.copyOf(tableSuffixes));
+    }
+}
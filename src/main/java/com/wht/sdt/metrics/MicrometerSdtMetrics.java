@@ -0,0 +1,369 @@
+package com.wht.sdt.metrics;
+
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.config.bean.RoutingSnapshot;
+import com.wht.sdt.config.bean.ShardDataSourceFactory;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.enumeration.TimeGranularity;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.MetricsProperties;
+import com.wht.sdt.properties.TimePartitionProperties;
+import com.wht.sdt.util.ShardKeys;
+import com.wht.sdt.util.SqlTableReplacer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * 基于Micrometer的路由监控指标
+ * <ul>
+ *     <li>sdt.route：注解方法的路由执行耗时（group、strategy、outcome）</li>
+ *     <li>sdt.sql.rewrite：SQL表名改写耗时（group）</li>
+ *     <li>sdt.sql.parse：JSqlParser解析、降级使用正则表达式的次数（method=parser|regex）</li>
+ *     <li>sdt.shard.calls：在分片上执行的SQL次数（group、db、tb、strategy），按时间分表的表后缀不作为标签值，
+ *     tb 使用分表粒度（如 day），避免每个周期产生新的指标</li>
+ *     <li>sdt.pool.active / idle / total / max / pending：每个分片（如 group01db01）主库的连接池状态</li>
+ * </ul>
+ * 每个路由拓扑快照按数据源组预先注册计时器和分片计数器（按库、表编号下标存放），记录时只查找数组，不创建对象；
+ * 路由拓扑热加载后重新注册，并移除已下线连接池的指标
+ *
+ * @author wht
+ */
+public class MicrometerSdtMetrics implements SdtMetrics {
+
+    private static final String NONE = "none";
+
+    /**
+     * 数据源组的时间分表使用多种粒度时，时间分表后缀使用的标签值
+     */
+    private static final String TIME = "time";
+
+    private static final StrategyType[] STRATEGY_TYPES = StrategyType.values();
+
+    /**
+     * 未指定路由策略时使用的下标
+     */
+    private static final int NO_STRATEGY = STRATEGY_TYPES.length;
+
+    private final MeterRegistry registry;
+
+    private final boolean histogram;
+
+    /**
+     * 组键 -> 数据源组的指标（随路由拓扑快照整体替换）
+     */
+    private volatile Map<String, GroupMeters> groups = Map.of();
+
+    /**
+     * 连接池 -> 连接池状态指标
+     */
+    private final Map<DataSource, List<Meter>> poolMeters = new IdentityHashMap<>();
+
+    public MicrometerSdtMetrics(MeterRegistry registry, RoutingRegistry routingRegistry, MetricsProperties properties) {
+        this.registry = registry;
+        this.histogram = properties != null && properties.isHistogram();
+
+        FunctionCounter.builder("sdt.sql.parse", this, metrics -> SqlTableReplacer.getParserCount())
+                .description("SQL表名改写使用JSqlParser解析的次数")
+                .tag("method", "parser")
+                .register(registry);
+        FunctionCounter.builder("sdt.sql.parse", this, metrics -> SqlTableReplacer.getRegexFallbackCount())
+                .description("SQL表名改写降级使用正则表达式的次数")
+                .tag("method", "regex")
+                .register(registry);
+
+        refresh(routingRegistry.latest());
+        routingRegistry.addListener(this::refresh);
+    }
+
+    @Override
+    public void recordRoute(String groupKey, StrategyType strategyType, long nanos, boolean failed) {
+        GroupMeters meters = groups.get(groupKey);
+        Timer timer = meters != null
+                ? meters.route(strategyType, failed)
+                : routeTimer(groupKey, strategyType, failed);
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordRewrite(String groupKey, long nanos) {
+        GroupMeters meters = groups.get(groupKey);
+        Timer timer = meters != null ? meters.rewrite : rewriteTimer(groupKey);
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordShardCall(String groupKey, StrategyType strategyType, String dbKey, String tbKey) {
+        GroupMeters meters = groups.get(groupKey);
+        Counter counter = meters == null ? null : meters.call(strategyType, dbKey, tbKey);
+        if (counter == null) {
+            // 不在预先注册范围内（已下线的数据源组、超出分片数量的编号），按名称查找
+            counter = callCounter(groupKey, strategyType, dbKey, tbKey);
+        }
+        counter.increment();
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * 按路由拓扑快照重新注册指标
+     */
+    private synchronized void refresh(RoutingSnapshot snapshot) {
+        Map<String, GroupMeters> next = new HashMap<>();
+        snapshot.getGroups().forEach((groupKey, group) -> next.put(groupKey, new GroupMeters(groupKey, group)));
+        groups = next;
+
+        // 新连接池注册连接池指标，下线的连接池移除指标
+        Map<DataSource, String[]> pools = new IdentityHashMap<>();
+        snapshot.getGroups().forEach((groupKey, group) -> {
+            if (group.getDataSource() == null) {
+                return;
+            }
+            for (String dbKey : group.getDataSource().keySet()) {
+                DataSource dataSource = snapshot.getRoutingTable().getDataSource(groupKey, dbKey);
+                if (dataSource != null) {
+                    pools.put(dataSource, new String[]{groupKey, dbKey,
+                            snapshot.getRoutingTable().getLookupKey(groupKey, dbKey)});
+                }
+            }
+        });
+        poolMeters.entrySet().removeIf(entry -> {
+            if (pools.containsKey(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().forEach(registry::remove);
+            return true;
+        });
+        pools.forEach((dataSource, keys) -> poolMeters.computeIfAbsent(dataSource,
+                ds -> registerPool(ds, keys[0], keys[1], keys[2])));
+    }
+
+    private List<Meter> registerPool(DataSource dataSource, String groupKey, String dbKey, String lookupKey) {
+        List<Meter> meters = new ArrayList<>(5);
+        meters.add(poolGauge("sdt.pool.active", "借出的连接数", dataSource, groupKey, dbKey, lookupKey,
+                ShardDataSourceFactory.PoolStats::active));
+        meters.add(poolGauge("sdt.pool.idle", "空闲的连接数", dataSource, groupKey, dbKey, lookupKey,
+                ShardDataSourceFactory.PoolStats::idle));
+        meters.add(poolGauge("sdt.pool.total", "连接总数", dataSource, groupKey, dbKey, lookupKey,
+                ShardDataSourceFactory.PoolStats::total));
+        meters.add(poolGauge("sdt.pool.max", "最大连接数", dataSource, groupKey, dbKey, lookupKey,
+                ShardDataSourceFactory.PoolStats::max));
+        meters.add(poolGauge("sdt.pool.pending", "等待获取连接的线程数", dataSource, groupKey, dbKey, lookupKey,
+                ShardDataSourceFactory.PoolStats::pending));
+        return meters;
+    }
+
+    private Gauge poolGauge(String name, String description, DataSource dataSource, String groupKey, String dbKey,
+                            String lookupKey, ToIntFunction<ShardDataSourceFactory.PoolStats> value) {
+        return Gauge.builder(name, dataSource, ds -> {
+                    ShardDataSourceFactory.PoolStats stats = ShardDataSourceFactory.poolStats(ds);
+                    return stats == null ? Double.NaN : value.applyAsInt(stats);
+                })
+                .description(description)
+                .tag("datasource", lookupKey)
+                .tag("group", groupKey)
+                .tag("db", dbKey)
+                .register(registry);
+    }
+
+    private Timer routeTimer(String groupKey, StrategyType strategyType, boolean failed) {
+        return Timer.builder("sdt.route")
+                .description("注解方法的路由执行耗时")
+                .tag("group", groupKey)
+                .tag("strategy", strategyType == null ? NONE : strategyType.name())
+                .tag("outcome", failed ? "error" : "success")
+                .publishPercentileHistogram(histogram)
+                .register(registry);
+    }
+
+    private Timer rewriteTimer(String groupKey) {
+        return Timer.builder("sdt.sql.rewrite")
+                .description("SQL表名改写耗时")
+                .tag("group", groupKey)
+                .publishPercentileHistogram(histogram)
+                .register(registry);
+    }
+
+    private Counter callCounter(String groupKey, StrategyType strategyType, String dbKey, String tbKey) {
+        return Counter.builder("sdt.shard.calls")
+                .description("在分片上执行的SQL次数")
+                .tag("group", groupKey)
+                .tag("db", dbKey == null ? NONE : dbKey)
+                .tag("tb", tbKey == null ? NONE : tbKey)
+                .tag("strategy", strategyType == null ? NONE : strategyType.name())
+                .register(registry);
+    }
+
+    /**
+     * 解析库键、表后缀中的编号（如 db01 -> 1、001 -> 1），不是编号时返回-1
+     */
+    private static int number(String key, int prefixLength) {
+        int length = key.length();
+        if (length <= prefixLength || length - prefixLength > 9) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = prefixLength; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int slot(StrategyType strategyType) {
+        return strategyType == null ? NO_STRATEGY : strategyType.ordinal();
+    }
+
+    /**
+     * 数据源组的指标
+     * 计时器按路由策略下标存放，分片计数器按 [路由策略][库编号][表编号] 存放（表编号0表示不分表，
+     * tbCount + 1 表示按时间分表的表后缀）；默认路由策略的分片计数器预先注册，其他策略首次使用时注册
+     */
+    private final class GroupMeters {
+
+        private final String groupKey;
+
+        private final int dbCount;
+
+        private final int tbCount;
+
+        /**
+         * 按时间分表的表后缀使用的tb标签值（粒度名称，如 day），未配置时间分表时为null
+         */
+        private final String timeTag;
+
+        private final Timer rewrite;
+
+        private final Timer[][] routes = new Timer[NO_STRATEGY + 1][];
+
+        private final Counter[][][] calls = new Counter[NO_STRATEGY + 1][][];
+
+        private GroupMeters(String groupKey, DataSourceGroup group) {
+            this.groupKey = groupKey;
+            int dbs = group.getDbCount();
+            int tbs = maxTbCount(group.getTbCounts());
+            if (group.reshardingEnabled()) {
+                dbs = Math.max(dbs, group.getResharding().targetDbCount(group));
+                tbs = Math.max(tbs, maxTbCount(group.getResharding().targetTbCounts(group)));
+            }
+            this.dbCount = Math.max(1, Math.min(dbs, ShardKeys.MAX_CACHED_DB));
+            this.tbCount = Math.min(tbs, ShardKeys.MAX_CACHED_TB);
+            this.timeTag = timeTag(group);
+            this.rewrite = rewriteTimer(groupKey);
+
+            StrategyType strategyType = group.getStrategy() == null || group.getStrategy() == StrategyType.DEFAULT
+                    ? StrategyType.HASH : group.getStrategy();
+            route(strategyType, false);
+            route(strategyType, true);
+            Counter[][] counters = counters(slot(strategyType));
+            for (int db = 1; db <= dbCount; db++) {
+                counters[db][0] = callCounter(groupKey, strategyType, ShardKeys.dbKey(db), null);
+                for (int tb = 1; tb <= tbCount; tb++) {
+                    counters[db][tb] = callCounter(groupKey, strategyType, ShardKeys.dbKey(db), ShardKeys.tbKey(tb));
+                }
+                if (timeTag != null) {
+                    counters[db][tbCount + 1] = callCounter(groupKey, strategyType, ShardKeys.dbKey(db), timeTag);
+                }
+            }
+        }
+
+        private Timer route(StrategyType strategyType, boolean failed) {
+            int slot = slot(strategyType);
+            Timer[] timers = routes[slot];
+            if (timers == null) {
+                timers = new Timer[2];
+                routes[slot] = timers;
+            }
+            int outcome = failed ? 1 : 0;
+            Timer timer = timers[outcome];
+            if (timer == null) {
+                // 并发注册时MeterRegistry返回同一实例
+                timer = routeTimer(groupKey, strategyType, failed);
+                timers[outcome] = timer;
+            }
+            return timer;
+        }
+
+        /**
+         * 分片计数器，库编号、表编号不在预先注册范围内时返回null
+         * 配置了时间分表时，不是分表编号的表后缀（如 20261017）计入粒度计数器
+         */
+        private Counter call(StrategyType strategyType, String dbKey, String tbKey) {
+            int db = dbKey == null ? -1 : number(dbKey, 2);
+            int tb = tbKey == null ? 0 : number(tbKey, 0);
+            if (db < 1 || db > dbCount) {
+                return null;
+            }
+            if (tb < 0 || tb > tbCount) {
+                if (timeTag == null) {
+                    return null;
+                }
+                tb = tbCount + 1;
+            }
+            Counter[][] counters = counters(slot(strategyType));
+            Counter counter = counters[db][tb];
+            if (counter == null) {
+                String tag = tb == 0 ? null : tb > tbCount ? timeTag : ShardKeys.tbKey(tb);
+                counter = callCounter(groupKey, strategyType, ShardKeys.dbKey(db), tag);
+                counters[db][tb] = counter;
+            }
+            return counter;
+        }
+
+        private Counter[][] counters(int slot) {
+            Counter[][] counters = calls[slot];
+            if (counters == null) {
+                counters = new Counter[dbCount + 1][tbCount + 2];
+                calls[slot] = counters;
+            }
+            return counters;
+        }
+    }
+
+    /**
+     * 时间分表后缀使用的tb标签值：各表粒度相同时为粒度名称（如 day），否则为 time
+     */
+    private static String timeTag(DataSourceGroup group) {
+        if (!group.hasTimePartitions()) {
+            return null;
+        }
+        TimeGranularity granularity = null;
+        for (TimePartitionProperties partition : group.getTimePartitions().values()) {
+            if (granularity != null && partition.getGranularity() != granularity) {
+                return TIME;
+            }
+            granularity = partition.getGranularity();
+        }
+        return granularity == null ? TIME : granularity.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static int maxTbCount(Map<String, Integer> tbCounts) {
+        int tbCount = 0;
+        if (tbCounts != null) {
+            for (Integer count : tbCounts.values()) {
+                if (count != null && count > 1) {
+                    tbCount = Math.max(tbCount, count);
+                }
+            }
+        }
+        return tbCount;
+    }
+}
@@ -0,0 +1,201 @@
+package com.wht.sdt.metrics;
+
+import com.wht.sdt.config.bean.RoutingConfigWatcher;
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.config.bean.RoutingSnapshot;
+import com.wht.sdt.config.bean.ShardDataSource;
+import com.wht.sdt.config.bean.ShardDataSourceFactory;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.util.SqlTableReplacer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由监控端点（/actuator/sdt）
+ * <ul>
+ *     <li>/actuator/sdt：路由拓扑版本、SQL解析次数、各数据源组的路由耗时、各分片的连接池状态和SQL执行次数、分片事务统计</li>
+ *     <li>/actuator/sdt/{shard}：单个分片（如 group01db01）的连接池、主从节点状态和按表后缀统计的SQL执行次数</li>
+ *     <li>POST /actuator/sdt：重新加载路由拓扑，配置了 reload.config-file 时从该文件加载，否则从当前的应用配置（Environment）加载</li>
+ * </ul>
+ *
+ * @author wht
+ */
+@Endpoint(id = "sdt")
+public class SdtEndpoint {
+
+    private final RoutingRegistry routingRegistry;
+
+    private final MeterRegistry registry;
+
+    /**
+     * 分片事务指标，未使用分片事务管理器时为null
+     */
+    private final ShardTransactionMeters transactionMeters;
+
+    /**
+     * 路由配置文件监听，未配置 reload.config-file 时为null
+     */
+    private final RoutingConfigWatcher configWatcher;
+
+    /**
+     * 未配置路由配置文件时，重新加载使用的应用配置
+     */
+    private final Environment environment;
+
+    public SdtEndpoint(RoutingRegistry routingRegistry, MicrometerSdtMetrics metrics) {
+        this(routingRegistry, metrics, null, null, null);
+    }
+
+    public SdtEndpoint(RoutingRegistry routingRegistry, MicrometerSdtMetrics metrics,
+                       ShardTransactionMeters transactionMeters, RoutingConfigWatcher configWatcher,
+                       Environment environment) {
+        this.routingRegistry = routingRegistry;
+        this.registry = metrics.getRegistry();
+        this.transactionMeters = transactionMeters;
+        this.configWatcher = configWatcher;
+        this.environment = environment;
+    }
+
+    @ReadOperation
+    public Map<String, Object> summary() {
+        RoutingSnapshot snapshot = routingRegistry.latest();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", snapshot.getVersion());
+
+        Map<String, Object> sql = new LinkedHashMap<>();
+        sql.put("parser", SqlTableReplacer.getParserCount());
+        sql.put("regexFallback", SqlTableReplacer.getRegexFallbackCount());
+        result.put("sql", sql);
+
+        Map<String, Object> routes = new TreeMap<>();
+        for (Timer timer : registry.find("sdt.route").timers()) {
+            if (timer.count() > 0) {
+                routes.put(timer.getId().getTag("group") + "." + timer.getId().getTag("strategy")
+                        + "." + timer.getId().getTag("outcome"), timer(timer));
+            }
+        }
+        result.put("routes", routes);
+
+        Map<String, Object> shards = new TreeMap<>();
+        snapshot.getGroups().forEach((groupKey, group) -> {
+            if (group.getDataSource() == null) {
+                return;
+            }
+            for (String dbKey : group.getDataSource().keySet()) {
+                Map<String, Object> shard = shard(snapshot, groupKey, dbKey, false);
+                if (shard != null) {
+                    shards.put(snapshot.getRoutingTable().getLookupKey(groupKey, dbKey), shard);
+                }
+            }
+        });
+        result.put("shards", shards);
+        if (transactionMeters != null) {
+            result.put("transactions", transactionMeters.summary());
+        }
+        return result;
+    }
+
+    /**
+     * 重新加载路由拓扑（只替换数据源组和自定义策略绑定），配置校验失败时当前路由拓扑不变
+     *
+     * @return 刷新前后的版本号
+     * @throws IOException 读取路由配置文件失败
+     */
+    @WriteOperation
+    public Map<String, Object> reload() throws IOException {
+        long previousVersion = routingRegistry.latest().getVersion();
+        long version;
+        String source;
+        if (configWatcher != null) {
+            version = configWatcher.reload();
+            source = "config-file";
+        } else if (environment != null) {
+            RouterGroupProperties loaded = Binder.get(environment)
+                    .bind(RouterGroupProperties.PREFIX, RouterGroupProperties.class)
+                    .orElseGet(RouterGroupProperties::new);
+            version = RoutingConfigWatcher.refresh(routingRegistry, loaded, "environment");
+            source = "environment";
+        } else {
+            throw new IllegalStateException("未配置路由配置来源（reload.config-file）");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("previousVersion", previousVersion);
+        result.put("version", version);
+        result.put("source", source);
+        return result;
+    }
+
+    /**
+     * 单个分片的状态
+     *
+     * @param shard 数据源查找键，如：group01db01
+     * @return 分片状态，未找到时返回null（404）
+     */
+    @ReadOperation
+    public Map<String, Object> shard(@Selector String shard) {
+        RoutingSnapshot snapshot = routingRegistry.latest();
+        for (Map.Entry<String, DataSourceGroup> entry : snapshot.getGroups().entrySet()) {
+            if (entry.getValue().getDataSource() == null) {
+                continue;
+            }
+            for (String dbKey : entry.getValue().getDataSource().keySet()) {
+                if (shard.equals(snapshot.getRoutingTable().getLookupKey(entry.getKey(), dbKey))) {
+                    return shard(snapshot, entry.getKey(), dbKey, true);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> shard(RoutingSnapshot snapshot, String groupKey, String dbKey, boolean detail) {
+        DataSource dataSource = snapshot.getRoutingTable().getDataSource(groupKey, dbKey);
+        if (dataSource == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("group", groupKey);
+        result.put("db", dbKey);
+        result.put("pool", ShardDataSourceFactory.poolStats(dataSource));
+
+        long calls = 0;
+        Map<String, Long> tables = new TreeMap<>();
+        for (Counter counter : registry.find("sdt.shard.calls").tag("group", groupKey).tag("db", dbKey).counters()) {
+            long count = (long) counter.count();
+            calls += count;
+            if (detail && count > 0) {
+                tables.merge(counter.getId().getTag("tb"), count, Long::sum);
+            }
+        }
+        result.put("calls", calls);
+        if (detail) {
+            result.put("tables", tables);
+            if (dataSource instanceof ShardDataSource shardDataSource) {
+                result.put("nodes", shardDataSource.getNodeStats());
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Object> timer(Timer timer) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", timer.count());
+        result.put("meanMillis", timer.mean(TimeUnit.MILLISECONDS));
+        result.put("maxMillis", timer.max(TimeUnit.MILLISECONDS));
+        return result;
+    }
+}
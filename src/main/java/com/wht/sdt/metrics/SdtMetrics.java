@@ -0,0 +1,52 @@
+package com.wht.sdt.metrics;
+
+import com.wht.sdt.enumeration.StrategyType;
+
+/**
+ * 路由监控指标记录
+ * 切面和MyBatis插件在路由、改写SQL时调用，默认不记录（{@link #NOOP}）；
+ * 存在MeterRegistry时自动配置为 {@link MicrometerSdtMetrics}
+ * <p>
+ * 在每次SQL执行的路径上调用，实现不能阻塞，且应避免创建对象
+ *
+ * @author wht
+ */
+public interface SdtMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    SdtMetrics NOOP = new SdtMetrics() {
+    };
+
+    /**
+     * 记录一次注解方法的路由执行（包括广播、拆分执行的所有分片）
+     *
+     * @param groupKey     组键
+     * @param strategyType 路由策略，未确定时为null
+     * @param nanos        耗时（纳秒）
+     * @param failed       是否抛出异常
+     */
+    default void recordRoute(String groupKey, StrategyType strategyType, long nanos, boolean failed) {
+    }
+
+    /**
+     * 记录一次SQL表名改写
+     *
+     * @param groupKey 组键
+     * @param nanos    耗时（纳秒，包括命中缓存）
+     */
+    default void recordRewrite(String groupKey, long nanos) {
+    }
+
+    /**
+     * 记录一次在分片上执行的SQL
+     *
+     * @param groupKey     组键
+     * @param strategyType 路由策略，未确定时为null
+     * @param dbKey        库键，如：db01
+     * @param tbKey        表后缀，如：001；不分表时为null
+     */
+    default void recordShardCall(String groupKey, StrategyType strategyType, String dbKey, String tbKey) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.wht.sdt.metrics;
+
+import com.wht.sdt.transaction.ShardTransactionMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片事务的Micrometer指标
+ * <ul>
+ *     <li>sdt.transaction.completions：结束的分片事务数（outcome=commit|rollback）</li>
+ *     <li>sdt.transaction.multi.shard：访问了多个分片的事务数</li>
+ *     <li>sdt.transaction.shards.enlisted：所有事务访问的分片总数</li>
+ *     <li>sdt.transaction.shards.max：单个事务访问的最大分片数</li>
+ *     <li>sdt.transaction.commit.failures：提交失败的事务数（partial=true 为部分分片已提交）</li>
+ *     <li>sdt.transaction.multi.shard.commit：多分片事务并行提交的耗时</li>
+ * </ul>
+ * 指标直接读取 {@link ShardTransactionMetrics} 中的累计值，事务执行时不访问MeterRegistry
+ *
+ * @author wht
+ */
+public class ShardTransactionMeters {
+
+    private final ShardTransactionMetrics metrics;
+
+    public ShardTransactionMeters(MeterRegistry registry, ShardTransactionMetrics metrics) {
+        this.metrics = metrics;
+
+        FunctionCounter.builder("sdt.transaction.completions", metrics, ShardTransactionMetrics::getCommits)
+                .description("已提交的分片事务数")
+                .tag("outcome", "commit")
+                .register(registry);
+        FunctionCounter.builder("sdt.transaction.completions", metrics, ShardTransactionMetrics::getRollbacks)
+                .description("已回滚的分片事务数")
+                .tag("outcome", "rollback")
+                .register(registry);
+        FunctionCounter.builder("sdt.transaction.multi.shard", metrics, ShardTransactionMetrics::getMultiShardTransactions)
+                .description("访问了多个分片的事务数")
+                .register(registry);
+        FunctionCounter.builder("sdt.transaction.shards.enlisted", metrics, ShardTransactionMetrics::getShardsEnlisted)
+                .description("所有事务访问的分片总数")
+                .register(registry);
+        Gauge.builder("sdt.transaction.shards.max", metrics, ShardTransactionMetrics::getMaxShards)
+                .description("单个事务访问的最大分片数")
+                .register(registry);
+        FunctionCounter.builder("sdt.transaction.commit.failures", metrics,
+                        m -> m.getCommitFailures() - m.getPartialCommits())
+                .description("所有分片都未提交的提交失败次数")
+                .tag("partial", "false")
+                .register(registry);
+        FunctionCounter.builder("sdt.transaction.commit.failures", metrics, ShardTransactionMetrics::getPartialCommits)
+                .description("部分分片已提交、部分分片提交失败的次数")
+                .tag("partial", "true")
+                .register(registry);
+        FunctionTimer.builder("sdt.transaction.multi.shard.commit", metrics,
+                        ShardTransactionMetrics::getMultiShardCommits,
+                        ShardTransactionMetrics::getMultiShardCommitNanos, TimeUnit.NANOSECONDS)
+                .description("多分片事务并行提交的耗时")
+                .register(registry);
+    }
+
+    public ShardTransactionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 端点展示的分片事务统计
+     */
+    Map<String, Object> summary() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("commits", metrics.getCommits());
+        result.put("rollbacks", metrics.getRollbacks());
+        result.put("multiShard", metrics.getMultiShardTransactions());
+        result.put("shardsEnlisted", metrics.getShardsEnlisted());
+        result.put("maxShards", metrics.getMaxShards());
+        result.put("commitFailures", metrics.getCommitFailures());
+        result.put("partialCommits", metrics.getPartialCommits());
+        long commits = metrics.getMultiShardCommits();
+        result.put("multiShardCommitMeanMillis",
+                commits == 0 ? 0.0 : metrics.getMultiShardCommitNanos() / (double) commits / 1_000_000);
+        return result;
+    }
+}
@@ -1,8 +1,12 @@
 package com.wht.sdt.properties;
 
 
+import com.wht.sdt.enumeration.LoadBalanceType;
+import com.wht.sdt.enumeration.PoolType;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class DataSourceConfig {
 
@@ -11,4 +15,64 @@ public class DataSourceConfig {
     private String username;
     private String password;
 
+    /**
+     * 连接池类型，默认Druid
+     */
+    private PoolType poolType = PoolType.DRUID;
+
+    /**
+     * 最大连接数
+     */
+    private Integer maxPoolSize;
+
+    /**
+     * 最小空闲连接数
+     */
+    private Integer minIdle;
+
+    /**
+     * 初始连接数（仅Druid）
+     */
+    private Integer initialSize;
+
+    /**
+     * 获取连接的最大等待时间（毫秒）
+     */
+    private Long connectionTimeout;
+
+    /**
+     * 空闲连接回收时间（毫秒）
+     */
+    private Long idleTimeout;
+
+    /**
+     * 连接最大存活时间（毫秒）
+     */
+    private Long maxLifetime;
+
+    /**
+     * 连接校验SQL，为空时使用JDBC4的isValid校验
+     */
+    private String validationQuery;
+
+    /**
+     * 空闲时校验连接（仅Druid）
+     */
+    private Boolean testWhileIdle;
+
+    /**
+     * 借出时校验连接（仅Druid）
+     */
+    private Boolean testOnBorrow;
+
+    /**
+     * 从库列表（不在事务中的查询语句路由到从库）
+     */
+    private List<ReplicaConfig> replicas;
+
+    /**
+     * 从库负载均衡策略，默认轮询
+     */
+    private LoadBalanceType loadBalance = LoadBalanceType.ROUND_ROBIN;
+
 }
@@ -1,8 +1,11 @@
 package com.wht.sdt.properties;
 
 
+import com.wht.sdt.enumeration.StrategyType;
 import lombok.Data;
 
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -22,11 +25,35 @@ public class DataSourceGroup {
      */
     private Map<String, Integer> tbCounts;
 
+    /**
+     * 绑定表组，如：[[t_order, t_order_item]]
+     * 同一组的表分表数量必须相同（或按相同的粒度、时区按时间分表），同一路由字段值始终使用相同的表后缀，
+     * 组内表的JOIN只在一对物理表上执行；每个表最多属于一个组
+     */
+    private List<List<String>> bindingTables;
+
+    /**
+     * 按时间分表的表（表名 -> 分表粒度、时区），物理表名为 表名_周期，如：order_202610；
+     * 这些表不需要配置在 tbCounts 中
+     */
+    private Map<String, TimePartitionProperties> timePartitions;
+
+    /**
+     * TIME_BASED路由策略把时间戳换算为日期使用的时区，如：Asia/Shanghai
+     * 为空时使用 time-partitions 中各表共同配置的时区（各表时区不同或都未配置时使用系统默认时区）
+     */
+    private String timeZone;
+
     /**
      * 路由字段
      */
     private String routerKey;
 
+    /**
+     * 默认路由策略（@SplitDT未指定策略时使用），为空时使用HASH
+     */
+    private StrategyType strategy;
+
     /**
      * 数据源配置列表
      * key: db01, db02, ...
@@ -34,6 +61,74 @@ public class DataSourceGroup {
      */
     private Map<String, DataSourceConfig> dataSource;
 
+    /**
+     * 一致性哈希每个节点（权重为1时）的虚拟节点数量，为空时使用默认值150
+     */
+    private Integer virtualNodeCount;
+
+    /**
+     * 数据源权重（用于一致性哈希分库）
+     * key: db01, db02, ...
+     * value: 权重，未配置的数据源权重为1，节点的虚拟节点数量 = virtualNodeCount * 权重
+     */
+    private Map<String, Integer> weights;
+
+    /**
+     * 目录路由配置（DIRECTORY策略使用）
+     */
+    private DirectoryProperties directory;
+
+    /**
+     * 扩容（分片迁移）配置
+     */
+    private ReshardingProperties resharding;
+
+    /**
+     * 是否正在进行分片迁移
+     */
+    public boolean reshardingEnabled() {
+        return enableSplit && resharding != null && resharding.isEnabled();
+    }
+
+
+    /**
+     * 是否配置了按时间分表的表
+     */
+    public boolean hasTimePartitions() {
+        return timePartitions != null && !timePartitions.isEmpty();
+    }
+
+    /**
+     * TIME_BASED路由策略实际使用的时区
+     *
+     * @return 时区，为null时使用系统默认时区
+     */
+    public String timeBasedZone() {
+        if (timeZone != null && !timeZone.isEmpty()) {
+            return timeZone;
+        }
+        if (!hasTimePartitions()) {
+            return null;
+        }
+        String zone = null;
+        for (TimePartitionProperties partition : timePartitions.values()) {
+            String partitionZone = partition.getZone() == null || partition.getZone().isEmpty()
+                    ? null : partition.getZone();
+            if (partitionZone == null || (zone != null && !zone.equals(partitionZone))) {
+                return null;
+            }
+            zone = partitionZone;
+        }
+        return zone;
+    }
+
+    public void setTimeZone(String timeZone) {
+        if (timeZone != null && !timeZone.isEmpty()) {
+            // 启动（或热加载）时校验时区
+            ZoneId.of(timeZone);
+        }
+        this.timeZone = timeZone;
+    }
 
     public boolean getEnableSplit() {
         return enableSplit;
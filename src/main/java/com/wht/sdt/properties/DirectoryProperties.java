@@ -0,0 +1,31 @@
+package com.wht.sdt.properties;
+
+
+import com.wht.sdt.enumeration.StrategyType;
+import lombok.Data;
+
+/**
+ * 目录路由配置（DIRECTORY策略）
+ * 路由字段值 -> (库, 表) 的映射保存在本地索引文件中，未映射的值使用回退策略计算
+ *
+ * @author wht
+ */
+@Data
+public class DirectoryProperties {
+
+    /**
+     * 索引文件路径（由 DirectoryIndex.Writer 或 DirectoryIndex.convert 生成）
+     */
+    private String indexFile;
+
+    /**
+     * 未映射的值使用的路由策略（只支持内置策略，不能为DIRECTORY）
+     */
+    private StrategyType fallback = StrategyType.HASH;
+
+    /**
+     * 检查索引文件修改的间隔（毫秒），文件修改后重新加载；小于等于0时不检查
+     */
+    private long pollInterval = 5000;
+
+}
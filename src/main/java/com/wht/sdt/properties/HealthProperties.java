@@ -0,0 +1,76 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+/**
+ * 分片健康检查与熔断配置
+ *
+ * @author wht
+ */
+@Data
+public class HealthProperties {
+
+    /**
+     * 是否启用健康检查和熔断（启用后每个分片包装为ShardDataSource，并定时借用连接做健康检查）
+     */
+    private boolean enabled;
+
+    /**
+     * 健康检查间隔（毫秒）
+     */
+    private long probeInterval = 5000;
+
+    /**
+     * 健康检查超时时间（秒）：校验SQL的查询超时（未配置 validation-query 时为 Connection.isValid 的参数），
+     * 也是单次检查（获取连接 + 校验）的最长等待时间，超时计为失败
+     */
+    private int probeTimeout = 3;
+
+    /**
+     * 连续多少次健康检查失败后熔断
+     */
+    private int probeFailureThreshold = 3;
+
+    /**
+     * 统计窗口（秒）
+     */
+    private int windowSeconds = 10;
+
+    /**
+     * 统计窗口内至少多少次请求才按错误率熔断
+     */
+    private int minRequests = 20;
+
+    /**
+     * 熔断的错误率阈值（0~1）
+     */
+    private double errorRateThreshold = 0.5;
+
+    /**
+     * 获取连接超过该时间（毫秒）计为失败，0表示不按耗时判断
+     */
+    private long slowCallThreshold = 0;
+
+    /**
+     * 熔断持续时间（毫秒），之后放行试探请求
+     */
+    private long openDuration = 30000;
+
+    /**
+     * 试探状态最多同时放行的请求数
+     */
+    private int halfOpenPermits = 3;
+
+    /**
+     * 试探请求的超时时间（毫秒），超时未结束视为失败并重新熔断
+     */
+    private long halfOpenTimeout = 5000;
+
+    /**
+     * 数据源未配置 connection-timeout 时获取连接的最大等待时间（毫秒）。
+     * 启用熔断时获取连接必须有超时：Druid默认无限等待，连接池耗尽时请求线程堆积、熔断器也统计不到失败
+     */
+    private long acquireTimeout = 3000;
+
+}
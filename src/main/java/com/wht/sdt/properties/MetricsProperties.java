@@ -0,0 +1,24 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+/**
+ * 监控指标配置
+ * 存在Micrometer的MeterRegistry Bean时自动记录路由耗时、SQL改写耗时、分片调用次数和连接池状态
+ *
+ * @author wht
+ */
+@Data
+public class MetricsProperties {
+
+    /**
+     * 是否启用监控指标
+     */
+    private boolean enabled = true;
+
+    /**
+     * 路由耗时、SQL改写耗时是否发布直方图（用于在监控系统中计算分位数）
+     */
+    private boolean histogram = false;
+}
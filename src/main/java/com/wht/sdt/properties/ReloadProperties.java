@@ -0,0 +1,30 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+/**
+ * 路由拓扑热加载配置
+ *
+ * @author wht
+ */
+@Data
+public class ReloadProperties {
+
+    /**
+     * 监听的配置文件（yml/yaml/properties），文件修改后重新加载数据源组配置，为空时不监听
+     * 文件中的配置项与应用配置相同，前缀为 split-database-table.sdt.router
+     */
+    private String configFile;
+
+    /**
+     * 检查配置文件是否修改的间隔（毫秒）
+     */
+    private long pollInterval = 5000;
+
+    /**
+     * 下线的连接池等待正在执行的请求结束的最长时间（毫秒），超时后强制关闭
+     */
+    private long drainTimeout = 30000;
+
+}
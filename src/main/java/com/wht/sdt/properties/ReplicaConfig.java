@@ -0,0 +1,29 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+/**
+ * 从库配置
+ * 未配置的项（驱动、用户名、密码、连接池参数）继承所属主库的配置
+ *
+ * @author wht
+ */
+@Data
+public class ReplicaConfig {
+
+    private String url;
+    private String username;
+    private String password;
+
+    /**
+     * 最大连接数
+     */
+    private Integer maxPoolSize;
+
+    /**
+     * 最小空闲连接数
+     */
+    private Integer minIdle;
+
+}
@@ -0,0 +1,84 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据源组扩容（分片迁移）配置
+ * 启用后路由同时计算旧分片（dbCount、tbCounts）和新分片（本配置的目标数量）：
+ * 写语句同时写入新旧分片，读语句在回填校验完成前读旧分片、完成后读新分片
+ *
+ * @author wht
+ */
+@Data
+public class ReshardingProperties {
+
+    /**
+     * 是否启用分片迁移
+     */
+    private boolean enabled;
+
+    /**
+     * 目标分库数量，为空时不变
+     */
+    private Integer dbCount;
+
+    /**
+     * 目标分表数量（表名 -> 分表数量），为空时不变
+     */
+    private Map<String, Integer> tbCounts;
+
+    /**
+     * 是否直接从新分片读取（回填完成后通过配置固定读新分片，重启后仍然生效）
+     */
+    private boolean readFromTarget;
+
+    /**
+     * 需要回填的表（逻辑表名），为空时使用新旧分表配置中的所有表
+     */
+    private List<String> tables;
+
+    /**
+     * 表中路由字段对应的列名（回填时按该列计算新分片）
+     */
+    private String routeColumn;
+
+    /**
+     * 主键列名（回填按主键分页）
+     */
+    private String primaryKey = "id";
+
+    /**
+     * 回填每批读取的行数
+     */
+    private int batchSize = 500;
+
+    /**
+     * 回填每秒最多处理的行数，0表示不限制
+     */
+    private int maxRowsPerSecond = 0;
+
+    /**
+     * 校验和清理的最大轮数：每轮修复了行时重新执行一轮，直到某一轮没有修复任何行才标记为已迁移，
+     * 超过该轮数仍有修复（双写持续修改同一批行）时回填失败
+     */
+    private int maxVerifyPasses = 5;
+
+    /**
+     * 目标分库数量
+     */
+    public int targetDbCount(DataSourceGroup group) {
+        return dbCount != null && dbCount > 0 ? dbCount : group.getDbCount();
+    }
+
+    /**
+     * 目标分表数量配置
+     */
+    public Map<String, Integer> targetTbCounts(DataSourceGroup group) {
+        return tbCounts != null ? tbCounts : group.getTbCounts();
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.wht.sdt.properties;
 
+import com.wht.sdt.enumeration.StrategyType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -12,9 +13,64 @@ import java.util.Map;
  * @author wht
  */
 @Data
-@ConfigurationProperties(prefix = "split-database-table.sdt.router")
+@ConfigurationProperties(prefix = RouterGroupProperties.PREFIX)
 public class RouterGroupProperties {
 
+    /**
+     * 配置项前缀
+     */
+    public static final String PREFIX = "split-database-table.sdt.router";
+
     private Map<String, DataSourceGroup> groups;
 
+    /**
+     * SQL改写缓存配置
+     */
+    private SqlCacheProperties sqlCache = new SqlCacheProperties();
+
+    /**
+     * 广播查询配置
+     */
+    private ScatterProperties scatter = new ScatterProperties();
+
+    /**
+     * 方法参数中没有路由字段时，是否从SQL的WHERE条件（或INSERT的列）中解析路由字段值
+     * 启用后数据源连接总是延迟到执行SQL时获取
+     */
+    private boolean sqlRouteFallback = false;
+
+    /**
+     * 是否延迟获取数据源连接：第一次创建Statement时才从分片连接池获取物理连接，
+     * 注解方法（或事务）中执行SQL之前的非数据库操作不占用连接
+     */
+    private boolean lazyConnection = true;
+
+    /**
+     * 是否使用分片事务管理器：事务内每个访问到的分片绑定独立连接，结束时并行提交
+     * 关闭时使用DataSourceTransactionManager，事务内所有语句使用第一次获取的连接（访问其他分片的语句会落到该连接的库上）
+     */
+    private boolean shardTransaction = true;
+
+    /**
+     * 分片健康检查与熔断配置
+     */
+    private HealthProperties health = new HealthProperties();
+
+    /**
+     * 路由拓扑热加载配置
+     */
+    private ReloadProperties reload = new ReloadProperties();
+
+    /**
+     * 监控指标配置（存在MeterRegistry时生效）
+     */
+    private MetricsProperties metrics = new MetricsProperties();
+
+    /**
+     * 自定义路由策略绑定
+     * key: 策略类型（如：CUSTOM_1）
+     * value: 实现了RouterStrategy的Bean名称
+     */
+    private Map<StrategyType, String> customStrategies;
+
 }
@@ -0,0 +1,45 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+/**
+ * 广播查询（分片并行执行）配置
+ *
+ * @author wht
+ */
+@Data
+public class ScatterProperties {
+
+    /**
+     * 最大并发执行的分片查询数量
+     */
+    private int maxConcurrency = 32;
+
+    /**
+     * 默认超时时间（毫秒）
+     */
+    private long timeout = 10000;
+
+    /**
+     * 运行在Java 21及以上版本时是否使用虚拟线程
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * 方法参数中没有路由字段值时，是否按SQL中路由字段的范围条件（BETWEEN、&gt;、&lt;等）只在覆盖的分片上执行
+     */
+    private boolean rangePruning = true;
+
+    /**
+     * 范围条件裁剪时最多枚举的值（按时间路由时为天数，否则为整数个数），超过时不裁剪
+     */
+    private int rangeMaxValues = 1024;
+
+    /**
+     * 范围条件解析结果的缓存条目数（按语句 + SQL缓存）
+     * 与SQL改写缓存（sql-cache.max-size）分开配置：只缓存参数中没有路由字段值的语句，条目数通常少得多
+     */
+    private int rangeCacheSize = 2048;
+
+}
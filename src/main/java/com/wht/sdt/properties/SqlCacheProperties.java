@@ -0,0 +1,30 @@
+package com.wht.sdt.properties;
+
+
+import lombok.Data;
+
+/**
+ * SQL改写缓存配置
+ *
+ * @author wht
+ */
+@Data
+public class SqlCacheProperties {
+
+    /**
+     * 是否启用SQL改写缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存最大条目数
+     */
+    private int maxSize = 10000;
+
+    /**
+     * 是否使用SQL模板模式
+     * 开启后每条SQL只解析一次并记录表名位置，任意表后缀均通过拼接生成，缓存的是模板而非最终SQL
+     */
+    private boolean templateEnabled = true;
+
+}
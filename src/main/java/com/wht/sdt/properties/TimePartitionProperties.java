@@ -0,0 +1,36 @@
+package com.wht.sdt.properties;
+
+
+import com.wht.sdt.enumeration.TimeGranularity;
+import lombok.Data;
+
+import java.time.ZoneId;
+
+/**
+ * 按时间分表配置
+ * 表按路由字段值（时间）所在的周期分表，物理表名为 表名_周期，如：order_202610、log_20261017
+ *
+ * @author wht
+ */
+@Data
+public class TimePartitionProperties {
+
+    /**
+     * 分表粒度
+     */
+    private TimeGranularity granularity = TimeGranularity.MONTH;
+
+    /**
+     * 时区（如：Asia/Shanghai、UTC），为空时使用系统默认时区
+     */
+    private String zone;
+
+    public void setZone(String zone) {
+        if (zone != null && !zone.isEmpty()) {
+            // 启动（或热加载）时校验时区
+            ZoneId.of(zone);
+        }
+        this.zone = zone;
+    }
+
+}
@@ -0,0 +1,736 @@
+package com.wht.sdt.resharding;
+
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.config.bean.RoutingSnapshot;
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.ReshardingProperties;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * 分片迁移回填任务
+ * 按主键分页（WHERE pk &gt; ? ORDER BY pk LIMIT n）流式读取旧分片的每张物理表，按路由列计算新分片，
+ * 分三个阶段执行：
+ * <ol>
+ *     <li>复制：新分片中不存在的行插入新分片（已由双写写入的行跳过，插入时主键冲突的行同样跳过）</li>
+ *     <li>校验：逐批比较新旧分片的行，缺失或不一致的行在旧分片上加锁（SELECT ... FOR UPDATE）后
+ *     按旧分片的最新数据重新复制</li>
+ *     <li>清理：在新分片上锁定旧分片中查不到的行，加锁后再次确认旧分片中不存在才删除</li>
+ * </ol>
+ * 校验和清理重复执行，直到某一轮没有修复任何行（最多 resharding.max-verify-passes 轮）。
+ * 新旧分片为同一物理表的行不复制。回填期间写语句由切面双写（先写旧分片再写新分片），旧分片始终是准确数据
+ *
+ * @author wht
+ */
+@Slf4j
+class BackfillJob implements Callable<BackfillProgress> {
+
+    private final RoutingRegistry routingRegistry;
+
+    private final RoutingSnapshot snapshot;
+
+    private final String groupKey;
+
+    private final BackfillProgress progress;
+
+    /**
+     * 路由策略（数据源组的默认策略）
+     */
+    private final RouterStrategy strategy;
+
+    private final int dbCount;
+
+    private final Map<String, Integer> tbCounts;
+
+    private final int targetDbCount;
+
+    private final Map<String, Integer> targetTbCounts;
+
+    private final Set<String> tables;
+
+    private final String primaryKey;
+
+    private final String routeColumn;
+
+    private final int batchSize;
+
+    private final int maxRowsPerSecond;
+
+    private final int maxVerifyPasses;
+
+    private long throttleStart;
+
+    private long throttled;
+
+    BackfillJob(RoutingRegistry routingRegistry, RoutingSnapshot snapshot, String groupKey, BackfillProgress progress) {
+        this.routingRegistry = routingRegistry;
+        this.snapshot = snapshot;
+        this.groupKey = groupKey;
+        this.progress = progress;
+
+        DataSourceGroup group = snapshot.getGroup(groupKey);
+        ReshardingProperties resharding = group.getResharding();
+        if (resharding.getRouteColumn() == null || resharding.getRouteColumn().isEmpty()) {
+            throw new IllegalStateException("未配置分片迁移的路由列（resharding.route-column）: " + groupKey);
+        }
+
+        StrategyType strategyType = group.getStrategy() == null || group.getStrategy() == StrategyType.DEFAULT
+                ? StrategyType.HASH : group.getStrategy();
+        this.strategy = snapshot.getStrategy(strategyType);
+        if (strategy == null) {
+            throw new IllegalStateException("未找到路由策略: " + strategyType);
+        }
+
+        this.dbCount = group.getDbCount();
+        this.tbCounts = group.getTbCounts() == null ? Map.of() : group.getTbCounts();
+        this.targetDbCount = resharding.targetDbCount(group);
+        Map<String, Integer> target = resharding.targetTbCounts(group);
+        this.targetTbCounts = target == null ? Map.of() : target;
+
+        this.tables = new LinkedHashSet<>();
+        if (resharding.getTables() != null && !resharding.getTables().isEmpty()) {
+            tables.addAll(resharding.getTables());
+        } else {
+            tables.addAll(tbCounts.keySet());
+            tables.addAll(targetTbCounts.keySet());
+        }
+        if (tables.isEmpty()) {
+            throw new IllegalStateException("未配置需要回填的表（resharding.tables）: " + groupKey);
+        }
+
+        this.primaryKey = resharding.getPrimaryKey().toLowerCase(Locale.ROOT);
+        this.routeColumn = resharding.getRouteColumn().toLowerCase(Locale.ROOT);
+        this.batchSize = Math.max(1, resharding.getBatchSize());
+        this.maxRowsPerSecond = resharding.getMaxRowsPerSecond();
+        this.maxVerifyPasses = Math.max(1, resharding.getMaxVerifyPasses());
+    }
+
+    BackfillProgress getProgress() {
+        return progress;
+    }
+
+    @Override
+    public BackfillProgress call() {
+        throttleStart = System.nanoTime();
+        // 回填期间固定使用启动时的快照，热加载不会关闭正在使用的连接池
+        try (RoutingRegistry.Pin pin = routingRegistry.pin(snapshot)) {
+            for (String table : tables) {
+                for (ShardTarget source : shards(table, dbCount, tbCounts)) {
+                    copy(table, source);
+                }
+            }
+            // 校验期间双写仍在修改数据，某一轮修复了行时再校验一轮，直到没有任何修复
+            for (int pass = 1; ; pass++) {
+                progress.setPasses(pass);
+                long fixed = 0;
+                progress.setPhase("verify");
+                for (String table : tables) {
+                    for (ShardTarget source : shards(table, dbCount, tbCounts)) {
+                        fixed += verify(table, source);
+                    }
+                }
+                progress.setPhase("sweep");
+                for (String table : tables) {
+                    for (ShardTarget target : shards(table, targetDbCount, targetTbCounts)) {
+                        fixed += sweep(table, target);
+                    }
+                }
+                if (fixed == 0) {
+                    break;
+                }
+                if (pass >= maxVerifyPasses) {
+                    throw new IllegalStateException("回填校验未收敛: " + groupKey + " 执行 " + pass
+                            + " 轮校验后仍有不一致的行（最后一轮 " + fixed + " 行），请在写入较少时重新执行回填");
+                }
+                log.info("Backfill pass {} of {} fixed {} rows, verifying again", pass, groupKey, fixed);
+            }
+            progress.complete();
+        } catch (Exception e) {
+            log.error("Backfill of {} failed: {}", groupKey, progress, e);
+            progress.fail(e);
+        } finally {
+            SDTContext.clearAll();
+        }
+        return progress;
+    }
+
+    /**
+     * 复制旧分片中的一张物理表
+     */
+    private void copy(String table, ShardTarget source) throws SQLException {
+        Placement from = new Placement(source.dbKey(), physicalTable(table, tbCounts, source.tbKey()));
+        DataSource sourceDataSource = dataSource(from.dbKey());
+        Object after = null;
+        while (true) {
+            List<Map<String, Object>> rows = readBatch(sourceDataSource, from.table(), "*", after);
+            if (rows.isEmpty()) {
+                break;
+            }
+            after = rows.get(rows.size() - 1).get(primaryKey);
+            progress.addScanned(rows.size());
+
+            for (Map.Entry<Placement, List<Map<String, Object>>> entry : groupByTarget(table, from, rows).entrySet()) {
+                Placement to = entry.getKey();
+                DataSource targetDataSource = dataSource(to.dbKey());
+                List<Map<String, Object>> moved = entry.getValue();
+                Set<Object> existing = readByKeys(targetDataSource, to.table(), primaryKey, keys(moved)).keySet();
+                List<Map<String, Object>> missing = new ArrayList<>(moved.size());
+                for (Map<String, Object> row : moved) {
+                    if (!existing.contains(row.get(primaryKey))) {
+                        missing.add(row);
+                    }
+                }
+                int inserted = insert(targetDataSource, to.table(), missing);
+                progress.addCopied(inserted);
+                progress.addExisting(moved.size() - inserted);
+            }
+
+            throttle(rows.size());
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        log.debug("Backfill copied {}.{} of {}", from.dbKey(), from.table(), groupKey);
+    }
+
+    /**
+     * 校验旧分片中的一张物理表，缺失或不一致的行按旧分片的最新数据重新复制
+     *
+     * @return 修复的行数
+     */
+    private long verify(String table, ShardTarget source) throws SQLException {
+        Placement from = new Placement(source.dbKey(), physicalTable(table, tbCounts, source.tbKey()));
+        DataSource sourceDataSource = dataSource(from.dbKey());
+        long fixed = 0;
+        Object after = null;
+        while (true) {
+            List<Map<String, Object>> rows = readBatch(sourceDataSource, from.table(), "*", after);
+            if (rows.isEmpty()) {
+                break;
+            }
+            after = rows.get(rows.size() - 1).get(primaryKey);
+
+            for (Map.Entry<Placement, List<Map<String, Object>>> entry : groupByTarget(table, from, rows).entrySet()) {
+                Placement to = entry.getKey();
+                DataSource targetDataSource = dataSource(to.dbKey());
+                List<Map<String, Object>> moved = entry.getValue();
+                Map<Object, Map<String, Object>> copies = readByKeys(targetDataSource, to.table(), "*", keys(moved));
+                List<Object> mismatched = new ArrayList<>();
+                for (Map<String, Object> row : moved) {
+                    Object key = row.get(primaryKey);
+                    if (!sameRow(row, copies.get(key))) {
+                        mismatched.add(key);
+                    }
+                }
+                if (!mismatched.isEmpty()) {
+                    int repaired = repair(sourceDataSource, from, targetDataSource, to, mismatched);
+                    progress.addRepaired(repaired);
+                    fixed += repaired;
+                }
+                progress.addVerified(moved.size());
+            }
+
+            throttle(rows.size());
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        return fixed;
+    }
+
+    /**
+     * 按旧分片的最新数据修复新分片中的行：先在旧分片上锁定这些行（SELECT ... FOR UPDATE），
+     * 持有锁期间双写无法修改旧分片，再重新比较新分片并覆盖仍不一致的行，新分片提交后才释放旧分片的锁。
+     * 避免读取旧分片之后、覆盖新分片之前双写的修改被覆盖
+     *
+     * @return 加锁后仍不一致、已覆盖的行数；新分片出现主键冲突（双写同时插入）时回滚并返回行数，由下一轮重新校验
+     */
+    private int repair(DataSource sourceDataSource, Placement from, DataSource targetDataSource, Placement to,
+                       List<Object> keys) throws SQLException {
+        try {
+            return inTransaction(sourceDataSource, source -> {
+                Map<Object, Map<String, Object>> latest = readByKeys(source, from.table(), "*", keys, true);
+                return inTransaction(targetDataSource, target -> {
+                    Map<Object, Map<String, Object>> copies = readByKeys(target, to.table(), "*", keys, true);
+                    List<Object> stale = new ArrayList<>();
+                    List<Map<String, Object>> rows = new ArrayList<>();
+                    for (Object key : keys) {
+                        Map<String, Object> row = latest.get(key);
+                        Map<String, Object> copy = copies.get(key);
+                        if (row == null ? copy != null : !sameRow(row, copy)) {
+                            stale.add(key);
+                            if (row != null) {
+                                rows.add(row);
+                            }
+                        }
+                    }
+                    delete(target, to.table(), stale);
+                    insert(target, to.table(), rows);
+                    return stale.size();
+                });
+            });
+        } catch (SQLException e) {
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+            log.debug("Backfill repair of {}.{} conflicted with a dual write, retrying in the next pass",
+                    to.dbKey(), to.table(), e);
+            return keys.size();
+        }
+    }
+
+    /**
+     * 清理新分片中的一张物理表：删除旧分片中已不存在的行
+     *
+     * @return 删除的行数
+     */
+    private long sweep(String table, ShardTarget target) throws SQLException {
+        Placement to = new Placement(target.dbKey(), physicalTable(table, targetTbCounts, target.tbKey()));
+        DataSource targetDataSource = dataSource(to.dbKey());
+        long fixed = 0;
+        Object after = null;
+        while (true) {
+            List<Map<String, Object>> rows = readBatch(targetDataSource, to.table(),
+                    primaryKey + ", " + routeColumn, after);
+            if (rows.isEmpty()) {
+                break;
+            }
+            after = rows.get(rows.size() - 1).get(primaryKey);
+
+            Map<Placement, List<Object>> bySource = new LinkedHashMap<>();
+            for (Map<String, Object> row : rows) {
+                ShardTarget source = ShardTarget.locate(strategy, groupKey, routeValue(table, row), dbCount,
+                        tbCount(tbCounts, table));
+                Placement from = new Placement(source.dbKey(), physicalTable(table, tbCounts, source.tbKey()));
+                if (!from.equals(to)) {
+                    bySource.computeIfAbsent(from, k -> new ArrayList<>()).add(row.get(primaryKey));
+                }
+            }
+            for (Map.Entry<Placement, List<Object>> entry : bySource.entrySet()) {
+                Placement from = entry.getKey();
+                DataSource sourceDataSource = dataSource(from.dbKey());
+                Set<Object> existing = readByKeys(sourceDataSource, from.table(), primaryKey,
+                        entry.getValue()).keySet();
+                List<Object> candidates = new ArrayList<>();
+                for (Object key : entry.getValue()) {
+                    if (!existing.contains(key)) {
+                        candidates.add(key);
+                    }
+                }
+                if (!candidates.isEmpty()) {
+                    int removed = removeOrphans(sourceDataSource, from, targetDataSource, to, candidates);
+                    progress.addRemoved(removed);
+                    fixed += removed;
+                }
+            }
+
+            throttle(rows.size());
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        return fixed;
+    }
+
+    /**
+     * 删除新分片中的孤儿行：先在新分片上锁定这些行，再次确认旧分片中不存在后删除。
+     * 双写先写旧分片再写新分片，加锁后仍查不到的行不会被之前的双写重新写入，
+     * 之后的双写会等待锁释放后再写新分片
+     *
+     * @return 删除的行数
+     */
+    private int removeOrphans(DataSource sourceDataSource, Placement from, DataSource targetDataSource,
+                              Placement to, List<Object> candidates) throws SQLException {
+        return inTransaction(targetDataSource, target -> {
+            List<Object> locked = new ArrayList<>(readByKeys(target, to.table(), primaryKey, candidates, true)
+                    .keySet());
+            locked.removeAll(readByKeys(sourceDataSource, from.table(), primaryKey, locked).keySet());
+            delete(target, to.table(), locked);
+            return locked.size();
+        });
+    }
+
+    /**
+     * 按新分片分组，新旧分片为同一物理表的行不需要复制
+     */
+    private Map<Placement, List<Map<String, Object>>> groupByTarget(String table, Placement from,
+                                                                    List<Map<String, Object>> rows) {
+        Map<Placement, List<Map<String, Object>>> groups = new LinkedHashMap<>();
+        int unchanged = 0;
+        for (Map<String, Object> row : rows) {
+            ShardTarget target = ShardTarget.locate(strategy, groupKey, routeValue(table, row),
+                    targetDbCount, tbCount(targetTbCounts, table));
+            Placement to = new Placement(target.dbKey(), physicalTable(table, targetTbCounts, target.tbKey()));
+            if (to.equals(from)) {
+                unchanged++;
+            } else {
+                groups.computeIfAbsent(to, k -> new ArrayList<>()).add(row);
+            }
+        }
+        if (progress.getPhase().equals("copy")) {
+            progress.addUnchanged(unchanged);
+        }
+        return groups;
+    }
+
+    private String routeValue(String table, Map<String, Object> row) {
+        Object value = row.get(routeColumn);
+        if (value == null) {
+            throw new IllegalStateException("路由列为空: " + table + "." + routeColumn + ", " + primaryKey + "="
+                    + row.get(primaryKey));
+        }
+        return value.toString();
+    }
+
+    private List<Map<String, Object>> readBatch(DataSource dataSource, String table, String columns, Object after)
+            throws SQLException {
+        String sql = "SELECT " + columns + " FROM " + table
+                + (after != null ? " WHERE " + primaryKey + " > ?" : "")
+                + " ORDER BY " + primaryKey + " LIMIT " + batchSize;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (after != null) {
+                statement.setObject(1, after);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                List<Map<String, Object>> rows = new ArrayList<>(batchSize);
+                while (resultSet.next()) {
+                    rows.add(readRow(resultSet));
+                }
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * 按主键读取行
+     *
+     * @return 主键 -> 行
+     */
+    private Map<Object, Map<String, Object>> readByKeys(DataSource dataSource, String table, String columns,
+                                                        List<Object> keys) throws SQLException {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            return readByKeys(connection, table, columns, keys, false);
+        }
+    }
+
+    /**
+     * 按主键读取行
+     *
+     * @param forUpdate 是否锁定读取的行（SELECT ... FOR UPDATE，需要在事务中调用）
+     * @return 主键 -> 行
+     */
+    private Map<Object, Map<String, Object>> readByKeys(Connection connection, String table, String columns,
+                                                        List<Object> keys, boolean forUpdate) throws SQLException {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        String sql = "SELECT " + columns + " FROM " + table + " WHERE " + primaryKey + " IN (" + placeholders(keys.size()) + ")"
+                + (forUpdate ? " FOR UPDATE" : "");
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < keys.size(); i++) {
+                statement.setObject(i + 1, keys.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                Map<Object, Map<String, Object>> rows = new HashMap<>();
+                while (resultSet.next()) {
+                    Map<String, Object> row = readRow(resultSet);
+                    rows.put(row.get(primaryKey), row);
+                }
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * 插入行，主键已存在的行跳过（读取新分片之后、插入之前可能已由双写写入）
+     *
+     * @return 插入的行数
+     */
+    private int insert(DataSource dataSource, String table, List<Map<String, Object>> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + placeholders(columns.size()) + ")";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int inserted = 0;
+            List<Map<String, Object>> remaining = rows;
+            try {
+                for (Map<String, Object> row : rows) {
+                    bind(statement, columns, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                return rows.size();
+            } catch (BatchUpdateException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                // 驱动返回了已执行的行的结果：失败的行需要确认主键已存在，未执行的行逐行插入
+                int[] counts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                int executed = Math.min(counts.length, rows.size());
+                List<Object> failed = new ArrayList<>();
+                for (int i = 0; i < executed; i++) {
+                    if (counts[i] == Statement.EXECUTE_FAILED) {
+                        failed.add(rows.get(i).get(primaryKey));
+                    } else {
+                        inserted++;
+                    }
+                }
+                if (readByKeys(dataSource, table, primaryKey, failed).size() < failed.size()) {
+                    throw e;
+                }
+                remaining = rows.subList(executed, rows.size());
+                statement.clearBatch();
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                statement.clearBatch();
+            }
+
+            // 逐行插入，主键已存在的行跳过，其他约束错误抛出
+            for (Map<String, Object> row : remaining) {
+                bind(statement, columns, row);
+                try {
+                    statement.executeUpdate();
+                    inserted++;
+                } catch (SQLException e) {
+                    Object key = row.get(primaryKey);
+                    if (!isConstraintViolation(e)
+                            || readByKeys(dataSource, table, primaryKey, List.of(key)).isEmpty()) {
+                        throw e;
+                    }
+                }
+            }
+            return inserted;
+        }
+    }
+
+    /**
+     * 在事务中批量插入行，任何错误（包括主键冲突）都抛出并由调用方回滚
+     */
+    private static void insert(Connection connection, String table, List<Map<String, Object>> rows)
+            throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + placeholders(columns.size()) + ")";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map<String, Object> row : rows) {
+                bind(statement, columns, row);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void bind(PreparedStatement statement, List<String> columns, Map<String, Object> row)
+            throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            statement.setObject(i + 1, row.get(columns.get(i)));
+        }
+    }
+
+    /**
+     * 是否违反完整性约束（SQLState 23xxx，包括主键冲突）
+     */
+    private static boolean isConstraintViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current instanceof SQLIntegrityConstraintViolationException
+                    || (current.getSQLState() != null && current.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void delete(Connection connection, String table, List<Object> keys) throws SQLException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM " + table + " WHERE " + primaryKey + " IN (" + placeholders(keys.size()) + ")";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < keys.size(); i++) {
+                statement.setObject(i + 1, keys.get(i));
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * 在一个本地事务中执行：成功时提交，失败时回滚，结束后恢复连接的自动提交设置
+     */
+    private static <T> T inTransaction(DataSource dataSource, SqlWork<T> work) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                T result = work.apply(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * 读取当前行，列名统一为小写
+     */
+    private static Map<String, Object> readRow(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            row.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), resultSet.getObject(i));
+        }
+        return row;
+    }
+
+    private static boolean sameRow(Map<String, Object> source, Map<String, Object> copy) {
+        if (copy == null) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            Object value = entry.getValue();
+            Object copied = copy.get(entry.getKey());
+            if (value instanceof BigDecimal decimal && copied instanceof BigDecimal copiedDecimal) {
+                if (decimal.compareTo(copiedDecimal) != 0) {
+                    return false;
+                }
+            } else if (!Objects.deepEquals(value, copied)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Object> keys(List<Map<String, Object>> rows) {
+        List<Object> keys = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            keys.add(row.get(primaryKey));
+        }
+        return keys;
+    }
+
+    private DataSource dataSource(String dbKey) {
+        DataSource dataSource = snapshot.getRoutingTable().getDataSource(groupKey, dbKey);
+        if (dataSource == null) {
+            throw new IllegalStateException("未找到数据源配置: " + groupKey + "." + dbKey);
+        }
+        return dataSource;
+    }
+
+    /**
+     * 按每秒最大行数限速
+     */
+    private void throttle(int rows) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("回填任务已中断: " + groupKey);
+        }
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        throttled += rows;
+        long expectedNanos = throttled * 1_000_000_000L / maxRowsPerSecond;
+        long sleepMillis = (expectedNanos - (System.nanoTime() - throttleStart)) / 1_000_000L;
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("回填任务已中断: " + groupKey, e);
+            }
+        }
+    }
+
+    /**
+     * 表的所有物理分片
+     */
+    private static List<ShardTarget> shards(String table, int dbCount, Map<String, Integer> tbCounts) {
+        Integer count = tbCounts.get(table);
+        List<ShardTarget> shards = new ArrayList<>();
+        for (int db = 1; db <= dbCount; db++) {
+            if (count == null || count <= 1) {
+                shards.add(new ShardTarget(ShardKeys.dbKey(db), null));
+                continue;
+            }
+            for (int tb = 1; tb <= count; tb++) {
+                shards.add(new ShardTarget(ShardKeys.dbKey(db), ShardKeys.tbKey(tb)));
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * 物理表名（与 SqlTableReplacer 的改写规则一致：分表数量大于1时追加表后缀）
+     */
+    private static String physicalTable(String table, Map<String, Integer> tbCounts, String tbKey) {
+        Integer count = tbCounts.get(table);
+        return count != null && count > 1 && tbKey != null ? table + "_" + tbKey : table;
+    }
+
+    /**
+     * 表的分表数量（按表自己的分表数量计算表后缀），不分表时为0
+     */
+    private static int tbCount(Map<String, Integer> tbCounts, String table) {
+        Integer count = tbCounts.get(table);
+        return count != null && count > 1 ? count : 0;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 使用连接执行的数据库操作
+     */
+    @FunctionalInterface
+    private interface SqlWork<T> {
+
+        T apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * 物理表位置
+     */
+    private record Placement(String dbKey, String table) {
+    }
+}
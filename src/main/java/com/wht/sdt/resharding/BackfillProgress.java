@@ -0,0 +1,199 @@
+package com.wht.sdt.resharding;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分片迁移回填进度
+ *
+ * @author wht
+ */
+public class BackfillProgress {
+
+    /**
+     * 回填状态
+     */
+    public enum Status {
+        /**
+         * 执行中
+         */
+        RUNNING,
+        /**
+         * 已完成（复制、校验、清理均已完成）
+         */
+        COMPLETED,
+        /**
+         * 失败
+         */
+        FAILED
+    }
+
+    private final String groupKey;
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong scanned = new AtomicLong();
+
+    private final AtomicLong copied = new AtomicLong();
+
+    private final AtomicLong unchanged = new AtomicLong();
+
+    private final AtomicLong existing = new AtomicLong();
+
+    private final AtomicLong verified = new AtomicLong();
+
+    private final AtomicLong repaired = new AtomicLong();
+
+    private final AtomicLong removed = new AtomicLong();
+
+    private volatile Status status = Status.RUNNING;
+
+    private volatile String phase = "copy";
+
+    private volatile int passes;
+
+    private volatile long finishedAt;
+
+    private volatile String error;
+
+    public BackfillProgress(String groupKey) {
+        this.groupKey = groupKey;
+    }
+
+    void addScanned(long rows) {
+        scanned.addAndGet(rows);
+    }
+
+    void addCopied(long rows) {
+        copied.addAndGet(rows);
+    }
+
+    void addUnchanged(long rows) {
+        unchanged.addAndGet(rows);
+    }
+
+    void addExisting(long rows) {
+        existing.addAndGet(rows);
+    }
+
+    void addVerified(long rows) {
+        verified.addAndGet(rows);
+    }
+
+    void addRepaired(long rows) {
+        repaired.addAndGet(rows);
+    }
+
+    void addRemoved(long rows) {
+        removed.addAndGet(rows);
+    }
+
+    void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    void setPasses(int passes) {
+        this.passes = passes;
+    }
+
+    void complete() {
+        finishedAt = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    void fail(Throwable e) {
+        finishedAt = System.currentTimeMillis();
+        error = e.toString();
+        status = Status.FAILED;
+    }
+
+    public String getGroupKey() {
+        return groupKey;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * 当前阶段：copy（复制）、verify（校验）、sweep（清理新分片中旧分片已删除的行）
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 已执行的校验轮数（每轮包括校验和清理，最后一轮没有修复任何行）
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * 复制阶段扫描的旧分片行数
+     */
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    /**
+     * 复制到新分片的行数
+     */
+    public long getCopied() {
+        return copied.get();
+    }
+
+    /**
+     * 新旧分片为同一物理表、无需复制的行数
+     */
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * 新分片中已存在（双写写入）的行数
+     */
+    public long getExisting() {
+        return existing.get();
+    }
+
+    /**
+     * 校验的行数（所有轮次累计）
+     */
+    public long getVerified() {
+        return verified.get();
+    }
+
+    /**
+     * 校验时缺失或不一致、重新复制的行数
+     */
+    public long getRepaired() {
+        return repaired.get();
+    }
+
+    /**
+     * 新分片中存在、旧分片中已删除而清理的行数
+     */
+    public long getRemoved() {
+        return removed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BackfillProgress[" + groupKey + ", status=" + status + ", phase=" + phase
+                + ", passes=" + passes + ", scanned=" + scanned + ", copied=" + copied + ", unchanged=" + unchanged
+                + ", existing=" + existing + ", verified=" + verified + ", repaired=" + repaired
+                + ", removed=" + removed + (error != null ? ", error=" + error : "") + "]";
+    }
+}
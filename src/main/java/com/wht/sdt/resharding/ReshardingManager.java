@@ -0,0 +1,153 @@
+package com.wht.sdt.resharding;
+
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.config.bean.RoutingSnapshot;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.ReshardingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 分片迁移管理器
+ * 管理各数据源组的回填任务和迁移状态：回填（复制、校验、清理）完成且最后一轮校验没有任何修复后标记为已迁移，
+ * 读语句切换到新分片。
+ * 迁移状态只保存在内存中并绑定到启动回填时的分片布局，布局变化（热加载修改了新旧分片数量）后失效；
+ * 需要重启后仍读新分片时配置 resharding.read-from-target
+ *
+ * @author wht
+ */
+@Slf4j
+public class ReshardingManager implements DisposableBean {
+
+    private final RoutingRegistry routingRegistry;
+
+    /**
+     * 组键 -> 迁移状态
+     */
+    private final Map<String, GroupState> states = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    public ReshardingManager(RoutingRegistry routingRegistry) {
+        this.routingRegistry = routingRegistry;
+    }
+
+    /**
+     * 读语句是否使用新分片
+     *
+     * @param groupKey 组键
+     * @param group    数据源组配置（当前线程使用的快照中的配置）
+     * @return 配置了直接读新分片、或当前布局的回填已完成时返回true
+     */
+    public boolean isReadFromTarget(String groupKey, DataSourceGroup group) {
+        if (!group.reshardingEnabled()) {
+            return false;
+        }
+        if (group.getResharding().isReadFromTarget()) {
+            return true;
+        }
+        GroupState state = states.get(groupKey);
+        return state != null && state.migrated && state.layout.equals(Layout.of(group));
+    }
+
+    /**
+     * 启动数据源组的回填任务（按最新的路由拓扑）
+     *
+     * @param groupKey 组键
+     * @return 回填结果，完成后该组标记为已迁移
+     * @throws IllegalStateException 未启用分片迁移或回填正在执行时
+     */
+    public synchronized CompletableFuture<BackfillProgress> startBackfill(String groupKey) {
+        RoutingSnapshot snapshot = routingRegistry.latest();
+        DataSourceGroup group = snapshot.getGroup(groupKey);
+        if (group == null || !group.reshardingEnabled()) {
+            throw new IllegalStateException("数据源组未启用分片迁移: " + groupKey);
+        }
+        GroupState previous = states.get(groupKey);
+        if (previous != null && previous.progress.getStatus() == BackfillProgress.Status.RUNNING) {
+            throw new IllegalStateException("回填任务正在执行: " + groupKey);
+        }
+
+        BackfillJob job = new BackfillJob(routingRegistry, snapshot, groupKey, new BackfillProgress(groupKey));
+        GroupState state = new GroupState(Layout.of(group), job.getProgress());
+        states.put(groupKey, state);
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sdt-backfill");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        log.info("Starting backfill for {} ({})", groupKey, state.layout);
+        return CompletableFuture.supplyAsync(() -> {
+            BackfillProgress progress = job.call();
+            if (progress.getStatus() == BackfillProgress.Status.COMPLETED) {
+                state.migrated = true;
+                log.info("Backfill completed, reads of {} switched to target shards: {}", groupKey, progress);
+            }
+            return progress;
+        }, executor);
+    }
+
+    /**
+     * 获取数据源组最近一次回填的进度
+     *
+     * @return 进度，未执行过回填时返回null
+     */
+    public BackfillProgress getProgress(String groupKey) {
+        GroupState state = states.get(groupKey);
+        return state == null ? null : state.progress;
+    }
+
+    /**
+     * 数据源组是否已完成迁移（读新分片）
+     */
+    public boolean isMigrated(String groupKey) {
+        DataSourceGroup group = routingRegistry.latest().getGroup(groupKey);
+        return group != null && isReadFromTarget(groupKey, group);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 分片布局（新旧分库分表数量），迁移状态只对启动回填时的布局有效
+     */
+    private record Layout(int dbCount, Map<String, Integer> tbCounts,
+                          int targetDbCount, Map<String, Integer> targetTbCounts) {
+
+        static Layout of(DataSourceGroup group) {
+            ReshardingProperties resharding = group.getResharding();
+            return new Layout(group.getDbCount(), group.getTbCounts(),
+                    resharding.targetDbCount(group), resharding.targetTbCounts(group));
+        }
+    }
+
+    /**
+     * 数据源组的迁移状态
+     */
+    private static final class GroupState {
+
+        private final Layout layout;
+
+        private final BackfillProgress progress;
+
+        private volatile boolean migrated;
+
+        private GroupState(Layout layout, BackfillProgress progress) {
+            this.layout = layout;
+            this.progress = progress;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.wht.sdt.strategy;
 
 import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
 
 /**
  * 数据库路由策略接口
@@ -11,6 +12,14 @@ import com.wht.sdt.context.StrategyContext;
 
 public interface RouterStrategy {
 
+    /**
+     * 初始化数据源组的路由数据（如哈希环），启动时对每个数据源组调用一次
+     *
+     * @param groupKey        数据源组键，如：group01
+     * @param dataSourceGroup 数据源组配置
+     */
+    default void init(String groupKey, DataSourceGroup dataSourceGroup) {
+    }
 
     /**
      * 分库
@@ -28,4 +37,10 @@ public interface RouterStrategy {
      * 清除路由信息
      */
     public void clear();
+
+    /**
+     * 释放init中创建的资源（如定时任务），路由拓扑快照下线、且快照上的请求全部结束后对内置策略调用
+     */
+    default void destroy() {
+    }
 }
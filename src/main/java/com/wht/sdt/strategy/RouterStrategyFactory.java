@@ -1,13 +1,31 @@
 package com.wht.sdt.strategy;
 
 
+import com.wht.sdt.annotation.SDTStrategy;
 import com.wht.sdt.enumeration.StrategyType;
 import com.wht.sdt.strategy.impl.RouterStrategyConsistentHash;
+import com.wht.sdt.strategy.impl.RouterStrategyDirectory;
 import com.wht.sdt.strategy.impl.RouterStrategyHashCode;
+import com.wht.sdt.strategy.impl.RouterStrategyJumpHash;
+import com.wht.sdt.strategy.impl.RouterStrategyRendezvous;
 import com.wht.sdt.strategy.impl.RouterStrategyTimeBased;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Slf4j
 public class RouterStrategyFactory {
 
+    private static final StrategyType[] CUSTOM_SLOTS = {
+            StrategyType.CUSTOM_1, StrategyType.CUSTOM_2, StrategyType.CUSTOM_3, StrategyType.CUSTOM_4
+    };
+
 
     public static RouterStrategy getInstance(StrategyType strategyType) {
         switch (strategyType) {
@@ -17,9 +35,84 @@ public class RouterStrategyFactory {
                 return new RouterStrategyConsistentHash();
             case TIME_BASED:
                 return new RouterStrategyTimeBased();
+            case JUMP_HASH:
+                return new RouterStrategyJumpHash();
+            case RENDEZVOUS:
+                return new RouterStrategyRendezvous();
+            case DIRECTORY:
+                return new RouterStrategyDirectory();
             default:
                 return new RouterStrategyHashCode();
         }
     }
 
+    /**
+     * 创建路由策略注册表
+     * 内置策略每次创建新实例；实现了RouterStrategy的Bean按以下顺序绑定到策略类型：
+     * 配置项 custom-strategies（策略类型 -> Bean名称）、Bean类上的 {@link SDTStrategy} 注解、依次占用空闲的CUSTOM_n
+     *
+     * @param beans    自定义策略Bean（Bean名称 -> 策略）
+     * @param bindings 配置的绑定关系（策略类型 -> Bean名称），可以为null
+     * @return 策略类型 -> 路由策略
+     */
+    public static Map<StrategyType, RouterStrategy> createAll(Map<String, RouterStrategy> beans,
+                                                              Map<StrategyType, String> bindings) {
+        Map<StrategyType, RouterStrategy> strategies = new EnumMap<>(StrategyType.class);
+        for (StrategyType strategyType : StrategyType.values()) {
+            strategies.put(strategyType, getInstance(strategyType));
+        }
+        if (beans != null && !beans.isEmpty()) {
+            registerCustomStrategies(strategies, beans, bindings);
+        }
+        return strategies;
+    }
+
+    /**
+     * 将自定义策略Bean绑定到策略类型
+     */
+    private static void registerCustomStrategies(Map<StrategyType, RouterStrategy> strategies,
+                                                 Map<String, RouterStrategy> beans,
+                                                 Map<StrategyType, String> bindings) {
+        Map<String, RouterStrategy> unbound = new LinkedHashMap<>(beans);
+        EnumSet<StrategyType> bound = EnumSet.noneOf(StrategyType.class);
+
+        // 1. 配置项绑定
+        if (bindings != null) {
+            bindings.forEach((strategyType, beanName) -> {
+                RouterStrategy strategy = beans.get(beanName);
+                if (strategy == null) {
+                    throw new IllegalStateException("未找到自定义路由策略Bean: " + beanName + " (" + strategyType + ")");
+                }
+                strategies.put(strategyType, strategy);
+                bound.add(strategyType);
+                unbound.remove(beanName);
+            });
+        }
+
+        // 2. 注解绑定
+        unbound.entrySet().removeIf(entry -> {
+            SDTStrategy annotation = AnnotationUtils.findAnnotation(
+                    ClassUtils.getUserClass(entry.getValue()), SDTStrategy.class);
+            if (annotation == null) {
+                return false;
+            }
+            if (!bound.add(annotation.value())) {
+                throw new IllegalStateException("路由策略类型重复绑定: " + annotation.value() + " (" + entry.getKey() + ")");
+            }
+            strategies.put(annotation.value(), entry.getValue());
+            return true;
+        });
+
+        // 3. 其余Bean依次占用空闲的CUSTOM_n
+        for (Map.Entry<String, RouterStrategy> entry : unbound.entrySet()) {
+            StrategyType slot = Arrays.stream(CUSTOM_SLOTS).filter(type -> !bound.contains(type)).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("没有空闲的CUSTOM策略类型可供绑定: " + entry.getKey()));
+            strategies.put(slot, entry.getValue());
+            bound.add(slot);
+        }
+
+        bound.forEach(type -> log.info("Registered custom RouterStrategy {} as {}",
+                strategies.get(type).getClass().getName(), type));
+    }
+
 }
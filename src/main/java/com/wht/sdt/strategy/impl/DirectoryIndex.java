@@ -0,0 +1,427 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.util.HashUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+/**
+ * 目录路由索引
+ * 路由字段值 -> (库编号, 表编号) 的映射文件，按key排序的定长记录，通过内存映射读取，
+ * 不占用堆内存，查找为二分查找 O(log n)；索引构建后不再修改，重新加载时整体替换
+ * <p>
+ * 文件格式（大端序）：文件头为魔数 SDTD（4字节）、版本号（4字节）、记录数（8字节），
+ * 之后每条记录12字节：key（8字节）、库编号（2字节，从1开始）、表编号（2字节，0表示未指定），
+ * 单个文件最多约1.78亿条记录
+ * <p>
+ * key：路由字段值为整数（不超过18位）时为该整数，否则为字符串的64位哈希值，见 {@link #keyOf(String)}
+ *
+ * @author wht
+ */
+public final class DirectoryIndex {
+
+    private static final int MAGIC = 0x53445444;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int RECORD_SIZE = 12;
+
+    /**
+     * 库编号、表编号的最大值（记录打包为int时保持非负）
+     */
+    private static final int MAX_NUMBER = Short.MAX_VALUE;
+
+    /**
+     * 单个内存映射区域最多容纳的记录数
+     */
+    private static final long MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final Path path;
+
+    private final FileStamp stamp;
+
+    private final MappedByteBuffer buffer;
+
+    private final int size;
+
+    private final int maxDb;
+
+    private final int maxTb;
+
+    private DirectoryIndex(Path path, FileStamp stamp, MappedByteBuffer buffer, int size, int maxDb, int maxTb) {
+        this.path = path;
+        this.stamp = stamp;
+        this.buffer = buffer;
+        this.size = size;
+        this.maxDb = maxDb;
+        this.maxTb = maxTb;
+    }
+
+    /**
+     * 内存映射索引文件，并校验文件头、记录有序和库编号
+     *
+     * @param path 索引文件
+     * @return 索引
+     * @throws IOException 读取失败
+     * @throws IllegalStateException 文件格式错误
+     */
+    public static DirectoryIndex open(Path path) throws IOException {
+        // 映射前读取：映射期间文件被替换时，下次检查会发现文件已修改
+        FileStamp stamp = FileStamp.of(path);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IllegalStateException("目录路由索引文件不完整: " + path);
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("目录路由索引文件超过2GB: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("不是目录路由索引文件或版本不支持: " + path);
+        }
+        long count = buffer.getLong(8);
+        if (count < 0 || count > MAX_RECORDS || buffer.capacity() != HEADER_SIZE + count * RECORD_SIZE) {
+            throw new IllegalStateException("目录路由索引文件记录数与文件大小不一致: " + path);
+        }
+
+        int size = (int) count;
+        int maxDb = 0;
+        int maxTb = 0;
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            long key = buffer.getLong(offset);
+            if (i > 0 && key <= previous) {
+                throw new IllegalStateException("目录路由索引文件的key未按升序排列或重复: " + path + "（第" + (i + 1) + "条）");
+            }
+            previous = key;
+            int db = Short.toUnsignedInt(buffer.getShort(offset + 8));
+            if (db < 1 || db > MAX_NUMBER) {
+                throw new IllegalStateException("目录路由索引文件的库编号超出范围: " + path + "（第" + (i + 1) + "条）");
+            }
+            maxDb = Math.max(maxDb, db);
+            maxTb = Math.max(maxTb, Short.toUnsignedInt(buffer.getShort(offset + 10)));
+        }
+        return new DirectoryIndex(path, stamp, buffer, size, maxDb, maxTb);
+    }
+
+    /**
+     * 查找路由字段值对应的记录
+     *
+     * @param key 路由字段值的key，见 {@link #keyOf(String)}
+     * @return 记录（高16位为库编号，低16位为表编号），未找到时返回-1
+     */
+    public int lookup(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_SIZE + mid * RECORD_SIZE;
+            long midKey = buffer.getLong(offset);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(offset + 8);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 记录中的库编号
+     */
+    public static int db(int entry) {
+        return entry >>> 16;
+    }
+
+    /**
+     * 记录中的表编号，0表示未指定
+     */
+    public static int tb(int entry) {
+        return entry & 0xFFFF;
+    }
+
+    /**
+     * 计算路由字段值的key：不超过18位的整数直接使用其数值，其他值使用64位哈希值
+     *
+     * @param value 路由字段值
+     * @return key
+     */
+    public static long keyOf(String value) {
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (length > start && length - start <= 18) {
+            long result = 0;
+            int i = start;
+            for (; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                result = result * 10 + (c - '0');
+            }
+            if (i == length) {
+                return start == 1 ? -result : result;
+            }
+        }
+        return HashUtils.murmur64(value);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public FileTime getLastModified() {
+        return stamp.lastModified();
+    }
+
+    /**
+     * 加载时索引文件的标识
+     */
+    public FileStamp getStamp() {
+        return stamp;
+    }
+
+    /**
+     * 记录数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 记录中最大的库编号
+     */
+    public int getMaxDb() {
+        return maxDb;
+    }
+
+    /**
+     * 记录中最大的表编号
+     */
+    public int getMaxTb() {
+        return maxTb;
+    }
+
+    /**
+     * 从文本文件生成索引文件
+     * 每行一条记录：路由字段值,库,表（表可以省略），库、表可以写为编号或键，如：10086,db03,002 或 10086,3,2；
+     * 空行和 # 开头的行忽略
+     *
+     * @param source 文本文件
+     * @param target 索引文件
+     * @throws IOException 读写失败
+     */
+    public static void convert(Path source, Path target) throws IOException {
+        Writer writer = new Writer();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length < 2 || fields.length > 3) {
+                    throw new IllegalArgumentException("目录路由格式错误: " + source + " 第" + lineNumber + "行");
+                }
+                writer.put(fields[0].trim(), number(fields[1], "db"),
+                        fields.length == 3 ? number(fields[2], "") : 0);
+            }
+        }
+        writer.write(target);
+    }
+
+    private static int number(String field, String prefix) {
+        String text = field.trim();
+        if (!prefix.isEmpty() && text.startsWith(prefix)) {
+            text = text.substring(prefix.length());
+        }
+        return Integer.parseInt(text);
+    }
+
+    /**
+     * 索引文件生成器
+     * 记录保存在基本类型数组中，写入时按key排序；写入临时文件后原子替换目标文件，
+     * 正在使用旧文件的进程不受影响
+     */
+    /**
+     * 索引文件的标识：文件标识（inode等）、大小和修改时间
+     * 修改时间的精度可能只有秒级，重命名替换的文件标识不同，原地改写的文件通常大小不同，任一不同即认为文件已修改
+     *
+     * @param fileKey      文件标识，文件系统不支持时为null
+     * @param size         文件大小
+     * @param lastModified 修改时间
+     */
+    public record FileStamp(Object fileKey, long size, FileTime lastModified) {
+
+        /**
+         * 读取索引文件当前的标识
+         *
+         * @param path 索引文件
+         * @return 文件标识
+         * @throws IOException 读取失败
+         */
+        public static FileStamp of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileStamp(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime());
+        }
+    }
+
+    public static final class Writer {
+
+        private long[] keys = new long[1024];
+
+        private int[] entries = new int[1024];
+
+        private int size;
+
+        /**
+         * 添加记录
+         *
+         * @param value 路由字段值
+         * @param db    库编号（从1开始）
+         * @param tb    表编号（从1开始），0表示由回退策略计算
+         * @return 当前生成器
+         */
+        public Writer put(String value, int db, int tb) {
+            return put(keyOf(value), db, tb);
+        }
+
+        /**
+         * 添加记录
+         *
+         * @param key 路由字段值的key，见 {@link #keyOf(String)}
+         * @param db  库编号（从1开始）
+         * @param tb  表编号（从1开始），0表示由回退策略计算
+         * @return 当前生成器
+         */
+        public Writer put(long key, int db, int tb) {
+            if (db < 1 || db > MAX_NUMBER || tb < 0 || tb > MAX_NUMBER) {
+                throw new IllegalArgumentException("库编号或表编号超出范围: db=" + db + ", tb=" + tb);
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            keys[size] = key;
+            entries[size] = db << 16 | tb;
+            size++;
+            return this;
+        }
+
+        /**
+         * 按key排序后写入索引文件
+         *
+         * @param target 索引文件
+         * @throws IOException 写入失败
+         * @throws IllegalArgumentException key重复（包括不同字符串的哈希值相同）时
+         */
+        public void write(Path target) throws IOException {
+            if (size > MAX_RECORDS) {
+                throw new IllegalArgumentException("目录路由记录数超过上限: " + MAX_RECORDS);
+            }
+            sort(0, size - 1);
+            for (int i = 1; i < size; i++) {
+                if (keys[i] == keys[i - 1]) {
+                    throw new IllegalArgumentException("目录路由的key重复: " + keys[i]);
+                }
+            }
+
+            Path absolute = target.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream file = Files.newOutputStream(temp);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeLong(size);
+                    for (int i = 0; i < size; i++) {
+                        out.writeLong(keys[i]);
+                        out.writeInt(entries[i]);
+                    }
+                }
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        /**
+         * 按key对两个数组同时排序（快速排序，小区间使用插入排序）
+         */
+        private void sort(int low, int high) {
+            while (high - low > 16) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < keys[low]) {
+                    swap(mid, low);
+                }
+                if (keys[high] < keys[low]) {
+                    swap(high, low);
+                }
+                if (keys[high] < keys[mid]) {
+                    swap(high, mid);
+                }
+                long pivot = keys[mid];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (keys[i] < pivot) {
+                        i++;
+                    }
+                    while (keys[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // 先递归较小的区间，控制递归深度
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && keys[j] < keys[j - 1]; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            long key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+            int entry = entries[a];
+            entries[a] = entries[b];
+            entries[b] = entry;
+        }
+    }
+}
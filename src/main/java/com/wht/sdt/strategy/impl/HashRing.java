@@ -0,0 +1,160 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.util.HashUtils;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的一致性哈希环
+ * 虚拟节点哈希值按升序存放在long数组中，对应的物理节点编号存放在int数组中，
+ * 查找时二分搜索第一个大于等于key哈希值的虚拟节点，无锁、无装箱
+ *
+ * @author wht
+ */
+public final class HashRing {
+
+    /**
+     * 虚拟节点哈希值（升序）
+     */
+    private final long[] hashes;
+
+    /**
+     * 虚拟节点对应的物理节点编号（从1开始）
+     */
+    private final int[] nodes;
+
+    /**
+     * 物理节点数量
+     */
+    private final int nodeCount;
+
+    private HashRing(long[] hashes, int[] nodes, int nodeCount) {
+        this.hashes = hashes;
+        this.nodes = nodes;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * 构建哈希环，每个物理节点使用相同数量的虚拟节点
+     *
+     * @param nodeCount        物理节点数量
+     * @param virtualNodeCount 每个物理节点的虚拟节点数量
+     * @return 哈希环
+     */
+    public static HashRing build(int nodeCount, int virtualNodeCount) {
+        int[] virtualNodeCounts = new int[nodeCount];
+        Arrays.fill(virtualNodeCounts, virtualNodeCount);
+        return build(virtualNodeCounts);
+    }
+
+    /**
+     * 构建哈希环
+     *
+     * @param virtualNodeCounts 第 i 个元素为物理节点 i + 1 的虚拟节点数量
+     * @return 哈希环
+     */
+    public static HashRing build(int[] virtualNodeCounts) {
+        int nodeCount = virtualNodeCounts.length;
+        int total = 0;
+        for (int count : virtualNodeCounts) {
+            total += Math.max(0, count);
+        }
+
+        long[] rawHashes = new long[total];
+        int[] rawNodes = new int[total];
+        int pos = 0;
+        for (int i = 1; i <= nodeCount; i++) {
+            // 为每个物理节点创建多个虚拟节点
+            for (int j = 0; j < virtualNodeCounts[i - 1]; j++) {
+                rawHashes[pos] = HashUtils.murmur64(i + "-VN" + j);
+                rawNodes[pos] = i;
+                pos++;
+            }
+        }
+
+        // 按哈希值排序
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(rawHashes[a], rawHashes[b]));
+
+        long[] hashes = new long[total];
+        int[] nodes = new int[total];
+        int size = 0;
+        for (int idx : order) {
+            // 哈希冲突时保留先出现的虚拟节点
+            if (size > 0 && hashes[size - 1] == rawHashes[idx]) {
+                continue;
+            }
+            hashes[size] = rawHashes[idx];
+            nodes[size] = rawNodes[idx];
+            size++;
+        }
+
+        return new HashRing(Arrays.copyOf(hashes, size), Arrays.copyOf(nodes, size), nodeCount);
+    }
+
+    /**
+     * 查找哈希值对应的物理节点
+     *
+     * @param hash key的哈希值
+     * @return 物理节点编号（从1开始）
+     */
+    public int locate(long hash) {
+        if (hashes.length == 0) {
+            throw new IllegalStateException("哈希环中没有虚拟节点");
+        }
+
+        // 找到第一个大于等于hash的节点，没有找到时返回环上的第一个节点（环形结构）
+        int idx = Arrays.binarySearch(hashes, hash);
+        if (idx < 0) {
+            idx = -idx - 1;
+            if (idx == hashes.length) {
+                idx = 0;
+            }
+        }
+        return nodes[idx];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * 虚拟节点总数
+     */
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * 计算每个物理节点占据的哈希空间比例
+     * 虚拟节点负责从前一个虚拟节点（不含）到自身（含）的区间
+     *
+     * @return 第 i 个元素为物理节点 i + 1 的占比（0~1）
+     */
+    public double[] keySpaceShares() {
+        double[] shares = new double[nodeCount];
+        int size = hashes.length;
+        if (size == 0) {
+            return shares;
+        }
+        if (size == 1) {
+            shares[nodes[0] - 1] = 1.0;
+            return shares;
+        }
+
+        double total = 0x1p64;
+        for (int i = 0; i < size; i++) {
+            // 第一个虚拟节点负责环绕区间，无符号减法天然按2^64取模
+            long previous = i == 0 ? hashes[size - 1] : hashes[i - 1];
+            shares[nodes[i] - 1] += unsignedToDouble(hashes[i] - previous) / total;
+        }
+        return shares;
+    }
+
+    private static double unsignedToDouble(long value) {
+        return (double) (value >>> 1) * 2.0 + (value & 1L);
+    }
+}
@@ -2,136 +2,194 @@ package com.wht.sdt.strategy.impl;
 
 import com.wht.sdt.context.SDTContext;
 import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.ReshardingProperties;
 import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.HashUtils;
+import com.wht.sdt.util.ShardKeys;
 import lombok.extern.slf4j.Slf4j;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于一致性哈希的路由策略实现
  * 使用一致性哈希算法进行分库分表，支持虚拟节点
  * 优点：数据分布均匀，扩容时数据迁移量小
+ * 每个数据源组、每种节点数量使用独立的不可变哈希环，启动时按数据源组配置（包括分片迁移的目标数量）预先构建，
+ * 并发访问无需加锁
  *
  * @author wht
  */
 @Slf4j
 public class RouterStrategyConsistentHash implements RouterStrategy {
 
-    // 虚拟节点数量
+    // 默认虚拟节点数量（可通过数据源组的 virtual-node-count 配置）
     private static final int VIRTUAL_NODE_COUNT = 150;
 
-    // 哈希环（数据库）
-    private final SortedMap<Long, Integer> dbHashRing = new TreeMap<>();
+    // 哈希环（数据库）：组键 -> (节点数量 -> 哈希环)
+    private final Map<String, Map<Integer, HashRing>> dbHashRings = new ConcurrentHashMap<>();
 
-    // 哈希环（表）
-    private final SortedMap<Long, Integer> tbHashRing = new TreeMap<>();
+    // 哈希环（表）：组键 -> (节点数量 -> 哈希环)
+    private final Map<String, Map<Integer, HashRing>> tbHashRings = new ConcurrentHashMap<>();
 
     @Override
-    public void splitDB(StrategyContext strategyContext) {
-        int size = strategyContext.getDbCount();
+    public void init(String groupKey, DataSourceGroup dataSourceGroup) {
+        if (!dataSourceGroup.getEnableSplit()) {
+            return;
+        }
+
+        int virtualNodeCount = virtualNodeCount(dataSourceGroup);
+
+        // 分库哈希环按数据源权重分配虚拟节点（分片迁移时同时构建新分库数量的哈希环）
+        Map<Integer, HashRing> dbRings = dbHashRings.computeIfAbsent(groupKey, k -> new ConcurrentHashMap<>());
+        Set<Integer> dbCounts = new TreeSet<>();
+        dbCounts.add(dataSourceGroup.getDbCount());
+        Set<Integer> tbCounts = new TreeSet<>();
+        addCounts(tbCounts, dataSourceGroup.getTbCounts());
+        ReshardingProperties resharding = dataSourceGroup.getResharding();
+        if (resharding != null) {
+            dbCounts.add(resharding.targetDbCount(dataSourceGroup));
+            addCounts(tbCounts, resharding.targetTbCounts(dataSourceGroup));
+        }
+        for (int dbCount : dbCounts) {
+            if (dbCount <= 0) {
+                continue;
+            }
+            int[] dbVirtualNodeCounts = new int[dbCount];
+            for (int i = 1; i <= dbCount; i++) {
+                dbVirtualNodeCounts[i - 1] = virtualNodeCount * weight(dataSourceGroup, ShardKeys.dbKey(i));
+            }
+            if (Arrays.stream(dbVirtualNodeCounts).allMatch(count -> count == 0)) {
+                throw new IllegalArgumentException("数据源权重不能全部为0: " + groupKey + ".weights");
+            }
+            HashRing dbHashRing = HashRing.build(dbVirtualNodeCounts);
+            dbRings.put(dbCount, dbHashRing);
+            reportKeySpace(groupKey, dbHashRing, dbVirtualNodeCounts);
+        }
 
-        // 初始化哈希环（如果为空）
-        if (dbHashRing.isEmpty()) {
-            initHashRing(dbHashRing, size);
+        // 分表哈希环：各表（包括分片迁移的目标）的每种分表数量
+        Map<Integer, HashRing> tbRings = tbHashRings.computeIfAbsent(groupKey, k -> new ConcurrentHashMap<>());
+        for (int tbCount : tbCounts) {
+            tbRings.put(tbCount, initHashRing(tbCount, virtualNodeCount));
         }
+    }
+
+    private static void addCounts(Set<Integer> counts, Map<String, Integer> tbCounts) {
+        if (tbCounts == null) {
+            return;
+        }
+        for (Integer tbCount : tbCounts.values()) {
+            if (tbCount != null && tbCount > 0) {
+                counts.add(tbCount);
+            }
+        }
+    }
+
+    /**
+     * 输出分库哈希环中每个数据源占据的哈希空间比例
+     */
+    private void reportKeySpace(String groupKey, HashRing hashRing, int[] virtualNodeCounts) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        double[] shares = hashRing.keySpaceShares();
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < shares.length; i++) {
+            if (i > 0) {
+                report.append(", ");
+            }
+            report.append(ShardKeys.dbKey(i + 1))
+                    .append('=')
+                    .append(String.format("%.2f%%", shares[i] * 100))
+                    .append(" (").append(virtualNodeCounts[i]).append(" vnodes)");
+        }
+        log.info("[ConsistentHash] {} key-space share per datasource: {}", groupKey, report);
+    }
+
+    private int virtualNodeCount(DataSourceGroup dataSourceGroup) {
+        Integer virtualNodeCount = dataSourceGroup.getVirtualNodeCount();
+        return virtualNodeCount == null || virtualNodeCount <= 0 ? VIRTUAL_NODE_COUNT : virtualNodeCount;
+    }
+
+    private int weight(DataSourceGroup dataSourceGroup, String dbKey) {
+        Map<String, Integer> weights = dataSourceGroup.getWeights();
+        Integer weight = weights == null ? null : weights.get(dbKey);
+        if (weight == null) {
+            return 1;
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("数据源权重不能为负数: " + dbKey + "=" + weight);
+        }
+        return weight;
+    }
+
+    @Override
+    public void splitDB(StrategyContext strategyContext) {
+        int size = strategyContext.getDbCount();
 
         // 计算键的哈希值
-        long hash = hash(strategyContext.getKeyValue());
+        long hash = HashUtils.murmur64(strategyContext.getKeyValue());
 
         // 在哈希环上找到对应的节点
-        int dbIdx = getNodeIndex(dbHashRing, hash);
+        int dbIdx = getHashRing(dbHashRings, strategyContext.getGroupKey(), size).locate(hash);
 
         // 格式化数据库 key
-        String dbKey = "db" + String.format("%02d", dbIdx);
+        String dbKey = ShardKeys.dbKey(dbIdx);
 
         SDTContext.setDBKey(dbKey);
 
-        log.debug("[Router-DB-ConsistentHash] key={} hash={} dbIdx={} dbKey={}",
-                strategyContext.getKeyValue(), hash, dbIdx, dbKey);
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-DB-ConsistentHash] key={} hash={} dbIdx={} dbKey={}",
+                    strategyContext.getKeyValue(), hash, dbIdx, dbKey);
+        }
     }
 
     @Override
     public void splitTB(StrategyContext strategyContext) {
         int size = strategyContext.getTbCount();
 
-        // 初始化哈希环（如果为空）
-        if (tbHashRing.isEmpty()) {
-            initHashRing(tbHashRing, size);
-        }
-
         // 计算键的哈希值
-        long hash = hash(strategyContext.getKeyValue());
+        long hash = HashUtils.murmur64(strategyContext.getKeyValue());
 
         // 在哈希环上找到对应的节点
-        int tbIdx = getNodeIndex(tbHashRing, hash);
+        int tbIdx = getHashRing(tbHashRings, strategyContext.getGroupKey(), size).locate(hash);
 
         // 格式化表 key
-        String tbKey = String.format("%03d", tbIdx);
+        String tbKey = ShardKeys.tbKey(tbIdx);
 
         SDTContext.setTBKey(tbKey);
 
-        log.debug("[Router-TB-ConsistentHash] key={} hash={} tbIdx={} tbKey={}",
-                strategyContext.getKeyValue(), hash, tbIdx, tbKey);
-    }
-
-    /**
-     * 初始化哈希环，添加虚拟节点
-     */
-    private void initHashRing(SortedMap<Long, Integer> hashRing, int nodeCount) {
-        for (int i = 1; i <= nodeCount; i++) {
-            // 为每个物理节点创建多个虚拟节点
-            for (int j = 0; j < VIRTUAL_NODE_COUNT; j++) {
-                String virtualNodeKey = i + "-VN" + j;
-                long hash = hash(virtualNodeKey);
-                hashRing.put(hash, i);
-            }
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-TB-ConsistentHash] key={} hash={} tbIdx={} tbKey={}",
+                    strategyContext.getKeyValue(), hash, tbIdx, tbKey);
         }
-        log.debug("Initialized hash ring with {} physical nodes and {} virtual nodes per node",
-                nodeCount, VIRTUAL_NODE_COUNT);
     }
 
     /**
-     * 在哈希环上找到对应的节点索引
+     * 获取启动（或热加载）时按数据源组配置构建的哈希环
      */
-    private int getNodeIndex(SortedMap<Long, Integer> hashRing, long hash) {
-        if (hashRing.isEmpty()) {
-            return 1;
-        }
-
-        // 找到第一个大于等于hash的节点
-        SortedMap<Long, Integer> tailMap = hashRing.tailMap(hash);
-
-        // 如果没有找到，返回环上的第一个节点（环形结构）
-        if (tailMap.isEmpty()) {
-            return hashRing.get(hashRing.firstKey());
+    private HashRing getHashRing(Map<String, Map<Integer, HashRing>> hashRings, String groupKey, int nodeCount) {
+        Map<Integer, HashRing> groupRings = groupKey == null ? null : hashRings.get(groupKey);
+        HashRing hashRing = groupRings == null ? null : groupRings.get(nodeCount);
+        if (hashRing == null) {
+            throw new IllegalStateException("未找到一致性哈希环: " + groupKey + " 节点数量=" + nodeCount
+                    + "，分库分表数量需要配置在数据源组的 db-count、tb-counts 或 resharding 中");
         }
-
-        return tailMap.get(tailMap.firstKey());
+        return hashRing;
     }
 
     /**
-     * 使用MD5计算哈希值
+     * 初始化哈希环，添加虚拟节点
      */
-    private long hash(String key) {
-        try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            byte[] digest = md5.digest(key.getBytes());
-
-            // 取前8个字节转换为long
-            long hash = 0;
-            for (int i = 0; i < 8; i++) {
-                hash = (hash << 8) | (digest[i] & 0xFF);
-            }
-
-            return Math.abs(hash);
-        } catch (NoSuchAlgorithmException e) {
-            log.error("MD5 algorithm not found", e);
-            // 降级使用hashCode
-            return Math.abs(key.hashCode());
-        }
+    private HashRing initHashRing(int nodeCount, int virtualNodeCount) {
+        HashRing hashRing = HashRing.build(Math.max(0, nodeCount), virtualNodeCount);
+        log.debug("Initialized hash ring with {} physical nodes and {} virtual nodes per node",
+                nodeCount, virtualNodeCount);
+        return hashRing;
     }
 
     public void clear() {
@@ -0,0 +1,380 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.DirectoryProperties;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.strategy.RouterStrategyFactory;
+import com.wht.sdt.util.ShardKeys;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 目录路由策略实现
+ * 按索引文件中的映射（路由字段值 -> 库、表）路由，用于把大租户固定到专用分片；
+ * 未映射的值、或映射中未指定表时使用回退策略（默认HASH）计算
+ * <p>
+ * 映射的库编号超过本次路由的分库数量、或表编号超过本次路由的分表数量时，库和表一起使用回退策略计算，
+ * 不会出现库按映射、表按回退策略（或相反）的组合；同一路由字段值在相同的分库、分表数量下总是得到相同的结果。
+ * 同一SQL中分表数量较少的表只计算表后缀（库已按最大分表数量确定），映射的表编号超过该表的分表数量时表后缀按回退策略计算
+ * <p>
+ * 索引文件通过内存映射读取（见 {@link DirectoryIndex}），所有策略实例共享，路由拓扑热加载时文件未修改的索引直接复用；
+ * 文件修改后（生成新文件并重命名替换；按文件标识、大小和修改时间判断，见 {@link DirectoryIndex.FileStamp}）
+ * 重新映射并原子替换，校验失败时继续使用旧索引。
+ * 不再被任何数据源组使用的索引和定时检查任务在策略实例销毁（{@link #destroy()}）时释放
+ *
+ * @author wht
+ */
+@Slf4j
+public class RouterStrategyDirectory implements RouterStrategy {
+
+    /**
+     * 已加载的索引：索引文件 -> 共享的索引
+     */
+    private static final Map<Path, SharedIndex> INDEXES = new HashMap<>();
+
+    private static ScheduledExecutorService watcher;
+
+    /**
+     * 组键 -> 目录路由配置
+     */
+    private final Map<String, GroupDirectory> directories = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(String groupKey, DataSourceGroup dataSourceGroup) {
+        DirectoryProperties directory = dataSourceGroup.getDirectory();
+        if (!dataSourceGroup.getEnableSplit() || directory == null
+                || directory.getIndexFile() == null || directory.getIndexFile().isEmpty()) {
+            return;
+        }
+
+        StrategyType fallbackType = directory.getFallback();
+        if (fallbackType == null || fallbackType == StrategyType.DEFAULT || fallbackType == StrategyType.DIRECTORY) {
+            fallbackType = StrategyType.HASH;
+        }
+        RouterStrategy fallback = RouterStrategyFactory.getInstance(fallbackType);
+        fallback.init(groupKey, dataSourceGroup);
+
+        Path path = Paths.get(directory.getIndexFile()).toAbsolutePath().normalize();
+        GroupDirectory groupDirectory = new GroupDirectory(groupKey, path, limits(dataSourceGroup), fallback);
+        SharedIndex shared;
+        try {
+            shared = acquire(groupDirectory, directory.getPollInterval());
+        } catch (IOException e) {
+            fallback.destroy();
+            throw new IllegalStateException("加载目录路由索引失败: " + groupKey + ", " + path, e);
+        } catch (RuntimeException e) {
+            fallback.destroy();
+            throw e;
+        }
+        GroupDirectory previous = directories.put(groupKey, groupDirectory);
+        if (previous != null) {
+            release(previous);
+        }
+        DirectoryIndex index = shared.index;
+        log.info("[Directory] {} uses index {} ({} entries), fallback {}", groupKey, path, index.size(), fallbackType);
+    }
+
+    @Override
+    public void splitDB(StrategyContext strategyContext) {
+        GroupDirectory directory = directory(strategyContext.getGroupKey());
+        int entry = directory.shared().index.lookup(DirectoryIndex.keyOf(strategyContext.getKeyValue()));
+        if (!inRange(entry, strategyContext)) {
+            directory.fallback().splitDB(strategyContext);
+            return;
+        }
+
+        String dbKey = ShardKeys.dbKey(DirectoryIndex.db(entry));
+        SDTContext.setDBKey(dbKey);
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-DB-Directory] key={} dbKey={}", strategyContext.getKeyValue(), dbKey);
+        }
+    }
+
+    @Override
+    public void splitTB(StrategyContext strategyContext) {
+        GroupDirectory directory = directory(strategyContext.getGroupKey());
+        int entry = directory.shared().index.lookup(DirectoryIndex.keyOf(strategyContext.getKeyValue()));
+        if (!inRange(entry, strategyContext) || DirectoryIndex.tb(entry) == 0) {
+            directory.fallback().splitTB(strategyContext);
+            return;
+        }
+
+        String tbKey = ShardKeys.tbKey(DirectoryIndex.tb(entry));
+        SDTContext.setTBKey(tbKey);
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-TB-Directory] key={} tbKey={}", strategyContext.getKeyValue(), tbKey);
+        }
+    }
+
+    /**
+     * 映射是否可用于本次路由：库编号不超过分库数量，且（需要分表时）表编号不超过分表数量
+     * 分库和分表使用相同的判断，任一超出时库和表都按回退策略计算
+     */
+    private static boolean inRange(int entry, StrategyContext strategyContext) {
+        return entry >= 0 && DirectoryIndex.db(entry) <= strategyContext.getDbCount()
+                && (strategyContext.getTbCount() <= 0 || DirectoryIndex.tb(entry) <= strategyContext.getTbCount());
+    }
+
+    /**
+     * 立即检查数据源组的索引文件，文件修改后重新加载
+     *
+     * @param groupKey 组键
+     * @return 当前使用的索引
+     * @throws IOException 读取失败（继续使用旧索引）
+     */
+    public DirectoryIndex reload(String groupKey) throws IOException {
+        return load(directory(groupKey).shared());
+    }
+
+    /**
+     * 获取数据源组当前使用的索引
+     *
+     * @param groupKey 组键
+     * @return 索引，数据源组未配置目录路由时返回null
+     */
+    public DirectoryIndex getIndex(String groupKey) {
+        GroupDirectory directory = directories.get(groupKey);
+        return directory == null ? null : directory.shared().index;
+    }
+
+    private GroupDirectory directory(String groupKey) {
+        GroupDirectory directory = directories.get(groupKey);
+        if (directory == null) {
+            throw new IllegalStateException("数据源组未配置目录路由索引文件（directory.index-file）: " + groupKey);
+        }
+        return directory;
+    }
+
+    /**
+     * 登记数据源组使用的索引文件：首次使用时加载，已加载时按本组的分片数量重新校验
+     */
+    private static synchronized SharedIndex acquire(GroupDirectory groupDirectory, long pollInterval)
+            throws IOException {
+        Path path = groupDirectory.indexFile();
+        SharedIndex shared = INDEXES.get(path);
+        if (shared == null) {
+            DirectoryIndex index = DirectoryIndex.open(path);
+            checkLimits(index, groupDirectory);
+            shared = new SharedIndex(index);
+        } else {
+            checkLimits(shared.index, groupDirectory);
+        }
+        shared.users.add(groupDirectory);
+        INDEXES.put(path, shared);
+        groupDirectory.bind(shared);
+        if (pollInterval > 0 && shared.watch == null) {
+            shared.watch = watch(shared, pollInterval);
+        }
+        return shared;
+    }
+
+    /**
+     * 取消数据源组对索引文件的使用，没有数据源组使用时释放索引和定时检查任务
+     */
+    private static synchronized void release(GroupDirectory groupDirectory) {
+        groupDirectory.fallback().destroy();
+        SharedIndex shared = groupDirectory.shared();
+        if (!shared.users.remove(groupDirectory) || !shared.users.isEmpty()) {
+            return;
+        }
+        INDEXES.remove(groupDirectory.indexFile(), shared);
+        if (shared.watch != null) {
+            shared.watch.cancel(false);
+        }
+        log.info("[Directory] Released index {}", groupDirectory.indexFile());
+        if (INDEXES.isEmpty() && watcher != null) {
+            watcher.shutdown();
+            watcher = null;
+        }
+    }
+
+    /**
+     * 加载索引文件，文件未修改时返回已加载的索引
+     */
+    private static synchronized DirectoryIndex load(SharedIndex shared) throws IOException {
+        DirectoryIndex current = shared.index;
+        Path path = current.getPath();
+        if (current.getStamp().equals(DirectoryIndex.FileStamp.of(path))) {
+            return current;
+        }
+
+        DirectoryIndex index = DirectoryIndex.open(path);
+        for (GroupDirectory user : shared.users) {
+            checkLimits(index, user);
+        }
+        shared.index = index;
+        log.info("[Directory] Reloaded index {}: {} -> {} entries", path, current.size(), index.size());
+        return index;
+    }
+
+    /**
+     * 校验索引中的库编号、表编号不超过数据源组的分库数量、最大分表数量
+     */
+    private static void checkLimits(DirectoryIndex index, GroupDirectory groupDirectory) {
+        int[] limits = groupDirectory.limits();
+        if (index.getMaxDb() > limits[0]) {
+            throw new IllegalStateException("目录路由索引中的库编号 " + index.getMaxDb() + " 超过分库数量 "
+                    + limits[0] + ": " + groupDirectory.groupKey() + ", " + index.getPath());
+        }
+        if (index.getMaxTb() > limits[1]) {
+            throw new IllegalStateException("目录路由索引中的表编号 " + index.getMaxTb() + " 超过分表数量 "
+                    + limits[1] + ": " + groupDirectory.groupKey() + ", " + index.getPath());
+        }
+    }
+
+    /**
+     * 数据源组允许的最大库编号、表编号（分片迁移时包含新分片）
+     */
+    private static int[] limits(DataSourceGroup dataSourceGroup) {
+        int dbCount = dataSourceGroup.getDbCount();
+        int tbCount = maxTbCount(dataSourceGroup.getTbCounts());
+        if (dataSourceGroup.reshardingEnabled()) {
+            dbCount = Math.max(dbCount, dataSourceGroup.getResharding().targetDbCount(dataSourceGroup));
+            tbCount = Math.max(tbCount, maxTbCount(dataSourceGroup.getResharding().targetTbCounts(dataSourceGroup)));
+        }
+        return new int[]{dbCount, tbCount};
+    }
+
+    private static int maxTbCount(Map<String, Integer> tbCounts) {
+        int tbCount = 0;
+        if (tbCounts != null) {
+            for (Integer count : tbCounts.values()) {
+                if (count != null) {
+                    tbCount = Math.max(tbCount, count);
+                }
+            }
+        }
+        return tbCount;
+    }
+
+    /**
+     * 定时检查索引文件的标识（文件标识、大小和修改时间），修改后重新加载
+     */
+    private static ScheduledFuture<?> watch(SharedIndex shared, long pollInterval) {
+        if (watcher == null) {
+            watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sdt-directory-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Path path = shared.index.getPath();
+        // 加载失败的文件在再次修改前不重复加载
+        DirectoryIndex.FileStamp[] checked = {null};
+        return watcher.scheduleWithFixedDelay(() -> {
+            try {
+                DirectoryIndex.FileStamp stamp = DirectoryIndex.FileStamp.of(path);
+                if (stamp.equals(checked[0])) {
+                    return;
+                }
+                checked[0] = stamp;
+                load(shared);
+            } catch (Exception e) {
+                log.error("Failed to reload directory index {}, keep the loaded one", path, e);
+            }
+        }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 释放本实例使用的索引和定时检查任务
+     */
+    @Override
+    public void destroy() {
+        directories.values().forEach(RouterStrategyDirectory::release);
+        directories.clear();
+    }
+
+    public void clear() {
+        SDTContext.clearAll();
+    }
+
+    /**
+     * 多个数据源组、多个策略实例共享的索引
+     */
+    private static final class SharedIndex {
+
+        private volatile DirectoryIndex index;
+
+        /**
+         * 使用该索引的数据源组
+         */
+        private final Set<GroupDirectory> users = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private ScheduledFuture<?> watch;
+
+        private SharedIndex(DirectoryIndex index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * 数据源组的目录路由配置
+     */
+    private static final class GroupDirectory {
+
+        private final String groupKey;
+
+        private final Path indexFile;
+
+        /**
+         * 允许的最大库编号、表编号
+         */
+        private final int[] limits;
+
+        /**
+         * 未映射的值使用的路由策略
+         */
+        private final RouterStrategy fallback;
+
+        private SharedIndex shared;
+
+        private GroupDirectory(String groupKey, Path indexFile, int[] limits, RouterStrategy fallback) {
+            this.groupKey = groupKey;
+            this.indexFile = indexFile;
+            this.limits = limits;
+            this.fallback = fallback;
+        }
+
+        private void bind(SharedIndex shared) {
+            this.shared = shared;
+        }
+
+        String groupKey() {
+            return groupKey;
+        }
+
+        Path indexFile() {
+            return indexFile;
+        }
+
+        int[] limits() {
+            return limits;
+        }
+
+        RouterStrategy fallback() {
+            return fallback;
+        }
+
+        SharedIndex shared() {
+            return shared;
+        }
+    }
+}
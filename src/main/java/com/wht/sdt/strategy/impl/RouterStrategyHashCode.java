@@ -3,6 +3,7 @@ package com.wht.sdt.strategy.impl;
 import com.wht.sdt.context.SDTContext;
 import com.wht.sdt.context.StrategyContext;
 import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -28,12 +29,14 @@ public class RouterStrategyHashCode implements RouterStrategy {
         int dbIdx = (Math.abs(hash) % dbCount) + 1;
 
         // 3. 格式化数据库 key
-        String dbKey = "db" + String.format("%02d", dbIdx);
+        String dbKey = ShardKeys.dbKey(dbIdx);
 
         SDTContext.setDBKey(dbKey);
 
-        log.debug("[Router-DB] key={} hash={} dbIdx={} dbKey={}",
-                strategyContext.getKeyValue(), hash, dbIdx, dbKey);
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-DB] key={} hash={} dbIdx={} dbKey={}",
+                    strategyContext.getKeyValue(), hash, dbIdx, dbKey);
+        }
     }
 
     @Override
@@ -50,12 +53,14 @@ public class RouterStrategyHashCode implements RouterStrategy {
         int tbIdx = (Math.abs(hash / strategyContext.getDbCount()) % tbCount) + 1;
 
         // 3. 格式化表 key
-        String tbKey = String.format("%03d", tbIdx);
+        String tbKey = ShardKeys.tbKey(tbIdx);
 
         SDTContext.setTBKey(tbKey);
 
-        log.debug("[Router-TB] key={} hash={} tbIdx={} tbKey={}",
-                strategyContext.getKeyValue(), hash, tbIdx, tbKey);
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-TB] key={} hash={} tbIdx={} tbKey={}",
+                    strategyContext.getKeyValue(), hash, tbIdx, tbKey);
+        }
     }
 
     public void clear() {
@@ -0,0 +1,77 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.HashUtils;
+import com.wht.sdt.util.ShardKeys;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于Jump Consistent Hash的路由策略实现
+ * 无需哈希环，不占用额外内存，O(ln n)计算出节点；节点数从n扩到n+1时只有约1/(n+1)的key需要迁移
+ * 注意：只支持在末尾增减节点，不支持删除中间节点
+ *
+ * @author wht
+ */
+@Slf4j
+public class RouterStrategyJumpHash implements RouterStrategy {
+
+    @Override
+    public void splitDB(StrategyContext strategyContext) {
+        long hash = HashUtils.murmur64(strategyContext.getKeyValue());
+
+        int dbIdx = jumpConsistentHash(hash, strategyContext.getDbCount()) + 1;
+
+        String dbKey = ShardKeys.dbKey(dbIdx);
+
+        SDTContext.setDBKey(dbKey);
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-DB-JumpHash] key={} hash={} dbIdx={} dbKey={}",
+                    strategyContext.getKeyValue(), hash, dbIdx, dbKey);
+        }
+    }
+
+    @Override
+    public void splitTB(StrategyContext strategyContext) {
+        // 对哈希值再次打散，避免分表结果与分库结果相关
+        long hash = HashUtils.mix64(HashUtils.murmur64(strategyContext.getKeyValue()));
+
+        int tbIdx = jumpConsistentHash(hash, strategyContext.getTbCount()) + 1;
+
+        String tbKey = ShardKeys.tbKey(tbIdx);
+
+        SDTContext.setTBKey(tbKey);
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-TB-JumpHash] key={} hash={} tbIdx={} tbKey={}",
+                    strategyContext.getKeyValue(), hash, tbIdx, tbKey);
+        }
+    }
+
+    /**
+     * Jump Consistent Hash（Lamping & Veach）
+     *
+     * @param key     key的64位哈希值
+     * @param buckets 节点数量
+     * @return 节点下标（从0开始）
+     */
+    static int jumpConsistentHash(long key, int buckets) {
+        if (buckets <= 1) {
+            return 0;
+        }
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    public void clear() {
+        SDTContext.clearAll();
+    }
+}
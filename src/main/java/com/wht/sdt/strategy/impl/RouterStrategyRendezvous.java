@@ -0,0 +1,137 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.HashUtils;
+import com.wht.sdt.util.ShardKeys;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于Rendezvous（HRW，最高随机权重）哈希的路由策略实现
+ * 对每个节点计算 key 与节点组合的得分，选择得分最高的节点；无需哈希环，
+ * 支持按数据源组的 weights 配置进行加权分库，删除任意节点时只有该节点上的key需要迁移
+ *
+ * @author wht
+ */
+@Slf4j
+public class RouterStrategyRendezvous implements RouterStrategy {
+
+    /**
+     * 分库权重：组键 -> 第 i 个元素为 db(i+1) 的权重
+     */
+    private final Map<String, double[]> dbWeights = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(String groupKey, DataSourceGroup dataSourceGroup) {
+        Map<String, Integer> weights = dataSourceGroup.getWeights();
+        if (!dataSourceGroup.getEnableSplit() || weights == null || weights.isEmpty()) {
+            return;
+        }
+
+        double[] groupWeights = new double[Math.max(0, dataSourceGroup.getDbCount())];
+        for (int i = 1; i <= groupWeights.length; i++) {
+            Integer weight = weights.get(ShardKeys.dbKey(i));
+            if (weight != null && weight < 0) {
+                throw new IllegalArgumentException("数据源权重不能为负数: " + ShardKeys.dbKey(i) + "=" + weight);
+            }
+            groupWeights[i - 1] = weight == null ? 1 : weight;
+        }
+        if (groupWeights.length > 0 && Arrays.stream(groupWeights).allMatch(weight -> weight == 0)) {
+            throw new IllegalArgumentException("数据源权重不能全部为0: " + groupKey + ".weights");
+        }
+        dbWeights.put(groupKey, groupWeights);
+    }
+
+    @Override
+    public void splitDB(StrategyContext strategyContext) {
+        long hash = HashUtils.murmur64(strategyContext.getKeyValue());
+
+        int dbCount = strategyContext.getDbCount();
+        double[] weights = strategyContext.getGroupKey() == null ? null : dbWeights.get(strategyContext.getGroupKey());
+        int dbIdx = weights != null && weights.length == dbCount
+                ? selectWeighted(hash, weights) + 1
+                : select(hash, dbCount) + 1;
+
+        String dbKey = ShardKeys.dbKey(dbIdx);
+
+        SDTContext.setDBKey(dbKey);
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-DB-Rendezvous] key={} hash={} dbIdx={} dbKey={}",
+                    strategyContext.getKeyValue(), hash, dbIdx, dbKey);
+        }
+    }
+
+    @Override
+    public void splitTB(StrategyContext strategyContext) {
+        // 对哈希值再次打散，避免分表结果与分库结果相关
+        long hash = HashUtils.mix64(HashUtils.murmur64(strategyContext.getKeyValue()));
+
+        int tbIdx = select(hash, strategyContext.getTbCount()) + 1;
+
+        String tbKey = ShardKeys.tbKey(tbIdx);
+
+        SDTContext.setTBKey(tbKey);
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-TB-Rendezvous] key={} hash={} tbIdx={} tbKey={}",
+                    strategyContext.getKeyValue(), hash, tbIdx, tbKey);
+        }
+    }
+
+    /**
+     * 等权重选择得分最高的节点
+     *
+     * @return 节点下标（从0开始）
+     */
+    static int select(long hash, int nodeCount) {
+        int best = 0;
+        long bestScore = Long.MIN_VALUE;
+        for (int i = 0; i < nodeCount; i++) {
+            long score = score(hash, i);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 加权选择：得分为 -weight / ln(u)，u为(0,1)内均匀分布的节点哈希
+     * u 与 {@link #select(long, int)} 的得分同序（有符号比较），权重全部相同时与等权重选择的结果一致
+     *
+     * @return 节点下标（从0开始）
+     */
+    static int selectWeighted(long hash, double[] weights) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] <= 0) {
+                continue;
+            }
+            // 翻转符号位使无符号顺序与有符号得分的顺序一致，取高53位作为(0,1)区间的均匀分布值，+0.5避免取到0
+            double u = (((score(hash, i) ^ Long.MIN_VALUE) >>> 11) + 0.5) * 0x1.0p-53;
+            double weightedScore = -weights[i] / Math.log(u);
+            if (weightedScore > bestScore) {
+                bestScore = weightedScore;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static long score(long hash, int node) {
+        return HashUtils.mix64(hash ^ HashUtils.mix64(node + 0x9e3779b97f4a7c15L));
+    }
+
+    public void clear() {
+        SDTContext.clearAll();
+    }
+}
@@ -2,97 +2,95 @@ package com.wht.sdt.strategy.impl;
 
 import com.wht.sdt.context.SDTContext;
 import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
 import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
+import com.wht.sdt.util.TimePartitions;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于时间的路由策略实现
- * 根据时间戳进行分库分表，适合时序数据
- * 支持多种时间粒度：按天、按月、按年
+ * 根据时间戳进行分库分表，适合时序数据：按年月分库（yyyyMM % 分库数量），按日期分表（yyyyMMdd % 分表数量）。
+ * 时间戳按数据源组的 time-zone 换算为纪元日（未配置时使用 time-partitions 中各表共同的时区，否则使用系统默认时区），
+ * 与按时间分表的表后缀使用相同的日期；无法解析的路由字段值直接抛出异常
+ * <p>
+ * 按日期取模分表（tb-counts 中的表）已不推荐使用：yyyyMMdd 不连续，各表的数据量不均匀，且无法按周期清理过期数据。
+ * 按周期分表（如 order_202610）请在数据源组中配置 time-partitions，由MyBatis插件按表计算周期表后缀，
+ * 这些表不使用本策略计算的表后缀
  *
  * @author wht
  */
 @Slf4j
 public class RouterStrategyTimeBased implements RouterStrategy {
 
+    /**
+     * 组键 -> 时区（空字符串表示系统默认时区）
+     */
+    private final Map<String, String> zones = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(String groupKey, DataSourceGroup dataSourceGroup) {
+        String zone = dataSourceGroup.timeBasedZone();
+        zones.put(groupKey, zone == null ? "" : zone);
+    }
+
     @Override
     public void splitDB(StrategyContext strategyContext) {
         int size = strategyContext.getDbCount();
 
         // 解析时间值（支持时间戳或日期字符串）
-        long timestamp = parseTimestamp(strategyContext.getKeyValue());
-        LocalDateTime dateTime = LocalDateTime.ofInstant(
-                Instant.ofEpochMilli(timestamp),
-                ZoneId.systemDefault());
+        long epochDay = TimePartitions.epochDay(strategyContext.getKeyValue(), zone(strategyContext));
 
         // 使用年月作为分库依据
-        int yearMonth = dateTime.getYear() * 100 + dateTime.getMonthValue();
+        int yearMonth = TimePartitions.civilDate(epochDay) / 100;
         int dbIdx = yearMonth % size + 1;
 
         // 格式化数据库 key
-        String dbKey = "db" + String.format("%02d", dbIdx);
+        String dbKey = ShardKeys.dbKey(dbIdx);
 
         SDTContext.setDBKey(dbKey);
 
-        log.debug("[Router-DB-Time] key={} timestamp={} yearMonth={} dbIdx={} dbKey={}",
-                strategyContext.getKeyValue(), timestamp, yearMonth, dbIdx, dbKey);
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-DB-Time] key={} epochDay={} yearMonth={} dbIdx={} dbKey={}",
+                    strategyContext.getKeyValue(), epochDay, yearMonth, dbIdx, dbKey);
+        }
     }
 
+    /**
+     * 按日期取模分表（已不推荐，按周期分表请配置 time-partitions）
+     */
     @Override
     public void splitTB(StrategyContext strategyContext) {
         int size = strategyContext.getTbCount();
 
         // 解析时间值（支持时间戳或日期字符串）
-        long timestamp = parseTimestamp(strategyContext.getKeyValue());
-        LocalDateTime dateTime = LocalDateTime.ofInstant(
-                Instant.ofEpochMilli(timestamp),
-                ZoneId.systemDefault());
+        long epochDay = TimePartitions.epochDay(strategyContext.getKeyValue(), zone(strategyContext));
 
         // 使用日期作为分表依据（年月日）
-        int dateNum = dateTime.getYear() * 10000 + dateTime.getMonthValue() * 100 + dateTime.getDayOfMonth();
+        int dateNum = TimePartitions.civilDate(epochDay);
         int tbIdx = dateNum % size + 1;
 
         // 格式化表 key
-        String tbKey = String.format("%03d", tbIdx);
+        String tbKey = ShardKeys.tbKey(tbIdx);
 
         SDTContext.setTBKey(tbKey);
 
-        log.debug("[Router-TB-Time] key={} timestamp={} dateNum={} tbIdx={} tbKey={}",
-                strategyContext.getKeyValue(), timestamp, dateNum, tbIdx, tbKey);
+        if (log.isDebugEnabled()) {
+            log.debug("[Router-TB-Time] key={} epochDay={} dateNum={} tbIdx={} tbKey={}",
+                    strategyContext.getKeyValue(), epochDay, dateNum, tbIdx, tbKey);
+        }
     }
 
     /**
-     * 解析时间戳
-     * 支持：时间戳（毫秒）、时间戳（秒）、日期字符串
+     * 数据源组的时区，未初始化的组使用系统默认时区
      */
-    private long parseTimestamp(String value) {
-        try {
-            // 尝试解析为长整型（时间戳）
-            long timestamp = Long.parseLong(value);
-
-            // 判断是秒还是毫秒（如果小于10000000000，认为是秒）
-            if (timestamp < 10000000000L) {
-                timestamp = timestamp * 1000;
-            }
-
-            return timestamp;
-        } catch (NumberFormatException e) {
-            // 尝试解析为日期字符串（支持多种格式）
-            try {
-                LocalDateTime dateTime = LocalDateTime.parse(value + " 00:00:00",
-                        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-            } catch (Exception ex) {
-                log.error("Failed to parse timestamp: {}", value, ex);
-                // 返回当前时间戳作为降级
-                return System.currentTimeMillis();
-            }
-        }
+    private String zone(StrategyContext strategyContext) {
+        String groupKey = strategyContext.getGroupKey();
+        String zone = groupKey == null ? null : zones.get(groupKey);
+        return zone == null || zone.isEmpty() ? null : zone;
     }
 
     public void clear() {
@@ -0,0 +1,208 @@
+package com.wht.sdt.transaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.ResourceHolderSupport;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片事务连接持有者
+ * 一个事务内每个访问到的分片（groupXXdbYY）绑定一个物理连接，按第一次访问的顺序保存
+ *
+ * @author wht
+ */
+@Slf4j
+public class ShardConnectionHolder extends ResourceHolderSupport {
+
+    private final TransactionDefinition definition;
+
+    /**
+     * 分片数据源 -> 分片连接（按第一次访问的顺序）
+     */
+    private final Map<DataSource, ShardConnection> connections = new LinkedHashMap<>();
+
+    /**
+     * 最近一次使用的分片连接（执行非Statement操作时使用，如获取元数据）
+     */
+    private ShardConnection current;
+
+    private boolean transactionActive;
+
+    public ShardConnectionHolder(TransactionDefinition definition) {
+        this.definition = definition;
+    }
+
+    /**
+     * 获取分片的事务连接，第一次访问该分片时从连接池获取并开启事务
+     *
+     * @param name       分片名称，如：group01db01
+     * @param dataSource 分片数据源
+     * @return 物理连接
+     * @throws SQLException 获取连接失败
+     */
+    public synchronized Connection getConnection(String name, DataSource dataSource) throws SQLException {
+        ShardConnection shardConnection = connections.get(dataSource);
+        if (shardConnection == null) {
+            shardConnection = open(name, dataSource);
+            connections.put(dataSource, shardConnection);
+            log.debug("Enlisted shard {} in transaction ({} shard(s))", name, connections.size());
+        }
+        current = shardConnection;
+        return shardConnection.connection();
+    }
+
+    /**
+     * 最近一次使用的分片连接，尚未访问任何分片时返回null
+     */
+    public synchronized Connection getCurrentConnection() {
+        return current == null ? null : current.connection();
+    }
+
+    /**
+     * 事务内访问到的所有分片连接（按第一次访问的顺序）
+     */
+    public synchronized List<ShardConnection> getConnections() {
+        return new ArrayList<>(connections.values());
+    }
+
+    public synchronized int getShardCount() {
+        return connections.size();
+    }
+
+    public boolean isTransactionActive() {
+        return transactionActive;
+    }
+
+    public void setTransactionActive(boolean transactionActive) {
+        this.transactionActive = transactionActive;
+    }
+
+    /**
+     * 在已访问的每个分片连接上创建保存点
+     *
+     * @return 保存点
+     * @throws SQLException 创建失败（已创建的保存点会释放）
+     */
+    public synchronized ShardSavepoint createSavepoint() throws SQLException {
+        List<ShardConnection> enlisted = new ArrayList<>(connections.values());
+        List<Savepoint> savepoints = new ArrayList<>(enlisted.size());
+        try {
+            for (ShardConnection shardConnection : enlisted) {
+                savepoints.add(shardConnection.connection().setSavepoint());
+            }
+        } catch (SQLException e) {
+            release(enlisted, savepoints);
+            throw e;
+        }
+        return new ShardSavepoint(enlisted, savepoints);
+    }
+
+    /**
+     * 回滚到保存点：创建保存点时已访问的分片回滚到保存点，之后才访问的分片整体回滚
+     *
+     * @param savepoint 保存点
+     * @throws SQLException 回滚失败
+     */
+    public synchronized void rollbackToSavepoint(ShardSavepoint savepoint) throws SQLException {
+        List<ShardConnection> enlisted = new ArrayList<>(connections.values());
+        for (int i = enlisted.size() - 1; i >= 0; i--) {
+            ShardConnection shardConnection = enlisted.get(i);
+            int index = savepoint.connections().indexOf(shardConnection);
+            if (index < 0) {
+                shardConnection.connection().rollback();
+            } else {
+                shardConnection.connection().rollback(savepoint.savepoints().get(index));
+            }
+        }
+    }
+
+    /**
+     * 释放保存点，释放失败时忽略（部分驱动不支持释放保存点）
+     *
+     * @param savepoint 保存点
+     */
+    public synchronized void releaseSavepoint(ShardSavepoint savepoint) {
+        release(savepoint.connections(), savepoint.savepoints());
+    }
+
+    private static void release(List<ShardConnection> enlisted, List<Savepoint> savepoints) {
+        for (int i = 0; i < savepoints.size(); i++) {
+            try {
+                enlisted.get(i).connection().releaseSavepoint(savepoints.get(i));
+            } catch (Throwable e) {
+                log.debug("Could not release savepoint on shard {}", enlisted.get(i).name(), e);
+            }
+        }
+    }
+
+    /**
+     * 恢复所有连接的事务前状态并归还连接池
+     */
+    public synchronized void releaseAll() {
+        for (ShardConnection shardConnection : connections.values()) {
+            Connection connection = shardConnection.connection();
+            try {
+                if (shardConnection.resetAutoCommit()) {
+                    connection.setAutoCommit(true);
+                }
+                DataSourceUtils.resetConnectionAfterTransaction(connection,
+                        shardConnection.previousIsolationLevel(), definition.isReadOnly());
+            } catch (Throwable e) {
+                log.debug("Could not reset shard connection {} after transaction", shardConnection.name(), e);
+            }
+            try {
+                connection.close();
+            } catch (Throwable e) {
+                log.debug("Could not close shard connection {} after transaction", shardConnection.name(), e);
+            }
+        }
+        connections.clear();
+        current = null;
+        transactionActive = false;
+    }
+
+    private ShardConnection open(String name, DataSource dataSource) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            Integer previousIsolationLevel = DataSourceUtils.prepareConnectionForTransaction(connection, definition);
+            boolean resetAutoCommit = connection.getAutoCommit();
+            if (resetAutoCommit) {
+                connection.setAutoCommit(false);
+            }
+            return new ShardConnection(name, connection, previousIsolationLevel, resetAutoCommit);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 分片连接
+     *
+     * @param name                   分片名称
+     * @param connection             物理连接
+     * @param previousIsolationLevel 事务前的隔离级别（未修改时为null）
+     * @param resetAutoCommit        事务结束后是否恢复自动提交
+     */
+    public record ShardConnection(String name, Connection connection, Integer previousIsolationLevel,
+                                  boolean resetAutoCommit) {
+    }
+
+    /**
+     * 多分片保存点
+     *
+     * @param connections 创建保存点时已访问的分片连接
+     * @param savepoints  各分片连接上的保存点（与连接顺序一致）
+     */
+    public record ShardSavepoint(List<ShardConnection> connections, List<Savepoint> savepoints) {
+    }
+}
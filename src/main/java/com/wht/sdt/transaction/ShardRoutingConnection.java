@@ -0,0 +1,112 @@
+package com.wht.sdt.transaction;
+
+import com.wht.sdt.config.bean.DynamicDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 分片事务中的路由连接
+ * 每次创建Statement时按当前路由上下文选择分片，使用该分片在事务中绑定的物理连接；
+ * 提交、回滚、关闭由 {@link ShardTransactionManager} 统一处理，在此代理上调用时忽略
+ *
+ * @author wht
+ */
+public final class ShardRoutingConnection implements InvocationHandler {
+
+    private final DynamicDataSource dataSource;
+
+    private final ShardConnectionHolder holder;
+
+    private boolean closed;
+
+    private ShardRoutingConnection(DynamicDataSource dataSource, ShardConnectionHolder holder) {
+        this.dataSource = dataSource;
+        this.holder = holder;
+    }
+
+    /**
+     * 创建路由连接代理
+     *
+     * @param dataSource 动态数据源
+     * @param holder     当前事务的分片连接持有者
+     * @return 连接代理
+     */
+    public static Connection create(DynamicDataSource dataSource, ShardConnectionHolder holder) {
+        return (Connection) Proxy.newProxyInstance(ShardRoutingConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ShardRoutingConnection(dataSource, holder));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Shard routing connection [" + holder.getShardCount() + " shard(s) enlisted]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "getAutoCommit":
+                return false;
+            case "setAutoCommit":
+            case "commit":
+            case "rollback":
+            case "setReadOnly":
+            case "setTransactionIsolation":
+                // 由事务管理器统一处理
+                return null;
+            default:
+                break;
+        }
+
+        if (closed) {
+            throw new SQLException("Connection handle already closed");
+        }
+
+        boolean statement = method.getName().equals("createStatement")
+                || method.getName().equals("prepareStatement")
+                || method.getName().equals("prepareCall");
+        Connection target = statement ? routeConnection() : holder.getCurrentConnection();
+        if (target == null) {
+            target = routeConnection();
+        }
+
+        try {
+            Object result = method.invoke(target, args);
+            if (result instanceof Statement created && holder.hasTimeout()) {
+                // 事务超时时间作用于每条语句，超时后抛出TransactionTimedOutException
+                created.setQueryTimeout(holder.getTimeToLiveInSeconds());
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 按当前路由上下文获取分片的事务连接
+     */
+    private Connection routeConnection() throws SQLException {
+        return holder.getConnection(dataSource.getCurrentLookupKey(), dataSource.getCurrentTargetDataSource());
+    }
+}
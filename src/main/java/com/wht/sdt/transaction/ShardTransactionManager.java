@@ -0,0 +1,279 @@
+package com.wht.sdt.transaction;
+
+import com.wht.sdt.config.bean.DynamicDataSource;
+import com.wht.sdt.executor.ShardQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 分片事务管理器
+ * 事务内每个访问到的分片（groupXXdbYY）绑定一个物理连接，语句按路由上下文使用对应分片的连接，
+ * 结束时并行提交所有分片（尽力而为的一阶段提交），回滚时按访问顺序的逆序依次回滚。
+ * 嵌套事务（PROPAGATION_NESTED）在事务内已访问的每个分片上创建保存点，之后才访问的分片回滚到保存点时整体回滚
+ * <p>
+ * 注意：各分片的提交不是原子的，某个分片提交失败时其他分片可能已经提交，此时抛出
+ * {@link HeuristicCompletionException}（STATE_MIXED）并记录到统计中
+ *
+ * @author wht
+ */
+@Slf4j
+public class ShardTransactionManager extends AbstractPlatformTransactionManager {
+
+    private final DynamicDataSource dataSource;
+
+    /**
+     * 多分片并行提交使用的执行器
+     */
+    private final ShardQueryExecutor executor;
+
+    private final ShardTransactionMetrics metrics = new ShardTransactionMetrics();
+
+    public ShardTransactionManager(DynamicDataSource dataSource, ShardQueryExecutor executor) {
+        this.dataSource = dataSource;
+        this.executor = executor;
+        setNestedTransactionAllowed(true);
+    }
+
+    public DynamicDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public ShardTransactionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        ShardTransactionObject txObject = new ShardTransactionObject();
+        txObject.holder = (ShardConnectionHolder) TransactionSynchronizationManager
+                .getResource(dataSource.getTransactionResourceKey());
+        return txObject;
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        ShardConnectionHolder holder = ((ShardTransactionObject) transaction).holder;
+        return holder != null && holder.isTransactionActive();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        ShardTransactionObject txObject = (ShardTransactionObject) transaction;
+        try {
+            // 分片连接在第一次执行语句时获取
+            ShardConnectionHolder holder = new ShardConnectionHolder(definition);
+            holder.setSynchronizedWithTransaction(true);
+            holder.setTransactionActive(true);
+            int timeout = determineTimeout(definition);
+            if (timeout != TransactionDefinition.TIMEOUT_DEFAULT) {
+                holder.setTimeoutInSeconds(timeout);
+            }
+            TransactionSynchronizationManager.bindResource(dataSource.getTransactionResourceKey(), holder);
+            txObject.holder = holder;
+            txObject.newHolder = true;
+        } catch (RuntimeException e) {
+            throw new CannotCreateTransactionException("Could not begin shard transaction", e);
+        }
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((ShardTransactionObject) transaction).holder = null;
+        return TransactionSynchronizationManager.unbindResource(dataSource.getTransactionResourceKey());
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(dataSource.getTransactionResourceKey(), suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        ShardConnectionHolder holder = ((ShardTransactionObject) status.getTransaction()).holder;
+        List<ShardConnectionHolder.ShardConnection> connections = holder.getConnections();
+
+        if (connections.size() <= 1) {
+            for (ShardConnectionHolder.ShardConnection shardConnection : connections) {
+                try {
+                    shardConnection.connection().commit();
+                } catch (SQLException e) {
+                    metrics.recordCommitFailure(false);
+                    metrics.recordCompletion(connections.size(), false);
+                    throw new TransactionSystemException("Could not commit shard " + shardConnection.name(), e);
+                }
+            }
+            metrics.recordCompletion(connections.size(), true);
+            return;
+        }
+
+        // 多个分片并行提交；分片任务线程中提交时在当前线程依次提交，避免占满执行器后互相等待
+        long start = System.nanoTime();
+        boolean inline = ShardQueryExecutor.inTask();
+        List<Future<Void>> futures = new ArrayList<>(connections.size());
+        for (ShardConnectionHolder.ShardConnection shardConnection : connections) {
+            Callable<Void> commit = () -> {
+                shardConnection.connection().commit();
+                return null;
+            };
+            if (inline) {
+                FutureTask<Void> future = new FutureTask<>(commit);
+                future.run();
+                futures.add(future);
+            } else {
+                futures.add(executor.submit(commit));
+            }
+        }
+
+        List<String> committed = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        Throwable failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            String name = connections.get(i).name();
+            try {
+                futures.get(i).get();
+                committed.add(name);
+            } catch (ExecutionException e) {
+                failed.add(name);
+                failure = addSuppressed(failure, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.add(name);
+                failure = addSuppressed(failure, e);
+            }
+        }
+        metrics.recordMultiShardCommit(System.nanoTime() - start);
+
+        if (failed.isEmpty()) {
+            metrics.recordCompletion(connections.size(), true);
+            log.debug("Committed shard transaction on {}", committed);
+            return;
+        }
+
+        // 提交失败的分片尽力回滚，避免归还连接池时恢复自动提交导致再次提交
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            ShardConnectionHolder.ShardConnection shardConnection = connections.get(i);
+            if (failed.contains(shardConnection.name())) {
+                try {
+                    shardConnection.connection().rollback();
+                } catch (SQLException e) {
+                    log.debug("Could not roll back shard {} after commit failure", shardConnection.name(), e);
+                }
+            }
+        }
+
+        metrics.recordCommitFailure(!committed.isEmpty());
+        metrics.recordCompletion(connections.size(), false);
+        if (committed.isEmpty()) {
+            throw new TransactionSystemException("Could not commit shard transaction on " + failed, failure);
+        }
+        log.error("Shard transaction partially committed: committed={}, failed={}", committed, failed, failure);
+        throw new HeuristicCompletionException(HeuristicCompletionException.STATE_MIXED, failure);
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        ShardConnectionHolder holder = ((ShardTransactionObject) status.getTransaction()).holder;
+        List<ShardConnectionHolder.ShardConnection> connections = holder.getConnections();
+
+        // 按访问顺序的逆序回滚，某个分片失败时继续回滚其余分片
+        Throwable failure = null;
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            ShardConnectionHolder.ShardConnection shardConnection = connections.get(i);
+            try {
+                shardConnection.connection().rollback();
+            } catch (SQLException e) {
+                log.error("Could not roll back shard {}", shardConnection.name(), e);
+                failure = addSuppressed(failure, e);
+            }
+        }
+        metrics.recordCompletion(connections.size(), false);
+        if (failure != null) {
+            throw new TransactionSystemException("Could not roll back shard transaction", failure);
+        }
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((ShardTransactionObject) status.getTransaction()).holder.setRollbackOnly();
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        ShardTransactionObject txObject = (ShardTransactionObject) transaction;
+        if (txObject.newHolder) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(dataSource.getTransactionResourceKey());
+        }
+        txObject.holder.releaseAll();
+        txObject.holder.clear();
+    }
+
+    private static Throwable addSuppressed(Throwable failure, Throwable e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    /**
+     * 分片事务对象，嵌套事务的保存点由分片连接持有者在各分片上创建；
+     * 参与事务（PROPAGATION_REQUIRED）标记的只回滚状态保存在分片连接持有者上，外层提交时据此整体回滚
+     */
+    private static final class ShardTransactionObject implements SavepointManager, SmartTransactionObject {
+
+        private ShardConnectionHolder holder;
+
+        private boolean newHolder;
+
+        @Override
+        public Object createSavepoint() throws TransactionException {
+            try {
+                return holder.createSavepoint();
+            } catch (SQLException e) {
+                throw new CannotCreateTransactionException("Could not create shard savepoint", e);
+            }
+        }
+
+        @Override
+        public void rollbackToSavepoint(Object savepoint) throws TransactionException {
+            try {
+                holder.rollbackToSavepoint((ShardConnectionHolder.ShardSavepoint) savepoint);
+                holder.resetRollbackOnly();
+            } catch (SQLException e) {
+                throw new TransactionSystemException("Could not roll back to shard savepoint", e);
+            }
+        }
+
+        @Override
+        public void releaseSavepoint(Object savepoint) throws TransactionException {
+            holder.releaseSavepoint((ShardConnectionHolder.ShardSavepoint) savepoint);
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return holder != null && holder.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+            // 语句直接在分片连接上执行，无需刷新
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.wht.sdt.transaction;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片事务统计
+ *
+ * @author wht
+ */
+public class ShardTransactionMetrics {
+
+    private final LongAdder commits = new LongAdder();
+
+    private final LongAdder rollbacks = new LongAdder();
+
+    private final LongAdder multiShardTransactions = new LongAdder();
+
+    private final LongAdder shardsEnlisted = new LongAdder();
+
+    private final LongAdder commitFailures = new LongAdder();
+
+    private final LongAdder partialCommits = new LongAdder();
+
+    private final LongAdder multiShardCommits = new LongAdder();
+
+    private final LongAdder multiShardCommitNanos = new LongAdder();
+
+    private final LongAccumulator maxShards = new LongAccumulator(Math::max, 0);
+
+    void recordCompletion(int shardCount, boolean committed) {
+        (committed ? commits : rollbacks).increment();
+        shardsEnlisted.add(shardCount);
+        maxShards.accumulate(shardCount);
+        if (shardCount > 1) {
+            multiShardTransactions.increment();
+        }
+    }
+
+    void recordMultiShardCommit(long nanos) {
+        multiShardCommits.increment();
+        multiShardCommitNanos.add(nanos);
+    }
+
+    void recordCommitFailure(boolean partial) {
+        commitFailures.increment();
+        if (partial) {
+            partialCommits.increment();
+        }
+    }
+
+    /**
+     * 已提交的事务数
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * 已回滚的事务数
+     */
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    /**
+     * 访问了多个分片的事务数
+     */
+    public long getMultiShardTransactions() {
+        return multiShardTransactions.sum();
+    }
+
+    /**
+     * 所有事务访问的分片总数
+     */
+    public long getShardsEnlisted() {
+        return shardsEnlisted.sum();
+    }
+
+    /**
+     * 单个事务访问的最大分片数
+     */
+    public long getMaxShards() {
+        return maxShards.get();
+    }
+
+    /**
+     * 提交失败的事务数
+     */
+    public long getCommitFailures() {
+        return commitFailures.sum();
+    }
+
+    /**
+     * 部分分片已提交、部分分片提交失败的事务数（需要人工核对数据）
+     */
+    public long getPartialCommits() {
+        return partialCommits.sum();
+    }
+
+    /**
+     * 多分片事务的提交次数（包括提交失败）
+     */
+    public long getMultiShardCommits() {
+        return multiShardCommits.sum();
+    }
+
+    /**
+     * 多分片事务并行提交的累计耗时（纳秒）
+     */
+    public long getMultiShardCommitNanos() {
+        return multiShardCommitNanos.sum();
+    }
+}
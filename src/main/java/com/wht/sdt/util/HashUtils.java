@@ -0,0 +1,73 @@
+package com.wht.sdt.util;
+
+/**
+ * 哈希工具类
+ * 提供非加密的64位哈希（MurmurHash64A），直接按字符计算，不产生任何对象分配
+ *
+ * @author wht
+ */
+public final class HashUtils {
+
+    private static final long SEED = 0x9747b28cL;
+
+    private static final long M = 0xc6a4a7935bd1e995L;
+
+    private static final int R = 47;
+
+    private HashUtils() {
+    }
+
+    /**
+     * 计算字符序列的64位哈希值
+     * 每个字符按UTF-16小端的2个字节参与计算，等价于对UTF-16LE字节数组执行MurmurHash64A
+     *
+     * @param value 字符序列
+     * @return 哈希值
+     */
+    public static long murmur64(CharSequence value) {
+        int length = value.length();
+        long h = SEED ^ (length * 2L * M);
+
+        int i = 0;
+        int blockEnd = length & ~3;
+        for (; i < blockEnd; i += 4) {
+            long k = value.charAt(i)
+                    | ((long) value.charAt(i + 1) << 16)
+                    | ((long) value.charAt(i + 2) << 32)
+                    | ((long) value.charAt(i + 3) << 48);
+            k *= M;
+            k ^= k >>> R;
+            k *= M;
+
+            h ^= k;
+            h *= M;
+        }
+
+        if (i < length) {
+            long k = 0;
+            for (int j = length - 1; j >= i; j--) {
+                k = (k << 16) | value.charAt(j);
+            }
+            h ^= k;
+            h *= M;
+        }
+
+        h ^= h >>> R;
+        h *= M;
+        h ^= h >>> R;
+        return h;
+    }
+
+    /**
+     * 64位混淆函数（SplitMix64的finalizer），用于对已有哈希值再次打散
+     *
+     * @param value 输入值
+     * @return 混淆后的值
+     */
+    public static long mix64(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,147 @@
+package com.wht.sdt.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 有界并发LRU缓存
+ * 按key的哈希值分段，每段是一个按访问顺序排序的LinkedHashMap，段内加锁，
+ * 超过容量时淘汰该段最久未访问的条目，并记录命中/未命中次数
+ *
+ * @author wht
+ */
+public class LruCache<K, V> {
+
+    // 分段数量（2的幂）
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final int maxSize;
+
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize必须大于0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        int segmentCapacity = Math.max(1, (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param key 缓存key
+     * @return 缓存值，不存在时返回null
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 写入缓存值
+     */
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * 获取缓存值，不存在时计算并写入
+     * 计算过程在锁外执行，并发未命中时可能重复计算，但结果相同
+     *
+     * @param key             缓存key
+     * @param mappingFunction 计算函数
+     * @return 缓存值
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = mappingFunction.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash = hash ^ (hash >>> 16);
+        return segments[hash & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 缓存分段，按访问顺序淘汰
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
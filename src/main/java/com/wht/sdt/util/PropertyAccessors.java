@@ -0,0 +1,199 @@
+package com.wht.sdt.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.time.temporal.Temporal;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 属性访问器缓存
+ * 按类缓存属性名 -> MethodHandle，查找顺序：getter（getX/isX）、record组件、字段（包含父类字段），
+ * 每个类的每个属性只反射解析一次，之后直接调用MethodHandle
+ *
+ * @author wht
+ */
+@Slf4j
+public final class PropertyAccessors {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ConcurrentMap<String, Optional<MethodHandle>>> ACCESSORS =
+            new ClassValue<>() {
+                @Override
+                protected ConcurrentMap<String, Optional<MethodHandle>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private PropertyAccessors() {
+    }
+
+    /**
+     * 获取属性访问器
+     *
+     * @param type     类
+     * @param property 属性名
+     * @return 类型为 (Object)Object 的MethodHandle，属性不存在时返回null
+     */
+    public static MethodHandle getAccessor(Class<?> type, String property) {
+        ConcurrentMap<String, Optional<MethodHandle>> accessors = ACCESSORS.get(type);
+        Optional<MethodHandle> accessor = accessors.get(property);
+        if (accessor == null) {
+            accessor = accessors.computeIfAbsent(property, name -> Optional.ofNullable(resolve(type, name)));
+        }
+        return accessor.orElse(null);
+    }
+
+    /**
+     * 属性是否存在
+     */
+    public static boolean hasProperty(Class<?> type, String property) {
+        return getAccessor(type, property) != null;
+    }
+
+    /**
+     * 读取属性值
+     *
+     * @param target   对象
+     * @param property 属性名
+     * @return 属性值，属性不存在时返回null
+     */
+    public static Object getValue(Object target, String property) {
+        MethodHandle accessor = getAccessor(target.getClass(), property);
+        if (accessor == null) {
+            return null;
+        }
+        try {
+            return (Object) accessor.invokeExact(target);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("读取属性失败: " + target.getClass().getName() + "." + property, e);
+        }
+    }
+
+    /**
+     * 按属性路径读取值，对象为Map时按key读取
+     *
+     * @param target 对象
+     * @param path   属性路径
+     * @return 属性值，路径中任一环节为null、简单类型或属性不存在时返回null
+     */
+    public static Object getPathValue(Object target, String[] path) {
+        Object current = target;
+        for (String property : path) {
+            if (current == null) {
+                return null;
+            }
+            if (current instanceof Map) {
+                current = ((Map<?, ?>) current).get(property);
+            } else if (isSimpleType(current.getClass())) {
+                return null;
+            } else {
+                current = getValue(current, property);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 简单类型没有可按路径读取的属性
+     */
+    public static boolean isSimpleType(Class<?> type) {
+        return type.isPrimitive()
+                || type.isEnum()
+                || type.isArray()
+                || CharSequence.class.isAssignableFrom(type)
+                || Number.class.isAssignableFrom(type)
+                || Boolean.class == type
+                || Character.class == type
+                || Date.class.isAssignableFrom(type)
+                || Temporal.class.isAssignableFrom(type)
+                || Collection.class.isAssignableFrom(type);
+    }
+
+    private static MethodHandle resolve(Class<?> type, String property) {
+        try {
+            MethodHandle handle = resolveGetter(type, property);
+            if (handle == null) {
+                handle = resolveRecordComponent(type, property);
+            }
+            if (handle == null) {
+                handle = resolveField(type, property);
+            }
+            return handle == null ? null : handle.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            log.warn("Property {} of {} is not accessible: {}", property, type.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static MethodHandle resolveGetter(Class<?> type, String property) throws IllegalAccessException {
+        if (property.isEmpty()) {
+            return null;
+        }
+        String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (String name : new String[]{"get" + capitalized, "is" + capitalized}) {
+            Method getter;
+            try {
+                getter = type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            if (getter.getReturnType() == void.class || Modifier.isStatic(getter.getModifiers())
+                    || (name.startsWith("is") && getter.getReturnType() != boolean.class
+                    && getter.getReturnType() != Boolean.class)) {
+                continue;
+            }
+            return unreflect(getter);
+        }
+        return null;
+    }
+
+    private static MethodHandle resolveRecordComponent(Class<?> type, String property) throws IllegalAccessException {
+        if (!type.isRecord()) {
+            return null;
+        }
+        for (RecordComponent component : type.getRecordComponents()) {
+            if (component.getName().equals(property)) {
+                return unreflect(component.getAccessor());
+            }
+        }
+        return null;
+    }
+
+    private static MethodHandle resolveField(Class<?> type, String property) throws IllegalAccessException {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(property) && !Modifier.isStatic(field.getModifiers())) {
+                    return privateLookup(current).unreflectGetter(field);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return MethodHandles.publicLookup().unreflect(method);
+        }
+        // 公共方法可能声明在非公共类中（如匿名类、包级私有类），需要从声明类获取私有查找权限
+        return privateLookup(method.getDeclaringClass()).unreflect(method);
+    }
+
+    private static MethodHandles.Lookup privateLookup(Class<?> type) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    }
+}
@@ -0,0 +1,89 @@
+package com.wht.sdt.util;
+
+/**
+ * 分库分表键工具类
+ * 启动时预先生成组键（group01）、库键（db01）、表后缀（001），路由时直接按下标取用，
+ * 避免每次调用都执行String.format
+ *
+ * @author wht
+ */
+public final class ShardKeys {
+
+    /**
+     * 预生成的最大组编号
+     */
+    public static final int MAX_CACHED_GROUP = 99;
+
+    /**
+     * 预生成的最大库编号
+     */
+    public static final int MAX_CACHED_DB = 99;
+
+    /**
+     * 预生成的最大表编号
+     */
+    public static final int MAX_CACHED_TB = 1024;
+
+    private static final String[] GROUP_KEYS = new String[MAX_CACHED_GROUP + 1];
+
+    private static final String[] DB_KEYS = new String[MAX_CACHED_DB + 1];
+
+    private static final String[] TB_KEYS = new String[MAX_CACHED_TB + 1];
+
+    static {
+        for (int i = 0; i <= MAX_CACHED_GROUP; i++) {
+            GROUP_KEYS[i] = formatGroupKey(i).intern();
+        }
+        for (int i = 0; i <= MAX_CACHED_DB; i++) {
+            DB_KEYS[i] = formatDbKey(i).intern();
+        }
+        for (int i = 0; i <= MAX_CACHED_TB; i++) {
+            TB_KEYS[i] = formatTbKey(i).intern();
+        }
+    }
+
+    private ShardKeys() {
+    }
+
+    /**
+     * 组键，如：group01
+     */
+    public static String groupKey(int groupIdx) {
+        if (groupIdx >= 0 && groupIdx <= MAX_CACHED_GROUP) {
+            return GROUP_KEYS[groupIdx];
+        }
+        return formatGroupKey(groupIdx);
+    }
+
+    /**
+     * 库键，如：db01
+     */
+    public static String dbKey(int dbIdx) {
+        if (dbIdx >= 0 && dbIdx <= MAX_CACHED_DB) {
+            return DB_KEYS[dbIdx];
+        }
+        return formatDbKey(dbIdx);
+    }
+
+    /**
+     * 表后缀，如：001
+     */
+    public static String tbKey(int tbIdx) {
+        if (tbIdx >= 0 && tbIdx <= MAX_CACHED_TB) {
+            return TB_KEYS[tbIdx];
+        }
+        return formatTbKey(tbIdx);
+    }
+
+    private static String formatGroupKey(int groupIdx) {
+        return "group" + String.format("%02d", groupIdx);
+    }
+
+    private static String formatDbKey(int dbIdx) {
+        return "db" + String.format("%02d", dbIdx);
+    }
+
+    private static String formatTbKey(int tbIdx) {
+        return String.format("%03d", tbIdx);
+    }
+}
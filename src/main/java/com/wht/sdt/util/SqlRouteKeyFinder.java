@@ -0,0 +1,346 @@
+package com.wht.sdt.util;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.RowConstructor;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.statement.update.Update;
+import net.sf.jsqlparser.statement.values.ValuesStatement;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.List;
+
+/**
+ * SQL路由字段查找工具类
+ * 使用JSqlParser解析SQL，在WHERE条件（仅AND连接的等值条件）或INSERT的列中查找路由字段，
+ * 返回对应的参数位置或字面量，用于方法参数中没有路由字段时从SQL中获取路由字段值；
+ * 也可以查找路由字段的范围条件，用于按范围裁剪需要执行的分片
+ *
+ * @author wht
+ */
+@Slf4j
+public class SqlRouteKeyFinder {
+
+    /**
+     * 查找SQL中路由字段对应的取值方式
+     * 列名与路由字段按忽略大小写和下划线比较，如：user_id 与 userId 匹配
+     *
+     * @param sql      SQL（MyBatis生成的带 ? 占位符的SQL）
+     * @param routeKey 路由字段（嵌套路径时取最后一段）
+     * @return 取值方式，未找到时返回 {@link RoutePlan#NONE}
+     */
+    public static RoutePlan find(String sql, String routeKey) {
+        if (sql == null || sql.isEmpty() || routeKey == null || routeKey.isEmpty()) {
+            return RoutePlan.NONE;
+        }
+
+        String column = normalize(routeKey.substring(routeKey.lastIndexOf('.') + 1));
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            RoutePlan plan = null;
+            if (statement instanceof Select select && select.getSelectBody() instanceof PlainSelect plainSelect) {
+                plan = findInWhere(plainSelect.getWhere(), column);
+            } else if (statement instanceof Update update) {
+                plan = findInWhere(update.getWhere(), column);
+            } else if (statement instanceof Delete delete) {
+                plan = findInWhere(delete.getWhere(), column);
+            } else if (statement instanceof Insert insert) {
+                plan = findInInsert(insert, column);
+            }
+            return plan == null ? RoutePlan.NONE : plan;
+        } catch (Exception e) {
+            log.warn("Failed to find route key {} in SQL: {}", routeKey, e.getMessage());
+            return RoutePlan.NONE;
+        }
+    }
+
+    /**
+     * 查找SQL中路由字段的范围条件（BETWEEN、&gt;、&gt;=、&lt;、&lt;=、=，仅AND连接的条件）
+     * 同一方向有多个条件时使用第一个（得到的范围不小于实际范围）
+     *
+     * @param sql      SQL（MyBatis生成的带 ? 占位符的SQL）
+     * @param routeKey 路由字段（嵌套路径时取最后一段）
+     * @return 范围条件，未找到时返回 {@link RangePlan#NONE}
+     */
+    public static RangePlan findRange(String sql, String routeKey) {
+        if (sql == null || sql.isEmpty() || routeKey == null || routeKey.isEmpty()) {
+            return RangePlan.NONE;
+        }
+
+        String column = normalize(routeKey.substring(routeKey.lastIndexOf('.') + 1));
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            Expression where = null;
+            if (statement instanceof Select select && select.getSelectBody() instanceof PlainSelect plainSelect) {
+                where = plainSelect.getWhere();
+            } else if (statement instanceof Update update) {
+                where = update.getWhere();
+            } else if (statement instanceof Delete delete) {
+                where = delete.getWhere();
+            }
+            RangeBuilder range = new RangeBuilder();
+            collectRange(where, column, range);
+            return range.lower == null && range.upper == null
+                    ? RangePlan.NONE
+                    : new RangePlan(range.lower, range.lowerInclusive, range.upper, range.upperInclusive);
+        } catch (Exception e) {
+            log.warn("Failed to find range of route key {} in SQL: {}", routeKey, e.getMessage());
+            return RangePlan.NONE;
+        }
+    }
+
+    /**
+     * 按取值方式读取路由字段值（与MyBatis DefaultParameterHandler的取值方式一致）
+     *
+     * @param plan            取值方式
+     * @param mappedStatement 语句
+     * @param boundSql        本次执行的SQL及参数
+     * @return 路由字段值，没有对应的参数时返回null
+     */
+    public static Object resolve(RoutePlan plan, MappedStatement mappedStatement, BoundSql boundSql) {
+        if (plan.literal() != null) {
+            return plan.literal();
+        }
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        int index = plan.parameterIndex();
+        if (index < 0 || parameterMappings == null || index >= parameterMappings.size()) {
+            return null;
+        }
+
+        String property = parameterMappings.get(index).getProperty();
+        if (boundSql.hasAdditionalParameter(property)) {
+            return boundSql.getAdditionalParameter(property);
+        }
+        Object parameterObject = boundSql.getParameterObject();
+        if (parameterObject == null) {
+            return null;
+        }
+        Configuration configuration = mappedStatement.getConfiguration();
+        if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+            return parameterObject;
+        }
+        return configuration.newMetaObject(parameterObject).getValue(property);
+    }
+
+    private static void collectRange(Expression where, String column, RangeBuilder range) {
+        if (where instanceof Parenthesis parenthesis) {
+            collectRange(parenthesis.getExpression(), column, range);
+        } else if (where instanceof AndExpression and) {
+            collectRange(and.getLeftExpression(), column, range);
+            collectRange(and.getRightExpression(), column, range);
+        } else if (where instanceof Between between) {
+            if (!between.isNot() && isColumn(between.getLeftExpression(), column)) {
+                range.lower(toPlan(between.getBetweenExpressionStart()), true);
+                range.upper(toPlan(between.getBetweenExpressionEnd()), true);
+            }
+        } else if (where instanceof EqualsTo equalsTo) {
+            RoutePlan plan = isColumn(equalsTo.getLeftExpression(), column) ? toPlan(equalsTo.getRightExpression())
+                    : isColumn(equalsTo.getRightExpression(), column) ? toPlan(equalsTo.getLeftExpression()) : null;
+            range.lower(plan, true);
+            range.upper(plan, true);
+        } else if (where instanceof ComparisonOperator comparison) {
+            // 列在左侧时 col > ? 为下界；列在右侧时 ? > col 为上界
+            boolean greater = comparison instanceof GreaterThan || comparison instanceof GreaterThanEquals;
+            boolean inclusive = comparison instanceof GreaterThanEquals || comparison instanceof MinorThanEquals;
+            if (!greater && !(comparison instanceof MinorThan) && !(comparison instanceof MinorThanEquals)) {
+                return;
+            }
+            if (isColumn(comparison.getLeftExpression(), column)) {
+                RoutePlan plan = toPlan(comparison.getRightExpression());
+                if (greater) {
+                    range.lower(plan, inclusive);
+                } else {
+                    range.upper(plan, inclusive);
+                }
+            } else if (isColumn(comparison.getRightExpression(), column)) {
+                RoutePlan plan = toPlan(comparison.getLeftExpression());
+                if (greater) {
+                    range.upper(plan, inclusive);
+                } else {
+                    range.lower(plan, inclusive);
+                }
+            }
+        }
+    }
+
+    private static RoutePlan findInWhere(Expression where, String column) {
+        if (where == null) {
+            return null;
+        }
+        if (where instanceof Parenthesis parenthesis) {
+            return findInWhere(parenthesis.getExpression(), column);
+        }
+        if (where instanceof AndExpression and) {
+            RoutePlan plan = findInWhere(and.getLeftExpression(), column);
+            return plan != null ? plan : findInWhere(and.getRightExpression(), column);
+        }
+        if (where instanceof EqualsTo equalsTo) {
+            if (isColumn(equalsTo.getLeftExpression(), column)) {
+                return toPlan(equalsTo.getRightExpression());
+            }
+            if (isColumn(equalsTo.getRightExpression(), column)) {
+                return toPlan(equalsTo.getLeftExpression());
+            }
+        }
+        // OR等其他条件无法确定唯一的路由字段值
+        return null;
+    }
+
+    private static RoutePlan findInInsert(Insert insert, String column) {
+        List<Column> columns = insert.getColumns();
+        List<Expression> values = values(insert);
+        if (columns == null || values == null) {
+            return null;
+        }
+        for (int i = 0; i < columns.size() && i < values.size(); i++) {
+            if (isColumn(columns.get(i), column)) {
+                return toPlan(values.get(i));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 单行 INSERT ... VALUES 的值列表
+     * JSqlParser 4.5 把 VALUES 解析为只有一个 ValuesStatement 的 SetOperationList，每行是一个 RowConstructor
+     * （不使用已废弃的 Insert.getItemsList）；多行插入、INSERT ... SELECT 无法确定唯一的取值，返回null
+     */
+    private static List<Expression> values(Insert insert) {
+        Select select = insert.getSelect();
+        if (select == null || !(select.getSelectBody() instanceof SetOperationList setOperationList)
+                || setOperationList.getSelects().size() != 1
+                || !(setOperationList.getSelects().get(0) instanceof ValuesStatement valuesStatement)
+                || !(valuesStatement.getExpressions() instanceof ExpressionList rows)) {
+            return null;
+        }
+        List<Expression> expressions = rows.getExpressions();
+        if (expressions.size() == 1 && expressions.get(0) instanceof RowConstructor row) {
+            return row.getExprList() == null ? null : row.getExprList().getExpressions();
+        }
+        return null;
+    }
+
+    private static boolean isColumn(Expression expression, String column) {
+        return expression instanceof Column c && normalize(c.getColumnName()).equals(column);
+    }
+
+    private static RoutePlan toPlan(Expression expression) {
+        if (expression instanceof JdbcParameter parameter && parameter.getIndex() != null) {
+            return new RoutePlan(parameter.getIndex() - 1, null);
+        }
+        if (expression instanceof LongValue longValue) {
+            return new RoutePlan(-1, longValue.getStringValue());
+        }
+        if (expression instanceof StringValue stringValue) {
+            return new RoutePlan(-1, stringValue.getValue());
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_' && c != '`' && c != '"') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 范围条件收集
+     */
+    private static final class RangeBuilder {
+
+        private RoutePlan lower;
+
+        private boolean lowerInclusive;
+
+        private RoutePlan upper;
+
+        private boolean upperInclusive;
+
+        private void lower(RoutePlan plan, boolean inclusive) {
+            if (plan != null && lower == null) {
+                lower = plan;
+                lowerInclusive = inclusive;
+            }
+        }
+
+        private void upper(RoutePlan plan, boolean inclusive) {
+            if (plan != null && upper == null) {
+                upper = plan;
+                upperInclusive = inclusive;
+            }
+        }
+    }
+
+    /**
+     * 路由字段范围条件
+     *
+     * @param lower          下界取值方式，无下界时为null
+     * @param lowerInclusive 是否包含下界
+     * @param upper          上界取值方式，无上界时为null
+     * @param upperInclusive 是否包含上界
+     */
+    public record RangePlan(RoutePlan lower, boolean lowerInclusive, RoutePlan upper, boolean upperInclusive) {
+
+        /**
+         * SQL中没有路由字段的范围条件
+         */
+        public static final RangePlan NONE = new RangePlan(null, false, null, false);
+
+        public boolean isFound() {
+            return lower != null || upper != null;
+        }
+
+        /**
+         * 是否同时有上下界
+         */
+        public boolean isBounded() {
+            return lower != null && upper != null;
+        }
+    }
+
+    /**
+     * 路由字段取值方式
+     *
+     * @param parameterIndex 参数位置（对应BoundSql的第几个参数映射，从0开始），使用字面量时为-1
+     * @param literal        SQL中的字面量
+     */
+    public record RoutePlan(int parameterIndex, String literal) {
+
+        /**
+         * SQL中没有可用的路由字段
+         */
+        public static final RoutePlan NONE = new RoutePlan(-1, null);
+
+        public boolean isFound() {
+            return parameterIndex >= 0 || literal != null;
+        }
+    }
+}
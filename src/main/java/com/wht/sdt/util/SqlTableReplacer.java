@@ -3,15 +3,21 @@ package com.wht.sdt.util;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.parser.SimpleNode;
+import net.sf.jsqlparser.parser.Token;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.delete.Delete;
 import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.select.*;
 import net.sf.jsqlparser.statement.update.Update;
+import net.sf.jsqlparser.util.TablesNamesFinder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,6 +36,16 @@ public class SqlTableReplacer {
             "(from|into|update|join)\\s+(\\w+)",
             Pattern.CASE_INSENSITIVE);
 
+    /**
+     * 使用JSqlParser改写（或编译模板）的次数
+     */
+    private static final LongAdder PARSER_COUNT = new LongAdder();
+
+    /**
+     * JSqlParser解析失败、降级使用正则表达式的次数
+     */
+    private static final LongAdder REGEX_FALLBACK_COUNT = new LongAdder();
+
     /**
      * 替换SQL中的表名
      *
@@ -47,14 +63,158 @@ public class SqlTableReplacer {
 
         try {
             // 尝试使用JSqlParser解析
-            return replaceTableNameWithParser(originalSql, tableConfigs, tableSuffix);
+            String sql = replaceTableNameWithParser(originalSql, tableConfigs, tableSuffix);
+            PARSER_COUNT.increment();
+            return sql;
         } catch (Exception e) {
+            REGEX_FALLBACK_COUNT.increment();
             log.warn("JSqlParser failed to parse SQL, fallback to regex. Error: {}", e.getMessage());
             // 降级使用正则表达式
             return replaceTableNameWithRegex(originalSql, tableConfigs, tableSuffix);
         }
     }
 
+    /**
+     * 预编译SQL模板
+     * 只解析一次SQL，记录每个需要分表的表名位置，之后可对任意表后缀直接拼接生成SQL，
+     * 并保留原始SQL的格式。JSqlParser解析失败时降级使用正则表达式定位表名
+     *
+     * @param originalSql  原始SQL
+     * @param tableConfigs 表配置（表名 -> 分表数量）
+     * @return SQL模板
+     */
+    public static SqlTemplate compile(String originalSql, Map<String, Integer> tableConfigs) {
+        if (originalSql == null || originalSql.isEmpty() || tableConfigs == null || tableConfigs.isEmpty()) {
+            return new SqlTemplate(originalSql, new int[0], new String[0]);
+        }
+
+        List<Integer> splicePoints = new ArrayList<>();
+        List<String> tableNames = new ArrayList<>();
+        try {
+            collectSplicePointsWithParser(originalSql, tableConfigs, splicePoints, tableNames);
+            PARSER_COUNT.increment();
+        } catch (Exception e) {
+            REGEX_FALLBACK_COUNT.increment();
+            log.warn("JSqlParser failed to compile SQL template, fallback to regex. Error: {}", e.getMessage());
+            splicePoints.clear();
+            tableNames.clear();
+            collectSplicePointsWithRegex(originalSql, tableConfigs, splicePoints, tableNames);
+        }
+
+        // 按位置升序排列（子查询中的表可能先于外层表被访问）
+        Integer[] order = new Integer[splicePoints.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(splicePoints.get(a), splicePoints.get(b)));
+
+        int[] points = new int[order.length];
+        String[] names = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = splicePoints.get(order[i]);
+            names[i] = tableNames.get(order[i]);
+        }
+        log.debug("SQL template compiled: {} table(s) to shard in {}", points.length, originalSql);
+        return new SqlTemplate(originalSql, points, names);
+    }
+
+    /**
+     * 使用JSqlParser定位表名，根据AST节点的token行列号计算在原始SQL中的位置
+     */
+    private static void collectSplicePointsWithParser(String sql,
+            Map<String, Integer> tableConfigs,
+            List<Integer> splicePoints,
+            List<String> tableNames) throws JSQLParserException {
+        Statement statement = CCJSqlParserUtil.parse(sql);
+        int[] lineStarts = lineStarts(sql);
+
+        new TablesNamesFinder() {
+            @Override
+            public void visit(Table table) {
+                super.visit(table);
+
+                String tableName = unquote(table.getName());
+                if (!isShardTable(tableName, tableConfigs)) {
+                    return;
+                }
+
+                SimpleNode node = table.getASTNode();
+                if (node == null || node.jjtGetLastToken() == null) {
+                    throw new IllegalStateException("No AST position for table: " + table.getName());
+                }
+                Token token = node.jjtGetLastToken();
+                if (token.endLine < 1 || token.endLine > lineStarts.length) {
+                    throw new IllegalStateException("Invalid AST position for table: " + table.getName());
+                }
+
+                // endColumn从1开始且包含本身，因此恰好是结束位置（不包含）相对行首的偏移
+                int end = lineStarts[token.endLine - 1] + token.endColumn;
+                int start = end - token.image.length();
+                if (start < 0 || end > sql.length() || !sql.regionMatches(start, token.image, 0, token.image.length())) {
+                    throw new IllegalStateException("AST position mismatch for table: " + table.getName());
+                }
+
+                // 带引号的表名，后缀插入到右引号之前
+                int splicePoint = token.image.length() > tableName.length() ? end - 1 : end;
+                splicePoints.add(splicePoint);
+                tableNames.add(tableName);
+            }
+        }.getTableList(statement);
+    }
+
+    /**
+     * 使用正则表达式定位表名（降级方案）
+     */
+    private static void collectSplicePointsWithRegex(String sql,
+            Map<String, Integer> tableConfigs,
+            List<Integer> splicePoints,
+            List<String> tableNames) {
+        Matcher matcher = REGEX_PATTERN.matcher(sql);
+        while (matcher.find()) {
+            String tableName = matcher.group(2);
+            if (isShardTable(tableName, tableConfigs)) {
+                splicePoints.add(matcher.end(2));
+                tableNames.add(tableName);
+            }
+        }
+    }
+
+    /**
+     * 计算每一行在SQL中的起始下标（与JavaCC一致，\r\n、\r、\n均视为换行）
+     */
+    private static int[] lineStarts(String sql) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 >= length || sql.charAt(i + 1) != '\n'))) {
+                starts.add(i + 1);
+            }
+        }
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    private static String unquote(String name) {
+        if (name != null && name.length() > 1) {
+            char first = name.charAt(0);
+            char last = name.charAt(name.length() - 1);
+            if ((first == '`' && last == '`') || (first == '"' && last == '"') || (first == '[' && last == ']')) {
+                return name.substring(1, name.length() - 1);
+            }
+        }
+        return name;
+    }
+
+    private static boolean isShardTable(String tableName, Map<String, Integer> tableConfigs) {
+        Integer tbCount = tableConfigs.get(tableName);
+        return tbCount != null && tbCount > 1;
+    }
+
     /**
      * 使用JSqlParser替换表名（推荐方式）
      */
@@ -239,6 +399,20 @@ public class SqlTableReplacer {
         return result.toString();
     }
 
+    /**
+     * 使用JSqlParser改写（或编译模板）的累计次数
+     */
+    public static long getParserCount() {
+        return PARSER_COUNT.sum();
+    }
+
+    /**
+     * 降级使用正则表达式改写（或编译模板）的累计次数
+     */
+    public static long getRegexFallbackCount() {
+        return REGEX_FALLBACK_COUNT.sum();
+    }
+
     /**
      * 检查SQL语句类型
      */
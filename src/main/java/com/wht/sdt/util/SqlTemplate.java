@@ -0,0 +1,127 @@
+package com.wht.sdt.util;
+
+import java.util.Map;
+
+/**
+ * 预编译的SQL模板
+ * 由 {@link SqlTableReplacer#compile(String, Map)} 生成，记录原始SQL中每个需要分表的表名之后的插入位置，
+ * 改写时只需按位置拼接表后缀，不再解析SQL，也不会改变原始SQL的格式
+ *
+ * @author wht
+ */
+public final class SqlTemplate {
+
+    private final String sql;
+
+    /**
+     * 表后缀插入位置（升序），即表名最后一个字符之后的下标
+     */
+    private final int[] splicePoints;
+
+    /**
+     * 每个插入位置对应的逻辑表名
+     */
+    private final String[] tableNames;
+
+    SqlTemplate(String sql, int[] splicePoints, String[] tableNames) {
+        this.sql = sql;
+        this.splicePoints = splicePoints;
+        this.tableNames = tableNames;
+    }
+
+    /**
+     * 所有分表使用同一个表后缀生成SQL
+     *
+     * @param tableSuffix 表后缀（如：001）
+     * @return 改写后的SQL，无需改写时返回原始SQL
+     */
+    public String render(String tableSuffix) {
+        int count = splicePoints.length;
+        if (count == 0 || tableSuffix == null) {
+            return sql;
+        }
+
+        int sqlLength = sql.length();
+        int suffixLength = tableSuffix.length();
+        char[] buffer = new char[sqlLength + count * (suffixLength + 1)];
+
+        int from = 0;
+        int pos = 0;
+        for (int splicePoint : splicePoints) {
+            sql.getChars(from, splicePoint, buffer, pos);
+            pos += splicePoint - from;
+            buffer[pos++] = '_';
+            tableSuffix.getChars(0, suffixLength, buffer, pos);
+            pos += suffixLength;
+            from = splicePoint;
+        }
+        sql.getChars(from, sqlLength, buffer, pos);
+        return new String(buffer);
+    }
+
+    /**
+     * 每张表使用各自的表后缀生成SQL
+     *
+     * @param tableSuffixes 逻辑表名 -> 表后缀，未包含的表保持原样
+     * @return 改写后的SQL，无需改写时返回原始SQL
+     */
+    public String render(Map<String, String> tableSuffixes) {
+        int count = splicePoints.length;
+        if (count == 0 || tableSuffixes == null || tableSuffixes.isEmpty()) {
+            return sql;
+        }
+
+        String[] suffixes = new String[count];
+        int length = sql.length();
+        for (int i = 0; i < count; i++) {
+            String suffix = tableSuffixes.get(tableNames[i]);
+            if (suffix != null) {
+                suffixes[i] = suffix;
+                length += suffix.length() + 1;
+            }
+        }
+        if (length == sql.length()) {
+            return sql;
+        }
+
+        char[] buffer = new char[length];
+        int from = 0;
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            String suffix = suffixes[i];
+            if (suffix == null) {
+                continue;
+            }
+            int splicePoint = splicePoints[i];
+            sql.getChars(from, splicePoint, buffer, pos);
+            pos += splicePoint - from;
+            buffer[pos++] = '_';
+            suffix.getChars(0, suffix.length(), buffer, pos);
+            pos += suffix.length();
+            from = splicePoint;
+        }
+        sql.getChars(from, sql.length(), buffer, pos);
+        return new String(buffer);
+    }
+
+    /**
+     * 原始SQL
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * 是否存在需要分表的表
+     */
+    public boolean isSharded() {
+        return splicePoints.length > 0;
+    }
+
+    /**
+     * SQL中出现的分表逻辑表名（按出现顺序，可能重复）
+     */
+    public String[] getTableNames() {
+        return tableNames.clone();
+    }
+}
@@ -0,0 +1,300 @@
+package com.wht.sdt.util;
+
+import com.wht.sdt.enumeration.TimeGranularity;
+import com.wht.sdt.properties.TimePartitionProperties;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 时间分表计算工具类
+ * 路由字段值先转换为指定时区的纪元日（1970-01-01起的天数），周期编号和表后缀都按整数计算，
+ * 不创建LocalDateTime等对象；常用年份（1970 ~ 2169）的表后缀首次使用时生成并缓存
+ * <p>
+ * 支持的路由字段值：时间戳（秒或毫秒，小于10000000000时按秒处理）、
+ * 日期字符串（yyyy-MM-dd 或 yyyy/MM/dd，可带时间部分，如 2026-10-17 08:00:00、2026-10-17T08:00:00）、
+ * 8位数字日期（yyyyMMdd，如 20261017，不按时间戳处理），无法解析时抛出 {@link IllegalArgumentException}
+ *
+ * @author wht
+ */
+public final class TimePartitions {
+
+    /**
+     * 小于该值的时间戳按秒处理
+     */
+    private static final long SECONDS_THRESHOLD = 10000000000L;
+
+    private static final int CACHED_FROM_YEAR = 1970;
+
+    private static final int CACHED_YEARS = 200;
+
+    /**
+     * 纪元日0（1970-01-01）是周四，+3后按7取整即以周一开始的周编号
+     */
+    private static final int WEEK_OFFSET = 3;
+
+    /**
+     * 各粒度的表后缀缓存（下标为周期编号减去起始编号），首次使用时创建
+     */
+    private static final String[][] SUFFIXES = new String[TimeGranularity.values().length][];
+
+    /**
+     * 时区配置 -> 时区（空字符串表示系统默认时区）
+     */
+    private static final Map<String, Zone> ZONES = new ConcurrentHashMap<>();
+
+    private TimePartitions() {
+    }
+
+    /**
+     * 计算路由字段值对应的表后缀
+     *
+     * @param value     路由字段值
+     * @param partition 分表配置
+     * @return 表后缀，如：202610
+     */
+    public static String suffix(String value, TimePartitionProperties partition) {
+        TimeGranularity granularity = partition.getGranularity();
+        return suffix(periodIndex(epochDay(value, partition.getZone()), granularity), granularity);
+    }
+
+    /**
+     * 把路由字段值转换为纪元日
+     *
+     * @param value 路由字段值
+     * @param zone  时区，为空时使用系统默认时区（只对时间戳有效，日期字符串和8位数字日期按字面日期计算）
+     * @return 1970-01-01起的天数
+     * @throws IllegalArgumentException 无法解析时
+     */
+    public static long epochDay(String value, String zone) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("时间路由字段值为空");
+        }
+        if (value.length() == 8 && isDigits(value, 0, 8)) {
+            // 8位数字按 yyyyMMdd 处理：对应的秒级时间戳在1970 ~ 1973年之间，不会是实际的时间
+            return parseCompactDate(value);
+        }
+        if (isNumber(value)) {
+            long timestamp;
+            try {
+                timestamp = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无法解析时间路由字段值: " + value, e);
+            }
+            long epochSecond = Math.abs(timestamp) < SECONDS_THRESHOLD ? timestamp : Math.floorDiv(timestamp, 1000L);
+            return Math.floorDiv(epochSecond + zone(zone).offsetSeconds(epochSecond), 86400L);
+        }
+        return parseDate(value);
+    }
+
+    /**
+     * 纪元日所在周期的编号
+     * 按天为纪元日，按周为周编号（周一开始），按月为 年 * 12 + 月 - 1，按年为年份
+     */
+    public static long periodIndex(long epochDay, TimeGranularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return epochDay;
+            case WEEK:
+                return Math.floorDiv(epochDay + WEEK_OFFSET, 7);
+            case MONTH: {
+                int date = civilDate(epochDay);
+                return (long) (date / 10000) * 12 + (date / 100 % 100) - 1;
+            }
+            case YEAR:
+                return civilDate(epochDay) / 10000;
+            default:
+                throw new IllegalArgumentException("不支持的分表粒度: " + granularity);
+        }
+    }
+
+    /**
+     * 周期的表后缀
+     *
+     * @param periodIndex 周期编号（{@link #periodIndex(long, TimeGranularity)}）
+     * @param granularity 分表粒度
+     * @return 表后缀，如：20261017、202610、2026
+     */
+    public static String suffix(long periodIndex, TimeGranularity granularity) {
+        long offset = periodIndex - cachedFrom(granularity);
+        int size = cachedSize(granularity);
+        if (offset < 0 || offset >= size) {
+            return formatSuffix(periodIndex, granularity);
+        }
+        String[] suffixes = SUFFIXES[granularity.ordinal()];
+        if (suffixes == null) {
+            suffixes = new String[size];
+            SUFFIXES[granularity.ordinal()] = suffixes;
+        }
+        String suffix = suffixes[(int) offset];
+        if (suffix == null) {
+            // 并发时可能重复生成，结果相同
+            suffix = formatSuffix(periodIndex, granularity);
+            suffixes[(int) offset] = suffix;
+        }
+        return suffix;
+    }
+
+    /**
+     * 纪元日对应的公历日期
+     *
+     * @return yyyyMMdd，如：20261017
+     */
+    public static int civilDate(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 10000 + month * 100 + day);
+    }
+
+    /**
+     * 公历日期对应的纪元日
+     */
+    public static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        int yearOfEra = (int) (y - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * 解析日期字符串（只取日期部分）
+     */
+    private static long parseDate(String value) {
+        if (value.length() < 10 || !isDigits(value, 0, 4) || !isDigits(value, 5, 7) || !isDigits(value, 8, 10)
+                || value.charAt(4) != value.charAt(7) || (value.charAt(4) != '-' && value.charAt(4) != '/')
+                || (value.length() > 10 && value.charAt(10) != ' ' && value.charAt(10) != 'T')) {
+            throw new IllegalArgumentException("无法解析时间路由字段值: " + value);
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        long epochDay = epochDay(year, month, day);
+        if (month < 1 || month > 12 || civilDate(epochDay) != year * 10000 + month * 100 + day) {
+            throw new IllegalArgumentException("无效的日期: " + value);
+        }
+        return epochDay;
+    }
+
+    /**
+     * 解析 yyyyMMdd 格式的日期
+     */
+    private static long parseCompactDate(String value) {
+        int year = digits(value, 0, 4);
+        int month = digits(value, 4, 6);
+        int day = digits(value, 6, 8);
+        long epochDay = epochDay(year, month, day);
+        if (month < 1 || month > 12 || civilDate(epochDay) != year * 10000 + month * 100 + day) {
+            throw new IllegalArgumentException("无效的日期: " + value);
+        }
+        return epochDay;
+    }
+
+    private static boolean isNumber(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        return value.length() > start && isDigits(value, start, value.length());
+    }
+
+    private static boolean isDigits(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static long cachedFrom(TimeGranularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return epochDay(CACHED_FROM_YEAR, 1, 1);
+            case WEEK:
+                return Math.floorDiv(epochDay(CACHED_FROM_YEAR, 1, 1) + WEEK_OFFSET, 7);
+            case MONTH:
+                return (long) CACHED_FROM_YEAR * 12;
+            default:
+                return CACHED_FROM_YEAR;
+        }
+    }
+
+    private static int cachedSize(TimeGranularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return (int) (epochDay(CACHED_FROM_YEAR + CACHED_YEARS, 1, 1) - epochDay(CACHED_FROM_YEAR, 1, 1));
+            case WEEK:
+                return CACHED_YEARS * 53;
+            case MONTH:
+                return CACHED_YEARS * 12;
+            default:
+                return CACHED_YEARS;
+        }
+    }
+
+    private static String formatSuffix(long periodIndex, TimeGranularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return formatDate(civilDate(periodIndex));
+            case WEEK:
+                return formatDate(civilDate(periodIndex * 7 - WEEK_OFFSET));
+            case MONTH:
+                return String.format("%04d%02d", Math.floorDiv(periodIndex, 12), Math.floorMod(periodIndex, 12) + 1);
+            default:
+                return String.format("%04d", periodIndex);
+        }
+    }
+
+    private static String formatDate(int date) {
+        return String.format("%08d", date);
+    }
+
+    private static Zone zone(String zone) {
+        String key = zone == null ? "" : zone;
+        Zone cached = ZONES.get(key);
+        if (cached == null) {
+            cached = ZONES.computeIfAbsent(key, k -> new Zone(k.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(k)));
+        }
+        return cached;
+    }
+
+    /**
+     * 时区（固定偏移的时区直接使用缓存的偏移量）
+     */
+    private static final class Zone {
+
+        private final ZoneRules rules;
+
+        private final boolean fixed;
+
+        private final int fixedOffset;
+
+        private Zone(ZoneId zoneId) {
+            this.rules = zoneId.getRules();
+            this.fixed = rules.isFixedOffset();
+            this.fixedOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+        }
+
+        private int offsetSeconds(long epochSecond) {
+            return fixed ? fixedOffset : rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.wht.sdt.aspect;
+
+import org.apache.ibatis.annotations.Param;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CollectionRouteSplitter 测试
+ *
+ * @author wht
+ */
+class CollectionRouteSplitterTest {
+
+    @Test
+    void splitsCollectionNamedAfterRouteKey() throws Exception {
+        CollectionRouteSplitter splitter = CollectionRouteSplitter.of(method("selectByIds"), "ids");
+
+        assertThat(splitter).isNotNull();
+        assertThat(splitter.getArgIndex()).isEqualTo(1);
+        Object[] args = {"active", List.of(3L, 4L)};
+        assertThat(splitter.elements(args)).containsExactly(3L, 4L);
+        assertThat(splitter.routeValue(3L)).isEqualTo("3");
+    }
+
+    @Test
+    void splitsElementsCarryingRouteKey() throws Exception {
+        CollectionRouteSplitter splitter = CollectionRouteSplitter.of(method("insertList"), "userId");
+
+        assertThat(splitter).isNotNull();
+        assertThat(splitter.getArgIndex()).isZero();
+        assertThat(splitter.routeValue(new Order(1L, 42L))).isEqualTo("42");
+        assertThat(splitter.routeValue(new Order(2L, null))).isNull();
+    }
+
+    @Test
+    void readsNestedPathOnNamedCollection() throws Exception {
+        CollectionRouteSplitter splitter = CollectionRouteSplitter.of(method("insertOrders"), "orders.userId");
+
+        assertThat(splitter).isNotNull();
+        assertThat(splitter.routeValue(new Order(1L, 7L))).isEqualTo("7");
+    }
+
+    @Test
+    void ignoresMethodsWithoutMatchingCollection() throws Exception {
+        assertThat(CollectionRouteSplitter.of(method("selectByIds"), "userId")).isNull();
+        assertThat(CollectionRouteSplitter.of(method("insertList"), "")).isNull();
+    }
+
+    @Test
+    void keepsContainerTypeWhenReplacingElements() throws Exception {
+        CollectionRouteSplitter array = CollectionRouteSplitter.of(method("deleteByIds"), "ids");
+        Object[] arrayArgs = array.withElements(new Object[]{new Long[]{1L, 2L, 3L}}, List.of(1L, 3L));
+        assertThat((Long[]) arrayArgs[0]).containsExactly(1L, 3L);
+        assertThat(array.elements(new Object[]{new Long[]{5L, 6L}})).containsExactly(5L, 6L);
+
+        CollectionRouteSplitter set = CollectionRouteSplitter.of(method("selectBySet"), "ids");
+        Object[] original = {new LinkedHashSet<>(List.of(1L, 2L))};
+        Object[] setArgs = set.withElements(original, List.of(2L));
+        assertThat(setArgs[0]).isInstanceOf(Set.class);
+        assertThat(original[0]).isEqualTo(Set.of(1L, 2L));
+    }
+
+    @Test
+    void returnsEmptyElementsForNullArgument() throws Exception {
+        CollectionRouteSplitter splitter = CollectionRouteSplitter.of(method("insertList"), "userId");
+
+        assertThat(splitter.elements(new Object[]{null})).isEmpty();
+    }
+
+    @Test
+    void ordersCountsByOriginalPosition() {
+        // 元素 0、2、4 在第一个分片，1、3 在第二个分片
+        int[] counts = CollectionRouteSplitter.orderedCounts(
+                List.of(List.of(0, 2, 4), List.of(1, 3)),
+                List.of(new int[]{10, 12, 14}, new int[]{11, 13}), 5);
+
+        assertThat(counts).containsExactly(10, 11, 12, 13, 14);
+    }
+
+    @Test
+    void leavesSkippedElementsZero() {
+        // 分片迁移双写时新旧分片相同的元素（1、3）不在新分片上执行
+        int[] counts = CollectionRouteSplitter.orderedCounts(
+                List.of(List.of(0, 4), List.of(2)),
+                List.of(new int[]{1, 1}, new int[]{1}), 5);
+
+        assertThat(counts).containsExactly(1, 0, 1, 0, 1);
+    }
+
+    @Test
+    void concatenatesCountsWhenNotAligned() {
+        // 第一个分片按语句返回一个总数，无法与元素对应
+        int[] counts = CollectionRouteSplitter.orderedCounts(
+                List.of(List.of(0, 2), List.of(1)),
+                Arrays.asList(new int[]{2}, new int[]{1}), 3);
+
+        assertThat(counts).containsExactly(2, 1);
+    }
+
+    private static Method method(String name) {
+        return Arrays.stream(OrderMapper.class.getMethods())
+                .filter(method -> method.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    public static class Order {
+
+        private final Long id;
+
+        private final Long userId;
+
+        public Order(Long id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+    }
+
+    interface OrderMapper {
+
+        List<Order> selectByIds(@Param("status") String status, @Param("ids") List<Long> ids);
+
+        int[] insertList(List<Order> orders);
+
+        int insertOrders(@Param("orders") List<Order> orders);
+
+        int deleteByIds(@Param("ids") Long[] ids);
+
+        List<Order> selectBySet(@Param("ids") Set<Long> ids);
+    }
+}
@@ -0,0 +1,204 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.enumeration.TimeGranularity;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.TimePartitionProperties;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.strategy.impl.RouterStrategyHashCode;
+import com.wht.sdt.util.ShardKeys;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RangeShardPruner 测试
+ * 2 库，t_order 分 4 表，t_item 分 2 表，t_log 按天分表
+ *
+ * @author wht
+ */
+class RangeShardPrunerTest {
+
+    public interface OrderMapper {
+
+        @Select("select * from t_log where created_at between #{from} and #{to}")
+        List<Object> findLogs(@Param("from") String from, @Param("to") String to);
+
+        @Select("select * from t_log where created_at >= #{from}")
+        List<Object> findLogsSince(@Param("from") String from);
+
+        @Select("select * from t_order where user_id > #{from} and user_id <= #{to}")
+        List<Object> findOrders(@Param("from") long from, @Param("to") long to);
+
+        @Select("select * from t_order where status = #{status}")
+        List<Object> findByStatus(@Param("status") int status);
+
+        @Select("select * from t_config where name = #{name}")
+        List<Object> findConfig(@Param("name") String name);
+
+        @Select("select * from t_order o join t_item i on o.id = i.order_id where o.status = #{status}")
+        List<Object> findWithItems(@Param("status") int status);
+    }
+
+    private final RouterStrategy strategy = new RouterStrategyHashCode();
+
+    private Configuration configuration;
+
+    private DataSourceGroup group;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new Configuration();
+        configuration.addMapper(OrderMapper.class);
+        group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(2);
+        group.setRouterKey("userId");
+        group.setStrategy(StrategyType.HASH);
+        group.setTbCounts(new HashMap<>(Map.of("t_order", 4, "t_item", 2)));
+        TimePartitionProperties daily = new TimePartitionProperties();
+        daily.setGranularity(TimeGranularity.DAY);
+        group.setTimePartitions(Map.of("t_log", daily));
+    }
+
+    @Test
+    void enumeratesEachDayOfDayPartitionedTable() {
+        RangeShardPruner pruner = new RangeShardPruner(1024, 16);
+
+        List<ShardTarget> targets = pruner.prune(descriptor("findLogs", "createdAt"),
+                new Object[]{"2026-10-01", "2026-10-07"});
+
+        assertThat(targets.stream().map(target -> target.tableSuffixes().get("t_log")).distinct())
+                .containsExactly("20261001", "20261002", "20261003", "20261004", "20261005", "20261006",
+                        "20261007");
+        // t_log 不分表：每个库每天执行一次
+        assertThat(targets).hasSize(14);
+        assertThat(targets).allMatch(target -> target.tbKey() == null);
+        assertThat(targets.stream().map(ShardTarget::dbKey).distinct()).containsExactly("db01", "db02");
+    }
+
+    @Test
+    void rejectsTimeTableWithoutBoundedRange() {
+        RangeShardPruner pruner = new RangeShardPruner(7, 16);
+
+        assertThatThrownBy(() -> pruner.prune(descriptor("findLogsSince", "createdAt"), new Object[]{"2026-10-01"}))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("findLogsSince");
+        // 超过枚举上限与无界范围一样无法裁剪
+        assertThatThrownBy(() -> pruner.prune(descriptor("findLogs", "createdAt"),
+                new Object[]{"2026-10-01", "2026-10-08"}))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(pruner.prune(descriptor("findLogs", "createdAt"), new Object[]{"2026-10-01", "2026-10-07"}))
+                .hasSize(14);
+    }
+
+    @Test
+    void enumeratesIntegerRangeHonoringBounds() {
+        RangeShardPruner pruner = new RangeShardPruner(1024, 16);
+
+        List<ShardTarget> targets = pruner.prune(descriptor("findOrders", "userId"), new Object[]{10L, 13L});
+
+        Map<String, Integer> tbCounts = Map.of("t_order", 4);
+        assertThat(targets).containsExactlyElementsOf(List.of(11L, 12L, 13L).stream()
+                .map(userId -> ShardTarget.locate(strategy, "group01", Long.toString(userId), 2, tbCounts))
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void returnsEmptyListForExclusiveBoundAtLongMaxValue() {
+        RangeShardPruner pruner = new RangeShardPruner(1024, 16);
+
+        assertThat(pruner.prune(descriptor("findOrders", "userId"), new Object[]{Long.MAX_VALUE, Long.MAX_VALUE}))
+                .isEmpty();
+        assertThat(pruner.prune(descriptor("findOrders", "userId"), new Object[]{5L, 5L})).isEmpty();
+    }
+
+    @Test
+    void returnsNullWhenRangeExceedsMaxValues() {
+        RangeShardPruner pruner = new RangeShardPruner(16, 16);
+
+        // 下界不包含：0 < userId <= 16 共 16 个值
+        assertThat(pruner.prune(descriptor("findOrders", "userId"), new Object[]{0L, 16L})).isNotNull();
+        assertThat(pruner.prune(descriptor("findOrders", "userId"), new Object[]{0L, 17L})).isNull();
+        assertThat(pruner.prune(descriptor("findOrders", "userId"), new Object[]{Long.MIN_VALUE, Long.MAX_VALUE}))
+                .isNull();
+        // 没有范围条件时不裁剪
+        assertThat(pruner.prune(descriptor("findByStatus", "userId"), new Object[]{1})).isNull();
+    }
+
+    @Test
+    void computesPlacementsFromTablesInSql() {
+        RangeShardPruner pruner = new RangeShardPruner(1024, 16);
+
+        assertThat(pruner.broadcastTargets(descriptor("findByStatus", "userId"), new Object[]{1}, false))
+                .containsExactlyElementsOf(placements(2, 4));
+        // SQL中没有分表的表时每个库只执行一次
+        assertThat(pruner.broadcastTargets(descriptor("findConfig", "userId"), new Object[]{"x"}, false))
+                .containsExactly(new ShardTarget("db01", null), new ShardTarget("db02", null));
+        // 按新分片数量计算
+        assertThat(pruner.broadcastTargets(descriptor("findByStatus", "userId"), new Object[]{1}, true))
+                .containsExactlyElementsOf(placements(3, 8));
+        // 按时间分表的表无法广播
+        assertThat(pruner.broadcastTargets(descriptor("findLogsSince", "createdAt"), new Object[]{"2026-10-01"},
+                false)).isNull();
+        assertThatThrownBy(() -> pruner.broadcastTargets(descriptor("findWithItems", "userId"), new Object[]{1},
+                false)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void cachesAnalysisPerStatement() {
+        RangeShardPruner pruner = new RangeShardPruner(1024, 16);
+
+        pruner.prune(descriptor("findOrders", "userId"), new Object[]{1L, 2L});
+        pruner.prune(descriptor("findOrders", "userId"), new Object[]{3L, 9L});
+        pruner.prune(descriptor("findByStatus", "userId"), new Object[]{1});
+
+        assertThat(pruner.getCache().size()).isEqualTo(2);
+    }
+
+    private RouteDescriptor descriptor(String methodName, String routeKey) {
+        Method method = Arrays.stream(OrderMapper.class.getMethods())
+                .filter(candidate -> candidate.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return RouteDescriptor.builder()
+                .version(1)
+                .method(method)
+                .groupKey("group01")
+                .dataSourceGroup(group)
+                .enableSplit(true)
+                .strategyType(StrategyType.HASH)
+                .strategy(strategy)
+                .routeKey(routeKey)
+                .dbCount(2)
+                .tbCounts(group.getTbCounts())
+                .mappedStatement(configuration.getMappedStatement(OrderMapper.class.getName() + "." + methodName))
+                .paramNameResolver(new ParamNameResolver(configuration, method))
+                .targetDbCount(3)
+                .targetTbCounts(Map.of("t_order", 8, "t_item", 2))
+                .build();
+    }
+
+    private static List<ShardTarget> placements(int dbCount, int tbCount) {
+        return IntStream.rangeClosed(1, dbCount).boxed()
+                .flatMap(db -> IntStream.rangeClosed(1, tbCount)
+                        .mapToObj(tb -> new ShardTarget(ShardKeys.dbKey(db), ShardKeys.tbKey(tb))))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,218 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.annotation.SplitDT;
+import com.wht.sdt.config.bean.DynamicDataSource;
+import com.wht.sdt.config.bean.DynamicMybatisPlugin;
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardQueryExecutor;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.ReshardingProperties;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.resharding.BackfillProgress;
+import com.wht.sdt.resharding.ReshardingManager;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SplitDTAspect 分片迁移双写测试
+ * 旧布局 2 库 × 2 表，新布局 3 库 × 4 表
+ *
+ * @author wht
+ */
+class SplitDTAspectReshardingTest {
+
+    public interface OrderMapper {
+
+        @SplitDT(routeKey = "userId")
+        @Insert("insert into t_order (id, user_id, amount) values (#{id}, #{userId}, #{amount})")
+        int insert(@Param("id") long id, @Param("userId") long userId, @Param("amount") int amount);
+
+        @SplitDT(routeKey = "userId")
+        @Update("update t_order set amount = amount + 1 where id = #{id} and user_id = #{userId}")
+        int increment(@Param("id") long id, @Param("userId") long userId);
+
+        @SplitDT(routeKey = "userId")
+        @Select("select amount from t_order where id = #{id} and user_id = #{userId}")
+        Integer findAmount(@Param("id") long id, @Param("userId") long userId);
+    }
+
+    private RoutingRegistry routingRegistry;
+
+    private ShardQueryExecutor executor;
+
+    private ReshardingManager reshardingManager;
+
+    private RouterStrategy strategy;
+
+    private OrderMapper orderMapper;
+
+    @BeforeEach
+    void setUp() {
+        RouterGroupProperties properties = new RouterGroupProperties();
+        properties.getHealth().setEnabled(false);
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(2);
+        group.setRouterKey("userId");
+        group.setStrategy(StrategyType.HASH);
+        group.setTbCounts(new HashMap<>(Map.of("t_order", 2)));
+        ReshardingProperties resharding = new ReshardingProperties();
+        resharding.setEnabled(true);
+        resharding.setDbCount(3);
+        resharding.setTbCounts(Map.of("t_order", 4));
+        resharding.setRouteColumn("user_id");
+        group.setResharding(resharding);
+        String name = UUID.randomUUID().toString();
+        Map<String, DataSourceConfig> dataSources = new LinkedHashMap<>();
+        for (int db = 1; db <= 3; db++) {
+            DataSourceConfig config = new DataSourceConfig();
+            config.setUrl("jdbc:h2:mem:" + name + db + ";DB_CLOSE_DELAY=-1");
+            config.setUsername("sa");
+            config.setPassword("");
+            config.setDriverClassName("org.h2.Driver");
+            config.setPoolType(PoolType.HIKARI);
+            dataSources.put(ShardKeys.dbKey(db), config);
+        }
+        group.setDataSource(dataSources);
+        properties.setGroups(new LinkedHashMap<>(Map.of("group01", group)));
+        routingRegistry = new RoutingRegistry(properties, Map.of());
+        strategy = routingRegistry.latest().getStrategy(StrategyType.HASH);
+
+        // 不建主键：同一物理表被写入两次时可以查到两行
+        for (int db = 1; db <= 3; db++) {
+            JdbcTemplate jdbcTemplate = shard(ShardKeys.dbKey(db));
+            for (int tb = 1; tb <= 4; tb++) {
+                jdbcTemplate.execute("create table t_order_" + ShardKeys.tbKey(tb)
+                        + " (id bigint, user_id bigint, amount int)");
+            }
+        }
+
+        DynamicDataSource dataSource = new DynamicDataSource();
+        dataSource.setTargetDataSources(new HashMap<>(routingRegistry.latest().getRoutingTable().getAllDataSources()));
+        dataSource.setRoutingRegistry(routingRegistry);
+        dataSource.afterPropertiesSet();
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addInterceptor(new DynamicMybatisPlugin(properties, routingRegistry));
+        configuration.addMapper(OrderMapper.class);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        executor = new ShardQueryExecutor(properties.getScatter());
+        reshardingManager = new ReshardingManager(routingRegistry);
+        SplitDTAspect aspect = new SplitDTAspect(properties, routingRegistry, executor, reshardingManager);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("sqlSessionFactory", sqlSessionFactory);
+        aspect.setBeanFactory(beanFactory);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new SqlSessionTemplate(sqlSessionFactory).getMapper(OrderMapper.class));
+        proxyFactory.addAspect(aspect);
+        orderMapper = proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reshardingManager.destroy();
+        executor.destroy();
+        routingRegistry.destroy();
+    }
+
+    @Test
+    void dualWritesToSourceAndTargetShards() {
+        long userId = findUser(user -> !sameTable(source(user), target(user)));
+
+        orderMapper.insert(1, userId, 5);
+        orderMapper.increment(1, userId);
+
+        assertThat(amounts(source(userId), 1)).containsExactly(6);
+        assertThat(amounts(target(userId), 1)).containsExactly(6);
+    }
+
+    @Test
+    void writesOnceWhenPlacementIsUnchanged() {
+        long userId = findUser(user -> sameTable(source(user), target(user)));
+
+        orderMapper.insert(1, userId, 5);
+        orderMapper.increment(1, userId);
+
+        assertThat(amounts(source(userId), 1)).containsExactly(6);
+    }
+
+    @Test
+    void readsTargetShardsOnlyAfterBackfillCompletes() throws Exception {
+        long userId = findUser(user -> !sameTable(source(user), target(user)));
+        orderMapper.insert(1, userId, 5);
+
+        setAmount(target(userId), 1, 777);
+        assertThat(orderMapper.findAmount(1, userId)).isEqualTo(5);
+
+        BackfillProgress progress = reshardingManager.startBackfill("group01").get();
+        assertThat(progress.getStatus()).isEqualTo(BackfillProgress.Status.COMPLETED);
+        assertThat(amounts(target(userId), 1)).containsExactly(5);
+
+        setAmount(source(userId), 1, 999);
+        assertThat(orderMapper.findAmount(1, userId)).isEqualTo(5);
+    }
+
+    private long findUser(Predicate<Long> condition) {
+        for (long userId = 1; userId < 10_000; userId++) {
+            if (condition.test(userId)) {
+                return userId;
+            }
+        }
+        throw new AssertionError("未找到满足条件的用户");
+    }
+
+    private ShardTarget source(long userId) {
+        return ShardTarget.locate(strategy, "group01", String.valueOf(userId), 2, 2);
+    }
+
+    private ShardTarget target(long userId) {
+        return ShardTarget.locate(strategy, "group01", String.valueOf(userId), 3, 4);
+    }
+
+    private static boolean sameTable(ShardTarget a, ShardTarget b) {
+        return a.dbKey().equals(b.dbKey()) && a.tbKey().equals(b.tbKey());
+    }
+
+    private List<Integer> amounts(ShardTarget shard, long id) {
+        return shard(shard.dbKey()).queryForList("select amount from t_order_" + shard.tbKey() + " where id = ?",
+                Integer.class, id);
+    }
+
+    private void setAmount(ShardTarget shard, long id, int amount) {
+        shard(shard.dbKey()).update("update t_order_" + shard.tbKey() + " set amount = ? where id = ?", amount, id);
+    }
+
+    private JdbcTemplate shard(String dbKey) {
+        return new JdbcTemplate(routingRegistry.latest().getRoutingTable().getDataSource("group01", dbKey));
+    }
+}
@@ -0,0 +1,153 @@
+package com.wht.sdt.aspect;
+
+import com.wht.sdt.annotation.SplitDT;
+import com.wht.sdt.config.bean.DynamicDataSource;
+import com.wht.sdt.config.bean.DynamicMybatisPlugin;
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardQueryExecutor;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.resharding.ReshardingManager;
+import com.wht.sdt.util.ShardKeys;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SplitDTAspect 测试
+ *
+ * @author wht
+ */
+class SplitDTAspectTest {
+
+    public interface OrderMapper {
+
+        @SplitDT(routeKey = "userId")
+        @Insert("insert into t_order (id, user_id) values (#{id}, #{userId})")
+        int insert(@Param("id") long id, @Param("userId") long userId);
+
+        @SplitDT(routeKey = "userId", broadcast = true)
+        @Select("select id from t_order where user_id = #{userId} or #{userId} is null order by id")
+        List<Long> findByUser(@Param("userId") Long userId);
+    }
+
+    private RoutingRegistry routingRegistry;
+
+    private ShardQueryExecutor executor;
+
+    private OrderMapper orderMapper;
+
+    @BeforeEach
+    void setUp() {
+        RouterGroupProperties properties = new RouterGroupProperties();
+        properties.getHealth().setEnabled(false);
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(2);
+        group.setRouterKey("userId");
+        group.setStrategy(StrategyType.HASH);
+        group.setTbCounts(new HashMap<>(Map.of("t_order", 4)));
+        String name = UUID.randomUUID().toString();
+        Map<String, DataSourceConfig> dataSources = new LinkedHashMap<>();
+        for (int db = 1; db <= 2; db++) {
+            DataSourceConfig config = new DataSourceConfig();
+            config.setUrl("jdbc:h2:mem:" + name + db + ";DB_CLOSE_DELAY=-1");
+            config.setUsername("sa");
+            config.setPassword("");
+            config.setDriverClassName("org.h2.Driver");
+            config.setPoolType(PoolType.HIKARI);
+            dataSources.put(ShardKeys.dbKey(db), config);
+        }
+        group.setDataSource(dataSources);
+        properties.setGroups(new LinkedHashMap<>(Map.of("group01", group)));
+        routingRegistry = new RoutingRegistry(properties, Map.of());
+
+        for (int db = 1; db <= 2; db++) {
+            JdbcTemplate jdbcTemplate = shard(db);
+            for (int tb = 1; tb <= 4; tb++) {
+                jdbcTemplate.execute("create table t_order_" + ShardKeys.tbKey(tb) + " (id bigint, user_id bigint)");
+            }
+        }
+
+        DynamicDataSource dataSource = new DynamicDataSource();
+        dataSource.setTargetDataSources(new HashMap<>(routingRegistry.latest().getRoutingTable().getAllDataSources()));
+        dataSource.setRoutingRegistry(routingRegistry);
+        dataSource.afterPropertiesSet();
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addInterceptor(new DynamicMybatisPlugin(properties, routingRegistry));
+        configuration.addMapper(OrderMapper.class);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        executor = new ShardQueryExecutor(properties.getScatter());
+        SplitDTAspect aspect = new SplitDTAspect(properties, routingRegistry, executor,
+                new ReshardingManager(routingRegistry));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("sqlSessionFactory", sqlSessionFactory);
+        aspect.setBeanFactory(beanFactory);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new SqlSessionTemplate(sqlSessionFactory).getMapper(OrderMapper.class));
+        proxyFactory.addAspect(aspect);
+        orderMapper = proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+        routingRegistry.destroy();
+    }
+
+    @Test
+    void routesBroadcastMethodWithRouteKeyToOneShard() {
+        orderMapper.insert(1, 7);
+        // 在所有分片上写入同一个用户的数据，只有路由到的分片上的数据可以被查到
+        for (int db = 1; db <= 2; db++) {
+            for (int tb = 1; tb <= 4; tb++) {
+                shard(db).update("insert into t_order_" + ShardKeys.tbKey(tb) + " values (?, 7)", db * 100 + tb);
+            }
+        }
+
+        List<Long> ids = orderMapper.findByUser(7L);
+
+        assertThat(ids).hasSize(2).contains(1L);
+    }
+
+    @Test
+    void broadcastsWithoutRouteKey() {
+        for (long userId = 1; userId <= 16; userId++) {
+            orderMapper.insert(userId * 10, userId);
+        }
+
+        List<Long> ids = orderMapper.findByUser(null);
+
+        assertThat(ids).hasSize(16);
+    }
+
+    private JdbcTemplate shard(int db) {
+        return new JdbcTemplate(routingRegistry.latest().getRoutingTable().getAllDataSources()
+                .get("group01" + ShardKeys.dbKey(db)));
+    }
+}
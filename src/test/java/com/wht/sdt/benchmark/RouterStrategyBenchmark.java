@@ -0,0 +1,136 @@
+package com.wht.sdt.benchmark;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.strategy.RouterStrategyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由策略基准测试：一次分库 + 分表的耗时
+ * <p>
+ * 每组参数结束时输出 {@value #DISTRIBUTION_KEYS} 个key在各库、各表上的分布（最多、最少的分片相对平均值的比例和变异系数），
+ * 用于对比各策略的均匀性
+ * <p>
+ * 运行：mvn test-compile 后执行 org.openjdk.jmh.Main RouterStrategyBenchmark（classpath 为 target/test-classes、
+ * target/classes 和测试依赖）
+ *
+ * @author wht
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterStrategyBenchmark {
+
+    private static final String GROUP_KEY = "group01";
+
+    private static final int KEY_COUNT = 4096;
+
+    private static final int DISTRIBUTION_KEYS = 1_000_000;
+
+    @Param({"HASH", "CONSISTENT_HASH", "JUMP_HASH", "RENDEZVOUS"})
+    private StrategyType strategyType;
+
+    @Param({"4", "32"})
+    private int dbCount;
+
+    @Param({"16"})
+    private int tbCount;
+
+    private RouterStrategy strategy;
+
+    private StrategyContext[] contexts;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(dbCount);
+        group.setTbCounts(Map.of("t_order", tbCount));
+        strategy = RouterStrategyFactory.getInstance(strategyType);
+        strategy.init(GROUP_KEY, group);
+
+        Random random = new Random(42);
+        contexts = new StrategyContext[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            contexts[i] = StrategyContext.builder()
+                    .groupKey(GROUP_KEY)
+                    .keyValue(Long.toString(random.nextLong() & Long.MAX_VALUE))
+                    .dbCount(dbCount)
+                    .tbCount(tbCount)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public void route(Blackhole blackhole) {
+        StrategyContext context = contexts[next++ & (KEY_COUNT - 1)];
+        strategy.splitDB(context);
+        strategy.splitTB(context);
+        blackhole.consume(SDTContext.getDBKey());
+        blackhole.consume(SDTContext.getTBKey());
+    }
+
+    /**
+     * 输出key在各库、各表上的分布
+     */
+    @TearDown(Level.Trial)
+    public void reportDistribution() {
+        int[] dbCounts = new int[dbCount];
+        int[] tbCounts = new int[tbCount];
+        Random random = new Random(7);
+        for (int i = 0; i < DISTRIBUTION_KEYS; i++) {
+            StrategyContext context = StrategyContext.builder()
+                    .groupKey(GROUP_KEY)
+                    .keyValue(Long.toString(random.nextLong() & Long.MAX_VALUE))
+                    .dbCount(dbCount)
+                    .tbCount(tbCount)
+                    .build();
+            strategy.splitDB(context);
+            strategy.splitTB(context);
+            dbCounts[Integer.parseInt(SDTContext.getDBKey().substring(2)) - 1]++;
+            tbCounts[Integer.parseInt(SDTContext.getTBKey()) - 1]++;
+        }
+        SDTContext.clearAll();
+        System.out.printf("%n[distribution] %s dbCount=%d tbCount=%d: db %s, tb %s%n",
+                strategyType, dbCount, tbCount, spread(dbCounts), spread(tbCounts));
+    }
+
+    private static String spread(int[] counts) {
+        double mean = (double) DISTRIBUTION_KEYS / counts.length;
+        int max = 0;
+        int min = Integer.MAX_VALUE;
+        double variance = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+            min = Math.min(min, count);
+            variance += (count - mean) * (count - mean);
+        }
+        double cv = Math.sqrt(variance / counts.length) / mean;
+        return String.format("max/mean=%.3f min/mean=%.3f cv=%.2f%%", max / mean, min / mean, cv * 100);
+    }
+}
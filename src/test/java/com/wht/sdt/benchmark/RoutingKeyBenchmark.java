@@ -0,0 +1,113 @@
+package com.wht.sdt.benchmark;
+
+import com.wht.sdt.config.bean.RoutingTable;
+import com.wht.sdt.util.ShardKeys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由键解析基准测试：由分片下标得到组键、库键、表后缀并定位分片数据源
+ * <ul>
+ *     <li>format：每次调用String.format并拼接数据源查找键（预计算之前的做法）</li>
+ *     <li>shardKeys：使用 {@link ShardKeys} 预先生成的键，通过 {@link RoutingTable} 直接定位数据源</li>
+ * </ul>
+ * 使用 -prof gc 可以对比每次调用分配的内存
+ *
+ * @author wht
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingKeyBenchmark {
+
+    private static final int INDEX_COUNT = 1024;
+
+    @Param({"2"})
+    private int groupCount;
+
+    @Param({"8"})
+    private int dbCount;
+
+    @Param({"16"})
+    private int tbCount;
+
+    private RoutingTable routingTable;
+
+    /**
+     * 数据源查找键 -> 数据源
+     */
+    private Map<String, DataSource> targetDataSources;
+
+    private int[] groupIndexes;
+
+    private int[] dbIndexes;
+
+    private int[] tbIndexes;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RoutingTable.Builder builder = RoutingTable.builder();
+        targetDataSources = new HashMap<>();
+        for (int group = 1; group <= groupCount; group++) {
+            for (int db = 1; db <= dbCount; db++) {
+                DataSource dataSource = new DriverManagerDataSource();
+                String lookupKey = builder.add(ShardKeys.groupKey(group), ShardKeys.dbKey(db), dataSource);
+                targetDataSources.put(lookupKey, dataSource);
+            }
+        }
+        routingTable = builder.build();
+
+        Random random = new Random(42);
+        groupIndexes = new int[INDEX_COUNT];
+        dbIndexes = new int[INDEX_COUNT];
+        tbIndexes = new int[INDEX_COUNT];
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            groupIndexes[i] = random.nextInt(groupCount) + 1;
+            dbIndexes[i] = random.nextInt(dbCount) + 1;
+            tbIndexes[i] = random.nextInt(tbCount) + 1;
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole) {
+        int i = next++ & (INDEX_COUNT - 1);
+        String groupKey = "group" + String.format("%02d", groupIndexes[i]);
+        String dbKey = "db" + String.format("%02d", dbIndexes[i]);
+        String tbKey = String.format("%03d", tbIndexes[i]);
+        blackhole.consume(targetDataSources.get(groupKey + dbKey));
+        blackhole.consume(tbKey);
+    }
+
+    @Benchmark
+    public void shardKeys(Blackhole blackhole) {
+        int i = next++ & (INDEX_COUNT - 1);
+        String groupKey = ShardKeys.groupKey(groupIndexes[i]);
+        String dbKey = ShardKeys.dbKey(dbIndexes[i]);
+        String tbKey = ShardKeys.tbKey(tbIndexes[i]);
+        blackhole.consume(routingTable.getDataSource(groupKey, dbKey));
+        blackhole.consume(tbKey);
+    }
+}
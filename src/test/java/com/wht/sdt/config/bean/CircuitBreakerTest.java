@@ -0,0 +1,147 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.properties.HealthProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CircuitBreaker 测试
+ *
+ * @author wht
+ */
+class CircuitBreakerTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    void opensWhenErrorRateExceedsThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker("db01", properties());
+
+        breaker.onSuccess(MILLIS);
+        breaker.onFailure(MILLIS);
+        breaker.onFailure(MILLIS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onSuccess(MILLIS);
+        breaker.onFailure(MILLIS);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.isAvailable()).isFalse();
+    }
+
+    @Test
+    void staysClosedBelowMinRequests() {
+        CircuitBreaker breaker = new CircuitBreaker("db01", properties());
+
+        breaker.onFailure(MILLIS);
+        breaker.onFailure(MILLIS);
+        breaker.onFailure(MILLIS);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void countsSlowCallsAsFailures() {
+        HealthProperties properties = properties();
+        properties.setSlowCallThreshold(10);
+        CircuitBreaker breaker = new CircuitBreaker("db01", properties);
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(20 * MILLIS);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.snapshot().errors()).isEqualTo(4);
+    }
+
+    @Test
+    void admitsLimitedTrialsAfterOpenDurationAndClosesOnSuccess() throws InterruptedException {
+        CircuitBreaker breaker = open(properties());
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        Thread.sleep(80);
+        assertThat(breaker.isAvailable()).isTrue();
+        // 第一个请求把状态转为试探并占用一个名额，共放行 halfOpenPermits 个
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.isAvailable()).isFalse();
+
+        breaker.onSuccess(MILLIS);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.snapshot().requests()).isZero();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void reopensWhenTrialFails() throws InterruptedException {
+        CircuitBreaker breaker = open(properties());
+        Thread.sleep(80);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure(MILLIS);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void reopensWhenTrialTimesOut() throws InterruptedException {
+        HealthProperties properties = properties();
+        properties.setHalfOpenTimeout(50);
+        CircuitBreaker breaker = open(properties);
+        Thread.sleep(80);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        Thread.sleep(80);
+
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void opensOnConsecutiveProbeFailuresAndClosesOnHealthyProbe() {
+        CircuitBreaker breaker = new CircuitBreaker("db01", properties());
+
+        breaker.onProbe(false);
+        breaker.onProbe(true);
+        breaker.onProbe(false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.onProbe(false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        breaker.onProbe(true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    /**
+     * 窗口内至少4次请求、错误率50%熔断，熔断50毫秒，试探放行2个请求
+     */
+    private static HealthProperties properties() {
+        HealthProperties properties = new HealthProperties();
+        properties.setEnabled(true);
+        properties.setMinRequests(4);
+        properties.setErrorRateThreshold(0.5);
+        properties.setProbeFailureThreshold(2);
+        properties.setOpenDuration(50);
+        properties.setHalfOpenPermits(2);
+        properties.setHalfOpenTimeout(0);
+        return properties;
+    }
+
+    private static CircuitBreaker open(HealthProperties properties) {
+        CircuitBreaker breaker = new CircuitBreaker("db01", properties);
+        for (int i = 0; i < properties.getMinRequests(); i++) {
+            breaker.onFailure(MILLIS);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+}
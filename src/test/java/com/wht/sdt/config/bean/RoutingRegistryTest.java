@@ -0,0 +1,179 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.util.ShardKeys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RoutingRegistry 测试
+ *
+ * @author wht
+ */
+class RoutingRegistryTest {
+
+    private final String name = UUID.randomUUID().toString();
+
+    private RoutingRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        if (registry != null) {
+            registry.destroy();
+        }
+    }
+
+    @Test
+    void swapsVersionAndReusesUnchangedPools() {
+        registry = new RoutingRegistry(properties(2, 30000), Map.of());
+        RoutingSnapshot first = registry.latest();
+        DataSource db01 = first.getRoutingTable().getDataSource("group01", "db01");
+        DataSource db02 = first.getRoutingTable().getDataSource("group01", "db02");
+
+        RouterGroupProperties changed = properties(2, 30000);
+        changed.getGroups().get("group01").getDataSource().get("db02").setUrl(url("db02-moved"));
+        long version = registry.refresh(changed);
+
+        RoutingSnapshot second = registry.latest();
+        assertThat(version).isEqualTo(2);
+        assertThat(second.getVersion()).isEqualTo(2);
+        assertThat(first.isRetired()).isTrue();
+        assertThat(second.getRoutingTable().getDataSource("group01", "db01")).isSameAs(db01);
+        assertThat(second.getRoutingTable().getDataSource("group01", "db02")).isNotSameAs(db02);
+        assertThat(second.getStrategy(StrategyType.HASH)).isNotSameAs(first.getStrategy(StrategyType.HASH));
+    }
+
+    @Test
+    void keepsPinnedSnapshotUntilReleased() throws Exception {
+        registry = new RoutingRegistry(properties(2, 30000), Map.of());
+        RoutingSnapshot first = registry.latest();
+
+        try (RoutingRegistry.Pin pin = registry.pin()) {
+            registry.refresh(properties(3, 30000));
+
+            assertThat(registry.current()).isSameAs(first);
+            assertThat(registry.latest().getVersion()).isEqualTo(2);
+            assertThat(first.getInFlight()).isEqualTo(1);
+            // 嵌套调用使用外层固定的快照
+            try (RoutingRegistry.Pin nested = registry.pin()) {
+                assertThat(nested.getSnapshot()).isSameAs(first);
+            }
+            // 分片任务线程固定调用方的快照
+            RoutingSnapshot inTask = CompletableFuture.supplyAsync(() -> {
+                try (RoutingRegistry.Pin taskPin = registry.pin(pin.getSnapshot())) {
+                    return registry.current();
+                }
+            }).get();
+            assertThat(inTask).isSameAs(first);
+        }
+
+        assertThat(first.getInFlight()).isZero();
+        assertThat(registry.current()).isSameAs(registry.latest());
+    }
+
+    @Test
+    void closesRetiredPoolsAfterPinnedRequestsFinish() throws Exception {
+        registry = new RoutingRegistry(properties(2, 30000), Map.of());
+        DataSource db02 = registry.latest().getRoutingTable().getDataSource("group01", "db02");
+
+        RoutingRegistry.Pin pin = registry.pin();
+        RouterGroupProperties changed = properties(2, 30000);
+        changed.getGroups().get("group01").getDataSource().get("db02").setUrl(url("db02-moved"));
+        registry.refresh(changed);
+
+        Thread.sleep(600);
+        assertThat(isClosed(db02)).isFalse();
+
+        pin.close();
+        assertThat(awaitClosed(db02, 3000)).isTrue();
+    }
+
+    @Test
+    void forceClosesRetiredPoolsAfterDrainTimeout() throws Exception {
+        registry = new RoutingRegistry(properties(2, 300), Map.of());
+        DataSource db02 = registry.latest().getRoutingTable().getDataSource("group01", "db02");
+
+        try (RoutingRegistry.Pin pin = registry.pin()) {
+            RouterGroupProperties changed = properties(2, 300);
+            changed.getGroups().get("group01").getDataSource().get("db02").setUrl(url("db02-moved"));
+            registry.refresh(changed);
+
+            assertThat(awaitClosed(db02, 3000)).isTrue();
+        }
+    }
+
+    @Test
+    void rejectsInvalidTopologyAtStartupAndOnRefresh() {
+        RouterGroupProperties missing = properties(2, 30000);
+        missing.getGroups().get("group01").setDbCount(3);
+        assertThatThrownBy(() -> new RoutingRegistry(missing, Map.of())).isInstanceOf(IllegalStateException.class);
+
+        registry = new RoutingRegistry(properties(2, 30000), Map.of());
+        assertThatThrownBy(() -> registry.refresh(missing)).isInstanceOf(IllegalStateException.class);
+        assertThat(registry.latest().getVersion()).isEqualTo(1);
+        assertThat(registry.latest().isRetired()).isFalse();
+    }
+
+    private RouterGroupProperties properties(int dbCount, long drainTimeout) {
+        RouterGroupProperties properties = new RouterGroupProperties();
+        properties.getHealth().setEnabled(false);
+        properties.getReload().setDrainTimeout(drainTimeout);
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(dbCount);
+        group.setRouterKey("userId");
+        group.setTbCounts(new HashMap<>(Map.of("t_order", 4)));
+        Map<String, DataSourceConfig> dataSources = new LinkedHashMap<>();
+        for (int db = 1; db <= dbCount; db++) {
+            DataSourceConfig config = new DataSourceConfig();
+            config.setUrl(url(ShardKeys.dbKey(db)));
+            config.setUsername("sa");
+            config.setPassword("");
+            config.setDriverClassName("org.h2.Driver");
+            config.setPoolType(PoolType.HIKARI);
+            dataSources.put(ShardKeys.dbKey(db), config);
+        }
+        group.setDataSource(dataSources);
+        properties.setGroups(new LinkedHashMap<>(Map.of("group01", group)));
+        return properties;
+    }
+
+    private String url(String db) {
+        return "jdbc:h2:mem:" + name + db + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static boolean awaitClosed(DataSource dataSource, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (isClosed(dataSource)) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static boolean isClosed(DataSource dataSource) {
+        try (Connection ignored = dataSource.getConnection()) {
+            return false;
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.wht.sdt.config.bean;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.HealthProperties;
+import com.wht.sdt.properties.ReplicaConfig;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ShardDataSourceFactory 测试
+ *
+ * @author wht
+ */
+class ShardDataSourceFactoryTest {
+
+    @Test
+    void boundsAcquireTimeoutWhenBreakersAreEnabled() {
+        HealthProperties health = new HealthProperties();
+        health.setEnabled(true);
+        DataSourceConfig config = config();
+        ReplicaConfig replica = new ReplicaConfig();
+        replica.setUrl("jdbc:h2:mem:replica");
+        config.setReplicas(List.of(replica));
+
+        ShardDataSource shard = (ShardDataSource) ShardDataSourceFactory.createShard("group01db01", config, health);
+        try {
+            assertThat(((DruidDataSource) shard.getPrimary()).getMaxWait()).isEqualTo(health.getAcquireTimeout());
+            assertThat(config.getConnectionTimeout()).isNull();
+        } finally {
+            shard.close();
+        }
+    }
+
+    @Test
+    void keepsConfiguredAcquireTimeout() {
+        HealthProperties health = new HealthProperties();
+        health.setEnabled(true);
+        DataSourceConfig config = config();
+        config.setConnectionTimeout(800L);
+
+        ShardDataSource shard = (ShardDataSource) ShardDataSourceFactory.createShard("group01db01", config, health);
+        try {
+            assertThat(((DruidDataSource) shard.getPrimary()).getMaxWait()).isEqualTo(800L);
+        } finally {
+            shard.close();
+        }
+    }
+
+    @Test
+    void leavesPoolUntouchedWithoutBreakers() {
+        DataSource dataSource = ShardDataSourceFactory.createShard("group01db01", config(), new HealthProperties());
+        try {
+            assertThat(dataSource).isInstanceOf(DruidDataSource.class);
+            assertThat(((DruidDataSource) dataSource).getMaxWait()).isEqualTo(-1L);
+        } finally {
+            ShardDataSourceFactory.close(dataSource);
+        }
+    }
+
+    private static DataSourceConfig config() {
+        DataSourceConfig config = new DataSourceConfig();
+        config.setUrl("jdbc:h2:mem:primary");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setDriverClassName("org.h2.Driver");
+        config.setPoolType(PoolType.DRUID);
+        return config;
+    }
+}
@@ -0,0 +1,88 @@
+package com.wht.sdt.config.bean;
+
+import com.wht.sdt.enumeration.LoadBalanceType;
+import com.wht.sdt.properties.HealthProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ShardDataSource 健康检查测试
+ *
+ * @author wht
+ */
+class ShardDataSourceTest {
+
+    private final ExecutorService prober = Executors.newCachedThreadPool();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        prober.shutdownNow();
+    }
+
+    @Test
+    void countsBlockedProbeAsFailureWithinTimeout() {
+        HealthProperties health = new HealthProperties();
+        health.setEnabled(true);
+        health.setProbeFailureThreshold(2);
+        ShardDataSource shard = new ShardDataSource("group01db01", new BlockingDataSource(release), List.of(),
+                LoadBalanceType.ROUND_ROBIN, health);
+
+        long start = System.nanoTime();
+        shard.probe(1, prober);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isBetween(900L, 2000L);
+        assertThat(shard.getNodeStats().get(0).state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // 上一次检查仍阻塞（不响应中断），不再占用新的线程，直接计为失败
+        start = System.nanoTime();
+        shard.probe(1, prober);
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isLessThan(500L);
+        assertThat(shard.getNodeStats().get(0).state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    /**
+     * 获取连接时阻塞且不响应中断的数据源（模拟网络分区时卡住的驱动）
+     */
+    private static final class BlockingDataSource extends AbstractDataSource {
+
+        private final CountDownLatch release;
+
+        private BlockingDataSource(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            while (true) {
+                try {
+                    release.await();
+                    throw new SQLException("released");
+                } catch (InterruptedException ignored) {
+                    // 继续等待
+                }
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.wht.sdt.config.bean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SlidingWindow 测试
+ *
+ * @author wht
+ */
+class SlidingWindowTest {
+
+    @Test
+    void aggregatesRequestsErrorsAndLatency() {
+        SlidingWindow window = new SlidingWindow(10);
+
+        window.record(100, false);
+        window.record(300, true);
+        window.record(200, false);
+        window.record(400, true);
+
+        SlidingWindow.Snapshot snapshot = window.snapshot();
+        assertThat(snapshot.requests()).isEqualTo(4);
+        assertThat(snapshot.errors()).isEqualTo(2);
+        assertThat(snapshot.errorRate()).isEqualTo(0.5);
+        assertThat(snapshot.avgNanos()).isEqualTo(250);
+        assertThat(snapshot.maxNanos()).isEqualTo(400);
+    }
+
+    @Test
+    void resetsAndExpiresBuckets() throws InterruptedException {
+        SlidingWindow window = new SlidingWindow(1);
+        window.record(100, true);
+        window.reset();
+        assertThat(window.snapshot().requests()).isZero();
+        assertThat(window.snapshot().errorRate()).isZero();
+
+        window.record(100, true);
+        assertThat(window.snapshot().requests()).isEqualTo(1);
+        Thread.sleep(1100);
+
+        assertThat(window.snapshot().requests()).isZero();
+    }
+}
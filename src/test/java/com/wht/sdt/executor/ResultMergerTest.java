@@ -0,0 +1,125 @@
+package com.wht.sdt.executor;
+
+import com.wht.sdt.enumeration.MergeType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ResultMerger 测试
+ *
+ * @author wht
+ */
+class ResultMergerTest {
+
+    @Test
+    void mergesSortedShardsByOrderByAndLimit() {
+        // 各分片已按 createTime desc, id 排序
+        List<Object> shard1 = List.of(row(1, 30), row(4, 20), row(7, 10));
+        List<Object> shard2 = List.of(row(2, 30), row(5, 25));
+        List<Object> shard3 = List.of(row(3, 20), row(6, 5));
+
+        Object merged = ResultMerger.merge(List.of(shard1, shard2, shard3), MergeType.AUTO, List.class,
+                ResultMerger.comparator("createTime desc, id"), 5);
+
+        assertThat(ids(merged)).containsExactly(1, 2, 5, 3, 4);
+    }
+
+    @Test
+    void mergesWithoutLimit() {
+        Object merged = ResultMerger.merge(List.of(List.of(row(1, 1), row(3, 3)), List.of(row(2, 2), row(4, 4))),
+                MergeType.LIST, List.class, ResultMerger.comparator("createTime"), -1);
+
+        assertThat(ids(merged)).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void sortsNullsFirstAscending() {
+        Object merged = ResultMerger.merge(List.of(List.of(row(1, 10)), List.of(row(2, null))),
+                MergeType.LIST, List.class, ResultMerger.comparator("createTime"), -1);
+
+        assertThat(ids(merged)).containsExactly(2, 1);
+    }
+
+    @Test
+    void comparesNestedPropertyPath() {
+        Map<String, Object> a = new HashMap<>(Map.of("id", 1, "user", Map.of("age", 40)));
+        Map<String, Object> b = new HashMap<>(Map.of("id", 2, "user", Map.of("age", 20)));
+
+        Object merged = ResultMerger.merge(List.of(List.of(a), List.of(b)), MergeType.LIST, List.class,
+                ResultMerger.comparator("user.age asc"), -1);
+
+        assertThat(ids(merged)).containsExactly(2, 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concatenatesInShardOrderWithoutComparator() {
+        Object merged = ResultMerger.merge(Arrays.asList(List.of(1, 2), null, List.of(3, 4)), MergeType.AUTO,
+                List.class, null, 3);
+
+        assertThat((Collection<Object>) merged).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deduplicatesSetResults() {
+        Object merged = ResultMerger.merge(List.of(Set.of(1, 2), Set.of(2, 3)), MergeType.AUTO, Set.class, null, -1);
+
+        assertThat((Collection<Object>) merged).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    @Test
+    void sumsCountsToReturnType() {
+        assertThat(ResultMerger.merge(List.of(3, 4, 5), MergeType.COUNT, int.class, null, -1)).isEqualTo(12);
+        assertThat(ResultMerger.merge(List.of(3L, 4L), MergeType.AUTO, Long.class, null, -1)).isEqualTo(7L);
+        assertThat(ResultMerger.merge(Arrays.asList(1, null, new BigDecimal("1.5")), MergeType.SUM,
+                BigDecimal.class, null, -1)).isEqualTo(new BigDecimal("2.5"));
+    }
+
+    @Test
+    void rejectsIntOverflow() {
+        assertThatThrownBy(() -> ResultMerger.merge(List.of(Integer.MAX_VALUE, 1), MergeType.SUM, int.class,
+                null, -1)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void findsExtremesAcrossNumberTypes() {
+        List<Object> results = Arrays.asList(5, 7L, null, new BigDecimal("6.5"));
+
+        assertThat(ResultMerger.merge(results, MergeType.MAX, Object.class, null, -1)).isEqualTo(7L);
+        assertThat(ResultMerger.merge(results, MergeType.MIN, Object.class, null, -1)).isEqualTo(5);
+    }
+
+    @Test
+    void returnsFirstNonNullSingleResult() {
+        assertThat(ResultMerger.merge(Arrays.asList(null, "b", "c"), MergeType.AUTO, String.class, null, -1))
+                .isEqualTo("b");
+        assertThat(ResultMerger.merge(Arrays.asList("a", "b"), MergeType.AUTO, void.class, null, -1)).isNull();
+    }
+
+    private static Map<String, Object> row(int id, Integer createTime) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("createTime", createTime);
+        return row;
+    }
+
+    private static List<Object> ids(Object merged) {
+        List<Object> ids = new ArrayList<>();
+        for (Object row : (Collection<?>) merged) {
+            ids.add(((Map<?, ?>) row).get("id"));
+        }
+        return ids;
+    }
+}
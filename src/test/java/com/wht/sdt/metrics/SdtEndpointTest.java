@@ -0,0 +1,89 @@
+package com.wht.sdt.metrics;
+
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.RouterGroupProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * SdtEndpoint 测试
+ *
+ * @author wht
+ */
+class SdtEndpointTest {
+
+    private static final String PREFIX = RouterGroupProperties.PREFIX + ".groups.group01.";
+
+    private final String name = UUID.randomUUID().toString();
+
+    private RoutingRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void reloadsTopologyFromEnvironment() throws Exception {
+        registry = new RoutingRegistry(properties(), Map.of());
+        StandardEnvironment environment = new StandardEnvironment();
+        Map<String, Object> config = new HashMap<>();
+        config.put(PREFIX + "enable-split", true);
+        config.put(PREFIX + "db-count", 2);
+        config.put(PREFIX + "tb-counts.t_order", 8);
+        for (String db : new String[]{"db01", "db02"}) {
+            config.put(PREFIX + "data-source." + db + ".url", "jdbc:h2:mem:" + name + db + ";DB_CLOSE_DELAY=-1");
+            config.put(PREFIX + "data-source." + db + ".username", "sa");
+            config.put(PREFIX + "data-source." + db + ".driver-class-name", "org.h2.Driver");
+            config.put(PREFIX + "data-source." + db + ".pool-type", "HIKARI");
+        }
+        environment.getPropertySources().addFirst(new MapPropertySource("test", config));
+        SdtEndpoint endpoint = new SdtEndpoint(registry,
+                new MicrometerSdtMetrics(new SimpleMeterRegistry(), registry, null), null, null, environment);
+
+        Map<String, Object> result = endpoint.reload();
+
+        assertThat(result).containsEntry("previousVersion", 1L).containsEntry("version", 2L)
+                .containsEntry("source", "environment");
+        assertThat(registry.latest().getGroup("group01").getTbCounts()).containsEntry("t_order", 8);
+        assertThat(endpoint.summary()).containsEntry("version", 2L);
+
+        // 校验失败时保持当前版本
+        config.put(PREFIX + "db-count", 3);
+        assertThatThrownBy(endpoint::reload).isInstanceOf(IllegalStateException.class);
+        assertThat(registry.latest().getVersion()).isEqualTo(2);
+    }
+
+    private RouterGroupProperties properties() {
+        RouterGroupProperties properties = new RouterGroupProperties();
+        properties.getHealth().setEnabled(false);
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(1);
+        group.setTbCounts(new HashMap<>(Map.of("t_order", 4)));
+        DataSourceConfig config = new DataSourceConfig();
+        config.setUrl("jdbc:h2:mem:" + name + "db01;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setPoolType(PoolType.HIKARI);
+        Map<String, DataSourceConfig> dataSources = new LinkedHashMap<>();
+        dataSources.put("db01", config);
+        group.setDataSource(dataSources);
+        properties.setGroups(new LinkedHashMap<>(Map.of("group01", group)));
+        return properties;
+    }
+}
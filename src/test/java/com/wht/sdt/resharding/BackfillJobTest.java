@@ -0,0 +1,298 @@
+package com.wht.sdt.resharding;
+
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.enumeration.PoolType;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceConfig;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.ReshardingProperties;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BackfillJob 测试
+ * 旧布局 2 库 × 2 表，新布局 3 库 × 4 表
+ *
+ * @author wht
+ */
+class BackfillJobTest {
+
+    private static final int ROWS = 300;
+
+    private RoutingRegistry registry;
+
+    private ReshardingProperties resharding;
+
+    private RouterStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        resharding = new ReshardingProperties();
+        resharding.setEnabled(true);
+        resharding.setDbCount(3);
+        resharding.setTbCounts(Map.of("t_order", 4));
+        resharding.setRouteColumn("user_id");
+        resharding.setBatchSize(37);
+        registry = new RoutingRegistry(properties(resharding), Map.of());
+        strategy = registry.latest().getStrategy(StrategyType.HASH);
+
+        for (int db = 1; db <= 3; db++) {
+            for (int tb = 1; tb <= 4; tb++) {
+                shard(ShardKeys.dbKey(db)).execute("create table t_order_" + ShardKeys.tbKey(tb)
+                        + " (id bigint primary key, user_id bigint, amount int)");
+            }
+        }
+        for (long id = 1; id <= ROWS; id++) {
+            insert(source(id * 7), id, id * 7, (int) id);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void copiesRepairsAndSweepsUntilCleanPass() {
+        // 双写已写入的过期行、旧分片中已删除的孤儿行
+        insert(target(35), 5, 35, 999);
+        insert(target(9999), 9999, 9999, 1);
+
+        BackfillProgress progress = job().call();
+
+        assertThat(progress.getStatus()).isEqualTo(BackfillProgress.Status.COMPLETED);
+        assertThat(progress.getRepaired()).isEqualTo(1);
+        assertThat(progress.getRemoved()).isEqualTo(1);
+        assertThat(progress.getPasses()).isEqualTo(2);
+        assertThat(progress.getCopied()).isPositive();
+        assertThat(progress.getExisting()).isEqualTo(1);
+        assertTargetMatchesSource();
+        assertThat(amount(target(9999), 9999)).isNull();
+    }
+
+    @Test
+    void failsWhenVerificationDoesNotConverge() {
+        resharding.setMaxVerifyPasses(1);
+        insert(target(35), 5, 35, 999);
+
+        BackfillProgress progress = job().call();
+
+        assertThat(progress.getStatus()).isEqualTo(BackfillProgress.Status.FAILED);
+        assertThat(progress.getError()).contains("未收敛");
+        assertThat(progress.getRepaired()).isEqualTo(1);
+    }
+
+    @Test
+    void repairWaitsForInFlightSourceWrite() throws Exception {
+        insert(target(35), 5, 35, 999);
+        ShardTarget source = source(35);
+        DataSource sourceDataSource = registry.latest().getRoutingTable().getDataSource("group01", source.dbKey());
+
+        CompletableFuture<BackfillProgress> backfill;
+        try (Connection connection = sourceDataSource.getConnection()) {
+            // 事务中的双写已修改旧分片、尚未提交
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update t_order_" + source.tbKey() + " set amount = 50 where id = 5");
+            }
+            backfill = CompletableFuture.supplyAsync(() -> job().call());
+
+            // 修复在旧分片上加锁，等待双写提交
+            assertThat(awaitBlocked(source.dbKey(), 5000)).isTrue();
+            connection.commit();
+        }
+        // 双写提交后再写新分片
+        ShardTarget target = target(35);
+        shard(target.dbKey()).update("update t_order_" + target.tbKey() + " set amount = 50 where id = 5");
+        BackfillProgress progress = backfill.get();
+
+        assertThat(progress.getStatus()).isEqualTo(BackfillProgress.Status.COMPLETED);
+        assertThat(amount(target, 5)).isEqualTo(50);
+        assertTargetMatchesSource();
+    }
+
+    @Test
+    void keepsTargetConsistentWithConcurrentDualWrites() throws Exception {
+        resharding.setMaxVerifyPasses(50);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // 与切面的双写顺序一致：先写旧分片，再写新分片（不在事务中，分别提交）
+        CompletableFuture<Long> writer = CompletableFuture.supplyAsync(() -> {
+            long writes = 0;
+            long nextId = ROWS + 1;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running.get()) {
+                long id = random.nextLong(1, ROWS + 1);
+                long userId = id * 7;
+                switch (random.nextInt(4)) {
+                    case 0 -> dualWrite(userId, shard -> delete(shard, id));
+                    case 1 -> {
+                        long added = nextId++;
+                        dualWrite(added * 7, shard -> insert(shard, added, added * 7, (int) added));
+                    }
+                    default -> dualWrite(userId, shard -> increment(shard, id));
+                }
+                writes++;
+            }
+            return writes;
+        });
+
+        BackfillProgress progress = job().call();
+        running.set(false);
+        long writes = writer.get();
+
+        assertThat(writes).isPositive();
+        assertThat(progress.getStatus()).as(progress.toString()).isEqualTo(BackfillProgress.Status.COMPLETED);
+        assertTargetMatchesSource();
+    }
+
+    private BackfillJob job() {
+        return new BackfillJob(registry, registry.latest(), "group01", new BackfillProgress("group01"));
+    }
+
+    /**
+     * 旧分片的每一行都在新分片中且数据一致，新分片中的其他行只能是尚未清理的旧布局的行
+     */
+    private void assertTargetMatchesSource() {
+        for (int db = 1; db <= 2; db++) {
+            for (int tb = 1; tb <= 2; tb++) {
+                for (Map<String, Object> row : rows(new ShardTarget(ShardKeys.dbKey(db), ShardKeys.tbKey(tb)))) {
+                    long id = ((Number) row.get("ID")).longValue();
+                    long userId = ((Number) row.get("USER_ID")).longValue();
+                    assertThat(amount(target(userId), id)).as("id=" + id).isEqualTo(row.get("AMOUNT"));
+                }
+            }
+        }
+        for (int db = 1; db <= 3; db++) {
+            for (int tb = 1; tb <= 4; tb++) {
+                ShardTarget shard = new ShardTarget(ShardKeys.dbKey(db), ShardKeys.tbKey(tb));
+                for (Map<String, Object> row : rows(shard)) {
+                    long id = ((Number) row.get("ID")).longValue();
+                    long userId = ((Number) row.get("USER_ID")).longValue();
+                    if (sameTable(target(userId), shard)) {
+                        assertThat(amount(source(userId), id)).as("id=" + id).isEqualTo(row.get("AMOUNT"));
+                    } else {
+                        assertThat(sameTable(source(userId), shard)).as("id=" + id).isTrue();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 与切面的双写一致：先写旧分片，失败时不写新分片；新分片写入失败（如回填已复制该行导致主键冲突）时忽略
+     */
+    private void dualWrite(long userId, Consumer<ShardTarget> write) {
+        try {
+            write.accept(source(userId));
+        } catch (DataAccessException e) {
+            return;
+        }
+        try {
+            write.accept(target(userId));
+        } catch (DataAccessException ignored) {
+            // 由回填的校验阶段修复
+        }
+    }
+
+    /**
+     * 等待数据库中出现被锁阻塞的会话
+     */
+    private boolean awaitBlocked(String dbKey, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            Integer blocked = shard(dbKey).queryForObject(
+                    "select count(*) from information_schema.sessions where blocker_id is not null", Integer.class);
+            if (blocked != null && blocked > 0) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private static boolean sameTable(ShardTarget a, ShardTarget b) {
+        return a.dbKey().equals(b.dbKey()) && a.tbKey().equals(b.tbKey());
+    }
+
+    private List<Map<String, Object>> rows(ShardTarget shard) {
+        return shard(shard.dbKey()).queryForList("select id, user_id, amount from t_order_" + shard.tbKey());
+    }
+
+    private ShardTarget source(long userId) {
+        return ShardTarget.locate(strategy, "group01", String.valueOf(userId), 2, 2);
+    }
+
+    private ShardTarget target(long userId) {
+        return ShardTarget.locate(strategy, "group01", String.valueOf(userId), 3, 4);
+    }
+
+    private void insert(ShardTarget shard, long id, long userId, int amount) {
+        shard(shard.dbKey()).update("insert into t_order_" + shard.tbKey() + " values (?, ?, ?)", id, userId, amount);
+    }
+
+    private void delete(ShardTarget shard, long id) {
+        shard(shard.dbKey()).update("delete from t_order_" + shard.tbKey() + " where id = ?", id);
+    }
+
+    private void increment(ShardTarget shard, long id) {
+        shard(shard.dbKey()).update("update t_order_" + shard.tbKey() + " set amount = amount + 1 where id = ?", id);
+    }
+
+    private Integer amount(ShardTarget shard, long id) {
+        List<Integer> amounts = shard(shard.dbKey())
+                .queryForList("select amount from t_order_" + shard.tbKey() + " where id = ?", Integer.class, id);
+        return amounts.isEmpty() ? null : amounts.get(0);
+    }
+
+    private JdbcTemplate shard(String dbKey) {
+        return new JdbcTemplate(registry.latest().getRoutingTable().getDataSource("group01", dbKey));
+    }
+
+    static RouterGroupProperties properties(ReshardingProperties resharding) {
+        RouterGroupProperties properties = new RouterGroupProperties();
+        properties.getHealth().setEnabled(false);
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(2);
+        group.setRouterKey("userId");
+        group.setStrategy(StrategyType.HASH);
+        group.setTbCounts(new HashMap<>(Map.of("t_order", 2)));
+        String name = UUID.randomUUID().toString();
+        Map<String, DataSourceConfig> dataSources = new LinkedHashMap<>();
+        for (int db = 1; db <= 3; db++) {
+            DataSourceConfig config = new DataSourceConfig();
+            config.setUrl("jdbc:h2:mem:" + name + db + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+            config.setUsername("sa");
+            config.setPassword("");
+            config.setDriverClassName("org.h2.Driver");
+            config.setPoolType(PoolType.HIKARI);
+            dataSources.put(ShardKeys.dbKey(db), config);
+        }
+        group.setDataSource(dataSources);
+        group.setResharding(resharding);
+        properties.setGroups(new LinkedHashMap<>(Map.of("group01", group)));
+        return properties;
+    }
+}
@@ -0,0 +1,128 @@
+package com.wht.sdt.resharding;
+
+import com.wht.sdt.config.bean.RoutingRegistry;
+import com.wht.sdt.enumeration.StrategyType;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.ReshardingProperties;
+import com.wht.sdt.properties.RouterGroupProperties;
+import com.wht.sdt.strategy.RouterStrategy;
+import com.wht.sdt.util.ShardKeys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ReshardingManager 测试
+ *
+ * @author wht
+ */
+class ReshardingManagerTest {
+
+    private RoutingRegistry registry;
+
+    private ReshardingManager manager;
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.destroy();
+        }
+        if (registry != null) {
+            registry.destroy();
+        }
+    }
+
+    @Test
+    void switchesReadsAfterBackfillCompletes() throws Exception {
+        RouterGroupProperties properties = BackfillJobTest.properties(resharding());
+        start(properties, 3);
+
+        assertThat(manager.isMigrated("group01")).isFalse();
+        BackfillProgress progress = manager.startBackfill("group01").get();
+
+        assertThat(progress.getStatus()).isEqualTo(BackfillProgress.Status.COMPLETED);
+        assertThat(manager.getProgress("group01")).isSameAs(progress);
+        assertThat(manager.isMigrated("group01")).isTrue();
+    }
+
+    @Test
+    void staysOnSourceShardsWhenBackfillFails() throws Exception {
+        // 新增的分库中没有建表
+        start(BackfillJobTest.properties(resharding()), 2);
+
+        BackfillProgress progress = manager.startBackfill("group01").get();
+
+        assertThat(progress.getStatus()).isEqualTo(BackfillProgress.Status.FAILED);
+        assertThat(progress.getError()).isNotNull();
+        assertThat(manager.isMigrated("group01")).isFalse();
+    }
+
+    @Test
+    void forgetsMigrationWhenLayoutChanges() throws Exception {
+        start(BackfillJobTest.properties(resharding()), 3);
+        manager.startBackfill("group01").get();
+        assertThat(manager.isMigrated("group01")).isTrue();
+
+        ReshardingProperties changed = resharding();
+        changed.setTbCounts(Map.of("t_order", 3));
+        registry.refresh(BackfillJobTest.properties(changed));
+
+        assertThat(manager.isMigrated("group01")).isFalse();
+    }
+
+    @Test
+    void readsFromTargetWhenConfigured() {
+        ReshardingProperties resharding = resharding();
+        resharding.setReadFromTarget(true);
+        start(BackfillJobTest.properties(resharding), 3);
+
+        assertThat(manager.isMigrated("group01")).isTrue();
+        assertThat(manager.getProgress("group01")).isNull();
+    }
+
+    @Test
+    void rejectsGroupWithoutResharding() {
+        ReshardingProperties resharding = resharding();
+        resharding.setEnabled(false);
+        start(BackfillJobTest.properties(resharding), 3);
+
+        assertThatThrownBy(() -> manager.startBackfill("group01")).isInstanceOf(IllegalStateException.class);
+        assertThat(manager.isMigrated("group01")).isFalse();
+    }
+
+    private static ReshardingProperties resharding() {
+        ReshardingProperties resharding = new ReshardingProperties();
+        resharding.setEnabled(true);
+        resharding.setDbCount(3);
+        resharding.setTbCounts(Map.of("t_order", 4));
+        resharding.setRouteColumn("user_id");
+        return resharding;
+    }
+
+    /**
+     * 创建注册表和管理器，在前 dbCount 个分库中建表并写入数据
+     */
+    private void start(RouterGroupProperties properties, int dbCount) {
+        registry = new RoutingRegistry(properties, Map.of());
+        manager = new ReshardingManager(registry);
+        for (int db = 1; db <= dbCount; db++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                    registry.latest().getRoutingTable().getDataSource("group01", ShardKeys.dbKey(db)));
+            for (int tb = 1; tb <= 4; tb++) {
+                jdbcTemplate.execute("create table t_order_" + ShardKeys.tbKey(tb)
+                        + " (id bigint primary key, user_id bigint, amount int)");
+            }
+        }
+        RouterStrategy strategy = registry.latest().getStrategy(StrategyType.HASH);
+        for (long id = 1; id <= 50; id++) {
+            ShardTarget source = ShardTarget.locate(strategy, "group01", String.valueOf(id * 7), 2, 2);
+            new JdbcTemplate(registry.latest().getRoutingTable().getDataSource("group01", source.dbKey()))
+                    .update("insert into t_order_" + source.tbKey() + " values (?, ?, ?)", id, id * 7, (int) id);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.util.HashUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * DirectoryIndex 测试
+ *
+ * @author wht
+ */
+class DirectoryIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesAndLooksUpEntries() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer()
+                .put("10086", 3, 2)
+                .put("tenant-a", 1, 0)
+                .put("-42", 2, 16)
+                .write(file);
+
+        DirectoryIndex index = DirectoryIndex.open(file);
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getMaxDb()).isEqualTo(3);
+        assertThat(index.getMaxTb()).isEqualTo(16);
+        int entry = index.lookup(DirectoryIndex.keyOf("10086"));
+        assertThat(DirectoryIndex.db(entry)).isEqualTo(3);
+        assertThat(DirectoryIndex.tb(entry)).isEqualTo(2);
+        entry = index.lookup(DirectoryIndex.keyOf("tenant-a"));
+        assertThat(DirectoryIndex.db(entry)).isEqualTo(1);
+        assertThat(DirectoryIndex.tb(entry)).isZero();
+        assertThat(DirectoryIndex.db(index.lookup(DirectoryIndex.keyOf("-42")))).isEqualTo(2);
+        assertThat(index.lookup(DirectoryIndex.keyOf("10087"))).isEqualTo(-1);
+    }
+
+    @Test
+    void sortsLargeUnorderedInput() throws IOException {
+        Path file = dir.resolve("large.idx");
+        Random random = new Random(7);
+        long[] keys = random.longs(50_000).distinct().toArray();
+        DirectoryIndex.Writer writer = new DirectoryIndex.Writer();
+        for (int i = 0; i < keys.length; i++) {
+            writer.put(keys[i], i % 8 + 1, i % 32);
+        }
+        writer.write(file);
+
+        DirectoryIndex index = DirectoryIndex.open(file);
+
+        assertThat(index.size()).isEqualTo(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            int entry = index.lookup(keys[i]);
+            assertThat(DirectoryIndex.db(entry)).isEqualTo(i % 8 + 1);
+            assertThat(DirectoryIndex.tb(entry)).isEqualTo(i % 32);
+        }
+    }
+
+    @Test
+    void usesNumericValueOrHashAsKey() {
+        assertThat(DirectoryIndex.keyOf("10086")).isEqualTo(10086L);
+        assertThat(DirectoryIndex.keyOf("-10086")).isEqualTo(-10086L);
+        assertThat(DirectoryIndex.keyOf("999999999999999999")).isEqualTo(999999999999999999L);
+        assertThat(DirectoryIndex.keyOf("1000000000000000000")).isEqualTo(HashUtils.murmur64("1000000000000000000"));
+        assertThat(DirectoryIndex.keyOf("12a")).isEqualTo(HashUtils.murmur64("12a"));
+        assertThat(DirectoryIndex.keyOf("-")).isEqualTo(HashUtils.murmur64("-"));
+        assertThat(DirectoryIndex.keyOf("")).isEqualTo(HashUtils.murmur64(""));
+    }
+
+    @Test
+    void rejectsDuplicateKeysAndOutOfRangeNumbers() {
+        DirectoryIndex.Writer writer = new DirectoryIndex.Writer().put("1", 1, 1).put("2", 1, 1).put("1", 2, 2);
+
+        assertThatThrownBy(() -> writer.write(dir.resolve("duplicate.idx"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(dir.resolve("duplicate.idx")).doesNotExist();
+        assertThatThrownBy(() -> new DirectoryIndex.Writer().put("1", 0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DirectoryIndex.Writer().put("1", 1, -1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DirectoryIndex.Writer().put("1", 1, 40000)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void convertsTextFile() throws IOException {
+        Path source = dir.resolve("tenants.csv");
+        Files.writeString(source, "# 大租户\n10086,db03,002\n\ntenant-a, 2\n20000,1,4\n");
+        Path target = dir.resolve("tenants.idx");
+
+        DirectoryIndex.convert(source, target);
+        DirectoryIndex index = DirectoryIndex.open(target);
+
+        assertThat(index.size()).isEqualTo(3);
+        int entry = index.lookup(DirectoryIndex.keyOf("10086"));
+        assertThat(DirectoryIndex.db(entry)).isEqualTo(3);
+        assertThat(DirectoryIndex.tb(entry)).isEqualTo(2);
+        entry = index.lookup(DirectoryIndex.keyOf("tenant-a"));
+        assertThat(DirectoryIndex.db(entry)).isEqualTo(2);
+        assertThat(DirectoryIndex.tb(entry)).isZero();
+        assertThat(DirectoryIndex.tb(index.lookup(DirectoryIndex.keyOf("20000")))).isEqualTo(4);
+
+        Files.writeString(source, "10086\n");
+        assertThatThrownBy(() -> DirectoryIndex.convert(source, target)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsCorruptFiles() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("1", 1, 1).put("2", 2, 2).write(file);
+        byte[] content = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(content, content.length - 1));
+        assertThatThrownBy(() -> DirectoryIndex.open(file)).isInstanceOf(IllegalStateException.class);
+
+        Files.writeString(file, "not an index file");
+        assertThatThrownBy(() -> DirectoryIndex.open(file)).isInstanceOf(IllegalStateException.class);
+
+        // 交换两条记录后key不再有序
+        byte[] swapped = content.clone();
+        System.arraycopy(content, 16, swapped, 28, 12);
+        System.arraycopy(content, 28, swapped, 16, 12);
+        Files.write(file, swapped);
+        assertThatThrownBy(() -> DirectoryIndex.open(file)).isInstanceOf(IllegalStateException.class);
+    }
+}
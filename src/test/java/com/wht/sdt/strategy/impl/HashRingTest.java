@@ -0,0 +1,102 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.util.HashUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * HashRing 测试
+ *
+ * @author wht
+ */
+class HashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void locatesEveryKeyOnAPhysicalNode() {
+        HashRing ring = HashRing.build(8, 150);
+
+        assertThat(ring.getNodeCount()).isEqualTo(8);
+        assertThat(ring.size()).isEqualTo(8 * 150);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ring.locate(HashUtils.murmur64("key-" + i))).isBetween(1, 8);
+        }
+    }
+
+    @Test
+    void isDeterministicAcrossBuilds() {
+        HashRing first = HashRing.build(16, 150);
+        HashRing second = HashRing.build(16, 150);
+
+        for (int i = 0; i < 1000; i++) {
+            long hash = HashUtils.murmur64("user-" + i);
+            assertThat(second.locate(hash)).isEqualTo(first.locate(hash));
+        }
+    }
+
+    @Test
+    void distributesKeysEvenly() {
+        int[] counts = distribution(HashRing.build(8, 150), 8);
+
+        double mean = (double) KEYS / 8;
+        for (int count : counts) {
+            assertThat(count).isBetween((int) (mean * 0.8), (int) (mean * 1.2));
+        }
+    }
+
+    @Test
+    void movesOnlyKeysOfTheNewNodeWhenAddingANode() {
+        HashRing before = HashRing.build(8, 150);
+        HashRing after = HashRing.build(9, 150);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            long hash = HashUtils.murmur64("key-" + i);
+            int from = before.locate(hash);
+            int to = after.locate(hash);
+            if (from != to) {
+                moved++;
+                assertThat(to).isEqualTo(9);
+            }
+        }
+        // 理想的迁移比例为 1/9
+        assertThat((double) moved / KEYS).isCloseTo(1.0 / 9, within(0.04));
+    }
+
+    @Test
+    void sharesFollowVirtualNodeCounts() {
+        HashRing ring = HashRing.build(new int[]{150, 300, 0});
+
+        double[] shares = ring.keySpaceShares();
+        assertThat(Arrays.stream(shares).sum()).isCloseTo(1.0, within(1e-9));
+        assertThat(shares[0]).isCloseTo(1.0 / 3, within(0.06));
+        assertThat(shares[1]).isCloseTo(2.0 / 3, within(0.06));
+        assertThat(shares[2]).isZero();
+
+        int[] counts = distribution(ring, 3);
+        assertThat(counts[2]).isZero();
+        assertThat((double) counts[1] / counts[0]).isCloseTo(2.0, within(0.4));
+    }
+
+    @Test
+    void rejectsLookupOnEmptyRing() {
+        HashRing ring = HashRing.build(new int[]{0, 0});
+
+        assertThat(ring.size()).isZero();
+        assertThatThrownBy(() -> ring.locate(1L)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static int[] distribution(HashRing ring, int nodeCount) {
+        int[] counts = new int[nodeCount];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.locate(HashUtils.murmur64("key-" + i)) - 1]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,97 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.ReshardingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RouterStrategyConsistentHash 测试
+ *
+ * @author wht
+ */
+class RouterStrategyConsistentHashTest {
+
+    private static final String GROUP_KEY = "group01";
+
+    @AfterEach
+    void tearDown() {
+        SDTContext.clearAll();
+    }
+
+    @Test
+    void buildsRingsForEveryConfiguredCount() {
+        DataSourceGroup group = group(2, Map.of("t_order", 4, "t_user", 16));
+        ReshardingProperties resharding = new ReshardingProperties();
+        resharding.setEnabled(true);
+        resharding.setDbCount(3);
+        resharding.setTbCounts(Map.of("t_order", 8));
+        group.setResharding(resharding);
+
+        RouterStrategyConsistentHash strategy = new RouterStrategyConsistentHash();
+        strategy.init(GROUP_KEY, group);
+
+        for (int dbCount : new int[]{2, 3}) {
+            for (int tbCount : new int[]{4, 8, 16}) {
+                StrategyContext context = context("10086", dbCount, tbCount);
+                strategy.splitDB(context);
+                strategy.splitTB(context);
+                assertThat(Integer.parseInt(SDTContext.getDBKey().substring(2))).isBetween(1, dbCount);
+                assertThat(Integer.parseInt(SDTContext.getTBKey())).isBetween(1, tbCount);
+            }
+        }
+    }
+
+    @Test
+    void rejectsCountsWithoutRing() {
+        RouterStrategyConsistentHash strategy = new RouterStrategyConsistentHash();
+        strategy.init(GROUP_KEY, group(2, Map.of("t_order", 4)));
+
+        assertThatThrownBy(() -> strategy.splitDB(context("1", 5, 4))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> strategy.splitTB(context("1", 2, 7))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> strategy.splitDB(StrategyContext.builder().groupKey("group09").keyValue("1").dbCount(2).build()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void skipsDatasourcesWithZeroWeight() {
+        DataSourceGroup group = group(3, Map.of());
+        group.setWeights(new HashMap<>(Map.of("db02", 0)));
+        RouterStrategyConsistentHash strategy = new RouterStrategyConsistentHash();
+        strategy.init(GROUP_KEY, group);
+
+        for (int i = 0; i < 2000; i++) {
+            strategy.splitDB(context(Integer.toString(i), 3, 0));
+            assertThat(SDTContext.getDBKey()).isNotEqualTo("db02");
+        }
+    }
+
+    @Test
+    void rejectsAllZeroWeights() {
+        DataSourceGroup group = group(2, Map.of());
+        group.setWeights(new HashMap<>(Map.of("db01", 0, "db02", 0)));
+
+        assertThatThrownBy(() -> new RouterStrategyConsistentHash().init(GROUP_KEY, group))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static DataSourceGroup group(int dbCount, Map<String, Integer> tbCounts) {
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(dbCount);
+        group.setTbCounts(new HashMap<>(tbCounts));
+        return group;
+    }
+
+    private static StrategyContext context(String value, int dbCount, int tbCount) {
+        return StrategyContext.builder().groupKey(GROUP_KEY).keyValue(value).dbCount(dbCount).tbCount(tbCount).build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.DirectoryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RouterStrategyDirectory 测试
+ *
+ * @author wht
+ */
+class RouterStrategyDirectoryTest {
+
+    @TempDir
+    Path dir;
+
+    private final RouterStrategyDirectory strategy = new RouterStrategyDirectory();
+
+    @AfterEach
+    void tearDown() {
+        strategy.destroy();
+        SDTContext.clearAll();
+    }
+
+    @Test
+    void routesMappedValuesAndFallsBackForOthers() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("10086", 3, 2).put("tenant-a", 1, 0).write(file);
+        strategy.init("group01", group(file, 4, 8));
+
+        route("10086", 4, 8);
+        assertThat(SDTContext.getDBKey()).isEqualTo("db03");
+        assertThat(SDTContext.getTBKey()).isEqualTo("002");
+
+        // 未指定表编号时由回退策略计算分表
+        route("tenant-a", 4, 8);
+        assertThat(SDTContext.getDBKey()).isEqualTo("db01");
+        String fallbackTb = SDTContext.getTBKey();
+        new RouterStrategyHashCode().splitTB(context("tenant-a", 4, 8));
+        assertThat(fallbackTb).isEqualTo(SDTContext.getTBKey());
+
+        route("10087", 4, 8);
+        String db = SDTContext.getDBKey();
+        String tb = SDTContext.getTBKey();
+        RouterStrategyHashCode hash = new RouterStrategyHashCode();
+        hash.splitDB(context("10087", 4, 8));
+        hash.splitTB(context("10087", 4, 8));
+        assertThat(db).isEqualTo(SDTContext.getDBKey());
+        assertThat(tb).isEqualTo(SDTContext.getTBKey());
+    }
+
+    @Test
+    void fallsBackWhenMappingExceedsRoutedCounts() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("10086", 3, 6).write(file);
+        strategy.init("group01", group(file, 4, 8));
+
+        // 库编号或表编号任一超出本次路由的数量时，库和表都按回退策略计算
+        assertFallback("10086", 2, 4);
+        assertFallback("10086", 2, 8);
+        assertFallback("10086", 4, 4);
+        route("10086", 4, 6);
+        assertThat(SDTContext.getDBKey()).isEqualTo("db03");
+        assertThat(SDTContext.getTBKey()).isEqualTo("006");
+    }
+
+    @Test
+    void detectsReplacedFileWithSameModifiedTime() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("10086", 1, 1).write(file);
+        strategy.init("group01", group(file, 4, 8));
+        FileTime modified = strategy.getIndex("group01").getLastModified();
+
+        // 重命名替换的文件大小相同、修改时间相同（秒级精度的文件系统上同一秒内替换）
+        new DirectoryIndex.Writer().put("10086", 2, 1).write(file);
+        Files.setLastModifiedTime(file, modified);
+        strategy.reload("group01");
+        route("10086", 4, 8);
+        assertThat(SDTContext.getDBKey()).isEqualTo("db02");
+
+        // 原地改写：文件标识、修改时间相同，大小不同
+        DirectoryIndex.FileStamp stamp = strategy.getIndex("group01").getStamp();
+        Path replacement = dir.resolve("replacement.idx");
+        new DirectoryIndex.Writer().put("10086", 3, 1).put("10087", 3, 1).write(replacement);
+        Files.write(file, Files.readAllBytes(replacement));
+        Files.setLastModifiedTime(file, stamp.lastModified());
+        assertThat(strategy.reload("group01").size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsIndexExceedingGroupCounts() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("10086", 5, 1).write(file);
+
+        assertThatThrownBy(() -> strategy.init("group01", group(file, 4, 8))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void validatesSharedIndexAgainstEveryGroup() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("10086", 3, 6).write(file);
+        strategy.init("group01", group(file, 4, 8));
+
+        assertThatThrownBy(() -> strategy.init("group02", group(file, 2, 8))).isInstanceOf(IllegalStateException.class);
+        strategy.init("group03", group(file, 3, 6));
+        assertThat(strategy.getIndex("group03")).isSameAs(strategy.getIndex("group01"));
+    }
+
+    @Test
+    void reloadsModifiedIndexFile() throws IOException {
+        Path file = dir.resolve("tenants.idx");
+        new DirectoryIndex.Writer().put("10086", 1, 1).write(file);
+        strategy.init("group01", group(file, 4, 8));
+        DirectoryIndex loaded = strategy.getIndex("group01");
+
+        assertThat(strategy.reload("group01")).isSameAs(loaded);
+
+        new DirectoryIndex.Writer().put("10086", 2, 1).put("10087", 3, 3).write(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(loaded.getLastModified().toMillis() + 1000));
+        assertThat(strategy.reload("group01").size()).isEqualTo(2);
+        route("10086", 4, 8);
+        assertThat(SDTContext.getDBKey()).isEqualTo("db02");
+
+        // 新文件超出分库数量时继续使用已加载的索引
+        new DirectoryIndex.Writer().put("10086", 9, 1).write(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(loaded.getLastModified().toMillis() + 2000));
+        assertThatThrownBy(() -> strategy.reload("group01")).isInstanceOf(IllegalStateException.class);
+        assertThat(strategy.getIndex("group01").size()).isEqualTo(2);
+    }
+
+    private void assertFallback(String value, int dbCount, int tbCount) {
+        route(value, dbCount, tbCount);
+        String db = SDTContext.getDBKey();
+        String tb = SDTContext.getTBKey();
+        RouterStrategyHashCode hash = new RouterStrategyHashCode();
+        hash.splitDB(context(value, dbCount, tbCount));
+        hash.splitTB(context(value, dbCount, tbCount));
+        assertThat(db).as(dbCount + "x" + tbCount).isEqualTo(SDTContext.getDBKey());
+        assertThat(tb).as(dbCount + "x" + tbCount).isEqualTo(SDTContext.getTBKey());
+    }
+
+    private void route(String value, int dbCount, int tbCount) {
+        StrategyContext context = context(value, dbCount, tbCount);
+        strategy.splitDB(context);
+        strategy.splitTB(context);
+    }
+
+    private static StrategyContext context(String value, int dbCount, int tbCount) {
+        return StrategyContext.builder().groupKey("group01").keyValue(value).dbCount(dbCount).tbCount(tbCount).build();
+    }
+
+    private static DataSourceGroup group(Path indexFile, int dbCount, int tbCount) {
+        DirectoryProperties directory = new DirectoryProperties();
+        directory.setIndexFile(indexFile.toString());
+        directory.setPollInterval(0);
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(dbCount);
+        group.setTbCounts(new HashMap<>(Map.of("t_order", tbCount)));
+        group.setDirectory(directory);
+        return group;
+    }
+}
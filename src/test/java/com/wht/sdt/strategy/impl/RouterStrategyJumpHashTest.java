@@ -0,0 +1,70 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.util.HashUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * RouterStrategyJumpHash 测试
+ *
+ * @author wht
+ */
+class RouterStrategyJumpHashTest {
+
+    private static final int KEYS = 100_000;
+
+    @AfterEach
+    void tearDown() {
+        SDTContext.clearAll();
+    }
+
+    @Test
+    void distributesKeysEvenly() {
+        int[] counts = new int[10];
+        for (int i = 0; i < KEYS; i++) {
+            counts[RouterStrategyJumpHash.jumpConsistentHash(HashUtils.murmur64("key-" + i), 10)]++;
+        }
+
+        double mean = (double) KEYS / 10;
+        for (int count : counts) {
+            assertThat(count).isBetween((int) (mean * 0.9), (int) (mean * 1.1));
+        }
+    }
+
+    @Test
+    void movesKeysOnlyToTheNewBucket() {
+        for (int buckets = 1; buckets < 16; buckets++) {
+            int moved = 0;
+            for (int i = 0; i < KEYS; i++) {
+                long hash = HashUtils.murmur64("key-" + i);
+                int from = RouterStrategyJumpHash.jumpConsistentHash(hash, buckets);
+                int to = RouterStrategyJumpHash.jumpConsistentHash(hash, buckets + 1);
+                if (from != to) {
+                    moved++;
+                    assertThat(to).isEqualTo(buckets);
+                }
+            }
+            // 理想的迁移比例为 1/(n+1)
+            assertThat((double) moved / KEYS).isCloseTo(1.0 / (buckets + 1), within(0.01));
+        }
+    }
+
+    @Test
+    void routesWithinConfiguredCounts() {
+        RouterStrategyJumpHash strategy = new RouterStrategyJumpHash();
+
+        for (int i = 0; i < 1000; i++) {
+            StrategyContext context = StrategyContext.builder()
+                    .groupKey("group01").keyValue(Integer.toString(i)).dbCount(4).tbCount(16).build();
+            strategy.splitDB(context);
+            strategy.splitTB(context);
+            assertThat(Integer.parseInt(SDTContext.getDBKey().substring(2))).isBetween(1, 4);
+            assertThat(Integer.parseInt(SDTContext.getTBKey())).isBetween(1, 16);
+        }
+    }
+}
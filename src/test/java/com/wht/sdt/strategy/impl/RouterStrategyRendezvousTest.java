@@ -0,0 +1,146 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.context.StrategyContext;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.util.HashUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * RouterStrategyRendezvous 测试
+ *
+ * @author wht
+ */
+class RouterStrategyRendezvousTest {
+
+    private static final int KEYS = 100_000;
+
+    @AfterEach
+    void tearDown() {
+        SDTContext.clearAll();
+    }
+
+    @Test
+    void distributesKeysEvenly() {
+        int[] counts = new int[8];
+        for (int i = 0; i < KEYS; i++) {
+            counts[RouterStrategyRendezvous.select(HashUtils.murmur64("key-" + i), 8)]++;
+        }
+
+        double mean = (double) KEYS / 8;
+        for (int count : counts) {
+            assertThat(count).isBetween((int) (mean * 0.9), (int) (mean * 1.1));
+        }
+    }
+
+    @Test
+    void movesKeysOnlyToTheNewNode() {
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            long hash = HashUtils.murmur64("key-" + i);
+            int from = RouterStrategyRendezvous.select(hash, 8);
+            int to = RouterStrategyRendezvous.select(hash, 9);
+            if (from != to) {
+                moved++;
+                assertThat(to).isEqualTo(8);
+            }
+        }
+        assertThat((double) moved / KEYS).isCloseTo(1.0 / 9, within(0.01));
+    }
+
+    @Test
+    void movesOnlyKeysOfTheRemovedNode() {
+        double[] before = {1, 1, 1, 1, 1};
+        double[] after = {1, 1, 0, 1, 1};
+
+        for (int i = 0; i < KEYS; i++) {
+            long hash = HashUtils.murmur64("key-" + i);
+            int from = RouterStrategyRendezvous.selectWeighted(hash, before);
+            int to = RouterStrategyRendezvous.selectWeighted(hash, after);
+            assertThat(to).isNotEqualTo(2);
+            if (from != 2) {
+                assertThat(to).isEqualTo(from);
+            }
+        }
+    }
+
+    @Test
+    void selectsNodesInProportionToWeights() {
+        double[] weights = {1, 2, 3};
+        int[] counts = new int[3];
+        for (int i = 0; i < KEYS; i++) {
+            counts[RouterStrategyRendezvous.selectWeighted(HashUtils.murmur64("key-" + i), weights)]++;
+        }
+
+        assertThat((double) counts[0] / KEYS).isCloseTo(1.0 / 6, within(0.01));
+        assertThat((double) counts[1] / KEYS).isCloseTo(2.0 / 6, within(0.01));
+        assertThat((double) counts[2] / KEYS).isCloseTo(3.0 / 6, within(0.01));
+    }
+
+    @Test
+    void routesEqualWeightsLikeUnweightedSelection() {
+        for (double[] weights : new double[][]{{1, 1, 1, 1, 1}, {3, 3, 3, 3, 3}}) {
+            for (int i = 0; i < KEYS; i++) {
+                long hash = HashUtils.murmur64("key-" + i);
+                assertThat(RouterStrategyRendezvous.selectWeighted(hash, weights))
+                        .isEqualTo(RouterStrategyRendezvous.select(hash, weights.length));
+            }
+        }
+
+        // 配置全部为1的权重不改变路由结果
+        RouterStrategyRendezvous weighted = new RouterStrategyRendezvous();
+        weighted.init("group01", group(4, Map.of("db01", 1, "db02", 1, "db03", 1, "db04", 1)));
+        RouterStrategyRendezvous unweighted = new RouterStrategyRendezvous();
+        unweighted.init("group01", group(4, Map.of()));
+        for (int i = 0; i < 2000; i++) {
+            weighted.splitDB(context(Integer.toString(i), 4));
+            String dbKey = SDTContext.getDBKey();
+            unweighted.splitDB(context(Integer.toString(i), 4));
+            assertThat(dbKey).isEqualTo(SDTContext.getDBKey());
+        }
+    }
+
+    @Test
+    void appliesGroupWeightsOnlyForTheConfiguredDbCount() {
+        RouterStrategyRendezvous strategy = new RouterStrategyRendezvous();
+        strategy.init("group01", group(3, Map.of("db02", 0)));
+
+        boolean db02 = false;
+        for (int i = 0; i < 2000; i++) {
+            strategy.splitDB(context(Integer.toString(i), 3));
+            assertThat(SDTContext.getDBKey()).isNotEqualTo("db02");
+            // 分库数量与权重配置不一致时（如分片迁移目标数量）按等权重路由
+            strategy.splitDB(context(Integer.toString(i), 4));
+            db02 |= "db02".equals(SDTContext.getDBKey());
+        }
+        assertThat(db02).isTrue();
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        assertThatThrownBy(() -> new RouterStrategyRendezvous().init("group01", group(2, Map.of("db01", -1))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RouterStrategyRendezvous().init("group01", group(2, Map.of("db01", 0, "db02", 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static DataSourceGroup group(int dbCount, Map<String, Integer> weights) {
+        DataSourceGroup group = new DataSourceGroup();
+        group.setEnableSplit(true);
+        group.setDbCount(dbCount);
+        group.setWeights(new HashMap<>(weights));
+        return group;
+    }
+
+    private static StrategyContext context(String value, int dbCount) {
+        return StrategyContext.builder().groupKey("group01").keyValue(value).dbCount(dbCount).tbCount(1).build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.wht.sdt.strategy.impl;
+
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.executor.ShardTarget;
+import com.wht.sdt.properties.DataSourceGroup;
+import com.wht.sdt.properties.TimePartitionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RouterStrategyTimeBased 测试
+ *
+ * @author wht
+ */
+class RouterStrategyTimeBasedTest {
+
+    /**
+     * 2026-10-31T16:30:00Z：UTC 是 10 月，上海时区是 11 月 1 日
+     */
+    private static final String MONTH_END = Long.toString(Instant.parse("2026-10-31T16:30:00Z").toEpochMilli());
+
+    @AfterEach
+    void tearDown() {
+        SDTContext.clearAll();
+    }
+
+    @Test
+    void convertsTimestampsInConfiguredZone() {
+        RouterStrategyTimeBased strategy = new RouterStrategyTimeBased();
+        DataSourceGroup shanghai = new DataSourceGroup();
+        shanghai.setTimeZone("Asia/Shanghai");
+        DataSourceGroup utc = new DataSourceGroup();
+        utc.setTimeZone("UTC");
+        strategy.init("shanghai", shanghai);
+        strategy.init("utc", utc);
+
+        // 202611 % 2 + 1 = 2，202610 % 2 + 1 = 1
+        assertThat(ShardTarget.locate(strategy, "shanghai", MONTH_END, 2, 0).dbKey()).isEqualTo("db02");
+        assertThat(ShardTarget.locate(strategy, "utc", MONTH_END, 2, 0).dbKey()).isEqualTo("db01");
+        // 日期字符串按字面日期
+        assertThat(ShardTarget.locate(strategy, "shanghai", "2026-10-31", 2, 0).dbKey()).isEqualTo("db01");
+    }
+
+    @Test
+    void usesCommonTimePartitionZone() {
+        DataSourceGroup group = new DataSourceGroup();
+        group.setTimePartitions(Map.of("t_order", partition("Asia/Shanghai"), "t_log", partition("Asia/Shanghai")));
+        assertThat(group.timeBasedZone()).isEqualTo("Asia/Shanghai");
+
+        RouterStrategyTimeBased strategy = new RouterStrategyTimeBased();
+        strategy.init("group01", group);
+        assertThat(ShardTarget.locate(strategy, "group01", MONTH_END, 2, 0).dbKey()).isEqualTo("db02");
+
+        // 各表时区不同、或有表未配置时区时使用系统默认时区，time-zone 优先
+        group.setTimePartitions(Map.of("t_order", partition("Asia/Shanghai"), "t_log", partition("UTC")));
+        assertThat(group.timeBasedZone()).isNull();
+        group.setTimePartitions(Map.of("t_order", partition("Asia/Shanghai"), "t_log", partition(null)));
+        assertThat(group.timeBasedZone()).isNull();
+        group.setTimeZone("UTC");
+        assertThat(group.timeBasedZone()).isEqualTo("UTC");
+    }
+
+    @Test
+    void routesCompactDatesByCalendarDate() {
+        RouterStrategyTimeBased strategy = new RouterStrategyTimeBased();
+
+        // 20261017 按 yyyyMMdd 处理：20261017 % 4 + 1 = 2
+        assertThat(ShardTarget.locate(strategy, "group01", "20261017", 2, 4))
+                .isEqualTo(ShardTarget.locate(strategy, "group01", "2026-10-17", 2, 4));
+        assertThat(ShardTarget.locate(strategy, "group01", "20261017", 2, 4).tbKey()).isEqualTo("002");
+        assertThatThrownBy(() -> ShardTarget.locate(strategy, "group01", "20261301", 2, 4))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsInvalidZone() {
+        assertThatThrownBy(() -> new DataSourceGroup().setTimeZone("Mars/Olympus"))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    private static TimePartitionProperties partition(String zone) {
+        TimePartitionProperties partition = new TimePartitionProperties();
+        partition.setZone(zone);
+        return partition;
+    }
+}
@@ -0,0 +1,214 @@
+package com.wht.sdt.transaction;
+
+import com.wht.sdt.config.bean.DynamicDataSource;
+import com.wht.sdt.context.SDTContext;
+import com.wht.sdt.executor.ShardQueryExecutor;
+import com.wht.sdt.metrics.ShardTransactionMeters;
+import com.wht.sdt.properties.ScatterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ShardTransactionManager 测试
+ *
+ * @author wht
+ */
+class ShardTransactionManagerTest {
+
+    private final Map<String, DataSource> shards = new HashMap<>();
+
+    private ShardQueryExecutor executor;
+
+    private ShardTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        String name = UUID.randomUUID().toString();
+        for (String dbKey : new String[]{"db01", "db02"}) {
+            DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + dbKey + ";DB_CLOSE_DELAY=-1", "sa", "");
+            new JdbcTemplate(dataSource).execute("create table t_order (id bigint primary key)");
+            shards.put("group01" + dbKey, dataSource);
+        }
+        DynamicDataSource dataSource = new DynamicDataSource();
+        dataSource.setTargetDataSources(new HashMap<>(shards));
+        dataSource.afterPropertiesSet();
+
+        ScatterProperties scatter = new ScatterProperties();
+        scatter.setMaxConcurrency(1);
+        scatter.setVirtualThreads(false);
+        executor = new ShardQueryExecutor(scatter);
+        transactionManager = new ShardTransactionManager(dataSource, executor);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+        for (DataSource dataSource : shards.values()) {
+            new JdbcTemplate(dataSource).execute("shutdown");
+        }
+        SDTContext.clearAll();
+    }
+
+    @Test
+    void commitsEveryEnlistedShard() {
+        transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 1);
+            insert("db02", 2);
+            insert("db01", 3);
+            // 提交前其他连接看不到未提交的数据
+            assertThat(ids("db01")).isEmpty();
+        });
+
+        assertThat(ids("db01")).containsExactly(1L, 3L);
+        assertThat(ids("db02")).containsExactly(2L);
+        ShardTransactionMetrics metrics = transactionManager.getMetrics();
+        assertThat(metrics.getCommits()).isEqualTo(1);
+        assertThat(metrics.getMultiShardTransactions()).isEqualTo(1);
+        assertThat(metrics.getMaxShards()).isEqualTo(2);
+    }
+
+    @Test
+    void publishesMetricsToMeterRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ShardTransactionMeters(registry, transactionManager.getMetrics());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 1);
+            insert("db02", 2);
+        });
+        transactionTemplate.executeWithoutResult(status -> insert("db01", 3));
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 4);
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("sdt.transaction.completions").tag("outcome", "commit").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("sdt.transaction.completions").tag("outcome", "rollback").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("sdt.transaction.multi.shard").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("sdt.transaction.shards.enlisted").functionCounter().count()).isEqualTo(4);
+        assertThat(registry.get("sdt.transaction.shards.max").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("sdt.transaction.multi.shard.commit").functionTimer().count()).isEqualTo(1);
+        assertThat(registry.get("sdt.transaction.multi.shard.commit").functionTimer().totalTime(TimeUnit.NANOSECONDS))
+                .isPositive();
+    }
+
+    @Test
+    void rollsBackEveryEnlistedShard() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 1);
+            insert("db02", 2);
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(ids("db01")).isEmpty();
+        assertThat(ids("db02")).isEmpty();
+        assertThat(transactionManager.getMetrics().getRollbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void rollsBackOnStatementFailure() {
+        insert("db02", 2);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 1);
+            insert("db02", 2);
+        })).isInstanceOf(RuntimeException.class);
+
+        assertThat(ids("db01")).isEmpty();
+        assertThat(ids("db02")).containsExactly(2L);
+    }
+
+    @Test
+    void rollsBackWhenParticipantFailsAndOuterSwallowsException() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 1);
+            try {
+                transactionTemplate.executeWithoutResult(inner -> {
+                    insert("db02", 2);
+                    throw new IllegalStateException("inner");
+                });
+            } catch (IllegalStateException e) {
+                // 外层吞掉异常后继续提交
+            }
+            insert("db02", 3);
+        })).isInstanceOf(UnexpectedRollbackException.class);
+
+        assertThat(ids("db01")).isEmpty();
+        assertThat(ids("db02")).isEmpty();
+    }
+
+    @Test
+    void rollsBackNestedTransactionToSavepoint() {
+        TransactionTemplate nested = new TransactionTemplate(transactionManager);
+        nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            insert("db01", 1);
+            try {
+                nested.executeWithoutResult(inner -> {
+                    // db01 回滚到保存点，db02 在保存点之后才加入事务，整体回滚
+                    insert("db01", 2);
+                    insert("db02", 3);
+                    throw new IllegalStateException("inner");
+                });
+            } catch (IllegalStateException e) {
+                // 外层事务继续
+            }
+            nested.executeWithoutResult(inner -> insert("db02", 4));
+            insert("db02", 5);
+        });
+
+        assertThat(ids("db01")).containsExactly(1L);
+        assertThat(ids("db02")).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void commitsInsideShardTaskWithoutWaitingForExecutor() throws Throwable {
+        // 执行器只有一个线程，分片任务中提交多分片事务时在当前线程提交
+        Callable<String> task = () -> transactionTemplate.execute(status -> {
+            insert("db01", 1);
+            insert("db02", 2);
+            return "committed";
+        });
+
+        assertThat(executor.invokeAll(List.of(task), 5000)).containsExactly("committed");
+        assertThat(ids("db01")).containsExactly(1L);
+        assertThat(ids("db02")).containsExactly(2L);
+    }
+
+    private void insert(String dbKey, long id) {
+        SDTContext.setGKey("group01");
+        SDTContext.setDBKey(dbKey);
+        jdbcTemplate.update("insert into t_order (id) values (?)", id);
+    }
+
+    private List<Long> ids(String dbKey) {
+        return new JdbcTemplate(shards.get("group01" + dbKey)).queryForList("select id from t_order order by id", Long.class);
+    }
+}
@@ -0,0 +1,173 @@
+package com.wht.sdt.util;
+
+import com.wht.sdt.util.SqlRouteKeyFinder.RangePlan;
+import com.wht.sdt.util.SqlRouteKeyFinder.RoutePlan;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SqlRouteKeyFinder 测试
+ *
+ * @author wht
+ */
+class SqlRouteKeyFinderTest {
+
+    @Test
+    void mapsJdbcParameterToBoundSqlParameterOrder() {
+        String sql = "select id from t_order where status = ? and user_id = ? order by id limit ?";
+
+        RoutePlan plan = SqlRouteKeyFinder.find(sql, "userId");
+
+        assertThat(plan).isEqualTo(new RoutePlan(1, null));
+        assertThat(resolve(plan, sql, Map.of("status", 1, "userId", 42L, "limit", 10), "status", "userId", "limit"))
+                .isEqualTo(42L);
+    }
+
+    @Test
+    void countsParametersBeforeWhereClause() {
+        String sql = "select ? as tag, id from t_order o where o.id in (select order_id from t_item where sku = ?)"
+                + " and o.user_id = ?";
+
+        RoutePlan plan = SqlRouteKeyFinder.find(sql, "userId");
+
+        assertThat(plan.parameterIndex()).isEqualTo(2);
+        assertThat(resolve(plan, sql, Map.of("tag", "x", "sku", "s1", "userId", 7L), "tag", "sku", "userId"))
+                .isEqualTo(7L);
+    }
+
+    @Test
+    void resolvesAdditionalParameterOfForeach() {
+        String sql = "update t_order set status = ? where user_id = ?";
+        Configuration configuration = new Configuration();
+        BoundSql boundSql = new BoundSql(configuration, sql, mappings(configuration, "status", "__frch_item_0"),
+                Map.of("status", 2));
+        boundSql.setAdditionalParameter("__frch_item_0", 99L);
+
+        RoutePlan plan = SqlRouteKeyFinder.find(sql, "userId");
+
+        assertThat(SqlRouteKeyFinder.resolve(plan, statement(configuration, sql), boundSql)).isEqualTo(99L);
+    }
+
+    @Test
+    void matchesColumnIgnoringCaseUnderscoreAndQuotes() {
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where USER_ID = ?", "userId").parameterIndex())
+                .isZero();
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where `user_id` = ?", "userId").parameterIndex())
+                .isZero();
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where o.userid = ?", "user_id").parameterIndex())
+                .isZero();
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where user_id = ?", "order.userId").parameterIndex())
+                .isZero();
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where ? = user_id", "userId").parameterIndex())
+                .isZero();
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where user_ids = ?", "userId").isFound()).isFalse();
+    }
+
+    @Test
+    void disablesFallbackForOrConditions() {
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where user_id = ? or status = ?", "userId"))
+                .isEqualTo(RoutePlan.NONE);
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where (user_id = ? or user_id = ?) and id = ?",
+                "userId")).isEqualTo(RoutePlan.NONE);
+        assertThat(SqlRouteKeyFinder.findRange("select * from t_order where user_id > ? or id = ?", "userId"))
+                .isEqualTo(RangePlan.NONE);
+        // AND 连接的条件中有等值条件时仍然可以路由
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where (status = ? or id = ?) and user_id = ?",
+                "userId").parameterIndex()).isEqualTo(2);
+    }
+
+    @Test
+    void returnsLiterals() {
+        String sql = "delete from t_order where user_id = 42 and id = ?";
+
+        RoutePlan plan = SqlRouteKeyFinder.find(sql, "userId");
+
+        assertThat(plan).isEqualTo(new RoutePlan(-1, "42"));
+        assertThat(resolve(plan, sql, Map.of("id", 1L), "id")).isEqualTo("42");
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where user_id = 'u-1'", "userId").literal())
+                .isEqualTo("u-1");
+        // 函数、表达式等无法确定取值
+        assertThat(SqlRouteKeyFinder.find("select * from t_order where user_id = abs(?)", "userId").isFound())
+                .isFalse();
+    }
+
+    @Test
+    void findsInsertColumn() {
+        assertThat(SqlRouteKeyFinder.find("insert into t_order (id, user_id, amount) values (?, ?, ?)", "userId"))
+                .isEqualTo(new RoutePlan(1, null));
+        assertThat(SqlRouteKeyFinder.find("insert into t_order (id, user_id) values (?, 'u-1')", "userId"))
+                .isEqualTo(new RoutePlan(-1, "u-1"));
+        // 多行插入、INSERT ... SELECT、未指定列时无法确定唯一的取值
+        assertThat(SqlRouteKeyFinder.find("insert into t_order (id, user_id) values (?, ?), (?, ?)", "userId")
+                .isFound()).isFalse();
+        assertThat(SqlRouteKeyFinder.find("insert into t_order (id, user_id) select id, user_id from t_tmp",
+                "userId").isFound()).isFalse();
+        assertThat(SqlRouteKeyFinder.find("insert into t_order values (?, ?)", "userId").isFound()).isFalse();
+    }
+
+    @Test
+    void findsRangeWithInclusiveBounds() {
+        RangePlan between = SqlRouteKeyFinder.findRange(
+                "select * from t_order where status = ? and created_at between ? and ?", "createdAt");
+        assertThat(between).isEqualTo(new RangePlan(new RoutePlan(1, null), true, new RoutePlan(2, null), true));
+
+        RangePlan halfOpen = SqlRouteKeyFinder.findRange(
+                "select * from t_order where created_at >= ? and created_at < ?", "createdAt");
+        assertThat(halfOpen).isEqualTo(new RangePlan(new RoutePlan(0, null), true, new RoutePlan(1, null), false));
+
+        RangePlan equal = SqlRouteKeyFinder.findRange("select * from t_order where created_at = '20260101'",
+                "createdAt");
+        assertThat(equal.isBounded()).isTrue();
+        assertThat(equal.lowerInclusive()).isTrue();
+        assertThat(equal.upper().literal()).isEqualTo("20260101");
+    }
+
+    @Test
+    void flipsRangeWhenColumnIsOnTheRight() {
+        RangePlan plan = SqlRouteKeyFinder.findRange(
+                "select * from t_order where ? <= created_at and ? > created_at", "createdAt");
+
+        assertThat(plan).isEqualTo(new RangePlan(new RoutePlan(0, null), true, new RoutePlan(1, null), false));
+
+        RangePlan upperOnly = SqlRouteKeyFinder.findRange("delete from t_order where 100 >= user_id", "userId");
+        assertThat(upperOnly).isEqualTo(new RangePlan(null, false, new RoutePlan(-1, "100"), true));
+        assertThat(upperOnly.isBounded()).isFalse();
+    }
+
+    @Test
+    void returnsNoneForUnparsableSql() {
+        assertThat(SqlRouteKeyFinder.find("select * from where", "userId")).isEqualTo(RoutePlan.NONE);
+        assertThat(SqlRouteKeyFinder.findRange("select * from where", "userId")).isEqualTo(RangePlan.NONE);
+        assertThat(SqlRouteKeyFinder.find("select * from t_order", "userId")).isEqualTo(RoutePlan.NONE);
+    }
+
+    private static Object resolve(RoutePlan plan, String sql, Map<String, Object> parameters, String... properties) {
+        Configuration configuration = new Configuration();
+        BoundSql boundSql = new BoundSql(configuration, sql, mappings(configuration, properties), parameters);
+        return SqlRouteKeyFinder.resolve(plan, statement(configuration, sql), boundSql);
+    }
+
+    private static List<ParameterMapping> mappings(Configuration configuration, String... properties) {
+        List<ParameterMapping> mappings = new ArrayList<>();
+        for (String property : properties) {
+            mappings.add(new ParameterMapping.Builder(configuration, property, Object.class).build());
+        }
+        return mappings;
+    }
+
+    private static MappedStatement statement(Configuration configuration, String sql) {
+        return new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, sql), SqlCommandType.SELECT).build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.wht.sdt.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SqlTableReplacer、SqlTemplate 测试
+ *
+ * @author wht
+ */
+class SqlTableReplacerTest {
+
+    private static final Map<String, Integer> TABLES = Map.of("t_order", 4, "t_order_item", 4, "t_user", 16,
+            "t_config", 1);
+
+    @Test
+    void rendersSuffixAfterEveryShardTable() {
+        SqlTemplate template = SqlTableReplacer.compile(
+                "select o.id from t_order o join t_order_item i on o.id = i.order_id where o.user_id = ?", TABLES);
+
+        assertThat(template.isSharded()).isTrue();
+        assertThat(template.getTableNames()).containsExactly("t_order", "t_order_item");
+        assertThat(template.render("002")).isEqualTo(
+                "select o.id from t_order_002 o join t_order_item_002 i on o.id = i.order_id where o.user_id = ?");
+    }
+
+    @Test
+    void keepsOriginalFormatting() {
+        String sql = "SELECT *\n  FROM   t_order\r\n WHERE id IN (SELECT order_id\n FROM t_order_item)";
+
+        assertThat(SqlTableReplacer.compile(sql, TABLES).render("003")).isEqualTo(
+                "SELECT *\n  FROM   t_order_003\r\n WHERE id IN (SELECT order_id\n FROM t_order_item_003)");
+    }
+
+    @Test
+    void rendersPerTableSuffixes() {
+        SqlTemplate template = SqlTableReplacer.compile(
+                "select * from t_order o join t_user u on o.user_id = u.id", TABLES);
+
+        assertThat(template.render(Map.of("t_order", "001", "t_user", "011")))
+                .isEqualTo("select * from t_order_001 o join t_user_011 u on o.user_id = u.id");
+        // 未指定后缀的表保持原样
+        assertThat(template.render(Map.of("t_user", "011")))
+                .isEqualTo("select * from t_order o join t_user_011 u on o.user_id = u.id");
+    }
+
+    @Test
+    void insertsSuffixInsideQuotes() {
+        SqlTemplate template = SqlTableReplacer.compile("insert into `t_order` (id, user_id) values (?, ?)", TABLES);
+
+        assertThat(template.render("004")).isEqualTo("insert into `t_order_004` (id, user_id) values (?, ?)");
+    }
+
+    @Test
+    void rewritesUpdateAndDelete() {
+        assertThat(SqlTableReplacer.compile("update t_order set amount = ? where id = ?", TABLES).render("001"))
+                .isEqualTo("update t_order_001 set amount = ? where id = ?");
+        assertThat(SqlTableReplacer.compile("delete from t_order where id = ?", TABLES).render("001"))
+                .isEqualTo("delete from t_order_001 where id = ?");
+    }
+
+    @Test
+    void skipsUnshardedTablesAndSimilarNames() {
+        SqlTemplate template = SqlTableReplacer.compile(
+                "select * from t_config c, t_order_archive a where c.name = 't_order'", TABLES);
+
+        assertThat(template.isSharded()).isFalse();
+        assertThat(template.render("001")).isSameAs(template.getSql());
+    }
+
+    @Test
+    void returnsOriginalWithoutSuffix() {
+        SqlTemplate template = SqlTableReplacer.compile("select * from t_order", TABLES);
+
+        assertThat(template.render((String) null)).isEqualTo("select * from t_order");
+        assertThat(template.render(Map.of())).isEqualTo("select * from t_order");
+    }
+
+    @Test
+    void fallsBackToRegexWhenParserFails() {
+        long fallbacks = SqlTableReplacer.getRegexFallbackCount();
+
+        SqlTemplate template = SqlTableReplacer.compile("select * from t_order where id = ? !!! broken", TABLES);
+
+        assertThat(SqlTableReplacer.getRegexFallbackCount()).isEqualTo(fallbacks + 1);
+        assertThat(template.render("002")).isEqualTo("select * from t_order_002 where id = ? !!! broken");
+    }
+
+    @Test
+    void replacesTableNamesWithParser() {
+        String sql = SqlTableReplacer.replaceTableName(
+                "SELECT * FROM t_order o JOIN t_order_item i ON o.id = i.order_id", TABLES, "001");
+
+        assertThat(sql).isEqualTo("SELECT * FROM t_order_001 o JOIN t_order_item_001 i ON o.id = i.order_id");
+    }
+
+    @Test
+    void detectsSqlType() {
+        assertThat(SqlTableReplacer.getSqlType("  select 1")).isEqualTo(SqlTableReplacer.SqlType.SELECT);
+        assertThat(SqlTableReplacer.getSqlType("INSERT into t")).isEqualTo(SqlTableReplacer.SqlType.INSERT);
+        assertThat(SqlTableReplacer.getSqlType("merge into t")).isEqualTo(SqlTableReplacer.SqlType.UNKNOWN);
+    }
+}
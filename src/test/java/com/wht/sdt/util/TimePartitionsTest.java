@@ -0,0 +1,137 @@
+package com.wht.sdt.util;
+
+import com.wht.sdt.enumeration.TimeGranularity;
+import com.wht.sdt.properties.TimePartitionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TimePartitions 测试
+ *
+ * @author wht
+ */
+class TimePartitionsTest {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Test
+    void convertsBetweenEpochDayAndCivilDate() {
+        // 覆盖闰年、世纪年（1900 非闰年、2000 闰年）以及1970年之前的日期
+        for (long epochDay = LocalDate.of(1600, 1, 1).toEpochDay(); epochDay <= LocalDate.of(2400, 12, 31).toEpochDay(); epochDay++) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int civil = TimePartitions.civilDate(epochDay);
+            assertThat(civil).isEqualTo(date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth());
+            assertThat(TimePartitions.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth())).isEqualTo(epochDay);
+        }
+    }
+
+    @Test
+    void formatsSuffixesLikeJavaTime() {
+        // 1969 ~ 2171 覆盖缓存区间的两端
+        for (long epochDay = LocalDate.of(1969, 1, 1).toEpochDay(); epochDay <= LocalDate.of(2171, 1, 1).toEpochDay(); epochDay += 3) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            assertThat(suffix(epochDay, TimeGranularity.DAY)).isEqualTo(date.format(DAY));
+            assertThat(suffix(epochDay, TimeGranularity.WEEK))
+                    .isEqualTo(date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).format(DAY));
+            assertThat(suffix(epochDay, TimeGranularity.MONTH)).isEqualTo(date.format(DateTimeFormatter.ofPattern("yyyyMM")));
+            assertThat(suffix(epochDay, TimeGranularity.YEAR)).isEqualTo(Integer.toString(date.getYear()));
+        }
+    }
+
+    @Test
+    void startsWeeksOnMonday() {
+        // 2026-10-12 是周一，2026-10-18 是周日
+        long monday = TimePartitions.epochDay(2026, 10, 12);
+        for (int i = 0; i < 7; i++) {
+            assertThat(suffix(monday + i, TimeGranularity.WEEK)).isEqualTo("20261012");
+        }
+        assertThat(suffix(monday + 7, TimeGranularity.WEEK)).isEqualTo("20261019");
+        assertThat(suffix(monday - 1, TimeGranularity.WEEK)).isEqualTo("20261005");
+    }
+
+    @Test
+    void parsesDateStrings() {
+        long expected = LocalDate.of(2026, 10, 17).toEpochDay();
+
+        assertThat(TimePartitions.epochDay("2026-10-17", null)).isEqualTo(expected);
+        assertThat(TimePartitions.epochDay("2026/10/17", null)).isEqualTo(expected);
+        assertThat(TimePartitions.epochDay("2026-10-17 23:59:59", "UTC")).isEqualTo(expected);
+        assertThat(TimePartitions.epochDay("2026-10-17T08:00:00", "Asia/Shanghai")).isEqualTo(expected);
+        assertThat(TimePartitions.epochDay("2024-02-29", null)).isEqualTo(LocalDate.of(2024, 2, 29).toEpochDay());
+    }
+
+    @Test
+    void parsesEightDigitNumbersAsCompactDates() {
+        // 不能按秒级时间戳换算为 1970-08-23
+        assertThat(TimePartitions.epochDay("20261017", null)).isEqualTo(LocalDate.of(2026, 10, 17).toEpochDay());
+        assertThat(TimePartitions.epochDay("20261017", "America/New_York"))
+                .isEqualTo(LocalDate.of(2026, 10, 17).toEpochDay());
+        assertThat(TimePartitions.epochDay("20240229", null)).isEqualTo(LocalDate.of(2024, 2, 29).toEpochDay());
+        for (String value : new String[]{"20261301", "20260229", "20261000", "12345678"}) {
+            assertThatThrownBy(() -> TimePartitions.epochDay(value, null))
+                    .as(value)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        // 其他长度的数字仍按时间戳处理
+        assertThat(TimePartitions.epochDay("86400", "UTC")).isEqualTo(1);
+        assertThat(TimePartitions.epochDay("-20261017", "UTC")).isEqualTo(Math.floorDiv(-20261017L, 86400L));
+    }
+
+    @Test
+    void convertsTimestampsInZone() {
+        // 2026-10-16T17:30:00Z，在上海时区是 2026-10-17
+        Instant instant = Instant.parse("2026-10-16T17:30:00Z");
+        long seconds = instant.getEpochSecond();
+
+        assertThat(TimePartitions.epochDay(Long.toString(seconds), "UTC")).isEqualTo(LocalDate.of(2026, 10, 16).toEpochDay());
+        assertThat(TimePartitions.epochDay(Long.toString(seconds), "Asia/Shanghai")).isEqualTo(LocalDate.of(2026, 10, 17).toEpochDay());
+        assertThat(TimePartitions.epochDay(Long.toString(instant.toEpochMilli()), "+08:00")).isEqualTo(LocalDate.of(2026, 10, 17).toEpochDay());
+        assertThat(TimePartitions.epochDay("-1", "UTC")).isEqualTo(-1);
+        assertThat(TimePartitions.epochDay("-1000", "UTC")).isEqualTo(-1);
+    }
+
+    @Test
+    void followsDaylightSavingTime() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        for (String time : new String[]{"2026-03-08T06:30:00Z", "2026-03-08T07:30:00Z", "2026-11-01T04:30:00Z", "2026-11-01T05:30:00Z"}) {
+            Instant instant = Instant.parse(time);
+            assertThat(TimePartitions.epochDay(Long.toString(instant.toEpochMilli()), "America/New_York"))
+                    .isEqualTo(instant.atZone(newYork).toLocalDate().toEpochDay());
+        }
+    }
+
+    @Test
+    void buildsSuffixFromPartitionConfig() {
+        TimePartitionProperties partition = new TimePartitionProperties();
+        partition.setGranularity(TimeGranularity.MONTH);
+        partition.setZone("Asia/Shanghai");
+
+        assertThat(TimePartitions.suffix("2026-10-17", partition)).isEqualTo("202610");
+        assertThat(TimePartitions.suffix(Long.toString(Instant.parse("2026-10-31T16:00:00Z").getEpochSecond()), partition))
+                .isEqualTo("202611");
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        for (String value : new String[]{"", "2026-1-17", "2026-10/17", "2026-13-01", "2026-02-29", "2026-10-17X", "abc", "-"}) {
+            assertThatThrownBy(() -> TimePartitions.epochDay(value, null))
+                    .as(value)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> TimePartitions.epochDay(null, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TimePartitions.epochDay("99999999999999999999", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String suffix(long epochDay, TimeGranularity granularity) {
+        return TimePartitions.suffix(TimePartitions.periodIndex(epochDay, granularity), granularity);
+    }
+}